@@ -0,0 +1,705 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>A {@link SocialNetwork} that picks between a {@link DNABook} style matrix and {@link DNABookHashImpl} style
+ * friend sets by itself, depending on how big and how dense the network is.</p>
+ *
+ *
+ * ======= IMPLEMENTATION =======
+ *
+ * <p>Every user is given an int id (reusing ids of removed users, same as {@link DNABook}), and friendships are stored
+ * by id in one of two {@link Adjacency} representations:</p>
+ *
+ * <ul>
+ *     <li>{@link BitMatrix} - one bit per pair of users. Lookups are a single bit test, but the memory is O(n^2) no
+ *     matter how many friendships there are.</li>
+ *     <li>{@link SparseSets} - an {@link IntHashSet} of friend ids per user. Memory is O(n + friendships), but lookups
+ *     have to hash and probe.</li>
+ * </ul>
+ *
+ * <p>After every write the density (friendships / possible friendships) is checked. If it's gone above
+ * {@link #toMatrixDensity} (and there aren't too many users for a matrix) it switches to the matrix, and if it's
+ * dropped below {@link #toSparseDensity} (or there are too many users) it switches to sets. The two thresholds are
+ * deliberately far apart so that adding and removing one friendship near the boundary doesn't keep switching it back
+ * and forth.</p>
+ *
+ * <p>The break-even point is roughly where a row of the matrix (n bits) costs the same as a user's set (about 64 bits
+ * per friend once the load factor is taken into account), which is a density of about 1/64.</p>
+ *
+ *
+ * ======= CONCURRENCY =======
+ *
+ * <p>Writers are queued up one at a time on {@link #writerLock}. Readers and writers share a {@link StampedLock} - readers
+ * take its read lock, writers only take its write lock for the short time they're actually changing something.</p>
+ *
+ * <p>When it's time to switch representation, the writer builds the new one while still holding {@link #writerLock}
+ * but NOT the write lock. No one else can be writing, so it's safe to read the old representation alongside any
+ * number of readers. Once the copy is done, the write lock is only needed for the moment it takes to swap the
+ * reference over - so readers are never stuck waiting for a migration.</p>
+ */
+public class AdaptiveSocialNetwork implements SocialNetwork {
+
+    static final double DEFAULT_TO_MATRIX_DENSITY = 1d / 16;
+
+    static final double DEFAULT_TO_SPARSE_DENSITY = 1d / 128;
+
+    static final int DEFAULT_MAX_MATRIX_USERS = 1 << 13; // 8MB of bits
+
+    static final int MIN_USERS_TO_ADAPT = 64;
+
+    private final double toMatrixDensity;
+
+    private final double toSparseDensity;
+
+    private final int maxMatrixUsers;
+
+    private final ReentrantLock writerLock = new ReentrantLock();
+
+    private final StampedLock lock = new StampedLock();
+
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    /**
+     * Name of the user with each id, for listing friends.
+     */
+    private String[] names = new String[16];
+
+    private int[] freeIds = new int[16];
+
+    private int freeIdCount;
+
+    private int nextId;
+
+    private long edgeCount;
+
+    private volatile Adjacency adjacency = new SparseSets(16);
+
+    private volatile int migrations;
+
+
+    public AdaptiveSocialNetwork() {
+        this(DEFAULT_TO_MATRIX_DENSITY, DEFAULT_TO_SPARSE_DENSITY, DEFAULT_MAX_MATRIX_USERS);
+    }
+
+    /**
+     * @param toMatrixDensity switch to a matrix once friendships / possible friendships goes above this
+     * @param toSparseDensity switch to sets once friendships / possible friendships drops below this
+     * @param maxMatrixUsers never use a matrix for more than this many users
+     */
+    public AdaptiveSocialNetwork(double toMatrixDensity, double toSparseDensity, int maxMatrixUsers) {
+        if (toSparseDensity < 0 || toSparseDensity >= toMatrixDensity)
+            throw new IllegalArgumentException("Illegal densities: " + toSparseDensity + " must be less than "
+                    + toMatrixDensity);
+
+        if (maxMatrixUsers < 1)
+            throw new IllegalArgumentException("Illegal max matrix users: " + maxMatrixUsers);
+
+        this.toMatrixDensity = toMatrixDensity;
+        this.toSparseDensity = toSparseDensity;
+        this.maxMatrixUsers = maxMatrixUsers;
+    }
+
+    @Override
+    public void registerUser(String name) {
+        writerLock.lock();
+        try {
+            if (ids.containsKey(name))
+                return;
+
+            int id = freeIdCount > 0 ? freeIds[--freeIdCount] : nextId;
+
+            if (id >= adjacency.capacity())
+                migrate(adjacency.isMatrix() && nextId < maxMatrixUsers, nextId * 2);
+
+            long stamp = lock.writeLock();
+            try {
+                if (id >= names.length)
+                    names = Arrays.copyOf(names, Math.max(id + 1, names.length * 2));
+
+                ids.put(name, id);
+                names[id] = name;
+
+                if (id == nextId)
+                    nextId++;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+
+            adapt();
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    @Override
+    public void becomeFriends(String name1, String name2) {
+        writerLock.lock();
+        try {
+            Integer id1 = ids.get(name1);
+            Integer id2 = ids.get(name2);
+
+            if (id1 == null || id2 == null)
+                return;
+
+            long stamp = lock.writeLock();
+            try {
+                if (adjacency.add(id1, id2))
+                    edgeCount++;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+
+            adapt();
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean areTheyFriends(String name1, String name2) {
+        long stamp = lock.readLock();
+        try {
+            Integer id1 = ids.get(name1);
+            Integer id2 = ids.get(name2);
+
+            return id1 != null && id2 != null && adjacency.contains(id1, id2);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void unfriend(String name1, String name2) {
+        writerLock.lock();
+        try {
+            Integer id1 = ids.get(name1);
+            Integer id2 = ids.get(name2);
+
+            if (id1 == null || id2 == null)
+                return;
+
+            long stamp = lock.writeLock();
+            try {
+                if (adjacency.remove(id1, id2))
+                    edgeCount--;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+
+            adapt();
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    @Override
+    public void removeUser(String name) {
+        writerLock.lock();
+        try {
+            Integer id = ids.get(name);
+
+            if (id == null)
+                return;
+
+            long stamp = lock.writeLock();
+            try {
+                ids.remove(name);
+                names[id] = null;
+                edgeCount -= adjacency.clearUser(id);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+
+            if (freeIdCount == freeIds.length)
+                freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+
+            freeIds[freeIdCount++] = id;
+            adapt();
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean containsUser(String name) {
+        long stamp = lock.readLock();
+        try {
+            return ids.containsKey(name);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * The consumer is called while holding the read lock, so it mustn't try to change the network.
+     */
+    @Override
+    public void forEachUser(Consumer<String> consumer) {
+        long stamp = lock.readLock();
+        try {
+            ids.keySet().forEach(consumer);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Ids over 127 are counted as a boxed {@link Integer} each in {@link #ids}, since only small ones are cached. The
+     * locks aren't counted.
+     */
+    @Override
+    public long memoryFootprint() {
+        long stamp = lock.readLock();
+        try {
+            // 2 doubles, 4 ints, a long and 6 references
+            HeapSize size = new HeapSize().addObject(2 * 8 + 4 * 4 + 8 + 6 * HeapSize.REFERENCE)
+                    .addBytes(HeapSize.javaHashMap(ids.size()))
+                    .addArray(names.length, HeapSize.REFERENCE)
+                    .addArray(freeIds.length, Integer.BYTES)
+                    .addBytes(adjacency.sizeInBytes());
+
+            ids.forEach((name, id) -> {
+                size.addString(name);
+
+                if (id > 127)
+                    size.addObject(4);
+            });
+            return size.bytes();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * The consumer is called while holding the read lock, so it mustn't try to change the network.
+     */
+    @Override
+    public void forEachFriend(String name, Consumer<String> consumer) {
+        long stamp = lock.readLock();
+        try {
+            Integer id = ids.get(name);
+
+            if (id != null)
+                adjacency.forEachFriend(id, friend -> consumer.accept(names[friend]));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public int friendCount(String name) {
+        long stamp = lock.readLock();
+        try {
+            Integer id = ids.get(name);
+            return id == null ? 0 : adjacency.friendCount(id);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * The cursor is a friend id to carry on from with the matrix, or a slot in the friend's {@link IntHashSet} with
+     * sets - so it's meaningless if the representation switches between pages.
+     */
+    @Override
+    public void friendsPage(String name, long cursor, FriendPage page) {
+        long stamp = lock.readLock();
+        try {
+            page.clear();
+            Integer id = ids.get(name);
+
+            if (id != null)
+                adjacency.page(id, (int) cursor, names, page);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return ids.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return an immutable copy of this network, optimised for lookups
+     */
+    public FrozenSocialNetwork freeze() {
+        long stamp = lock.readLock();
+        try {
+            FrozenSocialNetwork.Builder builder = new FrozenSocialNetwork.Builder();
+            int[] builderIds = new int[nextId];
+            ids.forEach((name, id) -> builderIds[id] = builder.addUser(name));
+
+            for (int id : ids.values()) {
+                adjacency.forEachFriend(id, friend -> {
+                    if (id <= friend)
+                        builder.addFriendship(builderIds[id], builderIds[friend]);
+                });
+            }
+            return builder.build();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return true if friendships are currently stored in a matrix, false if they're stored in sets
+     */
+    public boolean isMatrix() {
+        return adjacency.isMatrix();
+    }
+
+    /**
+     * @return how many times the representation has been switched (or grown)
+     */
+    public int getMigrations() {
+        return migrations;
+    }
+
+    /**
+     * @return friendships / possible friendships - 0 for an empty network
+     */
+    public double density() {
+        long stamp = lock.readLock();
+        try {
+            return currentDensity();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private double currentDensity() {
+        long users = ids.size();
+        return users < 2 ? 0 : (double) edgeCount / (users * (users - 1) / 2);
+    }
+
+    /**
+     * Checks the thresholds, and switches representation if needed. Must hold {@link #writerLock}.
+     *
+     * <p>Small networks never go back to sets - their matrix is tiny anyway, and their density jumps around too much
+     * with every change to be worth following.</p>
+     */
+    private void adapt() {
+        boolean tooBigForMatrix = nextId > maxMatrixUsers;
+        double density = currentDensity();
+
+        if (adjacency.isMatrix()) {
+            if (tooBigForMatrix || (ids.size() >= MIN_USERS_TO_ADAPT && density < toSparseDensity))
+                migrate(false, nextId);
+        } else if (!tooBigForMatrix && density >= toMatrixDensity) {
+            migrate(true, nextId);
+        }
+    }
+
+    /**
+     * Copies everything into a new representation, then swaps it in. Must hold {@link #writerLock}.
+     */
+    private void migrate(boolean toMatrix, int minCapacity) {
+        Adjacency old = adjacency;
+        int capacity = Math.max(16, minCapacity);
+        Adjacency replacement = toMatrix ? new BitMatrix(Math.min(capacity, maxMatrixUsers)) : new SparseSets(capacity);
+
+        // no writers can get in here, so reading the old one at the same time as readers is fine
+        for (int id = 0; id < nextId; id++) {
+            int from = id;
+            old.forEachFriend(id, to -> {
+                if (from <= to) // every friendship is seen from both ends, so only copy it once
+                    replacement.add(from, to);
+            });
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            adjacency = replacement;
+            migrations++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /* ============================ REPRESENTATIONS ============================ */
+
+    interface Adjacency {
+        /**
+         * @return true if they weren't already friends
+         */
+        boolean add(int id1, int id2);
+
+        /**
+         * @return true if they were friends
+         */
+        boolean remove(int id1, int id2);
+
+        boolean contains(int id1, int id2);
+
+        /**
+         * Removes all of a user's friendships.
+         *
+         * @return the number of friendships removed
+         */
+        int clearUser(int id);
+
+        void forEachFriend(int id, IntConsumer action);
+
+        int friendCount(int id);
+
+        /**
+         * Fills the page with the user's friends from the cursor onwards, and sets where the next page should start.
+         */
+        void page(int id, int cursor, String[] names, FriendPage page);
+
+        int capacity();
+
+        boolean isMatrix();
+
+        /**
+         * @return roughly how much memory this takes up, in bytes
+         */
+        long sizeInBytes();
+    }
+
+    /**
+     * Same as {@link DNABook}'s matrix, but using one bit per pair rather than a whole boolean.
+     */
+    static class BitMatrix implements Adjacency {
+
+        private final int capacity;
+
+        private final long[][] rows;
+
+        BitMatrix(int capacity) {
+            this.capacity = capacity;
+            this.rows = new long[capacity][(capacity + 63) >>> 6];
+        }
+
+        @Override
+        public boolean add(int id1, int id2) {
+            if (contains(id1, id2))
+                return false;
+
+            rows[id1][id2 >>> 6] |= 1L << id2;
+            rows[id2][id1 >>> 6] |= 1L << id1;
+            return true;
+        }
+
+        @Override
+        public boolean remove(int id1, int id2) {
+            if (!contains(id1, id2))
+                return false;
+
+            rows[id1][id2 >>> 6] &= ~(1L << id2);
+            rows[id2][id1 >>> 6] &= ~(1L << id1);
+            return true;
+        }
+
+        @Override
+        public boolean contains(int id1, int id2) {
+            return (rows[id1][id2 >>> 6] & (1L << id2)) != 0;
+        }
+
+        @Override
+        public int clearUser(int id) {
+            int[] removed = new int[1];
+            forEachFriend(id, friend -> {
+                rows[friend][id >>> 6] &= ~(1L << id);
+                removed[0]++;
+            });
+            Arrays.fill(rows[id], 0);
+            return removed[0];
+        }
+
+        @Override
+        public void forEachFriend(int id, IntConsumer action) {
+            long[] row = rows[id];
+
+            for (int word = 0; word < row.length; word++) {
+                long bits = row[word];
+
+                while (bits != 0) {
+                    action.accept((word << 6) + Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                }
+            }
+        }
+
+        @Override
+        public int friendCount(int id) {
+            int count = 0;
+
+            for (long bits : rows[id])
+                count += Long.bitCount(bits);
+
+            return count;
+        }
+
+        /**
+         * The cursor is the id of the friend to start from.
+         */
+        @Override
+        public void page(int id, int cursor, String[] names, FriendPage page) {
+            long[] row = rows[id];
+
+            for (int word = cursor >>> 6; word < row.length; word++) {
+                // bits before the cursor in the first word have already been done
+                long bits = word == cursor >>> 6 ? row[word] & (-1L << cursor) : row[word];
+
+                while (bits != 0) {
+                    int friend = (word << 6) + Long.numberOfTrailingZeros(bits);
+
+                    if (!page.add(names[friend])) {
+                        page.setNextCursor(friend);
+                        return;
+                    }
+                    bits &= bits - 1;
+                }
+            }
+        }
+
+        @Override
+        public int capacity() {
+            return capacity;
+        }
+
+        @Override
+        public long sizeInBytes() {
+            long row = HeapSize.align(HeapSize.ARRAY_HEADER + (long) ((capacity + 63) >>> 6) * Long.BYTES);
+            return HeapSize.align(HeapSize.OBJECT_HEADER + 4 + HeapSize.REFERENCE)
+                    + HeapSize.align(HeapSize.ARRAY_HEADER + (long) capacity * HeapSize.REFERENCE) + capacity * row;
+        }
+
+        @Override
+        public boolean isMatrix() {
+            return true;
+        }
+    }
+
+    /**
+     * Same idea as {@link DNABookHashImpl}, but with sets of int ids rather than names.
+     */
+    static class SparseSets implements Adjacency {
+
+        private final IntHashSet[] friends;
+
+        SparseSets(int capacity) {
+            this.friends = new IntHashSet[capacity];
+        }
+
+        @Override
+        public boolean add(int id1, int id2) {
+            boolean added = setOf(id1).add(id2);
+            setOf(id2).add(id1);
+            return added;
+        }
+
+        @Override
+        public boolean remove(int id1, int id2) {
+            IntHashSet friends1 = friends[id1];
+            IntHashSet friends2 = friends[id2];
+
+            if (friends1 == null || !friends1.remove(id2))
+                return false;
+
+            if (friends2 != null)
+                friends2.remove(id1);
+
+            return true;
+        }
+
+        @Override
+        public boolean contains(int id1, int id2) {
+            IntHashSet friends1 = friends[id1];
+            return friends1 != null && friends1.contains(id2);
+        }
+
+        @Override
+        public int clearUser(int id) {
+            IntHashSet userFriends = friends[id];
+
+            if (userFriends == null)
+                return 0;
+
+            userFriends.forEach(friend -> {
+                if (friend != id)
+                    friends[friend].remove(id);
+            });
+
+            int removed = userFriends.size();
+            friends[id] = null;
+            return removed;
+        }
+
+        @Override
+        public void forEachFriend(int id, IntConsumer action) {
+            IntHashSet userFriends = friends[id];
+
+            if (userFriends != null)
+                userFriends.forEach(action);
+        }
+
+        @Override
+        public int friendCount(int id) {
+            IntHashSet userFriends = friends[id];
+            return userFriends == null ? 0 : userFriends.size();
+        }
+
+        /**
+         * The cursor is the slot of the set's table to start from.
+         */
+        @Override
+        public void page(int id, int cursor, String[] names, FriendPage page) {
+            IntHashSet userFriends = friends[id];
+
+            if (userFriends == null)
+                return;
+
+            for (int slot = userFriends.nextSlot(cursor); slot != -1; slot = userFriends.nextSlot(slot + 1)) {
+                if (!page.add(names[userFriends.valueAt(slot)])) {
+                    page.setNextCursor(slot);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public int capacity() {
+            return friends.length;
+        }
+
+        @Override
+        public long sizeInBytes() {
+            long size = HeapSize.align(HeapSize.OBJECT_HEADER + HeapSize.REFERENCE)
+                    + HeapSize.align(HeapSize.ARRAY_HEADER + (long) friends.length * HeapSize.REFERENCE);
+
+            for (IntHashSet set : friends)
+                if (set != null)
+                    size += set.sizeInBytes();
+
+            return size;
+        }
+
+        @Override
+        public boolean isMatrix() {
+            return false;
+        }
+
+        private IntHashSet setOf(int id) {
+            IntHashSet set = friends[id];
+
+            if (set == null) {
+                set = new IntHashSet();
+                friends[id] = set;
+            }
+            return set;
+        }
+    }
+}
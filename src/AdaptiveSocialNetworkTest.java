@@ -0,0 +1,64 @@
+/**
+ * Executable class to test the AdaptiveSocialNetwork, including it switching between representations.
+ */
+public class AdaptiveSocialNetworkTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        AdaptiveSocialNetwork s = new AdaptiveSocialNetwork();
+
+        s.registerUser("Alex");
+        s.registerUser("Bea");
+        s.registerUser("Chris");
+
+        System.out.println(s.isMatrix() + " should be false");
+        s.becomeFriends("Alex", "Chris");
+        System.out.println(s.isMatrix() + " should be true");
+        System.out.println(s.areTheyFriends("Chris", "Alex") + " should be true");
+        System.out.println(s.areTheyFriends("Alex", "Bea") + " should be false");
+        System.out.println();
+
+        // lots of users with only a handful of friends each should end up as sets
+        for (int i = 0; i < 1000; i++)
+            s.registerUser("user" + i);
+
+        for (int i = 0; i < 999; i++)
+            s.becomeFriends("user" + i, "user" + (i + 1));
+
+        System.out.println(s.isMatrix() + " should be false");
+        System.out.println(s.areTheyFriends("user10", "user11") + " should be true");
+        System.out.println(s.areTheyFriends("user10", "user12") + " should be false");
+        System.out.println(s.areTheyFriends("Alex", "Chris") + " should be true");
+        System.out.println();
+
+        // readers should keep getting the right answer while writers are forcing migrations
+        AdaptiveSocialNetwork shared = new AdaptiveSocialNetwork(0.05, 0.01, 1 << 13);
+        for (int i = 0; i < 200; i++)
+            shared.registerUser("u" + i);
+        shared.becomeFriends("u0", "u1");
+
+        boolean[] wrong = new boolean[1];
+        Thread reader = new Thread(() -> {
+            for (int i = 0; i < 200_000; i++)
+                if (!shared.areTheyFriends("u0", "u1") || shared.areTheyFriends("u0", "u199"))
+                    wrong[0] = true;
+        });
+        reader.start();
+
+        for (int round = 0; round < 5; round++) {
+            for (int i = 2; i < 199; i++)
+                for (int j = i + 1; j < Math.min(199, i + 20); j++)
+                    shared.becomeFriends("u" + i, "u" + j);
+
+            for (int i = 2; i < 199; i++)
+                for (int j = i + 1; j < Math.min(199, i + 20); j++)
+                    shared.unfriend("u" + i, "u" + j);
+        }
+        reader.join();
+
+        System.out.println(wrong[0] + " should be false");
+        System.out.println((shared.getMigrations() > 2) + " should be true");
+
+        shared.removeUser("u1");
+        System.out.println(shared.areTheyFriends("u0", "u1") + " should be false");
+    }
+}
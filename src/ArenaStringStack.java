@@ -0,0 +1,247 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>A version of {@link StringStack} that doesn't keep hold of the String objects pushed to it.</p>
+ *
+ *
+ * ======= IMPLEMENTATION =======
+ *
+ * <p>Rather than an array of Strings, every pushed String is encoded as UTF-8 straight into one big {@code byte[]}
+ * (the arena), one after the other. A separate {@code int[]} remembers where each element starts in the arena - the
+ * element ends wherever the next one starts (or at {@link #arenaSize} for the one on top).</p>
+ *
+ * <p>This means there are always exactly two arrays no matter how deep the stack gets, so the garbage collector has
+ * almost nothing to do. Popping just moves {@link #arenaSize} back to where the top element started, so the space is
+ * reclaimed straight away and gets reused by the next push.</p>
+ *
+ * <p>{@link #pop()} and {@link #peek()} still have to build a new String to be compatible with {@link StringStack}.
+ * If the caller can work with bytes instead, {@link #peekBytes()} gives a read-only view straight onto the arena and
+ * {@link #popInto(byte[], int)} copies the top element out without making a String at all.</p>
+ *
+ *
+ * ======= NOTES =======
+ *
+ * <p>The arena doubles in size when it runs out of room, the same way {@link java.util.ArrayList} does. It's the
+ * number of elements that's bounded, not the number of bytes.</p>
+ *
+ * <p>Nulls can be pushed, same as {@link StringStack}. These are stored as a negative start offset and take up no space
+ * in the arena. Unpaired surrogates are encoded as '?', which is what {@link String#getBytes} does as well.</p>
+ */
+public class ArenaStringStack {
+
+    static final int DEFAULT_ARENA_CAPACITY = 1024;
+
+    /**
+     * The total amount of elements that can be added to the stack.
+     */
+    private final int maxCapacity;
+
+    /**
+     * The total number of elements currently stored in the stack.
+     */
+    private int elementCount;
+
+    /**
+     * Where each element starts in the arena. Null elements are stored as {@code -(start + 1)}.
+     */
+    private final int[] offsets;
+
+    /**
+     * The UTF-8 bytes of every element, back to back.
+     */
+    private byte[] arena;
+
+    /**
+     * The number of bytes of the arena currently in use.
+     */
+    private int arenaSize;
+
+    /**
+     * Constructor for creating a new ArenaStringStack with a certain capacity.
+     *
+     * @param maxCapacity the maximum number of strings the stack can hold
+     */
+    public ArenaStringStack(int maxCapacity) {
+        this(maxCapacity, DEFAULT_ARENA_CAPACITY);
+    }
+
+    public ArenaStringStack(int maxCapacity, int arenaCapacity) {
+        if (maxCapacity < 0)
+            throw new IllegalArgumentException("Illegal max capacity: " + maxCapacity);
+
+        if (arenaCapacity < 0)
+            throw new IllegalArgumentException("Illegal arena capacity: " + arenaCapacity);
+
+        this.maxCapacity = maxCapacity;
+        this.offsets = new int[maxCapacity];
+        this.arena = new byte[arenaCapacity];
+    }
+
+    /**
+     * Puts the given String on top of the stack (if there is enough space).
+     *
+     * @param s the String to add to the top of the stack
+     * @return false if there was not enough space in the stack to add the string - otherwise true
+     */
+    public boolean push(String s) {
+        if (elementCount >= maxCapacity)
+            return false;
+
+        if (s == null) {
+            offsets[elementCount++] = -(arenaSize + 1);
+            return true;
+        }
+
+        ensureArenaCapacity(arenaSize + 3 * s.length()); // 3 bytes per char is the worst case for UTF-8
+        offsets[elementCount++] = arenaSize;
+        arenaSize = encode(s, arena, arenaSize);
+        return true;
+    }
+
+    /**
+     * Removes the String on top of the stack from the stack and returns it.
+     *
+     * @return the String on top of the stack, or null if the stack is empty.
+     */
+    public String pop() {
+        String obj = peek();
+
+        if (!isEmpty())
+            removeTop();
+
+        return obj;
+    }
+
+    /**
+     * Removes the element on top of the stack and copies its UTF-8 bytes into the given array.
+     *
+     * @param dst the array to copy into
+     * @param dstOffset where in dst to start copying to
+     * @return the number of bytes copied, or -1 if the stack was empty or the top element was null
+     * @throws IndexOutOfBoundsException if dst isn't big enough - in which case nothing is removed
+     */
+    public int popInto(byte[] dst, int dstOffset) {
+        if (isEmpty())
+            return -1;
+
+        int start = startOf(elementCount - 1);
+        int length = isNullAt(elementCount - 1) ? -1 : arenaSize - start;
+
+        if (length > 0)
+            System.arraycopy(arena, start, dst, dstOffset, length);
+
+        removeTop();
+        return length;
+    }
+
+    /**
+     * Returns the number of Strings in the stack.
+     *
+     * @return the number of Strings in the stack
+     */
+    public int count() {
+        return elementCount;
+    }
+
+    /**
+     * <p>Look at the object at the top of the stack without actually removing it.</p>
+     *
+     * <p>NOTE: Returns null if there is nothing currently in the stack.</p>
+     *
+     * @return The object at the top of the stack. If nothing in the stack, returns null
+     */
+    public String peek() {
+        if (isEmpty() || isNullAt(elementCount - 1))
+            return null;
+
+        int start = startOf(elementCount - 1);
+        return new String(arena, start, arenaSize - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * <p>Look at the UTF-8 bytes of the object at the top of the stack without copying them.</p>
+     *
+     * <p>NOTE: The view is only valid until the next push or pop.</p>
+     *
+     * @return a read-only view of the top element's bytes, or null if the stack is empty or the top element is null
+     */
+    public ByteBuffer peekBytes() {
+        if (isEmpty() || isNullAt(elementCount - 1))
+            return null;
+
+        int start = startOf(elementCount - 1);
+        return ByteBuffer.wrap(arena, start, arenaSize - start).slice().asReadOnlyBuffer();
+    }
+
+    public boolean isEmpty() {
+        return elementCount == 0;
+    }
+
+    /**
+     * Returns the number of bytes the elements in the stack take up in the arena.
+     *
+     * @return the number of bytes in use
+     */
+    public int arenaSize() {
+        return arenaSize;
+    }
+
+    private void removeTop() {
+        arenaSize = startOf(--elementCount);
+    }
+
+    private int startOf(int index) {
+        int offset = offsets[index];
+        return offset < 0 ? -(offset + 1) : offset;
+    }
+
+    private boolean isNullAt(int index) {
+        return offsets[index] < 0;
+    }
+
+    private void ensureArenaCapacity(int required) {
+        if (required <= arena.length)
+            return;
+
+        byte[] grown = new byte[Math.max(required, arena.length * 2)];
+        System.arraycopy(arena, 0, grown, 0, arenaSize);
+        arena = grown;
+    }
+
+    /**
+     * Encodes the String as UTF-8 straight into the arena, so there's no temporary byte[] like with
+     * {@link String#getBytes}.
+     *
+     * @return the position in the arena after the last byte written
+     */
+    private static int encode(String s, byte[] dst, int pos) {
+        int length = s.length();
+
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+
+            if (c < 0x80) {
+                dst[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                dst[pos++] = (byte) (0xC0 | (c >> 6));
+                dst[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                    dst[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                    dst[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    dst[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    dst[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else {
+                    dst[pos++] = (byte) '?';
+                }
+            } else {
+                dst[pos++] = (byte) (0xE0 | (c >> 12));
+                dst[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                dst[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return pos;
+    }
+}
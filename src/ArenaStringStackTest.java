@@ -0,0 +1,45 @@
+/**
+ * Executable class to test the ArenaStringStack abstract data type.
+ */
+public class ArenaStringStackTest {
+
+    public static void main(String[] args) {
+        ArenaStringStack s = new ArenaStringStack(0);
+        System.out.println(s.pop() + " should be null");
+        System.out.println(s.push("full") + " should be false");
+        System.out.println(s.count() + " should be 0");
+        System.out.println();
+
+        s = new ArenaStringStack(10, 4); // small arena so that it has to grow
+        System.out.println(s.push("banana") + " should be true");
+        System.out.println(s.push("apple") + " should be true");
+        System.out.println(s.push("pear") + " should be true");
+        System.out.println(s.arenaSize() + " should be 15");
+        System.out.println(s.pop() + " should be pear");
+        System.out.println(s.arenaSize() + " should be 11");
+        System.out.println(s.push("plum") + " should be true");
+        System.out.println(s.pop() + " should be plum");
+        System.out.println(s.pop() + " should be apple");
+        System.out.println(s.pop() + " should be banana");
+        System.out.println(s.pop() + " should be null");
+        System.out.println(s.arenaSize() + " should be 0");
+        System.out.println();
+
+        s = new ArenaStringStack(10);
+        System.out.println(s.push("caf\u00e9 \u20ac \ud83d\ude00") + " should be true");
+        System.out.println(s.peekBytes().remaining() + " should be 14");
+        System.out.println(s.pop().equals("caf\u00e9 \u20ac \ud83d\ude00") + " should be true");
+        System.out.println(s.push(null) + " should be true");
+        System.out.println(s.push("") + " should be true");
+        System.out.println(s.count() + " should be 2");
+        System.out.println("\"" + s.pop() + "\" should be \"\"");
+        System.out.println(s.pop() + " should be null");
+        System.out.println(s.count() + " should be 0");
+        System.out.println();
+
+        byte[] buffer = new byte[16];
+        s.push("hello");
+        System.out.println(s.popInto(buffer, 0) + " should be 5");
+        System.out.println(new String(buffer, 0, 5) + " should be hello");
+    }
+}
@@ -0,0 +1,337 @@
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>A feed of changes made to a {@link SocialNetwork} (see {@link ChangeFeedSocialNetwork}), which any number of
+ * {@link Subscription}s can read from at their own pace.</p>
+ *
+ *
+ * ======= IMPLEMENTATION =======
+ *
+ * <p>This is a ring buffer in the style of the LMAX Disruptor. All of the {@link Event}s are allocated up front, and
+ * publishing one just means filling in the next one in the ring and then moving {@link #cursor} on. Nothing is
+ * allocated and no locks are taken.</p>
+ *
+ * <p>Every subscription has its own sequence - the last event it's finished with. A subscriber reads every event up to
+ * the cursor in one go (a batch), and only moves its sequence on at the end of the batch, so a slow subscriber costs
+ * the producer nothing until the ring is actually full.</p>
+ *
+ * <p>The producer can't reuse an event until every subscriber has finished with it, so before it laps the ring it has
+ * to check the slowest subscriber. The slowest sequence it saw is cached, so this is only done once per lap rather
+ * than on every publish. If the ring really is full, the {@link Backpressure} policy decides what to do.</p>
+ *
+ *
+ * ======= NOTES =======
+ *
+ * <p>There must only ever be one thread publishing at a time. Subscriptions can each be polled by a different
+ * thread.</p>
+ *
+ * <p>A subscription only sees events published after it subscribed.</p>
+ *
+ * <p>Events are reused once everyone has read them, so handlers have to copy anything they want to keep.</p>
+ */
+public class ChangeFeed {
+
+    static final int DEFAULT_CAPACITY = 1 << 16;
+
+    static final int SPINS = 100;
+
+    static final int YIELDS = 100;
+
+    static final long PARK_NANOS = 50_000;
+
+    public enum Type {
+        REGISTER_USER, BECOME_FRIENDS, UNFRIEND, REMOVE_USER
+    }
+
+    /**
+     * What to do when publishing and the slowest subscriber is a whole ring behind.
+     */
+    public enum Backpressure {
+        /**
+         * Wait for the slowest subscriber to catch up. Nothing is lost, but the writer stalls.
+         */
+        BLOCK,
+        /**
+         * Throw away the new event (and count it in {@link #getDropped()}). The writer never stalls.
+         */
+        DROP,
+        /**
+         * Throw an {@link IllegalStateException}.
+         */
+        FAIL
+    }
+
+    /**
+     * Handles the events from a subscription.
+     */
+    public interface Handler {
+
+        /**
+         * @param event only valid until this method returns - it's reused afterwards
+         * @param endOfBatch true if this is the last event available for now, so a good time to flush anything
+         *                   that's been buffered up
+         */
+        void onEvent(Event event, long sequence, boolean endOfBatch);
+    }
+
+    private final Event[] events;
+
+    private final int mask;
+
+    private final Backpressure backpressure;
+
+    private final AtomicLong cursor = new AtomicLong(-1);
+
+    private volatile Subscription[] subscriptions = new Subscription[0];
+
+    // only touched by the publishing thread
+
+    private long next;
+
+    private long cachedSlowest = -1;
+
+    private volatile long dropped;
+
+
+    public ChangeFeed() {
+        this(DEFAULT_CAPACITY, Backpressure.BLOCK);
+    }
+
+    /**
+     * @param capacity how many events the ring holds - must be a power of two
+     */
+    public ChangeFeed(int capacity, Backpressure backpressure) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Illegal capacity: " + capacity + " (must be a power of two)");
+
+        this.events = new Event[capacity];
+        this.mask = capacity - 1;
+        this.backpressure = Objects.requireNonNull(backpressure);
+
+        for (int i = 0; i < capacity; i++)
+            events[i] = new Event();
+    }
+
+    /**
+     * Publishes an event. Must only be called from one thread at a time.
+     *
+     * @param name2 null for events that only have one user
+     * @return false if the event was dropped because the feed was full
+     */
+    public boolean publish(Type type, String name1, String name2) {
+        long sequence = next;
+        long wrapPoint = sequence - events.length;
+
+        if (wrapPoint > cachedSlowest) {
+            cachedSlowest = slowest(sequence - 1);
+
+            while (wrapPoint > cachedSlowest) {
+                switch (backpressure) {
+                    case DROP:
+                        dropped++;
+                        return false;
+
+                    case FAIL:
+                        throw new IllegalStateException("Change feed is full: the slowest subscriber is "
+                                + (sequence - 1 - cachedSlowest) + " events behind");
+
+                    default:
+                        Thread.onSpinWait();
+                        LockSupport.parkNanos(PARK_NANOS);
+                        cachedSlowest = slowest(sequence - 1);
+                }
+            }
+        }
+
+        Event event = events[(int) sequence & mask];
+        event.type = type;
+        event.name1 = name1;
+        event.name2 = name2;
+
+        next = sequence + 1;
+        cursor.lazySet(sequence); // the event's fields are visible to anyone who sees the new cursor
+        return true;
+    }
+
+    /**
+     * Starts a new subscription, which will see everything published from now on. It has to be closed once it's
+     * finished with, otherwise the feed will fill up waiting for it.
+     */
+    public synchronized Subscription subscribe() {
+        Subscription subscription = new Subscription(cursor.get());
+        Subscription[] grown = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+        grown[grown.length - 1] = subscription;
+        subscriptions = grown;
+        return subscription;
+    }
+
+    /**
+     * @return the sequence of the last event published, or -1 if there haven't been any
+     */
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    /**
+     * @return how many events were thrown away because the feed was full
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    public int capacity() {
+        return events.length;
+    }
+
+    private synchronized void unsubscribe(Subscription subscription) {
+        Subscription[] remaining = new Subscription[subscriptions.length - 1];
+        int i = 0;
+
+        for (Subscription s : subscriptions)
+            if (s != subscription)
+                remaining[i++] = s;
+
+        subscriptions = remaining;
+    }
+
+    /**
+     * @param max what to return if there aren't any subscribers
+     */
+    private long slowest(long max) {
+        long slowest = max;
+
+        for (Subscription subscription : subscriptions)
+            slowest = Math.min(slowest, subscription.sequence.get());
+
+        return slowest;
+    }
+
+    /**
+     * One change. These are reused, so fields can only be trusted inside {@link Handler#onEvent}.
+     */
+    public static class Event {
+
+        private Type type;
+
+        private String name1;
+
+        private String name2;
+
+        public Type getType() {
+            return type;
+        }
+
+        public String getName1() {
+            return name1;
+        }
+
+        /**
+         * @return the second user, or null for {@link Type#REGISTER_USER} and {@link Type#REMOVE_USER}
+         */
+        public String getName2() {
+            return name2;
+        }
+
+        @Override
+        public String toString() {
+            return name2 == null ? type + "(" + name1 + ")" : type + "(" + name1 + ", " + name2 + ")";
+        }
+    }
+
+    /**
+     * <p>One reader of the feed. It can either be polled by hand with {@link #poll(Handler)}, or given its own thread
+     * with {@link #start(Handler)}.</p>
+     */
+    public class Subscription implements AutoCloseable {
+
+        private final AtomicLong sequence;
+
+        private volatile boolean closed;
+
+        private Thread thread;
+
+        private Subscription(long sequence) {
+            this.sequence = new AtomicLong(sequence);
+        }
+
+        /**
+         * Hands every event published since the last poll to the handler, as one batch.
+         *
+         * @return how many events were handled
+         */
+        public int poll(Handler handler) {
+            long from = sequence.get() + 1;
+            long to = cursor.get();
+
+            for (long s = from; s <= to; s++)
+                handler.onEvent(events[(int) s & mask], s, s == to);
+
+            sequence.lazySet(to); // let the producer reuse the whole batch at once
+            return (int) (to - from + 1);
+        }
+
+        /**
+         * Starts a daemon thread that keeps polling into the handler until this is closed. When there's nothing to
+         * read it spins for a bit, then yields, then sleeps for {@link #PARK_NANOS} at a time. Once it's started,
+         * {@link #poll(Handler)} mustn't be called by anything else.
+         */
+        public synchronized void start(Handler handler) {
+            if (thread != null)
+                throw new IllegalStateException("Subscription already started");
+
+            thread = new Thread(() -> {
+                int idle = 0;
+
+                while (!closed) {
+                    if (poll(handler) > 0) {
+                        idle = 0;
+                    } else if (++idle <= SPINS) {
+                        Thread.onSpinWait();
+                    } else if (idle <= SPINS + YIELDS) {
+                        Thread.yield();
+                    } else {
+                        LockSupport.parkNanos(PARK_NANOS);
+                    }
+                }
+            }, "change-feed-subscriber");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /**
+         * @return how many published events this subscription hasn't handled yet
+         */
+        public long lag() {
+            return cursor.get() - sequence.get();
+        }
+
+        /**
+         * Stops this subscription holding up the feed, and stops its thread if it has one (waiting for the batch
+         * it's on to finish).
+         */
+        @Override
+        public void close() {
+            Thread running;
+
+            synchronized (this) {
+                if (closed)
+                    return;
+
+                closed = true;
+                running = thread;
+            }
+            unsubscribe(this);
+
+            if (running != null && running != Thread.currentThread()) {
+                try {
+                    running.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+import java.util.Random;
+
+/**
+ * <p>Local benchmark of how much publishing to a {@link ChangeFeed} adds to the cost of a write, by comparing
+ * {@link SocialNetwork#becomeFriends} on a plain {@link DNABookJavaImpl} with one wrapped in a
+ * {@link ChangeFeedSocialNetwork} that has a subscriber reading on its own thread.</p>
+ */
+public class ChangeFeedBenchmark {
+
+    static final int USERS = 10_000;
+
+    static final int WRITES = 2_000_000;
+
+    static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        String[] names = new String[USERS];
+        for (int i = 0; i < USERS; i++)
+            names[i] = "user" + i;
+
+        Random random = new Random(42);
+        int[] pairs = new int[WRITES * 2];
+        for (int i = 0; i < pairs.length; i++)
+            pairs[i] = random.nextInt(USERS);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            double plain = measure(new DNABookJavaImpl(), names, pairs);
+
+            ChangeFeedSocialNetwork wrapped = new ChangeFeedSocialNetwork(new DNABookJavaImpl());
+            long[] received = new long[1];
+            ChangeFeed.Subscription subscription = wrapped.getFeed().subscribe();
+            subscription.start((event, sequence, endOfBatch) -> received[0]++);
+
+            double withFeed = measure(wrapped, names, pairs);
+            while (subscription.lag() > 0)
+                Thread.onSpinWait();
+            subscription.close();
+
+            System.out.printf("plain %6.1f ns / write | with feed %6.1f ns / write | events received %,d%n",
+                    plain, withFeed, received[0]);
+        }
+    }
+
+    /**
+     * @return nanoseconds per becomeFriends
+     */
+    private static double measure(SocialNetwork network, String[] names, int[] pairs) {
+        for (String name : names)
+            network.registerUser(name);
+
+        long start = System.nanoTime();
+
+        for (int i = 0; i < pairs.length; i += 2)
+            network.becomeFriends(names[pairs[i]], names[pairs[i + 1]]);
+
+        return (double) (System.nanoTime() - start) / (pairs.length / 2);
+    }
+}
@@ -0,0 +1,111 @@
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * <p>Wraps any {@link SocialNetwork} and publishes every write made through it to a {@link ChangeFeed}, so that other
+ * systems can follow along without polling the network and working out what changed.</p>
+ *
+ *
+ * ======= NOTES =======
+ *
+ * <p>Events are published after the write has been made, and only if it didn't throw. They're published for every
+ * call, even ones that didn't change anything (eg. making two users friends that already were), since the network
+ * doesn't say whether anything changed - so subscribers should be happy to see the same change twice.</p>
+ *
+ * <p>The feed only allows one publisher at a time, so writes are made one at a time (while holding this object's
+ * lock) - this also means the events come out in the same order the writes were made. Reads go straight through to
+ * the network, so this is as thread-safe as the network being wrapped.</p>
+ */
+public class ChangeFeedSocialNetwork implements SocialNetwork {
+
+    private final SocialNetwork network;
+
+    private final ChangeFeed feed;
+
+
+    public ChangeFeedSocialNetwork(SocialNetwork network) {
+        this(network, new ChangeFeed());
+    }
+
+    public ChangeFeedSocialNetwork(SocialNetwork network, ChangeFeed feed) {
+        this.network = Objects.requireNonNull(network);
+        this.feed = Objects.requireNonNull(feed);
+    }
+
+    @Override
+    public synchronized void registerUser(String name) {
+        network.registerUser(name);
+        feed.publish(ChangeFeed.Type.REGISTER_USER, name, null);
+    }
+
+    @Override
+    public synchronized void becomeFriends(String name1, String name2) {
+        network.becomeFriends(name1, name2);
+        feed.publish(ChangeFeed.Type.BECOME_FRIENDS, name1, name2);
+    }
+
+    @Override
+    public boolean areTheyFriends(String name1, String name2) {
+        return network.areTheyFriends(name1, name2);
+    }
+
+    @Override
+    public synchronized void unfriend(String name1, String name2) {
+        network.unfriend(name1, name2);
+        feed.publish(ChangeFeed.Type.UNFRIEND, name1, name2);
+    }
+
+    @Override
+    public synchronized void removeUser(String name) {
+        network.removeUser(name);
+        feed.publish(ChangeFeed.Type.REMOVE_USER, name, null);
+    }
+
+    @Override
+    public boolean containsUser(String name) {
+        return network.containsUser(name);
+    }
+
+    @Override
+    public void forEachUser(Consumer<String> consumer) {
+        network.forEachUser(consumer);
+    }
+
+    @Override
+    public void forEachFriend(String name, Consumer<String> consumer) {
+        network.forEachFriend(name, consumer);
+    }
+
+    @Override
+    public int friendCount(String name) {
+        return network.friendCount(name);
+    }
+
+    @Override
+    public void friendsPage(String name, long cursor, FriendPage page) {
+        network.friendsPage(name, cursor, page);
+    }
+
+    /**
+     * Just the network being wrapped - not counting the feed's ring buffer.
+     */
+    @Override
+    public long memoryFootprint() {
+        return network.memoryFootprint();
+    }
+
+    @Override
+    public List<String> findUsersByPrefix(String prefix, int limit) {
+        return network.findUsersByPrefix(prefix, limit);
+    }
+
+    @Override
+    public List<String> findUsersByPrefix(String prefix, int limit, String caller) {
+        return network.findUsersByPrefix(prefix, limit, caller);
+    }
+
+    public ChangeFeed getFeed() {
+        return feed;
+    }
+}
@@ -0,0 +1,104 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Executable class to test the ChangeFeed and ChangeFeedSocialNetwork, including each of the backpressure policies.
+ */
+public class ChangeFeedTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        ChangeFeedSocialNetwork s = new ChangeFeedSocialNetwork(new DNABookJavaImpl());
+        ChangeFeed.Subscription subscription = s.getFeed().subscribe();
+
+        s.registerUser("Alex");
+        s.registerUser("Bea");
+        s.becomeFriends("Alex", "Bea");
+        s.unfriend("Bea", "Alex");
+        s.removeUser("Alex");
+
+        List<String> seen = new ArrayList<>();
+        int handled = subscription.poll((event, sequence, endOfBatch) ->
+                seen.add(event + (endOfBatch ? " end" : "")));
+
+        System.out.println(handled + " should be 5");
+        System.out.println(seen + " should be [REGISTER_USER(Alex), REGISTER_USER(Bea), BECOME_FRIENDS(Alex, Bea), "
+                + "UNFRIEND(Bea, Alex), REMOVE_USER(Alex) end]");
+        System.out.println(subscription.poll((event, sequence, endOfBatch) -> seen.add("more")) + " should be 0");
+        System.out.println(s.containsUser("Bea") + " should be true");
+        subscription.close();
+        System.out.println();
+
+        // a subscriber that never reads should make the feed drop, fail or (once it's gone) carry on
+        ChangeFeed dropping = new ChangeFeed(4, ChangeFeed.Backpressure.DROP);
+        ChangeFeed.Subscription stuck = dropping.subscribe();
+        int published = 0;
+        for (int i = 0; i < 10; i++)
+            if (dropping.publish(ChangeFeed.Type.REGISTER_USER, "user" + i, null))
+                published++;
+
+        System.out.println(published + " should be 4");
+        System.out.println(dropping.getDropped() + " should be 6");
+        System.out.println(stuck.lag() + " should be 4");
+
+        List<String> kept = new ArrayList<>();
+        stuck.poll((event, sequence, endOfBatch) -> kept.add(event.getName1()));
+        System.out.println(kept + " should be [user0, user1, user2, user3]");
+        stuck.close();
+
+        for (int i = 0; i < 10; i++)
+            dropping.publish(ChangeFeed.Type.REGISTER_USER, "user" + i, null);
+        System.out.println(dropping.getDropped() + " should be 6");
+        System.out.println();
+
+        ChangeFeed failing = new ChangeFeed(4, ChangeFeed.Backpressure.FAIL);
+        ChangeFeed.Subscription slow = failing.subscribe();
+        try {
+            for (int i = 0; i < 5; i++)
+                failing.publish(ChangeFeed.Type.REGISTER_USER, "user" + i, null);
+            System.out.println("no exception - should have thrown IllegalStateException");
+        } catch (IllegalStateException e) {
+            System.out.println("IllegalStateException should be IllegalStateException");
+        }
+        slow.close();
+
+        try {
+            new ChangeFeed(100, ChangeFeed.Backpressure.BLOCK);
+            System.out.println("no exception - should have thrown IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            System.out.println("IllegalArgumentException should be IllegalArgumentException");
+        }
+        System.out.println();
+
+        // with blocking, a subscriber on its own thread should get every event, in order, even with a tiny ring
+        ChangeFeed blocking = new ChangeFeed(64, ChangeFeed.Backpressure.BLOCK);
+        ChangeFeed.Subscription[] subscribers = {blocking.subscribe(), blocking.subscribe()};
+        long[] counts = new long[2];
+        boolean[] outOfOrder = new boolean[2];
+        long[] batches = new long[2];
+
+        for (int i = 0; i < 2; i++) {
+            int index = i;
+            subscribers[i].start((event, sequence, endOfBatch) -> {
+                if (!event.getName1().equals("user" + counts[index]))
+                    outOfOrder[index] = true;
+                counts[index]++;
+                if (endOfBatch)
+                    batches[index]++;
+            });
+        }
+
+        for (int i = 0; i < 100_000; i++)
+            blocking.publish(ChangeFeed.Type.REGISTER_USER, "user" + i, null);
+
+        while (subscribers[0].lag() > 0 || subscribers[1].lag() > 0)
+            Thread.sleep(1);
+
+        for (ChangeFeed.Subscription subscriber : subscribers)
+            subscriber.close();
+
+        System.out.println(counts[0] + " " + counts[1] + " should be 100000 100000");
+        System.out.println(outOfOrder[0] + " " + outOfOrder[1] + " should be false false");
+        System.out.println((batches[0] < counts[0]) + " should be true"); // events should come in batches
+        System.out.println(blocking.getDropped() + " should be 0");
+    }
+}
@@ -0,0 +1,328 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * <p>Wraps any {@link SocialNetwork} and holds back {@link #becomeFriends(String, String)} calls for a little while,
+ * so that a burst of them (with lots of repeats - eg. retries, or both users making the same friendship) can be
+ * applied to the network in one go, with each friendship only applied once.</p>
+ *
+ *
+ * ======= IMPLEMENTATION =======
+ *
+ * <p>Pending friendships are kept in an open addressing hash table of name pairs ({@link #firstNames} and
+ * {@link #secondNames}), made big enough up front for {@link #maxPending} of them at a load factor of 1/2. Each pair
+ * is put in a fixed order first - the name with the smaller hash, or the smaller name if the hashes are the same -
+ * so "A, B" and "B, A" are the same friendship in the same slot. A repeat is just one probe, rather than the two user
+ * lookups and two set inserts the network would do. Nothing is allocated per call.</p>
+ *
+ * <p>Once there are {@link #maxPending} of them, or the oldest has been waiting for {@link #maxDelayNanos}, they're
+ * all {@link #flush() flushed}: sorted by the first name of each pair, so that a user's friendships are applied one
+ * after another while their data is still in the cache, then passed on to the network. Since the names are in a fixed
+ * order, "A, B" and "C, A" end up next to each other whenever A's hash is the smallest. The sort is on a
+ * {@code long[]} of the first name's hash (in the top half) and the slot (in the bottom half), which is much cheaper
+ * than sorting by the names themselves.</p>
+ *
+ * <p>{@link #areTheyFriends(String, String)} checks the pending friendships before the network, so a friendship can be
+ * seen straight after it's made. Anything else that depends on friendships (eg. {@link #friendCount(String)}) flushes
+ * first, as does every other kind of write - so writes still reach the network in the same order as they were made,
+ * and whether a user exists is the same now as it was when their pending friendships were made.</p>
+ *
+ *
+ * ======= NOTES =======
+ *
+ * <p>There's no background thread of its own, so the time limit is only checked when this is called - see
+ * {@link #CoalescingSocialNetwork(SocialNetwork, int, long)} and {@link #flushEvery(ScheduledExecutorService)}.</p>
+ *
+ * <p>The network only knows about names, not ids, so friendships are grouped by user (by the hash of their name)
+ * rather than sorted by id.</p>
+ *
+ * <p>Everything that touches the pending friendships (including {@link #areTheyFriends(String, String)}) holds this
+ * object's lock, and the reads that don't go straight through to the network - so this is as thread-safe as the
+ * network being wrapped.</p>
+ */
+public class CoalescingSocialNetwork implements SocialNetwork {
+
+    static final int DEFAULT_MAX_PENDING = 4096;
+
+    static final int MAX_MAX_PENDING = 1 << 24;
+
+    static final long DEFAULT_MAX_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final SocialNetwork network;
+
+    private final int maxPending;
+
+    private final long maxDelayNanos;
+
+    private final String[] firstNames;
+
+    private final String[] secondNames;
+
+    private final int mask;
+
+    /**
+     * The slots in use, in the order they were filled.
+     */
+    private final int[] usedSlots;
+
+    private final long[] sortKeys;
+
+    private int pending;
+
+    private long oldestPendingNanos;
+
+    private long duplicates;
+
+    private long flushes;
+
+
+    public CoalescingSocialNetwork(SocialNetwork network) {
+        this(network, DEFAULT_MAX_PENDING, DEFAULT_MAX_DELAY_NANOS);
+    }
+
+    /**
+     * <p>The time limit is only checked when a write or a friendship read comes in, so a friendship can be held back
+     * for as long as nothing calls this - and {@link #containsUser}, {@link #forEachUser} and
+     * {@link #findUsersByPrefix(String, int)} never flush, since they don't depend on friendships. Either call
+     * {@link #flush()} once a batch of writes is done, or use {@link #flushEvery(ScheduledExecutorService)}.</p>
+     *
+     * @param maxPending    flush once this many different friendships are waiting
+     * @param maxDelayNanos flush once the oldest friendship has been waiting this long
+     */
+    public CoalescingSocialNetwork(SocialNetwork network, int maxPending, long maxDelayNanos) {
+        if (maxPending < 1 || maxPending > MAX_MAX_PENDING)
+            throw new IllegalArgumentException("Illegal max pending: " + maxPending);
+
+        if (maxDelayNanos < 0)
+            throw new IllegalArgumentException("Illegal max delay: " + maxDelayNanos);
+
+        this.network = Objects.requireNonNull(network);
+        this.maxPending = maxPending;
+        this.maxDelayNanos = maxDelayNanos;
+
+        int capacity = Integer.highestOneBit(maxPending) << 2; // at least twice maxPending
+        this.firstNames = new String[capacity];
+        this.secondNames = new String[capacity];
+        this.mask = capacity - 1;
+        this.usedSlots = new int[maxPending];
+        this.sortKeys = new long[maxPending];
+    }
+
+    @Override
+    public synchronized void registerUser(String name) {
+        flush();
+        network.registerUser(name);
+    }
+
+    @Override
+    public synchronized void becomeFriends(String name1, String name2) {
+        if (name1 == null || name2 == null) {
+            // let the network deal with it however it normally does
+            flush();
+            network.becomeFriends(name1, name2);
+            return;
+        }
+
+        if (pending == 0)
+            oldestPendingNanos = System.nanoTime();
+
+        if (!inOrder(name1, name2)) {
+            String swap = name1;
+            name1 = name2;
+            name2 = swap;
+        }
+
+        int slot = slotOf(name1, name2);
+
+        if (firstNames[slot] != null) {
+            duplicates++;
+        } else {
+            firstNames[slot] = name1;
+            secondNames[slot] = name2;
+            usedSlots[pending++] = slot;
+        }
+
+        if (pending >= maxPending || System.nanoTime() - oldestPendingNanos >= maxDelayNanos)
+            flush();
+    }
+
+    /**
+     * A pending friendship counts as long as both users are in the network - they can't have been removed since it
+     * was made, since that would have flushed it.
+     */
+    @Override
+    public synchronized boolean areTheyFriends(String name1, String name2) {
+        if (pending > 0) {
+            if (System.nanoTime() - oldestPendingNanos >= maxDelayNanos) {
+                flush();
+            } else if (name1 != null && name2 != null
+                    && firstNames[inOrder(name1, name2) ? slotOf(name1, name2) : slotOf(name2, name1)] != null) {
+                return network.containsUser(name1) && (name1.equals(name2) || network.containsUser(name2));
+            }
+        }
+        return network.areTheyFriends(name1, name2);
+    }
+
+    @Override
+    public synchronized void unfriend(String name1, String name2) {
+        flush();
+        network.unfriend(name1, name2);
+    }
+
+    @Override
+    public synchronized void removeUser(String name) {
+        flush();
+        network.removeUser(name);
+    }
+
+    @Override
+    public boolean containsUser(String name) {
+        return network.containsUser(name);
+    }
+
+    @Override
+    public void forEachUser(Consumer<String> consumer) {
+        network.forEachUser(consumer);
+    }
+
+    @Override
+    public synchronized void forEachFriend(String name, Consumer<String> consumer) {
+        flush();
+        network.forEachFriend(name, consumer);
+    }
+
+    @Override
+    public synchronized int friendCount(String name) {
+        flush();
+        return network.friendCount(name);
+    }
+
+    @Override
+    public synchronized void friendsPage(String name, long cursor, FriendPage page) {
+        flush();
+        network.friendsPage(name, cursor, page);
+    }
+
+    /**
+     * Just the network being wrapped - not counting the pending friendships.
+     */
+    @Override
+    public long memoryFootprint() {
+        return network.memoryFootprint();
+    }
+
+    @Override
+    public List<String> findUsersByPrefix(String prefix, int limit) {
+        return network.findUsersByPrefix(prefix, limit);
+    }
+
+    @Override
+    public synchronized List<String> findUsersByPrefix(String prefix, int limit, String caller) {
+        flush();
+        return network.findUsersByPrefix(prefix, limit, caller);
+    }
+
+    /**
+     * Applies all the pending friendships to the network, grouped by user. If the network throws, the friendships
+     * after the one it threw on are dropped rather than applied.
+     */
+    public synchronized void flush() {
+        if (pending == 0)
+            return;
+
+        for (int i = 0; i < pending; i++)
+            sortKeys[i] = (long) firstNames[usedSlots[i]].hashCode() << 32 | usedSlots[i];
+
+        Arrays.sort(sortKeys, 0, pending);
+
+        // take them all out before applying any, in case the network calls back into this
+        int count = pending;
+        pending = 0;
+        int i = 0;
+
+        try {
+            for (; i < count; i++) {
+                int slot = (int) sortKeys[i];
+                String name1 = firstNames[slot];
+                String name2 = secondNames[slot];
+                firstNames[slot] = null;
+                secondNames[slot] = null;
+                network.becomeFriends(name1, name2);
+            }
+        } finally {
+            // if the network threw, the rest are dropped - leaving them in the table would make them look pending
+            // (and count repeats of them as duplicates) without anything tracking them any more
+            for (i++; i < count; i++) {
+                int slot = (int) sortKeys[i];
+                firstNames[slot] = null;
+                secondNames[slot] = null;
+            }
+        }
+
+        flushes++;
+    }
+
+    /**
+     * <p>Checks the time limit every half of it on the executor, and flushes if the oldest friendship has waited too
+     * long - so friendships still get through when nothing is calling this. Cancel the returned task to stop it, and
+     * shut down the executor as usual.</p>
+     *
+     * <p>The flushes happen on the executor's thread, so the network has to be thread-safe, unless it's only ever
+     * used through this.</p>
+     */
+    public ScheduledFuture<?> flushEvery(ScheduledExecutorService executor) {
+        long period = Math.max(1, maxDelayNanos / 2);
+        return executor.scheduleAtFixedRate(this::flushIfDue, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    private synchronized void flushIfDue() {
+        if (pending > 0 && System.nanoTime() - oldestPendingNanos >= maxDelayNanos)
+            flush();
+    }
+
+    public synchronized int getPending() {
+        return pending;
+    }
+
+    /**
+     * @return how many {@link #becomeFriends(String, String)} calls were dropped because the same friendship was
+     * already waiting
+     */
+    public synchronized long getDuplicates() {
+        return duplicates;
+    }
+
+    public synchronized long getFlushes() {
+        return flushes;
+    }
+
+    /**
+     * @return true if name1 goes first in a pair - by hash, or by the names themselves if the hashes are the same
+     */
+    private static boolean inOrder(String name1, String name2) {
+        int hash1 = name1.hashCode();
+        int hash2 = name2.hashCode();
+        return hash1 != hash2 ? hash1 < hash2 : name1.compareTo(name2) <= 0;
+    }
+
+    /**
+     * @param name1 has to be {@link #inOrder} with name2
+     * @return the slot holding this friendship, or the empty slot it would go in
+     */
+    private int slotOf(String name1, String name2) {
+        int slot = DNABookHashImpl.MixingHasher.mix(31 * name1.hashCode() + name2.hashCode()) & mask;
+
+        while (firstNames[slot] != null) {
+            if (firstNames[slot].equals(name1) && secondNames[slot].equals(name2))
+                return slot;
+
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
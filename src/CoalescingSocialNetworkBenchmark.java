@@ -0,0 +1,108 @@
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+/**
+ * <p>Local benchmark of loading friendships with lots of repeats into each backend, straight in and through a
+ * {@link CoalescingSocialNetwork}.</p>
+ *
+ * <p>The friendships come from a Barabasi-Albert graph from {@link WorkloadGenerator}. Every one is sent from both
+ * sides, and each of those is retried with probability {@link #RETRY_CHANCE}, and then they're shuffled within windows
+ * of {@link #WINDOW} calls - so repeats turn up close together, the way they do from retries.</p>
+ *
+ * <p>Pass the number of users as the first argument (the default is 20,000).</p>
+ */
+public class CoalescingSocialNetworkBenchmark {
+
+    static final int DEFAULT_USERS = 20_000;
+
+    static final int EDGES_PER_USER = 8;
+
+    static final double RETRY_CHANCE = 0.5;
+
+    static final int WINDOW = 1_000;
+
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_USERS;
+        WorkloadGenerator.Graph graph = new WorkloadGenerator(42).barabasiAlbert(users, EDGES_PER_USER);
+        int width = WorkloadGenerator.nameWidth(users);
+
+        String[] names = new String[users];
+        for (int id = 0; id < users; id++)
+            names[id] = WorkloadGenerator.name(id, width);
+
+        // both directions, plus retries
+        SplittableRandom random = new SplittableRandom(42);
+        int[][] calls = new int[2][(int) (graph.edgeCount() * 2 * (1 + RETRY_CHANCE) * 1.1)];
+        int[] count = new int[1];
+
+        graph.forEachEdge((id1, id2) -> {
+            for (int direction = 0; direction < 2; direction++) {
+                for (int copy = 0; copy == 0 || (copy == 1 && random.nextDouble() < RETRY_CHANCE); copy++) {
+                    if (count[0] == calls[0].length)
+                        return;
+
+                    calls[0][count[0]] = direction == 0 ? id1 : id2;
+                    calls[1][count[0]++] = direction == 0 ? id2 : id1;
+                }
+            }
+        });
+
+        for (int start = 0; start < count[0]; start += WINDOW) {
+            int end = Math.min(count[0], start + WINDOW);
+
+            for (int i = end - 1; i > start; i--) {
+                int j = start + random.nextInt(i - start + 1);
+
+                for (int[] side : calls) {
+                    int swap = side[i];
+                    side[i] = side[j];
+                    side[j] = swap;
+                }
+            }
+        }
+
+        System.out.printf("%,d users, %,d friendships, %,d becomeFriends calls%n", users, graph.edgeCount(),
+                count[0]);
+
+        run("DNABookHashImpl", DNABookHashImpl::new, names, calls, count[0]);
+        run("DNABookJavaImpl", DNABookJavaImpl::new, names, calls, count[0]);
+        run("AdaptiveSocialNetwork", AdaptiveSocialNetwork::new, names, calls, count[0]);
+    }
+
+    private static void run(String label, Supplier<SocialNetwork> backend, String[] names, int[][] calls, int count) {
+        long[] nanos = new long[2];
+        long[] friends = new long[2];
+        long duplicates = 0;
+
+        for (int round = 0; round < 3; round++) { // the first round is just to warm up
+            for (int coalesce = 0; coalesce < 2; coalesce++) {
+                SocialNetwork network = backend.get();
+                for (String name : names)
+                    network.registerUser(name);
+
+                CoalescingSocialNetwork coalescing = coalesce == 1 ? new CoalescingSocialNetwork(network) : null;
+                SocialNetwork target = coalesce == 1 ? coalescing : network;
+
+                long start = System.nanoTime();
+                for (int i = 0; i < count; i++)
+                    target.becomeFriends(names[calls[0][i]], names[calls[1][i]]);
+
+                if (coalescing != null) {
+                    coalescing.flush();
+                    duplicates = coalescing.getDuplicates();
+                }
+
+                if (round > 0)
+                    nanos[coalesce] += System.nanoTime() - start;
+
+                friends[coalesce] = 0;
+                for (String name : names)
+                    friends[coalesce] += network.friendCount(name);
+            }
+        }
+
+        System.out.printf("%-22s direct %6.1f ns per call | coalesced %6.1f ns per call (%.0f%% dropped as repeats)"
+                        + " | %s%n", label, nanos[0] / (2d * count), nanos[1] / (2d * count),
+                100d * duplicates / count, friends[0] == friends[1] ? "same friendships" : "DIFFERENT FRIENDSHIPS");
+    }
+}
@@ -0,0 +1,201 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executable class to test CoalescingSocialNetwork, wrapped around DNABookHashImpl.
+ */
+public class CoalescingSocialNetworkTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        DNABookHashImpl hash = new DNABookHashImpl();
+        CoalescingSocialNetwork s = new CoalescingSocialNetwork(hash, 100, Long.MAX_VALUE);
+
+        s.registerUser("Alex");
+        s.registerUser("Bea");
+        s.registerUser("Chris");
+
+        // retries and both directions all come down to one friendship
+        s.becomeFriends("Alex", "Bea");
+        s.becomeFriends("Bea", "Alex");
+        s.becomeFriends("Alex", "Bea");
+        System.out.println(s.getPending() + " should be 1");
+        System.out.println(s.getDuplicates() + " should be 2");
+
+        // seen straight away, but not in the network yet
+        System.out.println(s.areTheyFriends("Bea", "Alex") + " should be true");
+        System.out.println(hash.areTheyFriends("Bea", "Alex") + " should be false");
+
+        // someone who isn't registered can't be anyone's friend, pending or not
+        s.becomeFriends("Alex", "Zed");
+        System.out.println(s.areTheyFriends("Alex", "Zed") + " should be false");
+
+        // anything that needs the real friendships flushes first
+        System.out.println(s.friendCount("Alex") + " should be 1");
+        System.out.println(s.getPending() + " should be 0");
+        System.out.println(hash.areTheyFriends("Bea", "Alex") + " should be true");
+        System.out.println(s.getFlushes() + " should be 1");
+
+        // so does any other write, so it happens after the friendships made before it
+        s.becomeFriends("Chris", "Bea");
+        s.unfriend("Bea", "Chris");
+        System.out.println(s.areTheyFriends("Chris", "Bea") + " should be false");
+
+        s.becomeFriends("Chris", "Alex");
+        s.removeUser("Chris");
+        s.registerUser("Chris");
+        System.out.println(s.areTheyFriends("Alex", "Chris") + " should be false");
+        System.out.println();
+
+        // flushes by itself once enough are waiting
+        CoalescingSocialNetwork small = new CoalescingSocialNetwork(new DNABookHashImpl(), 3, Long.MAX_VALUE);
+        for (int i = 0; i < 5; i++)
+            small.registerUser("u" + i);
+
+        small.becomeFriends("u0", "u1");
+        small.becomeFriends("u0", "u2");
+        System.out.println(small.getFlushes() + " should be 0");
+        small.becomeFriends("u0", "u3");
+        System.out.println(small.getFlushes() + " should be 1");
+        System.out.println(small.getPending() + " should be 0");
+
+        // and straight away with no delay allowed
+        CoalescingSocialNetwork noDelay = new CoalescingSocialNetwork(new DNABookHashImpl(), 100, 0);
+        noDelay.registerUser("Alex");
+        noDelay.becomeFriends("Alex", "Alex");
+        System.out.println(noDelay.getPending() + " should be 0");
+        System.out.println(noDelay.areTheyFriends("Alex", "Alex") + " should be true");
+
+        try {
+            new CoalescingSocialNetwork(new DNABookHashImpl(), 0, 10);
+            System.out.println("should have thrown");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage() + " should be Illegal max pending: 0");
+        }
+        System.out.println();
+
+        // if the network throws part way through a flush, none of the friendships are left looking pending
+        FrozenSocialNetwork.Builder builder = new FrozenSocialNetwork.Builder();
+        builder.addUser("Alex");
+        builder.addUser("Bea");
+        builder.addUser("Chris");
+        CoalescingSocialNetwork frozen = new CoalescingSocialNetwork(builder.build(), 100, Long.MAX_VALUE);
+        frozen.becomeFriends("Alex", "Bea");
+        frozen.becomeFriends("Alex", "Chris");
+
+        try {
+            frozen.flush();
+            System.out.println("should have thrown");
+        } catch (UnsupportedOperationException e) {
+            System.out.println(e.getMessage() + " should be Network is frozen");
+        }
+
+        System.out.println(frozen.getPending() + " should be 0");
+        System.out.println(frozen.areTheyFriends("Alex", "Bea") + " should be false");
+        System.out.println(frozen.areTheyFriends("Chris", "Alex") + " should be false");
+
+        // and making one of them again isn't a duplicate
+        frozen.becomeFriends("Chris", "Alex");
+        System.out.println(frozen.getDuplicates() + " should be 0");
+        System.out.println(frozen.getPending() + " should be 1");
+        System.out.println();
+
+        // lots of random calls, checked against an unwrapped network the whole way
+        CoalescingSocialNetwork coalescing = new CoalescingSocialNetwork(new DNABookHashImpl(), 64, Long.MAX_VALUE);
+        DNABookHashImpl expected = new DNABookHashImpl();
+        SplittableRandom random = new SplittableRandom(42);
+        int users = 200;
+        int mismatches = 0;
+
+        for (int i = 0; i < users; i++) {
+            coalescing.registerUser("u" + i);
+            expected.registerUser("u" + i);
+        }
+
+        for (int step = 0; step < 100_000; step++) {
+            // a few names that were never registered
+            String name1 = "u" + random.nextInt(users + 5);
+            String name2 = "u" + random.nextInt(users + 5);
+            int operation = random.nextInt(100);
+
+            if (operation < 50) {
+                coalescing.becomeFriends(name1, name2);
+                expected.becomeFriends(name1, name2);
+            } else if (operation < 55) {
+                coalescing.unfriend(name1, name2);
+                expected.unfriend(name1, name2);
+            } else if (operation < 56) {
+                coalescing.removeUser(name1);
+                expected.removeUser(name1);
+            } else if (operation < 57) {
+                coalescing.registerUser(name1);
+                expected.registerUser(name1);
+            } else if (operation < 58) {
+                if (coalescing.friendCount(name1) != expected.friendCount(name1))
+                    mismatches++;
+            } else if (coalescing.areTheyFriends(name1, name2) != expected.areTheyFriends(name1, name2)) {
+                mismatches++;
+            }
+        }
+
+        System.out.println(mismatches + " should be 0");
+        System.out.println((coalescing.getDuplicates() > 0) + " should be true");
+        System.out.println();
+
+        // pairs are put in order before they're stored, so a user's friendships are passed on together whichever way
+        // round they were made
+        List<String> applied = new ArrayList<>();
+        DNABookHashImpl recording = new DNABookHashImpl() {
+            @Override
+            public void becomeFriends(String name1, String name2) {
+                applied.add(name1 + "," + name2);
+                super.becomeFriends(name1, name2);
+            }
+        };
+        CoalescingSocialNetwork ordered = new CoalescingSocialNetwork(recording, 100, Long.MAX_VALUE);
+        String[] names = {"Alex", "Bea", "Chris", "Daniel", "Ed"};
+        for (String name : names)
+            ordered.registerUser(name);
+
+        String smallest = names[0];
+        for (String name : names) {
+            if (name.hashCode() < smallest.hashCode())
+                smallest = name;
+        }
+
+        for (String name : names) {
+            if (!name.equals(smallest))
+                ordered.becomeFriends(name, smallest);
+        }
+        ordered.flush();
+
+        System.out.println(applied.size() + " should be 4");
+        boolean grouped = true;
+        for (String pair : applied)
+            grouped &= pair.startsWith(smallest + ",");
+        System.out.println(grouped + " should be true");
+        System.out.println(ordered.friendCount(smallest) + " should be 4");
+        System.out.println();
+
+        // nothing calls the wrapper after this, so it's only flushed by the executor
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        DNABookHashImpl idle = new DNABookHashImpl();
+        CoalescingSocialNetwork timed = new CoalescingSocialNetwork(idle, 100, TimeUnit.MILLISECONDS.toNanos(5));
+        ScheduledFuture<?> flusher = timed.flushEvery(executor);
+        timed.registerUser("Alex");
+        timed.registerUser("Bea");
+        timed.becomeFriends("Alex", "Bea");
+
+        for (int i = 0; i < 100 && timed.getPending() > 0; i++)
+            Thread.sleep(10);
+
+        System.out.println(timed.getPending() + " should be 0");
+        System.out.println(idle.areTheyFriends("Alex", "Bea") + " should be true");
+        flusher.cancel(false);
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,563 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>A {@link SocialNetwork} for very big networks that are mostly read and hardly ever change, which keeps
+ * friendships compressed to a byte or two each - a fraction of an {@code int[]} of friend ids per user.</p>
+ *
+ *
+ * ======= IMPLEMENTATION =======
+ *
+ * <p>Users get an int id each, in the order they register. Each user's friend ids are sorted, and stored (one user
+ * after another, in {@link #data}) as the gaps between them - the first id, then for every other friend how far it is
+ * past the one before, minus one. The gaps are much smaller than the ids themselves, and they're written as varints
+ * (7 bits per byte, with the top bit meaning there's another byte), so most of them take one or two bytes. This is
+ * the same idea as WebGraph, without its reference compression.</p>
+ *
+ * <p>Gaps can only be decoded in order, so checking one friendship would mean decoding the whole row. To stop that,
+ * every row with more than {@link #BLOCK_SIZE} friends is split into blocks, and a skip table at the start of the row
+ * holds the first id of every block after the first, and where its gaps carry on from (4 bytes each, so it can be
+ * binary searched). {@link #areTheyFriends(String, String)} binary searches the table of whichever user has fewer
+ * friends and then decodes at most one block.</p>
+ *
+ * <p>Compressed rows can't be changed in place, so writes go into an overlay - an {@link IntHashSet} per user of
+ * friendships added since the last merge ({@link #added}), and one of compressed friendships that have since been
+ * removed ({@link #deleted}). Reads check the overlay first. Once the overlay has grown to 1 / {@link #mergeRatio} the
+ * size of the compressed rows, {@link #merge()} rewrites all the rows with the overlay folded in, which keeps the
+ * overlay small and makes each write O(mergeRatio) amortised.</p>
+ *
+ *
+ * ======= NOTES =======
+ *
+ * <p>How small the gaps are depends on the ids - friends with ids near each other compress best. Ids are handed out
+ * in the order users register, so registering users in an order that keeps friends together (eg. by community) makes
+ * it smaller.</p>
+ *
+ * <p>Removed users' ids aren't reused. Their compressed friendships are skipped over until the next merge throws
+ * them away, and the removal counts towards the next merge the same as that many writes.</p>
+ *
+ * <p>{@link #data} is indexed by int, so it can hold about 2 GB of compressed friendships. It is not thread-safe.</p>
+ */
+public class CompressedSocialNetwork implements SocialNetwork {
+
+    static final int BLOCK_SIZE = 32;
+
+    static final int DEFAULT_MERGE_RATIO = 8;
+
+    /**
+     * Never merge for fewer changes than this, so a small network isn't merged on every write.
+     */
+    static final int MIN_MERGE_CHANGES = 1 << 12;
+
+    private static final int SKIP_ENTRY_BYTES = 8;
+
+    private final int mergeRatio;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    /**
+     * Name of the user with each id, or null if they've been removed.
+     */
+    private String[] names = new String[16];
+
+    private int nextId;
+
+    /**
+     * Every compressed row, one after the other. Each one is its number of friends, the skip table (if it has more
+     * than {@link #BLOCK_SIZE}) and then the gaps.
+     */
+    private byte[] data = new byte[0];
+
+    /**
+     * Where each user's row starts in {@link #data}, with one extra on the end - for ids up to
+     * {@link #compressedUsers}.
+     */
+    private int[] offsets = new int[1];
+
+    private int compressedUsers;
+
+    /**
+     * Friend ids in all the compressed rows, so each friendship counted twice.
+     */
+    private long compressedFriends;
+
+    private IntHashSet[] added = new IntHashSet[16];
+
+    private IntHashSet[] deleted = new IntHashSet[16];
+
+    private long changesSinceMerge;
+
+    private int removedSinceMerge;
+
+    private int merges;
+
+
+    public CompressedSocialNetwork() {
+        this(DEFAULT_MERGE_RATIO);
+    }
+
+    /**
+     * @param mergeRatio merge once there's been 1 / mergeRatio as many changes as there are compressed friendships
+     */
+    public CompressedSocialNetwork(int mergeRatio) {
+        if (mergeRatio < 1)
+            throw new IllegalArgumentException("Illegal merge ratio: " + mergeRatio);
+
+        this.mergeRatio = mergeRatio;
+    }
+
+    @Override
+    public void registerUser(String name) {
+        if (ids.containsKey(Objects.requireNonNull(name)))
+            return;
+
+        if (nextId == names.length) {
+            names = Arrays.copyOf(names, nextId * 2);
+            added = Arrays.copyOf(added, nextId * 2);
+            deleted = Arrays.copyOf(deleted, nextId * 2);
+        }
+
+        names[nextId] = name;
+        ids.put(name, nextId++);
+    }
+
+    @Override
+    public void becomeFriends(String name1, String name2) {
+        int id1 = getIdFrom(name1);
+        int id2 = getIdFrom(name2);
+
+        if (id1 == -1 || id2 == -1)
+            return;
+
+        addFriend(id1, id2);
+        if (id1 != id2)
+            addFriend(id2, id1);
+
+        mergeIfNeeded();
+    }
+
+    @Override
+    public void unfriend(String name1, String name2) {
+        int id1 = getIdFrom(name1);
+        int id2 = getIdFrom(name2);
+
+        if (id1 == -1 || id2 == -1)
+            return;
+
+        removeFriend(id1, id2);
+        if (id1 != id2)
+            removeFriend(id2, id1);
+
+        mergeIfNeeded();
+    }
+
+    @Override
+    public boolean areTheyFriends(String name1, String name2) {
+        int id1 = getIdFrom(name1);
+        int id2 = getIdFrom(name2);
+
+        if (id1 == -1 || id2 == -1)
+            return false;
+
+        if (added[id1] != null && added[id1].contains(id2))
+            return true;
+
+        if (deleted[id1] != null && deleted[id1].contains(id2))
+            return false;
+
+        return compressedContains(id1, id2);
+    }
+
+    /**
+     * Only the friendships in the overlay are taken out straight away - the compressed ones point at an id no one has
+     * any more, so they're just skipped until the next merge.
+     */
+    @Override
+    public void removeUser(String name) {
+        Integer id = name == null ? null : ids.remove(name);
+
+        if (id == null)
+            return;
+
+        if (added[id] != null) {
+            added[id].forEach(friend -> {
+                if (friend != id && added[friend].remove(id))
+                    changesSinceMerge--;
+            });
+            changesSinceMerge -= added[id].size();
+            added[id] = null;
+        }
+
+        if (deleted[id] != null) {
+            changesSinceMerge -= deleted[id].size();
+            deleted[id] = null;
+        }
+
+        names[id] = null;
+        removedSinceMerge++;
+        changesSinceMerge += compressedDegree(id);
+        mergeIfNeeded();
+    }
+
+    @Override
+    public boolean containsUser(String name) {
+        return name != null && ids.containsKey(name);
+    }
+
+    @Override
+    public void forEachUser(Consumer<String> consumer) {
+        for (int id = 0; id < nextId; id++)
+            if (names[id] != null)
+                consumer.accept(names[id]);
+    }
+
+    @Override
+    public void forEachFriend(String name, Consumer<String> consumer) {
+        int id = getIdFrom(name);
+
+        if (id != -1)
+            forEachFriend(id, friend -> consumer.accept(names[friend]));
+    }
+
+    /**
+     * Calls the action with the id of each of the user's friends - the compressed ones in order, then any added since
+     * the last merge.
+     */
+    public void forEachFriend(int id, IntConsumer action) {
+        IntHashSet removed = deleted[id];
+
+        forEachCompressed(id, friend -> {
+            if (names[friend] != null && (removed == null || !removed.contains(friend)))
+                action.accept(friend);
+        });
+
+        if (added[id] != null)
+            added[id].forEach(action);
+    }
+
+    /**
+     * Doesn't have to decode anything unless someone's been removed since the last merge.
+     */
+    @Override
+    public int friendCount(String name) {
+        int id = getIdFrom(name);
+
+        if (id == -1)
+            return 0;
+
+        if (removedSinceMerge > 0)
+            return SocialNetwork.super.friendCount(name);
+
+        return compressedDegree(id) + (added[id] == null ? 0 : added[id].size())
+                - (deleted[id] == null ? 0 : deleted[id].size());
+    }
+
+    /**
+     * Ids over 127 are counted as a boxed {@link Integer} each in {@link #ids}, since only small ones are cached.
+     */
+    @Override
+    public long memoryFootprint() {
+        // 5 ints, 2 longs and 6 references
+        HeapSize size = new HeapSize().addObject(5 * 4 + 2 * 8 + 6 * HeapSize.REFERENCE)
+                .addBytes(HeapSize.javaHashMap(ids.size()))
+                .addArray(names.length, HeapSize.REFERENCE)
+                .addArray(added.length, HeapSize.REFERENCE)
+                .addArray(deleted.length, HeapSize.REFERENCE)
+                .addBytes(compressedSizeInBytes());
+
+        ids.forEach((name, id) -> {
+            size.addString(name);
+
+            if (id > 127)
+                size.addObject(4);
+        });
+
+        for (int id = 0; id < nextId; id++) {
+            if (added[id] != null)
+                size.addBytes(added[id].sizeInBytes());
+            if (deleted[id] != null)
+                size.addBytes(deleted[id].sizeInBytes());
+        }
+        return size.bytes();
+    }
+
+    /**
+     * @return how much memory the compressed rows and their offsets take up, in bytes - the part that an
+     * {@code int[]} of friend ids per user would otherwise be
+     */
+    public long compressedSizeInBytes() {
+        return HeapSize.align(HeapSize.ARRAY_HEADER + data.length)
+                + HeapSize.align(HeapSize.ARRAY_HEADER + (long) offsets.length * Integer.BYTES);
+    }
+
+    /**
+     * Rewrites every row with the overlay folded in (and removed users taken out), and empties the overlay.
+     *
+     * @throws IllegalStateException if the compressed rows would be too big for one array
+     */
+    public void merge() {
+        RowWriter writer = new RowWriter(data.length + (int) Math.min(Integer.MAX_VALUE / 2, changesSinceMerge * 2));
+        int[] newOffsets = new int[nextId + 1];
+        int[] row = new int[16];
+        long friends = 0;
+
+        for (int id = 0; id < nextId; id++) {
+            newOffsets[id] = writer.length;
+
+            if (names[id] == null)
+                continue;
+
+            int degree = compressedDegree(id) + (added[id] == null ? 0 : added[id].size());
+            if (degree > row.length)
+                row = new int[Math.max(degree, row.length * 2)];
+
+            int[] friendIds = row;
+            int[] count = new int[1];
+
+            forEachFriend(id, friend -> friendIds[count[0]++] = friend);
+            Arrays.sort(friendIds, 0, count[0]);
+            writer.writeRow(friendIds, count[0]);
+            friends += count[0];
+        }
+        newOffsets[nextId] = writer.length;
+
+        data = Arrays.copyOf(writer.bytes, writer.length);
+        offsets = newOffsets;
+        compressedUsers = nextId;
+        compressedFriends = friends;
+        Arrays.fill(added, 0, nextId, null);
+        Arrays.fill(deleted, 0, nextId, null);
+        changesSinceMerge = 0;
+        removedSinceMerge = 0;
+        merges++;
+    }
+
+    public int getIdFrom(String name) {
+        Integer id = name == null ? null : ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    public int getMerges() {
+        return merges;
+    }
+
+    private void addFriend(int id, int friend) {
+        if (deleted[id] != null && deleted[id].remove(friend)) {
+            changesSinceMerge--;
+            return;
+        }
+
+        if (compressedContains(id, friend))
+            return;
+
+        if (added[id] == null)
+            added[id] = new IntHashSet();
+
+        if (added[id].add(friend))
+            changesSinceMerge++;
+    }
+
+    private void removeFriend(int id, int friend) {
+        if (added[id] != null && added[id].remove(friend)) {
+            changesSinceMerge--;
+            return;
+        }
+
+        if (!compressedContains(id, friend))
+            return;
+
+        if (deleted[id] == null)
+            deleted[id] = new IntHashSet();
+
+        if (deleted[id].add(friend))
+            changesSinceMerge++;
+    }
+
+    private void mergeIfNeeded() {
+        if (changesSinceMerge >= Math.max(MIN_MERGE_CHANGES, compressedFriends / mergeRatio))
+            merge();
+    }
+
+    /* ============================ COMPRESSED ROWS ============================ */
+
+    private int compressedDegree(int id) {
+        return id >= compressedUsers || offsets[id] == offsets[id + 1] ? 0 : readVarint(offsets[id]);
+    }
+
+    /**
+     * Looks in the row of whichever of the two has fewer friends, since rows are symmetric.
+     */
+    private boolean compressedContains(int id1, int id2) {
+        if (id1 >= compressedUsers || id2 >= compressedUsers)
+            return false;
+
+        int degree1 = compressedDegree(id1);
+        int degree2 = compressedDegree(id2);
+
+        return degree1 <= degree2 ? rowContains(id1, degree1, id2) : rowContains(id2, degree2, id1);
+    }
+
+    private boolean rowContains(int id, int degree, int target) {
+        if (degree == 0)
+            return false;
+
+        int position = offsets[id] + varintLength(degree);
+        int blocks = (degree + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int table = position;
+        int gaps = table + (blocks - 1) * SKIP_ENTRY_BYTES;
+
+        // find the last block whose first friend isn't after the target - block 0 if none of the table's are
+        int lo = 0;
+        int hi = blocks - 1;
+
+        while (lo < hi) {
+            int middle = (lo + hi + 1) >>> 1;
+
+            if (readInt(table + (middle - 1) * SKIP_ENTRY_BYTES) <= target)
+                lo = middle;
+            else
+                hi = middle - 1;
+        }
+
+        int value;
+
+        if (lo == 0) {
+            value = readVarint(gaps);
+            position = gaps + varintLength(value);
+        } else {
+            value = readInt(table + (lo - 1) * SKIP_ENTRY_BYTES);
+            position = gaps + readInt(table + (lo - 1) * SKIP_ENTRY_BYTES + 4);
+        }
+
+        int remaining = Math.min(BLOCK_SIZE, degree - lo * BLOCK_SIZE) - 1;
+
+        while (value < target && remaining-- > 0) {
+            int gap = readVarint(position);
+            position += varintLength(gap);
+            value += gap + 1;
+        }
+        return value == target;
+    }
+
+    /**
+     * Decodes the whole row in order, ignoring the skip table.
+     */
+    private void forEachCompressed(int id, IntConsumer action) {
+        int degree = compressedDegree(id);
+
+        if (degree == 0)
+            return;
+
+        int blocks = (degree + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int position = offsets[id] + varintLength(degree) + (blocks - 1) * SKIP_ENTRY_BYTES;
+        int value = -1;
+
+        for (int i = 0; i < degree; i++) {
+            int gap = readVarint(position);
+            position += varintLength(gap);
+            value += gap + 1; // the first one is stored as is, which is the same as a gap from -1
+            action.accept(value);
+        }
+    }
+
+    private int readVarint(int position) {
+        int value = 0;
+
+        for (int shift = 0; ; shift += 7) {
+            byte b = data[position++];
+            value |= (b & 0x7F) << shift;
+
+            if (b >= 0)
+                return value;
+        }
+    }
+
+    private int readInt(int position) {
+        return (data[position] & 0xFF) | (data[position + 1] & 0xFF) << 8 | (data[position + 2] & 0xFF) << 16
+                | data[position + 3] << 24;
+    }
+
+    private static int varintLength(int value) {
+        int length = 1;
+
+        while ((value >>>= 7) != 0)
+            length++;
+
+        return length;
+    }
+
+    /**
+     * Builds up the bytes of the rows for {@link #merge()}.
+     */
+    private static class RowWriter {
+
+        private byte[] bytes;
+
+        private int length;
+
+        private RowWriter(int expectedLength) {
+            this.bytes = new byte[Math.max(16, expectedLength)];
+        }
+
+        /**
+         * @param friends sorted, with no repeats
+         */
+        private void writeRow(int[] friends, int degree) {
+            if (degree == 0)
+                return;
+
+            writeVarint(degree);
+
+            int blocks = (degree + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            int table = length;
+            ensureCapacity((blocks - 1) * SKIP_ENTRY_BYTES);
+            length += (blocks - 1) * SKIP_ENTRY_BYTES;
+            int gaps = length;
+
+            for (int i = 0; i < degree; i++) {
+                writeVarint(i == 0 ? friends[0] : friends[i] - friends[i - 1] - 1);
+
+                if (i % BLOCK_SIZE == 0 && i > 0) {
+                    // the first friend of the block, and where the gaps after it start
+                    int entry = table + (i / BLOCK_SIZE - 1) * SKIP_ENTRY_BYTES;
+                    writeInt(entry, friends[i]);
+                    writeInt(entry + 4, length - gaps);
+                }
+            }
+        }
+
+        private void writeVarint(int value) {
+            ensureCapacity(5);
+
+            while ((value & ~0x7F) != 0) {
+                bytes[length++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        private void writeInt(int position, int value) {
+            bytes[position] = (byte) value;
+            bytes[position + 1] = (byte) (value >>> 8);
+            bytes[position + 2] = (byte) (value >>> 16);
+            bytes[position + 3] = (byte) (value >>> 24);
+        }
+
+        private void ensureCapacity(int extra) {
+            if ((long) length + extra > Integer.MAX_VALUE - 8)
+                throw new IllegalStateException("Too many friendships to compress into one array");
+
+            if (length + extra > bytes.length)
+                bytes = Arrays.copyOf(bytes, (int) Math.min(Integer.MAX_VALUE - 8,
+                        Math.max(2L * bytes.length, (long) length + extra)));
+        }
+    }
+}
@@ -0,0 +1,120 @@
+import java.util.SplittableRandom;
+
+/**
+ * <p>Local benchmark of {@link CompressedSocialNetwork} on a graph from {@link WorkloadGenerator}:
+ * how much memory its compressed rows take compared with plain {@code int[]} rows (compressed sparse rows, like
+ * {@link FrozenSocialNetwork} uses), and what that costs when checking a friendship.</p>
+ *
+ * <p>It's loaded twice - once with users registered in the generator's order, and once in a random order - to show
+ * how much the compression depends on friends having ids near each other.</p>
+ *
+ * <p>Pass the number of users as the first argument. The default of 200,000 gives a graph of about 1.6 million
+ * friendships. The graph is Barabasi-Albert, unless the second argument is {@code rmat} (which rounds the users up to
+ * a power of 2).</p>
+ */
+public class CompressedSocialNetworkBenchmark {
+
+    static final int DEFAULT_USERS = 200_000;
+
+    static final int EDGES_PER_USER = 8;
+
+    static final int LOOKUPS = 1_000_000;
+
+    public static void main(String[] args) {
+        boolean rmat = args.length > 1 && args[1].equals("rmat");
+        int requested = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_USERS;
+        int scale = 32 - Integer.numberOfLeadingZeros(requested - 1);
+        WorkloadGenerator.Graph graph = rmat
+                ? new WorkloadGenerator(42).rmat(scale, (long) requested * EDGES_PER_USER)
+                : new WorkloadGenerator(42).barabasiAlbert(requested, EDGES_PER_USER);
+        int users = graph.userCount();
+        int width = WorkloadGenerator.nameWidth(users);
+
+        String[] names = new String[users];
+        for (int id = 0; id < users; id++)
+            names[id] = WorkloadGenerator.name(id, width);
+
+        CompressedSocialNetwork ordered = new CompressedSocialNetwork();
+        CompressedSocialNetwork shuffled = new CompressedSocialNetwork();
+        FrozenSocialNetwork.Builder builder = new FrozenSocialNetwork.Builder();
+
+        int[] order = new int[users];
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < users; i++) {
+            int j = random.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+
+        for (int id = 0; id < users; id++) {
+            ordered.registerUser(names[id]);
+            shuffled.registerUser(names[order[id]]);
+            builder.addUser(names[id]);
+        }
+
+        graph.forEachEdge((id1, id2) -> {
+            ordered.becomeFriends(names[id1], names[id2]);
+            shuffled.becomeFriends(names[id1], names[id2]);
+            builder.addFriendship(id1, id2);
+        });
+
+        ordered.merge();
+        shuffled.merge();
+        FrozenSocialNetwork frozen = builder.build();
+
+        long friends = 0;
+        for (String name : names)
+            friends += ordered.friendCount(name);
+
+        long intBytes = HeapSize.align(HeapSize.ARRAY_HEADER + 4L * (users + 1))
+                + HeapSize.align(HeapSize.ARRAY_HEADER + 4L * friends);
+
+        System.out.printf("%,d users, %,d friendships (%,d friend ids)%n", users, friends / 2, friends);
+        System.out.printf("int[] rows          %,12d bytes | %5.2f bytes per friend id%n", intBytes,
+                intBytes / (double) friends);
+        print("compressed", ordered.compressedSizeInBytes(), friends, intBytes);
+        print("compressed shuffled", shuffled.compressedSizeInBytes(), friends, intBytes);
+
+        // half friendships, half random pairs (which nearly never are)
+        String[] queries1 = new String[LOOKUPS];
+        String[] queries2 = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (i % 2 == 0) {
+                long edge = graph.edge(random.nextLong(graph.edgeCount()));
+                queries1[i] = names[(int) (edge >>> 32)];
+                queries2[i] = names[(int) edge];
+            } else {
+                queries1[i] = names[random.nextInt(users)];
+                queries2[i] = names[random.nextInt(users)];
+            }
+        }
+
+        SocialNetwork[] networks = {frozen, ordered, shuffled};
+        String[] labels = {"int[] rows (frozen)", "compressed", "compressed shuffled"};
+        long[] nanos = new long[networks.length];
+        long check = 0;
+
+        for (int round = 0; round < 3; round++) { // the first round is just to warm up
+            for (int n = 0; n < networks.length; n++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < LOOKUPS; i++)
+                    if (networks[n].areTheyFriends(queries1[i], queries2[i]))
+                        check += n == 0 ? 2 : -1;
+
+                if (round > 0)
+                    nanos[n] += System.nanoTime() - start;
+            }
+        }
+
+        System.out.println();
+        for (int n = 0; n < networks.length; n++)
+            System.out.printf("%-20s %6.1f ns per areTheyFriends%n", labels[n], nanos[n] / (2d * LOOKUPS));
+
+        System.out.println(check == 0 ? "same answers" : "DIFFERENT ANSWERS");
+    }
+
+    private static void print(String label, long bytes, long friends, long intBytes) {
+        System.out.printf("%-20s%,12d bytes | %5.2f bytes per friend id | %.1fx smaller%n", label, bytes,
+                bytes / (double) friends, intBytes / (double) bytes);
+    }
+}
@@ -0,0 +1,105 @@
+import java.util.SplittableRandom;
+
+/**
+ * Executable class to test the CompressedSocialNetwork, including its overlay and merging.
+ */
+public class CompressedSocialNetworkTest {
+
+    public static void main(String[] args) {
+        CompressedSocialNetwork s = new CompressedSocialNetwork();
+
+        s.registerUser("Alex");
+        s.registerUser("Bea");
+        s.registerUser("Chris");
+        s.registerUser("Daniel");
+        s.becomeFriends("Alex", "Chris");
+        s.becomeFriends("Bea", "Bea");
+
+        // still only in the overlay
+        System.out.println(s.getMerges() + " should be 0");
+        System.out.println(s.areTheyFriends("Chris", "Alex") + " should be true");
+        System.out.println(s.areTheyFriends("Bea", "Bea") + " should be true");
+        System.out.println(s.areTheyFriends("Alex", "Bea") + " should be false");
+
+        s.merge();
+        System.out.println(s.getMerges() + " should be 1");
+        System.out.println(s.areTheyFriends("Chris", "Alex") + " should be true");
+        System.out.println(s.areTheyFriends("Bea", "Bea") + " should be true");
+        System.out.println(s.friendCount("Alex") + " should be 1");
+
+        // unfriending a compressed friendship, then making it again
+        s.unfriend("Alex", "Chris");
+        System.out.println(s.areTheyFriends("Alex", "Chris") + " should be false");
+        System.out.println(s.friendCount("Chris") + " should be 0");
+        s.becomeFriends("Chris", "Alex");
+        System.out.println(s.areTheyFriends("Alex", "Chris") + " should be true");
+
+        s.becomeFriends("Daniel", "Alex");
+        s.merge();
+        s.removeUser("Alex");
+        System.out.println(s.containsUser("Alex") + " should be false");
+        System.out.println(s.friendCount("Daniel") + " should be 0");
+        System.out.println(s.size() + " should be 3");
+
+        // coming back doesn't bring their friends back
+        s.registerUser("Alex");
+        System.out.println(s.areTheyFriends("Alex", "Chris") + " should be false");
+        System.out.println();
+
+        // someone with lots of friends, so their row has a skip table
+        CompressedSocialNetwork big = new CompressedSocialNetwork();
+        for (int i = 0; i < 10_000; i++)
+            big.registerUser("u" + i);
+
+        for (int i = 1; i < 10_000; i += 3)
+            big.becomeFriends("u0", "u" + i);
+
+        big.merge();
+        boolean allRight = true;
+        for (int i = 0; i < 10_000; i++)
+            allRight &= big.areTheyFriends("u" + i, "u0") == (i % 3 == 1);
+
+        System.out.println(allRight + " should be true");
+        System.out.println(big.friendCount("u0") + " should be 3333");
+        System.out.println();
+
+        // lots of random changes, checked against AdaptiveSocialNetwork the whole way
+        CompressedSocialNetwork compressed = new CompressedSocialNetwork(2);
+        AdaptiveSocialNetwork expected = new AdaptiveSocialNetwork();
+        SplittableRandom random = new SplittableRandom(42);
+        int users = 500;
+        int mismatches = 0;
+
+        for (int i = 0; i < users; i++) {
+            compressed.registerUser("u" + i);
+            expected.registerUser("u" + i);
+        }
+
+        for (int step = 0; step < 200_000; step++) {
+            String name1 = "u" + random.nextInt(users);
+            String name2 = "u" + random.nextInt(users);
+            int operation = random.nextInt(100);
+
+            if (operation < 60) {
+                compressed.becomeFriends(name1, name2);
+                expected.becomeFriends(name1, name2);
+            } else if (operation < 85) {
+                compressed.unfriend(name1, name2);
+                expected.unfriend(name1, name2);
+            } else if (operation < 86) {
+                compressed.removeUser(name1);
+                expected.removeUser(name1);
+            } else if (operation < 88) {
+                compressed.registerUser(name1);
+                expected.registerUser(name1);
+            } else if (compressed.areTheyFriends(name1, name2) != expected.areTheyFriends(name1, name2)
+                    || compressed.friendCount(name1) != expected.friendCount(name1)) {
+                mismatches++;
+            }
+        }
+
+        System.out.println(mismatches + " should be 0");
+        System.out.println((compressed.getMerges() > 10) + " should be true");
+        System.out.println((compressed.size() == expected.size()) + " should be true");
+    }
+}
@@ -0,0 +1,222 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>A thread-safe version of {@link StringStack}, with the same push / pop / peek / count behaviour.</p>
+ *
+ *
+ * ======= IMPLEMENTATION =======
+ *
+ * <p>This is a Treiber stack - the stack is a singly linked list of immutable nodes, and the only mutable state is the
+ * {@link #head} reference, which is swapped using compare-and-set. There are no locks at all, so a thread being
+ * descheduled half way through a push can never stop anyone else from making progress.</p>
+ *
+ * <p>Each node also stores the depth of the stack at that node, which means {@link #count()} is just a read of the
+ * head, and the capacity check in {@link #push(String)} is done against the exact same snapshot that gets CAS'd.
+ * (This is a lot easier than trying to keep a separate atomic counter in sync with the list.)</p>
+ *
+ * <p>The problem with a plain Treiber stack is that every thread is fighting over the one head reference, so under
+ * heavy contention most CAS's fail. To help with this, there's an elimination array: if a push loses the CAS race,
+ * it leaves its node in a random slot of the array for a little while. If a pop also loses its CAS race, it has a
+ * look in a random slot, and if it finds a node there it takes it. A push immediately followed by a pop leaves the
+ * stack exactly as it was, so these two can just cancel each other out without ever touching the head.</p>
+ *
+ *
+ * ======= NOTES =======
+ *
+ * <p>Because nodes are never reused (every push makes a fresh one), there's no ABA problem on either the head or the
+ * elimination slots.</p>
+ *
+ * <p>A push on a full stack still returns false straight away, rather than waiting around for a pop to eliminate
+ * with - being full is treated the same as in {@link StringStack}.</p>
+ */
+public class ConcurrentStringStack {
+
+    static final int UNBOUNDED = -1;
+
+    static final int DEFAULT_ELIMINATION_SIZE = 16;
+
+    static final int DEFAULT_ELIMINATION_SPINS = 64;
+
+    /**
+     * The total amount of elements that can be added to the stack, or {@link #UNBOUNDED} for no limit.
+     */
+    private final int maxCapacity;
+
+    /**
+     * The top of the stack - null when the stack is empty.
+     */
+    private final AtomicReference<Node> head = new AtomicReference<>();
+
+    /**
+     * Slots where a push that lost the CAS race on head can hand its node directly to a pop.
+     */
+    private final AtomicReferenceArray<Node> eliminationArray;
+
+    /**
+     * How many times a push will spin waiting for a pop to take its node before giving up.
+     */
+    private final int eliminationSpins;
+
+
+    public ConcurrentStringStack() {
+        this(UNBOUNDED);
+    }
+
+    /**
+     * Constructor for creating a new ConcurrentStringStack with a certain capacity.
+     *
+     * @param maxCapacity the maximum number of strings the stack can hold, or -1 for unbounded
+     */
+    public ConcurrentStringStack(int maxCapacity) {
+        this(maxCapacity, DEFAULT_ELIMINATION_SIZE, DEFAULT_ELIMINATION_SPINS);
+    }
+
+    public ConcurrentStringStack(int maxCapacity, int eliminationSize, int eliminationSpins) {
+        if (maxCapacity < 0 && maxCapacity != UNBOUNDED)
+            throw new IllegalArgumentException("Illegal max capacity: " + maxCapacity);
+
+        if (eliminationSize < 1)
+            throw new IllegalArgumentException("Illegal elimination size: " + eliminationSize);
+
+        this.maxCapacity = maxCapacity;
+        this.eliminationArray = new AtomicReferenceArray<>(eliminationSize);
+        this.eliminationSpins = eliminationSpins;
+    }
+
+    /**
+     * Puts the given String on top of the stack (if there is enough space).
+     *
+     * @param s the String to add to the top of the stack
+     * @return false if there was not enough space in the stack to add the string - otherwise true
+     */
+    public boolean push(String s) {
+        while (true) {
+            Node top = head.get();
+            int depth = depth(top);
+
+            if (isBounded() && depth >= maxCapacity)
+                return false;
+
+            Node node = new Node(s, top, depth + 1);
+
+            if (head.compareAndSet(top, node))
+                return true;
+
+            if (tryEliminatePush(node))
+                return true;
+        }
+    }
+
+    /**
+     * Removes the String on top of the stack from the stack and returns it.
+     *
+     * @return the String on top of the stack, or null if the stack is empty.
+     */
+    public String pop() {
+        while (true) {
+            Node top = head.get();
+
+            if (top == null)
+                return null;
+
+            if (head.compareAndSet(top, top.next))
+                return top.value;
+
+            Node eliminated = tryEliminatePop();
+
+            if (eliminated != null)
+                return eliminated.value;
+        }
+    }
+
+    /**
+     * <p>Look at the object at the top of the stack without actually removing it.</p>
+     *
+     * <p>NOTE: Returns null if there is nothing currently in the stack.</p>
+     *
+     * @return The object at the top of the stack. If nothing in the stack, returns null
+     */
+    public String peek() {
+        Node top = head.get();
+        return top == null ? null : top.value;
+    }
+
+    /**
+     * Returns the number of Strings in the stack.
+     *
+     * @return the number of Strings in the stack
+     */
+    public int count() {
+        return depth(head.get());
+    }
+
+    public boolean isEmpty() {
+        return head.get() == null;
+    }
+
+    private boolean isBounded() {
+        return maxCapacity != UNBOUNDED;
+    }
+
+    /**
+     * Leaves the node in a random elimination slot and waits a little while for a pop to take it.
+     *
+     * @return true if a pop took the node (so the push is done), false if nobody came and the push needs to retry
+     */
+    private boolean tryEliminatePush(Node node) {
+        int slot = randomSlot();
+
+        if (!eliminationArray.compareAndSet(slot, null, node))
+            return false; // somebody else is already using this slot - just go back to the head
+
+        for (int i = 0; i < eliminationSpins; i++) {
+            if (eliminationArray.get(slot) != node)
+                return true;
+
+            Thread.onSpinWait();
+        }
+
+        // if we can't take the node back out, then a pop must have grabbed it in the meantime
+        return !eliminationArray.compareAndSet(slot, node, null);
+    }
+
+    /**
+     * Has a look in a random elimination slot to see if there's a push waiting there.
+     *
+     * @return the node taken from the waiting push, or null if there wasn't one
+     */
+    private Node tryEliminatePop() {
+        int slot = randomSlot();
+        Node node = eliminationArray.get(slot);
+
+        if (node != null && eliminationArray.compareAndSet(slot, node, null))
+            return node;
+
+        return null;
+    }
+
+    private int randomSlot() {
+        return ThreadLocalRandom.current().nextInt(eliminationArray.length());
+    }
+
+    private static int depth(Node node) {
+        return node == null ? 0 : node.depth;
+    }
+
+    private static class Node {
+
+        private final String value;
+
+        private final Node next;
+
+        private final int depth;
+
+        public Node(String value, Node next, int depth) {
+            this.value = value;
+            this.next = next;
+            this.depth = depth;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * <p>Contention benchmark comparing {@link ConcurrentStringStack} against a {@link StringStack} guarded by a single
+ * lock, from 1 up to 64 threads.</p>
+ *
+ * <p>Every thread does a push immediately followed by a pop, which is the worst case for the head of the stack, but
+ * the best case for the elimination array.</p>
+ */
+public class ConcurrentStringStackBenchmark {
+
+    static final int DEFAULT_OPS_PER_THREAD = 200_000;
+
+    static final int MAX_THREADS = 64;
+
+    private final int opsPerThread;
+
+    public static void main(String[] args) throws InterruptedException {
+        ConcurrentStringStackBenchmark benchmark = new ConcurrentStringStackBenchmark();
+
+        benchmark.warmUp();
+
+        for (int threads = 1; threads <= MAX_THREADS; threads *= 2) {
+            double lockFree = benchmark.measure(threads, new LockFreeStack());
+            double locked = benchmark.measure(threads, new LockedStack());
+
+            System.out.printf("%2d threads: lock-free %,12.0f ops/s | synchronized %,12.0f ops/s%n",
+                    threads, lockFree, locked);
+        }
+    }
+
+    public ConcurrentStringStackBenchmark() {
+        this(DEFAULT_OPS_PER_THREAD);
+    }
+
+    public ConcurrentStringStackBenchmark(int opsPerThread) {
+        this.opsPerThread = opsPerThread;
+    }
+
+    private void warmUp() throws InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            measure(4, new LockFreeStack());
+            measure(4, new LockedStack());
+        }
+    }
+
+    /**
+     * @return the throughput, in push / pop operations per second across all threads
+     */
+    private double measure(int threadCount, Stack stack) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                for (int j = 0; j < opsPerThread; j++) {
+                    stack.push("hello");
+                    stack.pop();
+                }
+                done.countDown();
+            });
+            thread.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long end = System.nanoTime();
+
+        long totalOps = 2L * threadCount * opsPerThread;
+        return totalOps / ((end - begin) / 1_000_000_000d);
+    }
+
+    private interface Stack {
+        void push(String s);
+
+        void pop();
+    }
+
+    private static class LockFreeStack implements Stack {
+
+        private final ConcurrentStringStack stack = new ConcurrentStringStack(MAX_THREADS);
+
+        @Override
+        public void push(String s) {
+            stack.push(s);
+        }
+
+        @Override
+        public void pop() {
+            stack.pop();
+        }
+    }
+
+    private static class LockedStack implements Stack {
+
+        private final StringStack stack = new StringStack(MAX_THREADS);
+
+        @Override
+        public synchronized void push(String s) {
+            stack.push(s);
+        }
+
+        @Override
+        public synchronized void pop() {
+            stack.pop();
+        }
+    }
+}
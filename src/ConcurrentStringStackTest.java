@@ -0,0 +1,52 @@
+/**
+ * Executable class to test the ConcurrentStringStack abstract data type.
+ */
+public class ConcurrentStringStackTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        ConcurrentStringStack s = new ConcurrentStringStack(0);
+        System.out.println(s.pop() + " should be null");
+        System.out.println(s.push("full") + " should be false");
+        System.out.println(s.count() + " should be 0");
+        System.out.println();
+
+        s = new ConcurrentStringStack(1);
+        System.out.println(s.push("banana") + " should be true");
+        System.out.println(s.count() + " should be 1");
+        System.out.println(s.pop() + " should be banana");
+        System.out.println(s.pop() + " should be null");
+        System.out.println(s.push("banana") + " should be true");
+        System.out.println(s.push("apple") + " should be false");
+        System.out.println();
+
+        s = new ConcurrentStringStack(10);
+        System.out.println(s.push("banana") + " should be true");
+        System.out.println(s.push("apple") + " should be true");
+        System.out.println(s.push("pear") + " should be true");
+        System.out.println(s.peek() + " should be pear");
+        System.out.println(s.pop() + " should be pear");
+        System.out.println(s.pop() + " should be apple");
+        System.out.println(s.pop() + " should be banana");
+        System.out.println(s.pop() + " should be null");
+        System.out.println();
+
+        // 8 threads each pushing then popping 10,000 strings should always leave the stack empty again
+        ConcurrentStringStack shared = new ConcurrentStringStack();
+        Thread[] threads = new Thread[8];
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    shared.push("x");
+                    shared.pop();
+                }
+            });
+            threads[i].start();
+        }
+
+        for (Thread thread : threads)
+            thread.join();
+
+        System.out.println(shared.count() + " should be 0");
+    }
+}
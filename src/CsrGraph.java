@@ -0,0 +1,138 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * <p>A read-only copy of the friend graph of any {@link SocialNetwork}, in compressed sparse row (CSR) form, for
+ * running graph algorithms over (eg. {@link GraphStatistics}).</p>
+ *
+ *
+ * ======= IMPLEMENTATION =======
+ *
+ * <p>Users are numbered 0 to n - 1. Everyone's friend ids are sorted and packed one after the other into
+ * {@link #friends}, and {@link #offsets} says where each user's friends start - so user i's friends are
+ * {@code friends[offsets[i]]} up to (but not including) {@code friends[offsets[i + 1]]}. Every friendship is in there
+ * twice, once for each user.</p>
+ *
+ * <p>It's built using {@link SocialNetwork#forEachUser} and {@link SocialNetwork#forEachFriend}, going through the
+ * friends twice - once to count them, so the arrays can be allocated at exactly the right size, and once to fill them
+ * in. The rows are then sorted in parallel.</p>
+ *
+ *
+ * ======= NOTES =======
+ *
+ * <p>Users who are friends with themselves are left out of their own row, since it doesn't mean anything to any of
+ * the algorithms.</p>
+ *
+ * <p>The copy is only consistent if the network isn't changed while it's being made - for a
+ * {@link VersionedSocialNetwork}, make it from a {@link VersionedSocialNetwork.Snapshot}.</p>
+ *
+ * <p>The arrays are handed out directly (not copied) to the other classes in this package, which mustn't change
+ * them.</p>
+ */
+public class CsrGraph {
+
+    private final String[] names;
+
+    private final Map<String, Integer> ids;
+
+    private final int[] offsets;
+
+    private final int[] friends;
+
+
+    private CsrGraph(String[] names, Map<String, Integer> ids, int[] offsets, int[] friends) {
+        this.names = names;
+        this.ids = ids;
+        this.offsets = offsets;
+        this.friends = friends;
+    }
+
+    /**
+     * @throws UnsupportedOperationException if the network can't list its users and friends
+     */
+    public static CsrGraph of(SocialNetwork network) {
+        Map<String, Integer> ids = new HashMap<>();
+        network.forEachUser(name -> ids.put(name, ids.size()));
+
+        String[] names = new String[ids.size()];
+        ids.forEach((name, id) -> names[id] = name);
+
+        // first time through, just count everyone's friends
+        int[] offsets = new int[names.length + 1];
+
+        for (int id = 0; id < names.length; id++) {
+            int self = id;
+            int[] count = new int[1];
+
+            network.forEachFriend(names[id], friend -> {
+                Integer friendId = ids.get(friend);
+
+                if (friendId != null && friendId != self)
+                    count[0]++;
+            });
+            offsets[id + 1] = offsets[id] + count[0];
+        }
+
+        // second time through, fill them in
+        int[] friends = new int[offsets[names.length]];
+
+        for (int id = 0; id < names.length; id++) {
+            int self = id;
+            int[] next = {offsets[id]};
+
+            network.forEachFriend(names[id], friend -> {
+                Integer friendId = ids.get(friend);
+
+                if (friendId != null && friendId != self && next[0] < offsets[self + 1])
+                    friends[next[0]++] = friendId;
+            });
+        }
+
+        IntStream.range(0, names.length).parallel().forEach(id -> Arrays.sort(friends, offsets[id], offsets[id + 1]));
+        return new CsrGraph(names, ids, offsets, friends);
+    }
+
+    public int userCount() {
+        return names.length;
+    }
+
+    public long friendshipCount() {
+        return friends.length / 2;
+    }
+
+    public int degree(int id) {
+        return offsets[id + 1] - offsets[id];
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return the user's id, or -1 if they weren't in the network
+     */
+    public int idOf(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public boolean areFriends(int id1, int id2) {
+        return Arrays.binarySearch(friends, offsets[id1], offsets[id1 + 1], id2) >= 0;
+    }
+
+    /**
+     * Where each user's friends start in {@link #friends()}, plus one extra at the end. Mustn't be changed.
+     */
+    int[] offsets() {
+        return offsets;
+    }
+
+    /**
+     * Every user's sorted friend ids, one user after the other. Mustn't be changed.
+     */
+    int[] friends() {
+        return friends;
+    }
+}
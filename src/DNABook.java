@@ -1,32 +1,124 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
 /**
  * THIS IMPLEMENTATION IS BEING USED IN FINAL SUBMISSION
+ *
+ * <p>Users are found by binary searching their name in {@link #users}, which gives the user's slot. Each slot then
+ * maps to an id (a row / column in {@link #friendMatrix}). Keeping these two separate means that removing a user
+ * doesn't have to shift the whole matrix around - the slot is just marked as removed (the name stays there so the
+ * binary search still works), and the id is put on a free list to be handed out to the next user that registers.</p>
+ *
+ * <p>The removed slots are only cleaned out once {@link #users} fills up, which is the only time they actually get in
+ * the way. After that, someone who was removed isn't found any more, so if they register again they're put back in
+ * their sorted place like a new user.</p>
+ *
+ * <p>For big networks the binary search can be swapped for an {@link EytzingerIndex}, which is much kinder to the
+ * cache. It has to be rebuilt whenever a new slot is used, so it's only rebuilt once there have been as many lookups
+ * as there are slots since the last change (binary search is used until then). That keeps the cost of rebuilding at
+ * O(1) per lookup, and means registering lots of users in a row doesn't keep rebuilding it.</p>
+ *
+ * <p>With millions of users, the String objects take up most of the memory, so {@link #packNames()} moves all the names
+ * registered so far into a {@link FrontCodedNames}. Those slots are left as null in {@link #users}, and users
+ * registered afterwards go into {@link #users} as normal - since the names are all kept in sorted order, anything from
+ * the first unpacked name onwards is searched for in {@link #users}, and anything before it in the packed names.</p>
  */
 public class DNABook implements SocialNetwork {
 
     static final int DEFAULT_MAX_CAPACITY = 100;
 
+    private static final int REMOVED = -1;
+
     private final int maxCapacity;
 
     private int size;
 
+    private int userCount;
+
     private final String[] users;
 
+    /**
+     * The id of the user in each slot of {@link #users}, or {@link #REMOVED} if that user has been removed.
+     */
+    private final int[] ids;
+
     private final boolean[][] friendMatrix;
 
+    /**
+     * Stack of ids belonging to removed users, which can be given out again.
+     */
+    private final int[] freeIds;
+
+    private int freeIdCount;
+
+    private int nextId;
+
+    private final boolean useIndex;
+
+    /**
+     * Only used if {@link #useIndex} is set, and null whenever it's out of date.
+     */
+    private EytzingerIndex index;
+
+    private int lookupsSinceChange;
+
+    /**
+     * The names of slots 0 up to {@link #packedCount}, or null if {@link #packNames()} hasn't been called.
+     */
+    private FrontCodedNames packedNames;
+
+    private int packedCount;
+
+    /**
+     * Set while the book is sitting in a {@link DNABookPool}, so releasing it twice can be caught. Only touched by the
+     * pool, while it holds the book's lock.
+     */
+    boolean pooled;
+
     public DNABook() {
         this(DEFAULT_MAX_CAPACITY);
     }
 
     public DNABook(int maxCapacity) {
+        this(maxCapacity, false);
+    }
+
+    /**
+     * @param useIndex whether to find users with an {@link EytzingerIndex} rather than a binary search
+     */
+    public DNABook(int maxCapacity, boolean useIndex) {
         this.maxCapacity = maxCapacity;
+        this.useIndex = useIndex;
         this.users = new String[maxCapacity];
+        this.ids = new int[maxCapacity];
         this.friendMatrix = new boolean[maxCapacity][maxCapacity];
+        this.freeIds = new int[maxCapacity];
     }
 
     @Override
     public void registerUser(String name) {
-        if (!isFull())
-            users[size++] = name;
+        if (isFull())
+            return;
+
+        int slot = getSlotFrom(name);
+
+        if (slot != -1) {
+            if (ids[slot] == REMOVED) { // registering someone who was removed - just bring their slot back
+                ids[slot] = allocateId();
+                userCount++;
+            }
+            return;
+        }
+
+        if (size >= maxCapacity)
+            compact();
+
+        insert(lowerBound(name), name);
+        userCount++;
+        indexChanged();
     }
 
     @Override
@@ -51,14 +143,294 @@ public class DNABook implements SocialNetwork {
         return friendMatrix[id2][id1] || friendMatrix[id1][id2];
     }
 
+    @Override
+    public void unfriend(String name1, String name2) {
+        int id1 = getIdFrom(name1);
+        int id2 = getIdFrom(name2);
+
+        if (userExists(id1) && userExists(id2)) {
+            friendMatrix[id2][id1] = false;
+            friendMatrix[id1][id2] = false;
+        }
+    }
+
+    /**
+     * Removes the user from the network, along with all of their friendships. Their id gets reused by the next user to
+     * register, so their row and column of the matrix are cleared here to make sure the new user starts fresh.
+     *
+     * @param name The name of the user to remove
+     */
+    @Override
+    public void removeUser(String name) {
+        int slot = getSlotFrom(name);
+
+        if (slot == -1 || ids[slot] == REMOVED)
+            return;
+
+        int id = ids[slot];
+        Arrays.fill(friendMatrix[id], false);
+
+        for (int i = 0; i < nextId; i++)
+            friendMatrix[i][id] = false;
+
+        ids[slot] = REMOVED;
+        freeIds[freeIdCount++] = id;
+        userCount--;
+    }
+
+    @Override
+    public boolean containsUser(String name) {
+        return userExists(getIdFrom(name));
+    }
+
+    @Override
+    public void forEachUser(Consumer<String> consumer) {
+        for (int slot = 0; slot < size; slot++)
+            if (ids[slot] != REMOVED)
+                consumer.accept(nameAt(slot));
+    }
+
+    /**
+     * Goes through every slot checking the user's row of the matrix, so friends come out in the same order as
+     * {@link #users}.
+     */
+    @Override
+    public void forEachFriend(String name, Consumer<String> consumer) {
+        int id = getIdFrom(name);
+
+        if (!userExists(id))
+            return;
+
+        boolean[] row = friendMatrix[id];
+
+        for (int slot = 0; slot < size; slot++)
+            if (ids[slot] != REMOVED && row[ids[slot]])
+                consumer.accept(nameAt(slot));
+    }
+
+    @Override
+    public int friendCount(String name) {
+        int id = getIdFrom(name);
+
+        if (!userExists(id))
+            return 0;
+
+        int count = 0;
+        boolean[] row = friendMatrix[id];
+
+        for (int friend = 0; friend < nextId; friend++)
+            if (row[friend])
+                count++;
+
+        return count;
+    }
+
+    /**
+     * The cursor is the slot to carry on from.
+     */
+    @Override
+    public void friendsPage(String name, long cursor, FriendPage page) {
+        page.clear();
+        int id = getIdFrom(name);
+
+        if (!userExists(id))
+            return;
+
+        boolean[] row = friendMatrix[id];
+
+        for (int slot = (int) cursor; slot < size; slot++) {
+            if (ids[slot] != REMOVED && row[ids[slot]] && !page.add(nameAt(slot))) {
+                page.setNextCursor(slot);
+                return;
+            }
+        }
+    }
+
+    /**
+     * The matrix takes maxCapacity^2 bytes however many users there actually are, so it's nearly always most of it.
+     */
+    @Override
+    public long memoryFootprint() {
+        // 7 ints, 6 references and two booleans
+        HeapSize heap = new HeapSize().addObject(7 * 4 + 6 * HeapSize.REFERENCE + 2)
+                .addArray(maxCapacity, HeapSize.REFERENCE)
+                .addArray(maxCapacity, Integer.BYTES)
+                .addArray(maxCapacity, Integer.BYTES)
+                .addArray(maxCapacity, HeapSize.REFERENCE);
+
+        for (int i = 0; i < maxCapacity; i++)
+            heap.addArray(maxCapacity, 1);
+
+        for (int slot = packedCount; slot < size; slot++)
+            heap.addString(users[slot]);
+
+        if (packedNames != null)
+            heap.addBytes(packedNames.sizeInBytes());
+
+        if (index != null)
+            heap.addBytes(index.sizeInBytes());
+
+        return heap.bytes();
+    }
+
+    /**
+     * Since {@link #users} is sorted, everyone starting with the prefix is in one run of slots - so this binary
+     * searches for the start of it and reads off names until one doesn't match.
+     */
+    @Override
+    public List<String> findUsersByPrefix(String prefix, int limit) {
+        Objects.requireNonNull(prefix);
+
+        if (limit < 0)
+            throw new IllegalArgumentException("Illegal limit: " + limit);
+
+        List<String> found = new ArrayList<>(Math.min(limit, 16));
+
+        for (int slot = lowerBound(prefix); slot < size && found.size() < limit; slot++) {
+            String name = nameAt(slot);
+
+            if (!name.startsWith(prefix))
+                break;
+
+            if (ids[slot] != REMOVED)
+                found.add(name);
+        }
+        return found;
+    }
+
+    /**
+     * @return an immutable copy of this network, optimised for lookups
+     */
+    public FrozenSocialNetwork freeze() {
+        FrozenSocialNetwork.Builder builder = new FrozenSocialNetwork.Builder();
+        int[] builderIds = new int[nextId];
+
+        for (int slot = 0; slot < size; slot++)
+            if (ids[slot] != REMOVED)
+                builderIds[ids[slot]] = builder.addUser(nameAt(slot));
+
+        for (int slot1 = 0; slot1 < size; slot1++) {
+            int id1 = ids[slot1];
+
+            if (id1 == REMOVED)
+                continue;
+
+            for (int slot2 = slot1; slot2 < size; slot2++) {
+                int id2 = ids[slot2];
+
+                if (id2 != REMOVED && friendMatrix[id1][id2])
+                    builder.addFriendship(builderIds[id1], builderIds[id2]);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Packs the names of everyone registered so far (including removed users, whose names are still needed for
+     * searching) into a {@link FrontCodedNames}, to save memory. Can be called again later to pack the users
+     * registered since.
+     */
+    public void packNames() {
+        if (packedCount == size)
+            return;
+
+        FrontCodedNames.Builder builder = new FrontCodedNames.Builder();
+
+        for (int slot = 0; slot < size; slot++)
+            builder.add(nameAt(slot));
+
+        packedNames = builder.build();
+        packedCount = size;
+        Arrays.fill(users, 0, size, null);
+        indexChanged();
+    }
+
+    /**
+     * Removes everyone, keeping all the arrays so the book can be used again without allocating anything (see
+     * {@link DNABookPool}). Only the ids that have actually been handed out can have anything in their rows, so only
+     * that corner of the matrix needs wiping.
+     */
+    public void clear() {
+        for (int id = 0; id < nextId; id++)
+            Arrays.fill(friendMatrix[id], 0, nextId, false);
+
+        Arrays.fill(users, 0, size, null);
+        size = 0;
+        userCount = 0;
+        freeIdCount = 0;
+        nextId = 0;
+        packedNames = null;
+        packedCount = 0;
+        indexChanged();
+    }
+
+    public int maxCapacity() {
+        return maxCapacity;
+    }
+
     public int getIdFrom(String name) {
+        int slot = getSlotFrom(name);
+        return slot == -1 ? -1 : ids[slot];
+    }
+
+    public int size() {
+        return userCount;
+    }
+
+    private String nameAt(int slot) {
+        return slot < packedCount ? packedNames.get(slot) : users[slot];
+    }
+
+    private int getSlotFrom(String name) {
+        if (packedCount > 0 && name != null && (packedCount == size || name.compareTo(users[packedCount]) < 0))
+            return packedNames.indexOf(name);
+
+        if (useIndex) {
+            if (index != null)
+                return index.get(name);
+
+            if (++lookupsSinceChange >= size - packedCount) {
+                int[] slots = new int[size - packedCount];
+                for (int i = 0; i < slots.length; i++)
+                    slots[i] = packedCount + i;
+
+                index = new EytzingerIndex(Arrays.copyOfRange(users, packedCount, size), slots, slots.length);
+                return index.get(name);
+            }
+        }
         return binarySearch(users, name);
     }
 
-    private <T extends Comparable<T>> int binarySearch(T[] arr, T toFind) {
-        int lo = 0;
+    /**
+     * @return the first slot whose name isn't before this one, or {@link #size} if they all are
+     */
+    private int lowerBound(String name) {
+        if (packedCount > 0 && (packedCount == size || name.compareTo(users[packedCount]) < 0))
+            return packedNames.lowerBound(name);
+
+        int lo = packedCount;
         int hi = size;
 
+        while (lo < hi) {
+            int middle = (lo + hi) >>> 1;
+
+            if (users[middle].compareTo(name) < 0)
+                lo = middle + 1;
+            else
+                hi = middle;
+        }
+        return lo;
+    }
+
+    private void indexChanged() {
+        index = null;
+        lookupsSinceChange = 0;
+    }
+
+    private <T extends Comparable<T>> int binarySearch(T[] arr, T toFind) {
+        int lo = packedCount;
+        int hi = size - 1; // size itself is one past the last user - and out of bounds once the array is full
+
         while (lo <= hi) {
             int midIndex = (lo + hi) / 2;
             T mid = arr[midIndex];
@@ -78,11 +450,73 @@ public class DNABook implements SocialNetwork {
         return -1;
     }
 
+    /**
+     * Puts a new user into the slot their name belongs in, shifting everyone after them up one. Names nearly always
+     * come in sorted order, so that's usually just the end - but someone whose slot went in a {@link #compact()} has
+     * to go back in the middle. If their name belongs among the packed ones, those get packed again with it.
+     */
+    private void insert(int slot, String name) {
+        if (slot < packedCount) {
+            FrontCodedNames.Builder builder = new FrontCodedNames.Builder();
+
+            for (int i = 0; i < packedCount; i++) {
+                if (i == slot)
+                    builder.add(name);
+
+                builder.add(packedNames.get(i));
+            }
+
+            packedNames = builder.build();
+            System.arraycopy(users, packedCount, users, packedCount + 1, size - packedCount);
+            users[packedCount++] = null;
+        } else {
+            System.arraycopy(users, slot, users, slot + 1, size - slot);
+            users[slot] = name;
+        }
+
+        System.arraycopy(ids, slot, ids, slot + 1, size - slot);
+        ids[slot] = allocateId();
+        size++;
+    }
+
+    private int allocateId() {
+        return freeIdCount > 0 ? freeIds[--freeIdCount] : nextId++;
+    }
+
+    /**
+     * Shuffles the remaining users down over the removed slots. The matrix isn't touched, since ids don't change. If
+     * some of the names are packed, the packed ones that are left get packed again.
+     */
+    private void compact() {
+        FrontCodedNames.Builder builder = packedCount > 0 ? new FrontCodedNames.Builder() : null;
+        int live = 0;
+
+        for (int i = 0; i < size; i++) {
+            if (ids[i] != REMOVED) {
+                if (i < packedCount)
+                    builder.add(packedNames.get(i));
+                else
+                    users[live] = users[i];
+
+                ids[live++] = ids[i];
+            }
+        }
+
+        if (builder != null) {
+            packedNames = builder.build();
+            packedCount = packedNames.size();
+        }
+
+        Arrays.fill(users, live, size, null);
+        size = live;
+        indexChanged();
+    }
+
     private boolean userExists(int id) {
         return id != -1;
     }
 
     private boolean isFull() {
-        return size >= maxCapacity;
+        return userCount >= maxCapacity;
     }
 }
@@ -1,3 +1,7 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
 /**
  * <p>NOT USING IN FINAL SUBMISSION BECAUSE THIS IS BASICALLY LOG(N) BUT WITH EXTRA STEPS :/</p>
  *
@@ -40,6 +44,10 @@
  *
  * <p>It is also worth noting that this implementation is not thread-safe, and the HashMap doesn't provide any
  * resizing functionality.</p>
+ *
+ * <p>The names come straight from users, so someone could pick lots of names with the same {@link String#hashCode} and
+ * make every lookup crawl through one bucket. Passing a {@link SeededHasher} stops that, since which names collide then
+ * depends on a random seed that nobody outside knows.</p>
  */
 public class DNABookHashImpl implements SocialNetwork {
 
@@ -49,6 +57,13 @@ public class DNABookHashImpl implements SocialNetwork {
 
     private final int maxCapacity;
 
+    /**
+     * Optional filter of all friendships, so most non-friends can be turned away without looking anyone up.
+     */
+    private final EdgeBloomFilter edgeFilter;
+
+    private final Hasher hasher;
+
 
     public DNABookHashImpl() {
         this(-1);
@@ -60,8 +75,22 @@ public class DNABookHashImpl implements SocialNetwork {
     }
 
     public DNABookHashImpl(int maxCapacity) {
-        this.users = new HashMapImpl<>();
+        this(maxCapacity, null);
+    }
+
+    public DNABookHashImpl(int maxCapacity, EdgeBloomFilter edgeFilter) {
+        this(maxCapacity, edgeFilter, new MixingHasher());
+    }
+
+    /**
+     * @param hasher used by the map of users and by every friend set
+     */
+    public DNABookHashImpl(int maxCapacity, EdgeBloomFilter edgeFilter, Hasher hasher) {
+        checkNotNull(hasher);
+        this.users = new HashMapImpl<>(HashMapImpl.DEFAULT_BUCKET_CAPACITY, hasher);
         this.maxCapacity = maxCapacity;
+        this.edgeFilter = edgeFilter;
+        this.hasher = hasher;
     }
 
     /**
@@ -73,7 +102,7 @@ public class DNABookHashImpl implements SocialNetwork {
     @Override
     public void registerUser(String name) {
         if (!isFull() || !isBounded())
-            users.put(name, new HashSetImpl<>());
+            users.put(name, new HashSetImpl<>(hasher));
     }
 
     /**
@@ -90,15 +119,93 @@ public class DNABookHashImpl implements SocialNetwork {
         if (friends1 != null && friends2 != null) {
             friends1.add(name2);
             friends2.add(name1);
+
+            if (edgeFilter != null)
+                edgeFilter.add(name1, name2);
         }
     }
 
     @Override
     public boolean areTheyFriends(String name1, String name2) {
+        if (edgeFilter != null && !edgeFilter.mightContain(name1, name2))
+            return false;
+
+        HashSet<String> friends1 = users.get(name1);
+        HashSet<String> friends2 = users.get(name2);
+
+        boolean friends = (friends1 != null && friends1.contains(name2)) || (friends2 != null && friends2.contains(name1));
+
+        if (!friends && edgeFilter != null)
+            edgeFilter.recordFalsePositive();
+
+        return friends;
+    }
+
+    @Override
+    public void unfriend(String name1, String name2) {
         HashSet<String> friends1 = users.get(name1);
         HashSet<String> friends2 = users.get(name2);
 
-        return (friends1 != null && friends1.contains(name2)) || (friends2 != null && friends2.contains(name1));
+        if (friends1 != null && friends2 != null) {
+            friends1.remove(name2);
+            friends2.remove(name1);
+        }
+    }
+
+    /**
+     * Removes the user from the network, and removes them from the friend set of everyone they were friends with.
+     *
+     * @param name The name of the user to remove
+     */
+    @Override
+    public void removeUser(String name) {
+        HashSet<String> friends = users.remove(name);
+
+        if (friends != null) {
+            friends.forEach(friend -> {
+                HashSet<String> friendsOfFriend = users.get(friend);
+
+                if (friendsOfFriend != null) // null if they were friends with themselves
+                    friendsOfFriend.remove(name);
+            });
+        }
+    }
+
+    @Override
+    public boolean containsUser(String name) {
+        return users.containsKey(name);
+    }
+
+    @Override
+    public void forEachUser(Consumer<String> consumer) {
+        users.forEachKey(consumer);
+    }
+
+    @Override
+    public void forEachFriend(String name, Consumer<String> consumer) {
+        HashSet<String> friends = users.get(name);
+
+        if (friends != null)
+            friends.forEach(consumer);
+    }
+
+    @Override
+    public int friendCount(String name) {
+        HashSet<String> friends = users.get(name);
+        return friends == null ? 0 : friends.size();
+    }
+
+    /**
+     * The cursor is a position in the user's {@link HashSetImpl} (see {@link HashMapImpl#forEachKeyFrom}), so each
+     * page carries on from where the last one stopped, rather than going back through all the friends before it.
+     */
+    @Override
+    public void friendsPage(String name, long cursor, FriendPage page) {
+        page.clear();
+        HashSet<String> friends = users.get(name);
+
+        if (friends != null)
+            page.setNextCursor(((HashSetImpl<String>) friends).forEachFrom(cursor, page::add));
     }
 
     private boolean isBounded() {
@@ -113,6 +220,36 @@ public class DNABookHashImpl implements SocialNetwork {
         return users.size();
     }
 
+    /**
+     * Every user has their own {@link HashSetImpl}, which starts off with {@link HashMapImpl#DEFAULT_BUCKET_CAPACITY}
+     * empty lists in it - so this is a few KB per user before they even have any friends.
+     */
+    @Override
+    public long memoryFootprint() {
+        HeapSize size = new HeapSize().addObject(3 * HeapSize.REFERENCE + 4);
+
+        if (edgeFilter != null)
+            size.addBytes(edgeFilter.sizeInBytes());
+
+        ((HashMapImpl<String, HashSet<String>>) users).addTo(size);
+        users.forEachKey(name -> ((HashSetImpl<String>) users.get(name)).addTo(size));
+        return size.bytes();
+    }
+
+    /**
+     * @return an immutable copy of this network, optimised for lookups
+     */
+    public FrozenSocialNetwork freeze() {
+        FrozenSocialNetwork.Builder builder = new FrozenSocialNetwork.Builder();
+        users.forEachKey(builder::addUser);
+        users.forEachKey(name -> users.get(name).forEach(friend -> builder.addFriendship(name, friend)));
+        return builder.build();
+    }
+
+    public EdgeBloomFilter getEdgeFilter() {
+        return edgeFilter;
+    }
+
     /* ============================ INTERFACES ============================ */
 
     public interface HashMap<K extends Comparable<K>, V> {
@@ -120,8 +257,12 @@ public class DNABookHashImpl implements SocialNetwork {
 
         V get(K key);
 
+        V remove(K key);
+
         boolean containsKey(K key); // used in hashset.contains(E elem)
 
+        void forEachKey(Consumer<? super K> action); // used in hashset.forEach(Consumer action)
+
         int size();
     }
 
@@ -129,6 +270,21 @@ public class DNABookHashImpl implements SocialNetwork {
         void add(E elem);
 
         boolean contains(E elem);
+
+        void remove(E elem);
+
+        void forEach(Consumer<? super E> action);
+
+        int size();
+    }
+
+    /**
+     * Turns a key into a hash for {@link HashMapImpl}. Only the low bits are used to pick a bucket, so they need to
+     * depend on the whole key.
+     */
+    @FunctionalInterface
+    public interface Hasher {
+        int hash(Object key);
     }
 
     public interface CollisionResolvingCollection<K extends Comparable<K>, V> {
@@ -136,6 +292,18 @@ public class DNABookHashImpl implements SocialNetwork {
 
         V get(K key);
 
+        V remove(K key);
+
+        void forEachKey(Consumer<? super K> action);
+
+        /**
+         * Same order as {@link #forEachKey}, but starts at the {@code from}th key and stops as soon as the action
+         * returns false.
+         *
+         * @return how far along the key the action turned down is, or -1 if it took all of them
+         */
+        int forEachKeyFrom(int from, Predicate<? super K> action);
+
         int size();
     }
 
@@ -157,8 +325,8 @@ public class DNABookHashImpl implements SocialNetwork {
      * ======= TL;DR =======
      *
      *
-     * <p>HashMap has O(1) complexity. Hashing function is taken from {@link java.util.HashMap} with a couple of
-     * modifications. Collisions are resolved using an AVT Tree because although each node takes up more memory than a
+     * <p>HashMap has O(1) complexity. Hashing is done by a {@link Hasher}, which can be swapped out - the default is
+     * {@link MixingHasher}. Collisions are resolved using an AVT Tree because although each node takes up more memory than a
      * linked list, the lookup / insertion time will always be O(log(n)), which is what is asked for in the question.</p>
      *
      *
@@ -166,8 +334,9 @@ public class DNABookHashImpl implements SocialNetwork {
      *
      * <p>I've done this to allow for there to be a very high chance of there being an O(1) complexity when looking up
      * a User's ID from their string, especially considering we'll only have 100 users max.
-     * There isn't an implementation to remove from the Map, seeing as it's not asked for in the question. (Who would
-     * want to remove friends anyways, right? Never in DSABook! :D)</p>
+     * Removing is just a case of finding the right bucket and unlinking the node from it (or deleting it from the AVL
+     * tree) - since it's chaining rather than open addressing, there's no need for tombstones or shifting entries
+     * back.</p>
      *
      * <p>This implementation also provides two additional benefits. Firstly, this collection is unbounded. With this,
      * you could have a theoretical infinite amount of users and friends (provided you had the memory to do it,
@@ -177,10 +346,12 @@ public class DNABookHashImpl implements SocialNetwork {
      *
      * ======= IMPLEMENTATION  =======
      *
-     * <p>The hashing function I've used is basically just {@link java.util.HashMap}'s hashing function, however it
-     * applies a circular function around the list (ie. hash % number of buckets). I have also taken the absolute
-     * value of the hashed result, since I got some weird results after testing. (This probably isn't the actual
-     * way to deal with this in a real application, but it works so eh?)</p>
+     * <p>The number of buckets is always rounded up to a power of two, so the bucket is just the hash ANDed with
+     * (buckets - 1), rather than a (slow) modulo. That only looks at the low bits of the hash though, so the
+     * {@link Hasher} has to mix the high bits down into them - {@link String#hashCode} on its own puts names that only
+     * differ in their first few characters in the same bucket. (This used to be {@code Math.abs(hash) % buckets},
+     * which went negative and crashed for a hash of {@link Integer#MIN_VALUE}, since that has no positive
+     * version.)</p>
      *
      * <p>Collisions are resolved using an AVT tree. Although I do understand it's far more conventional to use a
      * linked list, using this method of implementation would take O(n) complexity for lookup / insertion, which is
@@ -220,6 +391,8 @@ public class DNABookHashImpl implements SocialNetwork {
 
         private final int bucketCapacity;
 
+        private final Hasher hasher;
+
         private transient int elementCount;
 
         private final CollisionResolvingCollection<?, ?>[] table;
@@ -230,11 +403,24 @@ public class DNABookHashImpl implements SocialNetwork {
         }
 
         public HashMapImpl(int bucketCapacity) {
+            this(bucketCapacity, new MixingHasher());
+        }
+
+        /**
+         * @param bucketCapacity rounded up to a power of two
+         */
+        public HashMapImpl(int bucketCapacity, Hasher hasher) {
             if (bucketCapacity < 1)
                 throw new IllegalArgumentException("Illegal argument: bucketCapacity - bucketCapacity < 1!");
 
-            this.bucketCapacity = bucketCapacity;
-            this.table = new CollisionResolvingCollection<?, ?>[bucketCapacity];
+            if (bucketCapacity > 1 << 30)
+                throw new IllegalArgumentException("Illegal bucket capacity: " + bucketCapacity);
+
+            checkNotNull(hasher);
+            this.bucketCapacity = Integer.bitCount(bucketCapacity) == 1 ? bucketCapacity
+                    : Integer.highestOneBit(bucketCapacity) << 1;
+            this.hasher = hasher;
+            this.table = new CollisionResolvingCollection<?, ?>[this.bucketCapacity];
             fillTable();
         }
 
@@ -254,8 +440,9 @@ public class DNABookHashImpl implements SocialNetwork {
                 table[hash] = bucket;
             }
 
+            int before = bucket.size();
             bucket.put(key, value);
-            elementCount++;
+            elementCount += bucket.size() - before; // only changes if the key wasn't already there
         }
 
         @Override
@@ -265,6 +452,20 @@ public class DNABookHashImpl implements SocialNetwork {
             return bucket == null ? null : bucket.get(key);
         }
 
+        @Override
+        public V remove(K key) {
+            checkNotNull(key);
+            CollisionResolvingCollection<K, V> bucket = getBucket(hashFunction(key));
+
+            if (bucket == null)
+                return null;
+
+            int before = bucket.size();
+            V value = bucket.remove(key);
+            elementCount -= before - bucket.size();
+            return value;
+        }
+
         @Override
         public boolean containsKey(K key) {
             checkNotNull(key);
@@ -272,6 +473,43 @@ public class DNABookHashImpl implements SocialNetwork {
             return bucket != null && bucket.get(key) != null;
         }
 
+        @Override
+        public void forEachKey(Consumer<? super K> action) {
+            for (int i = 0; i < bucketCapacity; i++) {
+                CollisionResolvingCollection<K, V> bucket = getBucket(i);
+
+                if (bucket != null && bucket.size() > 0)
+                    bucket.forEachKey(action);
+            }
+        }
+
+        /**
+         * <p>Goes through the keys in the same order as {@link #forEachKey}, starting at a position returned by an
+         * earlier call (or 0 for the start), until the action returns false.</p>
+         *
+         * <p>A position is the bucket in the top 32 bits and how far along that bucket in the bottom 32, so getting
+         * back to it only means going through the one bucket rather than every key before it. If keys are added to or
+         * removed from that bucket in between, a key might be missed out or repeated.</p>
+         *
+         * @return the position of the key the action turned down, or -1 if it took all of them
+         */
+        long forEachKeyFrom(long position, Predicate<? super K> action) {
+            int from = (int) position;
+
+            // a negative position has a huge bucket, so doesn't go through anything
+            for (long i = position >>> 32; i < bucketCapacity; i++, from = 0) {
+                CollisionResolvingCollection<K, V> bucket = getBucket((int) i);
+
+                if (bucket != null && bucket.size() > from) {
+                    int stopped = bucket.forEachKeyFrom(from, action);
+
+                    if (stopped != -1)
+                        return i << 32 | stopped;
+                }
+            }
+            return -1;
+        }
+
         @Override
         public int size() {
             return elementCount;
@@ -283,7 +521,45 @@ public class DNABookHashImpl implements SocialNetwork {
         }
 
         private int hashFunction(Object key) {
-            return key == null ? 0 : Math.abs(key.hashCode()) % bucketCapacity;
+            return key == null ? 0 : hasher.hash(key) & (bucketCapacity - 1);
+        }
+
+        /**
+         * Adds the table, the buckets, their nodes and any String keys - but not the values.
+         */
+        void addTo(HeapSize size) {
+            size.addObject(2 * 4 + 2 * HeapSize.REFERENCE).addArray(bucketCapacity, HeapSize.REFERENCE);
+
+            for (int i = 0; i < bucketCapacity; i++) {
+                CollisionResolvingCollection<K, V> bucket = getBucket(i);
+
+                // the list / tree itself (first node and size), then a node per key
+                size.addObject(HeapSize.REFERENCE + 4);
+
+                for (int node = 0; node < bucket.size(); node++) {
+                    if (bucket instanceof AVLTree)
+                        size.addObject(4 * HeapSize.REFERENCE + 4);
+                    else
+                        size.addObject(3 * HeapSize.REFERENCE);
+                }
+
+                bucket.forEachKey(key -> {
+                    if (key instanceof String)
+                        size.addString((String) key);
+                });
+            }
+        }
+
+        /**
+         * @return how many keys are in each bucket, to see how well the {@link Hasher} spreads them out
+         */
+        int[] bucketSizes() {
+            int[] sizes = new int[bucketCapacity];
+
+            for (int i = 0; i < bucketCapacity; i++)
+                sizes[i] = getBucket(i).size();
+
+            return sizes;
         }
 
         /**
@@ -300,8 +576,10 @@ public class DNABookHashImpl implements SocialNetwork {
 
             @Override
             public void put(K key, V value) {
+                if (getNode(key) == null)
+                    size++;
+
                 this.root = this.root == null ? new TreeNode<>(key, value) : putNode(root, key, value);
-                size++;
             }
 
             @Override
@@ -310,6 +588,29 @@ public class DNABookHashImpl implements SocialNetwork {
                 return node == null ? null : node.value;
             }
 
+            @Override
+            public V remove(K key) {
+                TreeNode<K, V> node = getNode(key);
+
+                if (node == null)
+                    return null;
+
+                this.root = removeNode(root, key);
+                size--;
+                return node.value;
+            }
+
+            @Override
+            public void forEachKey(Consumer<? super K> action) {
+                forEachKey(root, action);
+            }
+
+            @Override
+            public int forEachKeyFrom(int from, Predicate<? super K> action) {
+                int position = forEachKeyFrom(root, 0, from, action);
+                return position < 0 ? ~position : -1;
+            }
+
             @Override
             public int size() {
                 return size;
@@ -339,6 +640,56 @@ public class DNABookHashImpl implements SocialNetwork {
                 return balance(node);
             }
 
+            private TreeNode<K, V> removeNode(TreeNode<K, V> node, K key) {
+                if (node == null) return null;
+                int comparison = key.compareTo(node.key);
+
+                if (comparison < 0) {
+                    node.left = removeNode(node.left, key);
+                } else if (comparison > 0) {
+                    node.right = removeNode(node.right, key);
+                } else {
+                    if (node.left == null)
+                        return node.right;
+                    if (node.right == null)
+                        return node.left;
+
+                    // two children - replace this node with the smallest node in the right subtree
+                    TreeNode<K, V> successor = node.right;
+                    while (successor.left != null)
+                        successor = successor.left;
+
+                    successor.right = removeNode(node.right, successor.key);
+                    successor.left = node.left;
+                    node = successor;
+                }
+
+                node.height = 1 + Math.max(node.getLeftHeight(), node.getRightHeight());
+                return balance(node);
+            }
+
+            private void forEachKey(TreeNode<K, V> node, Consumer<? super K> action) {
+                if (node == null) return;
+                forEachKey(node.left, action);
+                action.accept(node.key);
+                forEachKey(node.right, action);
+            }
+
+            /**
+             * @return the position after this subtree, or ~(the position the action stopped at) if it stopped
+             */
+            private int forEachKeyFrom(TreeNode<K, V> node, int position, int from, Predicate<? super K> action) {
+                if (node == null) return position;
+
+                position = forEachKeyFrom(node.left, position, from, action);
+                if (position < 0) return position;
+
+                if (position >= from && !action.test(node.key))
+                    return ~position;
+
+                return forEachKeyFrom(node.right, position + 1, from, action);
+            }
+
             private TreeNode<K, V> balance(TreeNode<K, V> node) {
                 int balanceFactor = node.getBalanceFactor();
 
@@ -465,11 +816,12 @@ public class DNABookHashImpl implements SocialNetwork {
             @Override
             public void put(K key, V value) {
                 ListNode<K, V> node = new ListNode<>(key, value);
-                if (first == null)
+                if (first == null) {
                     this.first = node;
-                else
+                    size++;
+                } else {
                     putNode(node);
-                size++;
+                }
             }
 
             @SuppressWarnings("ConstantConditions")
@@ -479,7 +831,7 @@ public class DNABookHashImpl implements SocialNetwork {
 
                 while (curr != null) {
 
-                    if (curr.key == node.key) { // duplicate keys - just update the value stored inside.
+                    if (sameKey(curr.key, node.key)) { // duplicate keys - just update the value stored inside.
                         curr.value = node.value;
                         return;
                     }
@@ -488,6 +840,46 @@ public class DNABookHashImpl implements SocialNetwork {
                     curr = curr.next;
                 }
                 prev.next = node; // can assume not null since already checked if first is null previously.
+                size++;
+            }
+
+            @Override
+            public V remove(K key) {
+                ListNode<K, V> curr = first;
+                ListNode<K, V> prev = null;
+
+                while (curr != null) {
+                    if (sameKey(curr.key, key)) {
+                        if (prev == null)
+                            first = curr.next;
+                        else
+                            prev.next = curr.next;
+
+                        size--;
+                        return curr.value;
+                    }
+
+                    prev = curr;
+                    curr = curr.next;
+                }
+                return null;
+            }
+
+            @Override
+            public void forEachKey(Consumer<? super K> action) {
+                for (ListNode<K, V> curr = first; curr != null; curr = curr.next)
+                    action.accept(curr.key);
+            }
+
+            @Override
+            public int forEachKeyFrom(int from, Predicate<? super K> action) {
+                int position = 0;
+
+                for (ListNode<K, V> curr = first; curr != null; curr = curr.next, position++) {
+                    if (position >= from && !action.test(curr.key))
+                        return position;
+                }
+                return -1;
             }
 
             @Override
@@ -500,7 +892,7 @@ public class DNABookHashImpl implements SocialNetwork {
                 ListNode<K, V> curr = first;
 
                 while (curr != null) {
-                    if (curr.key == key)
+                    if (sameKey(curr.key, key))
                         return curr;
 
                     curr = curr.next;
@@ -512,6 +904,10 @@ public class DNABookHashImpl implements SocialNetwork {
             public int size() {
                 return size;
             }
+
+            private boolean sameKey(K key1, K key2) {
+                return key1 == key2 || key1.equals(key2); // equal Strings aren't always the same object
+            }
         }
 
         private static class ListNode<K extends Comparable<K>, V> implements INode<K, V> {
@@ -550,7 +946,11 @@ public class DNABookHashImpl implements SocialNetwork {
 
 
         public HashSetImpl() {
-            this.map = new HashMapImpl<>();
+            this(new MixingHasher());
+        }
+
+        public HashSetImpl(Hasher hasher) {
+            this.map = new HashMapImpl<>(HashMapImpl.DEFAULT_BUCKET_CAPACITY, hasher);
         }
 
         @Override
@@ -562,6 +962,106 @@ public class DNABookHashImpl implements SocialNetwork {
         public boolean contains(E elem) {
             return map.containsKey(elem);
         }
+
+        @Override
+        public void remove(E elem) {
+            map.remove(elem);
+        }
+
+        @Override
+        public void forEach(Consumer<? super E> action) {
+            map.forEachKey(action);
+        }
+
+        /**
+         * @see HashMapImpl#forEachKeyFrom
+         */
+        long forEachFrom(long position, Predicate<? super E> action) {
+            return ((HashMapImpl<E, Object>) map).forEachKeyFrom(position, action);
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        /**
+         * Adds this set, its map and the elements (if they're Strings).
+         */
+        void addTo(HeapSize size) {
+            size.addObject(2 * HeapSize.REFERENCE).addObject(0); // and the dummy value
+            ((HashMapImpl<E, Object>) map).addTo(size);
+        }
+    }
+
+    /**
+     * <p>The default {@link Hasher} - {@link Object#hashCode} run through the MurmurHash3 finalizer, which mixes every
+     * bit of the hash into every other bit, so the low bits that pick the bucket depend on the whole thing.</p>
+     *
+     * <p>It can't do anything about keys whose {@link Object#hashCode}s are the same though - see
+     * {@link SeededHasher}.</p>
+     */
+    public static class MixingHasher implements Hasher {
+
+        @Override
+        public int hash(Object key) {
+            return mix(key.hashCode());
+        }
+
+        static int mix(int hash) {
+            hash ^= hash >>> 16;
+            hash *= 0x85EBCA6B;
+            hash ^= hash >>> 13;
+            hash *= 0xC2B2AE35;
+            return hash ^ hash >>> 16;
+        }
+    }
+
+    /**
+     * <p>A {@link Hasher} with a random seed, so that nobody can work out ahead of time which keys will end up in the
+     * same bucket (hash flooding).</p>
+     *
+     * <p>Strings are hashed from their characters rather than from {@link String#hashCode}, since it's easy to come up
+     * with thousands of Strings with the same {@link String#hashCode} and no amount of mixing afterwards would split
+     * them up. Each character is XORed in and then multiplied, starting from the seed, so whether two Strings collide
+     * depends on the seed. It isn't a proper keyed hash like SipHash, but it's much cheaper, and it's enough to stop
+     * anyone choosing names that collide.</p>
+     *
+     * <p>Anything that isn't a String just has its {@link Object#hashCode} mixed with the seed.</p>
+     */
+    public static class SeededHasher implements Hasher {
+
+        private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+        private final long seed;
+
+        public SeededHasher() {
+            this(ThreadLocalRandom.current().nextLong());
+        }
+
+        public SeededHasher(long seed) {
+            this.seed = seed;
+        }
+
+        @Override
+        public int hash(Object key) {
+            long hash = seed;
+
+            if (key instanceof String) {
+                String string = (String) key;
+                hash ^= string.length();
+
+                for (int i = 0; i < string.length(); i++)
+                    hash = (hash ^ string.charAt(i)) * MULTIPLIER;
+            } else {
+                hash = (hash ^ key.hashCode()) * MULTIPLIER;
+            }
+
+            // Stafford's variant 13 of the MurmurHash3 64 bit finalizer
+            hash = (hash ^ hash >>> 30) * 0xBF58476D1CE4E5B9L;
+            hash = (hash ^ hash >>> 27) * 0x94D049BB133111EBL;
+            return (int) (hash ^ hash >>> 31);
+        }
     }
 
     /* ============================ UTILITY METHODS ============================ */
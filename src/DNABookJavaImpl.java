@@ -1,7 +1,10 @@
+import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * NOT USING IN FINAL SUBMISSION
@@ -17,6 +20,11 @@ public class DNABookJavaImpl implements SocialNetwork {
 
     private final int maxCapacity;
 
+    /**
+     * Optional filter of all friendships, so most non-friends can be turned away without looking anyone up.
+     */
+    private final EdgeBloomFilter edgeFilter;
+
 
     public DNABookJavaImpl() {
         this(-1);
@@ -28,8 +36,13 @@ public class DNABookJavaImpl implements SocialNetwork {
     }
 
     public DNABookJavaImpl(int maxCapacity) {
+        this(maxCapacity, null);
+    }
+
+    public DNABookJavaImpl(int maxCapacity, EdgeBloomFilter edgeFilter) {
         this.users = new HashMap<>();
         this.maxCapacity = maxCapacity;
+        this.edgeFilter = edgeFilter;
     }
 
     /**
@@ -58,15 +71,137 @@ public class DNABookJavaImpl implements SocialNetwork {
         if (friends1 != null && friends2 != null) {
             friends1.add(name2);
             friends2.add(name1);
+
+            if (edgeFilter != null)
+                edgeFilter.add(name1, name2);
         }
     }
 
     @Override
     public boolean areTheyFriends(String name1, String name2) {
+        if (edgeFilter != null && !edgeFilter.mightContain(name1, name2))
+            return false;
+
+        Set<String> friends1 = users.get(name1);
+        Set<String> friends2 = users.get(name2);
+
+        boolean friends = (friends1 != null && friends1.contains(name2)) || (friends2 != null && friends2.contains(name1));
+
+        if (!friends && edgeFilter != null)
+            edgeFilter.recordFalsePositive();
+
+        return friends;
+    }
+
+    @Override
+    public void unfriend(String name1, String name2) {
         Set<String> friends1 = users.get(name1);
         Set<String> friends2 = users.get(name2);
 
-        return (friends1 != null && friends1.contains(name2)) || (friends2 != null && friends2.contains(name1));
+        if (friends1 != null && friends2 != null) {
+            friends1.remove(name2);
+            friends2.remove(name1);
+        }
+    }
+
+    @Override
+    public void removeUser(String name) {
+        Set<String> friends = users.remove(name);
+
+        if (friends != null) {
+            friends.forEach(friend -> {
+                Set<String> friendsOfFriend = users.get(friend);
+
+                if (friendsOfFriend != null) // null if they were friends with themselves
+                    friendsOfFriend.remove(name);
+            });
+        }
+    }
+
+    @Override
+    public boolean containsUser(String name) {
+        return users.containsKey(name);
+    }
+
+    /**
+     * The sizes of Java's hash tables are guessed, since they can't be seen from outside (see
+     * {@link HeapSize#javaHashMap(int)}).
+     */
+    @Override
+    public long memoryFootprint() {
+        HeapSize size = new HeapSize().addObject(2 * HeapSize.REFERENCE + 4).addBytes(HeapSize.javaHashMap(users.size()));
+
+        if (edgeFilter != null)
+            size.addBytes(edgeFilter.sizeInBytes());
+
+        users.forEach((name, friends) -> {
+            size.addString(name).addObject(HeapSize.REFERENCE).addBytes(HeapSize.javaHashMap(friends.size()));
+            friends.forEach(size::addString);
+        });
+        return size.bytes();
+    }
+
+    @Override
+    public void forEachUser(Consumer<String> consumer) {
+        users.keySet().forEach(consumer);
+    }
+
+    @Override
+    public void forEachFriend(String name, Consumer<String> consumer) {
+        Set<String> friends = users.get(name);
+
+        if (friends != null)
+            friends.forEach(consumer);
+    }
+
+    @Override
+    public int friendCount(String name) {
+        Set<String> friends = users.get(name);
+        return friends == null ? 0 : friends.size();
+    }
+
+    /**
+     * <p>The cursor is how many friends have been seen already. Unlike going through {@link #forEachFriend}, this can
+     * stop as soon as the page is full.</p>
+     *
+     * <p>There's no way to jump into the middle of a {@link java.util.HashSet}, so the page keeps hold of the iterator
+     * it stopped with, and the next page carries on from that. It only has to skip over the friends before the
+     * cursor if it's given a different page, or the friends have changed since (which makes the iterator throw).</p>
+     */
+    @Override
+    public void friendsPage(String name, long cursor, FriendPage page) {
+        Set<String> friends = users.get(name);
+        Iterator<String> iterator = page.resume(friends, cursor);
+        page.clear();
+
+        if (friends == null)
+            return;
+
+        try {
+            fillPage(friends, iterator == null ? skip(friends, cursor) : iterator, cursor, page);
+        } catch (ConcurrentModificationException e) {
+            page.clear();
+            fillPage(friends, skip(friends, cursor), cursor, page);
+        }
+    }
+
+    private static Iterator<String> skip(Set<String> friends, long cursor) {
+        Iterator<String> iterator = friends.iterator();
+
+        for (long skipped = 0; skipped < cursor && iterator.hasNext(); skipped++)
+            iterator.next();
+
+        return iterator;
+    }
+
+    private static void fillPage(Set<String> friends, Iterator<String> iterator, long cursor, FriendPage page) {
+        while (!page.isFull() && iterator.hasNext())
+            page.add(iterator.next());
+
+        if (iterator.hasNext()) {
+            page.setNextCursor(cursor + page.size());
+            page.saveIterator(friends, iterator);
+        }
     }
 
     private boolean isBounded() {
@@ -80,4 +215,18 @@ public class DNABookJavaImpl implements SocialNetwork {
     public int size() {
         return users.size();
     }
+
+    /**
+     * @return an immutable copy of this network, optimised for lookups
+     */
+    public FrozenSocialNetwork freeze() {
+        FrozenSocialNetwork.Builder builder = new FrozenSocialNetwork.Builder();
+        users.keySet().forEach(builder::addUser);
+        users.forEach((name, friends) -> friends.forEach(friend -> builder.addFriendship(name, friend)));
+        return builder.build();
+    }
+
+    public EdgeBloomFilter getEdgeFilter() {
+        return edgeFilter;
+    }
 }
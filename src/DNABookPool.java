@@ -0,0 +1,170 @@
+import java.util.Objects;
+
+/**
+ * <p>A pool of empty {@link DNABook}s, for workloads that make lots of small networks that only last a short time (eg.
+ * one per session). Creating a {@link DNABook} allocates its whole matrix up front, so making thousands a second is
+ * mostly garbage for the GC - here they're {@link DNABook#clear() cleared} and handed out again instead, so once the
+ * pool has warmed up, starting a session doesn't allocate anything.</p>
+ *
+ * <p>Usage: {@link #acquire()} a book, use it, then {@link #release(DNABook)} it. A book mustn't be touched after it's
+ * been released, since someone else will get it next.</p>
+ *
+ *
+ * ======= IMPLEMENTATION =======
+ *
+ * <p>The pool is split into stripes, and each thread uses the stripe picked by its thread id (the same way as
+ * {@link InstrumentedSocialNetwork.LatencyHistogram}), so threads hardly ever wait for each other. Each stripe is just
+ * a fixed size array used as a stack, locked with {@code synchronized} - that's only held for a push or a pop, and
+ * it's nearly always uncontended.</p>
+ *
+ * <p>A book is cleared as it's released rather than as it's acquired, so it doesn't hold on to its users' names while
+ * it's sitting in the pool.</p>
+ *
+ *
+ * ======= NOTES =======
+ *
+ * <p>A book doesn't have to be released on the same thread that acquired it - it just goes into whichever stripe the
+ * releasing thread uses. If a stripe is empty a new book is made (the pool never makes a thread wait for one), and if
+ * it's full the released book is just left for the GC, so the pool never holds more than
+ * stripes * books per stripe.</p>
+ *
+ * <p>Releasing a book twice throws, rather than putting it in the pool twice (where two sessions would end up sharing
+ * it). That can't catch a book being released by someone who's kept hold of it after it's been handed out again
+ * though.</p>
+ */
+public class DNABookPool {
+
+    static final int DEFAULT_STRIPES = 8;
+
+    static final int DEFAULT_BOOKS_PER_STRIPE = 16;
+
+    private final Stripe[] stripes;
+
+    private final int stripeMask;
+
+    private final int maxCapacity;
+
+
+    public DNABookPool() {
+        this(DNABook.DEFAULT_MAX_CAPACITY, DEFAULT_STRIPES, DEFAULT_BOOKS_PER_STRIPE);
+    }
+
+    /**
+     * @param maxCapacity     the max capacity of every book in the pool
+     * @param stripeCount     how many stripes to split the pool into - must be a power of 2
+     * @param booksPerStripe  the most books each stripe keeps hold of
+     */
+    public DNABookPool(int maxCapacity, int stripeCount, int booksPerStripe) {
+        if (maxCapacity < 1)
+            throw new IllegalArgumentException("Illegal max capacity: " + maxCapacity);
+
+        if (stripeCount < 1 || Integer.bitCount(stripeCount) != 1)
+            throw new IllegalArgumentException("Illegal stripe count: " + stripeCount + " - must be a power of 2!");
+
+        if (booksPerStripe < 1)
+            throw new IllegalArgumentException("Illegal books per stripe: " + booksPerStripe);
+
+        this.maxCapacity = maxCapacity;
+        this.stripes = new Stripe[stripeCount];
+        this.stripeMask = stripeCount - 1;
+
+        for (int i = 0; i < stripeCount; i++)
+            stripes[i] = new Stripe(booksPerStripe);
+    }
+
+    /**
+     * Fills every stripe up with books, so that even the first sessions don't allocate.
+     */
+    public DNABookPool preallocate() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                while (stripe.count < stripe.books.length) {
+                    DNABook book = new DNABook(maxCapacity);
+                    book.pooled = true;
+                    stripe.books[stripe.count++] = book;
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return an empty book - one from the pool if there are any, otherwise a new one
+     */
+    public DNABook acquire() {
+        Stripe stripe = stripes[stripe()];
+
+        synchronized (stripe) {
+            if (stripe.count > 0) {
+                DNABook book = stripe.books[--stripe.count];
+                stripe.books[stripe.count] = null;
+
+                synchronized (book) {
+                    book.pooled = false;
+                }
+                return book;
+            }
+        }
+        return new DNABook(maxCapacity);
+    }
+
+    /**
+     * Clears the book and puts it back in the pool.
+     *
+     * @throws IllegalArgumentException if the book is a different size from the ones in this pool
+     * @throws IllegalStateException    if the book has already been released (and not acquired again since)
+     */
+    public void release(DNABook book) {
+        Objects.requireNonNull(book);
+
+        if (book.maxCapacity() != maxCapacity)
+            throw new IllegalArgumentException("Illegal book (max capacity " + book.maxCapacity() + " rather than "
+                    + maxCapacity + ")");
+
+        // the book's own lock, since the two releases could be on threads using different stripes
+        synchronized (book) {
+            if (book.pooled)
+                throw new IllegalStateException("Book has already been released");
+
+            book.pooled = true;
+        }
+
+        book.clear();
+        Stripe stripe = stripes[stripe()];
+
+        synchronized (stripe) {
+            if (stripe.count < stripe.books.length)
+                stripe.books[stripe.count++] = book;
+        }
+    }
+
+    /**
+     * @return how many books are sitting in the pool right now
+     */
+    public int available() {
+        int available = 0;
+
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                available += stripe.count;
+            }
+        }
+        return available;
+    }
+
+    private int stripe() {
+        long id = Thread.currentThread().getId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & stripeMask; // spread out sequential thread ids
+    }
+
+    private static class Stripe {
+
+        private final DNABook[] books;
+
+        private int count;
+
+        private Stripe(int capacity) {
+            this.books = new DNABook[capacity];
+        }
+    }
+}
@@ -0,0 +1,101 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+/**
+ * <p>Local benchmark of lots of short-lived 100-user sessions, comparing a new {@link DNABook} for every session with
+ * getting one from a {@link DNABookPool}. Shows sessions per second, bytes allocated per session, the allocation rate
+ * and how much the GC had to do.</p>
+ *
+ * <p>Pass the number of sessions as the first argument (the default is 50,000).</p>
+ */
+public class DNABookPoolBenchmark {
+
+    static final int DEFAULT_SESSIONS = 50_000;
+
+    static final int USERS = DNABook.DEFAULT_MAX_CAPACITY;
+
+    static final int FRIENDSHIPS = 300;
+
+    static final int QUERIES = 1_000;
+
+    public static void main(String[] args) {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SESSIONS;
+        int width = WorkloadGenerator.nameWidth(USERS);
+
+        // everything is made up front, so only the books themselves allocate
+        String[] names = new String[USERS];
+        for (int id = 0; id < USERS; id++)
+            names[id] = WorkloadGenerator.name(id, width);
+
+        SplittableRandom random = new SplittableRandom(42);
+        int[] pairs = new int[2 * (FRIENDSHIPS + QUERIES)];
+        for (int i = 0; i < pairs.length; i++)
+            pairs[i] = random.nextInt(USERS);
+
+        DNABookPool pool = new DNABookPool().preallocate();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        System.out.printf("%,d sessions of %d users, %d friendships and %d queries%n", sessions, USERS, FRIENDSHIPS,
+                QUERIES);
+
+        for (int round = 0; round < 3; round++) { // the first round is just to warm up
+            for (boolean pooled : new boolean[]{false, true}) {
+                long gcCount = gcCount();
+                long gcMillis = gcMillis();
+                long allocated = threads.getCurrentThreadAllocatedBytes();
+                long start = System.nanoTime();
+                long check = 0;
+
+                for (int session = 0; session < sessions; session++) {
+                    DNABook book = pooled ? pool.acquire() : new DNABook(USERS);
+                    check += session(book, names, pairs);
+
+                    if (pooled)
+                        pool.release(book);
+                }
+
+                long nanos = System.nanoTime() - start;
+                long bytes = threads.getCurrentThreadAllocatedBytes() - allocated;
+
+                if (round > 0)
+                    System.out.printf("%-8s %,10.0f sessions/s | %,9.1f bytes/session | %,8.1f MB/s | %4d GCs, %5d ms"
+                                    + " | %d%n", pooled ? "pooled" : "new", sessions * 1e9 / nanos,
+                            bytes / (double) sessions, bytes * 1e3 / nanos, gcCount() - gcCount,
+                            gcMillis() - gcMillis, check);
+            }
+        }
+    }
+
+    private static long session(DNABook book, String[] names, int[] pairs) {
+        for (String name : names)
+            book.registerUser(name);
+
+        int i = 0;
+        for (; i < 2 * FRIENDSHIPS; i += 2)
+            book.becomeFriends(names[pairs[i]], names[pairs[i + 1]]);
+
+        long friends = 0;
+        for (; i < pairs.length; i += 2)
+            if (book.areTheyFriends(names[pairs[i]], names[pairs[i + 1]]))
+                friends++;
+
+        return friends;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            count += gc.getCollectionCount();
+
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            millis += gc.getCollectionTime();
+
+        return millis;
+    }
+}
@@ -0,0 +1,117 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executable class to test {@link DNABook#clear()} and {@link DNABookPool}.
+ */
+public class DNABookPoolTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        DNABook book = new DNABook(5);
+        book.registerUser("Alex");
+        book.registerUser("Bea");
+        book.registerUser("Chris");
+        book.becomeFriends("Alex", "Chris");
+        book.becomeFriends("Bea", "Bea");
+        book.removeUser("Bea");
+        book.packNames();
+        book.clear();
+
+        System.out.println(book.size() + " should be 0");
+        System.out.println(book.containsUser("Alex") + " should be false");
+
+        // the same names again, but none of the old friendships
+        book.registerUser("Alex");
+        book.registerUser("Bea");
+        book.registerUser("Chris");
+        System.out.println(book.areTheyFriends("Alex", "Chris") + " should be false");
+        System.out.println(book.areTheyFriends("Bea", "Bea") + " should be false");
+        System.out.println(book.friendCount("Alex") + " should be 0");
+
+        // and it can still fill right up
+        book.registerUser("Daniel");
+        book.registerUser("Ed");
+        book.becomeFriends("Daniel", "Ed");
+        System.out.println(book.size() + " should be 5");
+        System.out.println(book.areTheyFriends("Ed", "Daniel") + " should be true");
+
+        DNABookPool pool = new DNABookPool(5, 1, 2);
+        System.out.println(pool.available() + " should be 0");
+
+        DNABook first = pool.acquire();
+        first.registerUser("Alex");
+        pool.release(first);
+        System.out.println(pool.available() + " should be 1");
+
+        DNABook second = pool.acquire();
+        System.out.println((second == first) + " should be true");
+        System.out.println(second.size() + " should be 0");
+
+        // only keeps two
+        pool.release(second);
+
+        try {
+            pool.release(second);
+            System.out.println("should have thrown");
+        } catch (IllegalStateException e) {
+            System.out.println(e.getMessage() + " should be Book has already been released");
+        }
+        System.out.println(pool.available() + " should be 1");
+
+        pool.release(new DNABook(5));
+        pool.release(new DNABook(5));
+        System.out.println(pool.available() + " should be 2");
+
+        System.out.println(new DNABookPool(5, 4, 3).preallocate().available() + " should be 12");
+
+        try {
+            pool.release(new DNABook(6));
+            System.out.println("should have thrown");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage() + " should be Illegal book (max capacity 6 rather than 5)");
+        }
+
+        try {
+            new DNABookPool(5, 3, 2);
+            System.out.println("should have thrown");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage() + " should be Illegal stripe count: 3 - must be a power of 2!");
+        }
+
+        // lots of threads all using the pool at once - every session should only see its own users
+        DNABookPool shared = new DNABookPool();
+        AtomicInteger wrong = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < 8; t++) {
+            String prefix = "t" + t + "-";
+
+            Thread thread = new Thread(() -> {
+                for (int session = 0; session < 2_000; session++) {
+                    DNABook b = shared.acquire();
+
+                    if (b.size() != 0)
+                        wrong.incrementAndGet();
+
+                    for (int i = 0; i < 10; i++)
+                        b.registerUser(prefix + i);
+
+                    b.becomeFriends(prefix + 0, prefix + 9);
+
+                    if (b.size() != 10 || !b.areTheyFriends(prefix + 9, prefix + 0) || b.friendCount(prefix + 1) != 0)
+                        wrong.incrementAndGet();
+
+                    shared.release(b);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads)
+            thread.join();
+
+        System.out.println(wrong.get() + " should be 0");
+    }
+}
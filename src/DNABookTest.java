@@ -29,5 +29,34 @@ public class DNABookTest {
         System.out.println(s.areTheyFriends("Bea", "Ed") + " should be false");
         System.out.println(s.areTheyFriends("Ed", "Bea") + " should be false");
         System.out.println();
+
+        // once a removed user's slot has been compacted away, registering them again puts them back in order
+        DNABook book = new DNABook(3);
+        book.registerUser("a");
+        book.registerUser("b");
+        book.registerUser("c");
+        book.removeUser("a");
+        book.registerUser("d"); // full, so this compacts
+        book.removeUser("b");
+        book.registerUser("a");
+        book.registerUser("a");
+
+        StringBuilder users = new StringBuilder();
+        book.forEachUser(name -> users.append(name).append(' '));
+        System.out.println(users + "should be a c d ");
+        System.out.println(book.containsUser("a") + " " + book.size() + " should be true 3");
+
+        book.packNames();
+        System.out.println(book.containsUser("a") + " " + book.containsUser("d") + " should be true true");
+
+        // and in among packed names too
+        book.removeUser("a");
+        book.registerUser("b"); // compacts, then goes between the packed names
+        users.setLength(0);
+        book.forEachUser(name -> users.append(name).append(' '));
+        System.out.println(users + "should be b c d ");
+        System.out.println(book.containsUser("b") + " " + book.containsUser("c") + " " + book.containsUser("a")
+                + " should be true true false");
+        System.out.println();
     }
 }
\ No newline at end of file
@@ -49,11 +49,17 @@ public class DNABookTestDetailed {
         DNABookTestDetailed binarySearch = new DNABookTestDetailed("Binary Search", () -> new DNABook(DEFAULT_SIZE));
         DNABookTestDetailed ownHashImpl = new DNABookTestDetailed("Own HashMap", DNABookHashImpl::new);
         DNABookTestDetailed javaImpl = new DNABookTestDetailed("Java HashMap", DNABookJavaImpl::new);
+        DNABookTestDetailed ownHashBloom = new DNABookTestDetailed("Own HashMap + Bloom Filter",
+                () -> new DNABookHashImpl(-1, new EdgeBloomFilter(DEFAULT_SIZE)));
+        DNABookTestDetailed javaBloom = new DNABookTestDetailed("Java HashMap + Bloom Filter",
+                () -> new DNABookJavaImpl(-1, new EdgeBloomFilter(DEFAULT_SIZE)));
 
         // binarySearch.runTests();
         binarySearch.runTests();
         ownHashImpl.runTests();
         javaImpl.runTests();
+        ownHashBloom.runTests();
+        javaBloom.runTests();
     }
 
     public void runTests() {
@@ -94,6 +100,22 @@ public class DNABookTestDetailed {
         assertCorrect(areTheyFriends, "Alex", "Chris", true);
         assertCorrect(areTheyFriends, "Chris", "Alex", true);
         assertCorrect(areTheyFriends, "Bea", "Daniel", true);
+
+        network.unfriend("Chris", "Alex");
+
+        assertCorrect(areTheyFriends, "Alex", "Chris", false);
+        assertCorrect(areTheyFriends, "Bea", "Daniel", true);
+
+        network.becomeFriends("Daniel", "Ed");
+        network.removeUser("Daniel");
+
+        assertCorrect(areTheyFriends, "Bea", "Daniel", false);
+        assertCorrect(areTheyFriends, "Ed", "Daniel", false);
+
+        network.registerUser("Daniel"); // should come back with no friends
+
+        assertCorrect(areTheyFriends, "Bea", "Daniel", false);
+        assertCorrect(areTheyFriends, "Daniel", "Ed", false);
     }
 
     private void stressTests(SocialNetwork network) {
@@ -0,0 +1,191 @@
+import java.util.Locale;
+
+/**
+ * <p>A Bloom filter of friendships, used to answer "no" to {@link SocialNetwork#areTheyFriends(String, String)} without
+ * having to look either user up.</p>
+ *
+ *
+ * ======= IMPLEMENTATION =======
+ *
+ * <p>This is a blocked Bloom filter. Instead of the k bits for a friendship being spread over the whole bit array
+ * (which would be k cache misses), the first part of the hash picks one 512 bit block - the size of a cache line - and
+ * all k bits are set inside that block. So checking a pair costs one cache miss, at the price of a slightly higher
+ * false positive rate than a normal Bloom filter of the same size.</p>
+ *
+ * <p>The key is the unordered pair of names, so {@code (Alex, Bea)} and {@code (Bea, Alex)} hash to the same thing.
+ * This is done by hashing each name separately and then always combining the smaller hash with the bigger one.</p>
+ *
+ *
+ * ======= NOTES =======
+ *
+ * <p>Bloom filters can't have things removed from them, so unfriending someone leaves their bits set. This can't
+ * cause a wrong answer - it's just one more pair that will go on to the exact check - but it does mean the false
+ * positive rate creeps up over time if there are lots of removals. {@link #falsePositiveRate()} is worked out from
+ * how many pairs have been added, and {@link #observedFalsePositiveRate()} is what has actually happened, so it's
+ * easy to see when this has started happening.</p>
+ *
+ * <p>This is not thread-safe, the same as the networks that use it.</p>
+ */
+public class EdgeBloomFilter {
+
+    static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    private static final int BLOCK_BITS = 512;
+
+    private static final int LONGS_PER_BLOCK = BLOCK_BITS / Long.SIZE;
+
+    private static final int MAX_BLOCKS = 1 << 24; // 1GB of filter - always a power of 2 so blocks can be masked
+
+    private final long[] bits;
+
+    private final int blockMask;
+
+    private final int hashCount;
+
+    private long insertions;
+
+    private long rejections;
+
+    private long positives;
+
+    private long falsePositives;
+
+
+    public EdgeBloomFilter(long expectedEdges) {
+        this(expectedEdges, DEFAULT_FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * @param expectedEdges the number of friendships the filter is sized for
+     * @param falsePositiveRate the fraction of non-friends that should get past the filter, eg. 0.01 for 1%
+     */
+    public EdgeBloomFilter(long expectedEdges, double falsePositiveRate) {
+        if (expectedEdges < 1)
+            throw new IllegalArgumentException("Illegal expected edges: " + expectedEdges);
+
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1)
+            throw new IllegalArgumentException("Illegal false positive rate: " + falsePositiveRate);
+
+        double ln2 = Math.log(2);
+        long optimalBits = (long) Math.ceil(-expectedEdges * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int blocksNeeded = (int) Math.min(MAX_BLOCKS, Math.max(1, (optimalBits + BLOCK_BITS - 1) / BLOCK_BITS));
+        int blocks = Integer.bitCount(blocksNeeded) == 1 ? blocksNeeded : Integer.highestOneBit(blocksNeeded) << 1;
+
+        this.bits = new long[blocks * LONGS_PER_BLOCK];
+        this.blockMask = blocks - 1;
+        this.hashCount = Math.max(1, Math.min(16, (int) Math.round((double) optimalBits / expectedEdges * ln2)));
+    }
+
+    public void add(String name1, String name2) {
+        long hash = pairHash(name1, name2);
+        int base = blockOf(hash) * LONGS_PER_BLOCK;
+
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+
+        for (int i = 0; i < hashCount; i++) {
+            int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+            bits[base + (bit >>> 6)] |= 1L << bit;
+        }
+        insertions++;
+    }
+
+    /**
+     * @return false if the two definitely aren't friends, true if they might be
+     */
+    public boolean mightContain(String name1, String name2) {
+        long hash = pairHash(name1, name2);
+        int base = blockOf(hash) * LONGS_PER_BLOCK;
+
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+
+        for (int i = 0; i < hashCount; i++) {
+            int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+
+            if ((bits[base + (bit >>> 6)] & (1L << bit)) == 0) {
+                rejections++;
+                return false;
+            }
+        }
+        positives++;
+        return true;
+    }
+
+    /**
+     * Lets the filter know that a pair that got past it wasn't actually friends, for
+     * {@link #observedFalsePositiveRate()}.
+     */
+    public void recordFalsePositive() {
+        falsePositives++;
+    }
+
+    /**
+     * @return the expected chance of a non-friend pair getting past the filter, given how many pairs have been added
+     */
+    public double falsePositiveRate() {
+        double bitsPerBlock = BLOCK_BITS;
+        double insertionsPerBlock = (double) insertions / (blockMask + 1);
+        return Math.pow(1 - Math.exp(-hashCount * insertionsPerBlock / bitsPerBlock), hashCount);
+    }
+
+    /**
+     * @return the fraction of non-friend pairs checked so far that got past the filter
+     */
+    public double observedFalsePositiveRate() {
+        long negatives = rejections + falsePositives;
+        return negatives == 0 ? 0 : (double) falsePositives / negatives;
+    }
+
+    public long sizeInBytes() {
+        return (long) bits.length * Long.BYTES;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    public long getInsertions() {
+        return insertions;
+    }
+
+    public long getRejections() {
+        return rejections;
+    }
+
+    public long getPositives() {
+        return positives;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "EdgeBloomFilter{bytes=%d, hashes=%d, insertions=%d, expectedFpp=%.4f, "
+                        + "observedFpp=%.4f, rejected=%d}", sizeInBytes(), hashCount, insertions, falsePositiveRate(),
+                observedFalsePositiveRate(), rejections);
+    }
+
+    private int blockOf(long hash) {
+        return (int) (mix(hash) >>> 40) & blockMask;
+    }
+
+    private static long pairHash(String name1, String name2) {
+        long hash1 = mix(name1.hashCode());
+        long hash2 = mix(name2.hashCode());
+
+        long lo = Math.min(hash1, hash2);
+        long hi = Math.max(hash1, hash2);
+        return mix(lo * 0x9E3779B97F4A7C15L + hi);
+    }
+
+    /**
+     * The finaliser from MurmurHash3 - every bit of the input affects every bit of the output.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,80 @@
+import java.util.SplittableRandom;
+
+/**
+ * <p>Local benchmark comparing the average time to look up a name with {@link EytzingerIndex} against a plain binary
+ * search over the sorted {@code String[]} (the same as {@link DNABook} does), from 10^4 up to 10^7 users.</p>
+ *
+ * <p>Pass the largest number of users as the first argument if 10^7 names don't fit in memory (they take about
+ * 1.5 GB).</p>
+ */
+public class EytzingerIndexBenchmark {
+
+    static final int DEFAULT_MAX_USERS = 10_000_000;
+
+    static final int LOOKUPS = 2_000_000;
+
+    public static void main(String[] args) {
+        int maxUsers = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_MAX_USERS;
+
+        for (int users = 10_000; users <= maxUsers; users *= 10) {
+            int width = WorkloadGenerator.nameWidth(users);
+            String[] names = new String[users];
+            int[] slots = new int[users];
+
+            for (int i = 0; i < users; i++) {
+                names[i] = WorkloadGenerator.name(i, width);
+                slots[i] = i;
+            }
+
+            EytzingerIndex index = new EytzingerIndex(names, slots, users);
+
+            // new String objects, so the lookups can't just compare references
+            SplittableRandom random = new SplittableRandom(42);
+            String[] queries = new String[LOOKUPS];
+            for (int i = 0; i < LOOKUPS; i++)
+                queries[i] = WorkloadGenerator.name(random.nextInt(users), width);
+
+            long binary = 0;
+            long eytzinger = 0;
+            long check = 0;
+
+            for (int round = 0; round < 3; round++) { // the first round is just to warm up
+                long start = System.nanoTime();
+                for (String query : queries)
+                    check += binarySearch(names, users, query);
+
+                long middle = System.nanoTime();
+                for (String query : queries)
+                    check -= index.get(query);
+
+                long end = System.nanoTime();
+
+                if (round > 0) {
+                    binary += middle - start;
+                    eytzinger += end - middle;
+                }
+            }
+
+            System.out.printf("%,11d users | binary search %6.1f ns | eytzinger %6.1f ns | %s%n", users,
+                    binary / (2d * LOOKUPS), eytzinger / (2d * LOOKUPS), check == 0 ? "same answers" : "DIFFERENT");
+        }
+    }
+
+    private static int binarySearch(String[] names, int size, String name) {
+        int lo = 0;
+        int hi = size - 1;
+
+        while (lo <= hi) {
+            int middle = (lo + hi) >>> 1;
+            int comparison = names[middle].compareTo(name);
+
+            if (comparison == 0)
+                return middle;
+            else if (comparison < 0)
+                lo = middle + 1;
+            else
+                hi = middle - 1;
+        }
+        return -1;
+    }
+}
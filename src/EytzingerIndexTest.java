@@ -0,0 +1,89 @@
+import java.util.Arrays;
+
+/**
+ * Executable class to test {@link EytzingerIndex}, on its own and inside {@link DNABook}.
+ */
+public class EytzingerIndexTest {
+
+    public static void main(String[] args) {
+        // every size up to a few full levels, so every shape of the last level gets tried
+        boolean allFound = true;
+        boolean noneFound = false;
+
+        for (int size = 0; size <= 70; size++) {
+            String[] names = new String[size];
+            int[] values = new int[size];
+
+            for (int i = 0; i < size; i++) {
+                names[i] = "user" + (char) ('A' + i / 10) + (i % 10);
+                values[i] = i * 3;
+            }
+
+            EytzingerIndex index = new EytzingerIndex(names, values, size);
+
+            for (int i = 0; i < size; i++)
+                allFound &= index.get(names[i]) == values[i];
+
+            noneFound |= index.get("user") != -1 || index.get("userA") != -1 || index.get("userZ9") != -1
+                    || index.get("") != -1 || index.get(null) != -1;
+        }
+        System.out.println(allFound + " should be true");
+        System.out.println(noneFound + " should be false");
+        System.out.println();
+
+        // names that only differ after 8 characters, or that aren't Latin-1, have to fall back to compareTo
+        String[] tricky = {"", "\u0000", "a", "a\u0000", "a\u0000b", "abcdefgh", "abcdefgh1", "abcdefgh2", "\u00ff",
+                "\u00ffa", "\u00ffb", "\u0100", "\u4e16\u754c", "\u4e16\u754d", "\uffff"};
+        String[] sorted = tricky.clone();
+        Arrays.sort(sorted);
+        System.out.println(Arrays.equals(tricky, sorted) + " should be true");
+
+        int[] slots = new int[tricky.length];
+        for (int i = 0; i < slots.length; i++)
+            slots[i] = i;
+
+        EytzingerIndex index = new EytzingerIndex(tricky, slots, tricky.length);
+        boolean trickyFound = true;
+
+        for (int i = 0; i < tricky.length; i++)
+            trickyFound &= index.get(tricky[i]) == i;
+
+        System.out.println(trickyFound + " should be true");
+        System.out.println(index.get("abcdefgh3") + " " + index.get("\u00ffc") + " " + index.get("\u4e16")
+                + " should be -1 -1 -1");
+
+        boolean ordered = true;
+        for (int i = 1; i < tricky.length; i++)
+            ordered &= Long.compareUnsigned(EytzingerIndex.prefixOf(tricky[i - 1]),
+                    EytzingerIndex.prefixOf(tricky[i])) <= 0;
+
+        System.out.println(ordered + " should be true");
+        System.out.println();
+
+        // DNABook only switches to the index after enough lookups, and has to drop it when users are added
+        DNABook book = new DNABook(10, true);
+        book.registerUser("Alex");
+        book.registerUser("Bea");
+        book.registerUser("Chris");
+        book.becomeFriends("Alex", "Chris");
+
+        for (int i = 0; i < 5; i++)
+            book.containsUser("Bea");
+
+        System.out.println(book.areTheyFriends("Chris", "Alex") + " should be true");
+        book.registerUser("Daniel");
+        System.out.println(book.containsUser("Daniel") + " should be true");
+
+        for (int i = 0; i < 5; i++)
+            book.containsUser("Bea");
+
+        book.becomeFriends("Daniel", "Bea");
+        book.removeUser("Alex");
+        System.out.println(book.areTheyFriends("Bea", "Daniel") + " should be true");
+        System.out.println(book.containsUser("Alex") + " " + book.areTheyFriends("Chris", "Alex")
+                + " should be false false");
+        book.registerUser("Alex");
+        System.out.println(book.containsUser("Alex") + " should be true");
+        System.out.println(book.containsUser("Ed") + " should be false");
+    }
+}
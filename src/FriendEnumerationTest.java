@@ -0,0 +1,153 @@
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Executable class to test forEachFriend, friendCount and friendsPage on every backend that supports them.
+ */
+public class FriendEnumerationTest {
+
+    static final int USERS = 100;
+
+    static final int PAGE_SIZE = 7;
+
+    public static void main(String[] args) {
+        Map<String, Supplier<SocialNetwork>> backends = new LinkedHashMap<>();
+        backends.put("DNABook", DNABook::new);
+        backends.put("Own HashMap", DNABookHashImpl::new);
+        backends.put("Java HashMap", DNABookJavaImpl::new);
+        backends.put("Adaptive (sets)", AdaptiveSocialNetwork::new);
+        backends.put("Adaptive (matrix)", () -> new AdaptiveSocialNetwork(0.001, 0.0005, 1 << 13));
+        backends.put("Versioned", VersionedSocialNetwork::new);
+        backends.put("Instrumented", () -> new InstrumentedSocialNetwork(new DNABookJavaImpl()));
+
+        backends.forEach((name, backend) -> {
+            System.out.println("============ " + name + " ============");
+            test(load(backend.get()));
+            System.out.println();
+        });
+
+        System.out.println("============ Versioned snapshot ============");
+        VersionedSocialNetwork versioned = (VersionedSocialNetwork) load(new VersionedSocialNetwork());
+        try (VersionedSocialNetwork.Snapshot snapshot = versioned.snapshot()) {
+            versioned.unfriend("user00", "user02");
+            System.out.println(versioned.friendCount("user00") + " should be 49");
+            test(snapshot);
+        }
+        System.out.println();
+
+        System.out.println("============ Frozen ============");
+        FrozenSocialNetwork frozen = ((DNABookJavaImpl) load(new DNABookJavaImpl())).freeze();
+        System.out.println(frozen.friendCount("user00") + " should be 50");
+        System.out.println(frozen.friendCount("user99") + " should be 0");
+        int[] ids = new int[1];
+        frozen.forEachFriend(frozen.getIdFrom("user00"), friend -> ids[0]++);
+        System.out.println(ids[0] + " should be 50");
+        System.out.println();
+
+        System.out.println("============ Changed between pages ============");
+        for (String name : new String[] {"Own HashMap", "Java HashMap"}) {
+            SocialNetwork network = load(backends.get(name).get());
+            FriendPage page = new FriendPage(PAGE_SIZE);
+            Set<String> paged = new HashSet<>();
+            boolean repeated = false;
+
+            network.friendsPage("user00", 0, page);
+            for (int i = 0; i < page.size(); i++)
+                paged.add(page.get(i));
+
+            // someone already seen, so the next page can't carry on from exactly where it was
+            network.unfriend("user00", page.get(0));
+
+            while (page.hasMore()) {
+                network.friendsPage("user00", page.nextCursor(), page);
+                for (int i = 0; i < page.size(); i++)
+                    repeated |= !paged.add(page.get(i));
+            }
+
+            System.out.println(name + ": " + repeated + " should be false");
+            System.out.println(name + ": " + (paged.size() >= 49) + " should be true");
+        }
+        System.out.println();
+
+        System.out.println("============ Allocation while paging ============");
+        for (String name : new String[] {"DNABook", "Adaptive (sets)", "Adaptive (matrix)", "Versioned"})
+            System.out.println(name + ": " + bytesPerPage(load(backends.get(name).get())) + " bytes per page should be 0");
+    }
+
+    /**
+     * user00 is friends with every even user (including themselves) from user00 to user98, and everyone else is just
+     * friends with the next user along.
+     */
+    private static SocialNetwork load(SocialNetwork network) {
+        for (int i = 0; i < USERS; i++)
+            network.registerUser(String.format("user%02d", i));
+
+        for (int i = 0; i < USERS; i += 2)
+            network.becomeFriends("user00", String.format("user%02d", i));
+
+        for (int i = 1; i < USERS - 1; i += 2)
+            network.becomeFriends(String.format("user%02d", i), String.format("user%02d", i + 1));
+
+        return network;
+    }
+
+    private static void test(SocialNetwork network) {
+        Set<String> friends = new HashSet<>();
+        network.forEachFriend("user00", friends::add);
+
+        System.out.println(friends.size() + " should be 50");
+        System.out.println(friends.contains("user00") + " " + friends.contains("user42") + " should be true true");
+        System.out.println(friends.contains("user43") + " should be false");
+        System.out.println(network.friendCount("user00") + " should be 50");
+        System.out.println(network.friendCount("user43") + " should be 1");
+        System.out.println(network.friendCount("nobody") + " should be 0");
+
+        Set<String> paged = new HashSet<>();
+        FriendPage page = new FriendPage(PAGE_SIZE);
+        long cursor = 0;
+        int pages = 0;
+        boolean repeated = false;
+
+        do {
+            network.friendsPage("user00", cursor, page);
+            for (int i = 0; i < page.size(); i++)
+                repeated |= !paged.add(page.get(i));
+
+            cursor = page.nextCursor();
+            pages++;
+        } while (page.hasMore());
+
+        System.out.println(paged.equals(friends) + " should be true");
+        System.out.println(repeated + " should be false");
+        System.out.println(pages + " should be 8");
+
+        network.friendsPage("nobody", 0, page);
+        System.out.println(page.size() + " " + page.hasMore() + " should be 0 false");
+    }
+
+    private static long bytesPerPage(SocialNetwork network) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        FriendPage page = new FriendPage(PAGE_SIZE);
+        long before = 0;
+        int rounds = 20_000;
+
+        for (int round = 0; round < 2; round++) { // the first round is just to warm up
+            before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+
+            for (int i = 0; i < rounds; i++) {
+                long cursor = 0;
+                do {
+                    network.friendsPage("user00", cursor, page);
+                    cursor = page.nextCursor();
+                } while (page.hasMore());
+            }
+        }
+
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+        return allocated / (rounds * 8L);
+    }
+}
@@ -0,0 +1,113 @@
+import java.util.Iterator;
+
+/**
+ * <p>A page of a user's friends, filled in by {@link SocialNetwork#friendsPage(String, long, FriendPage)}. Pages are
+ * meant to be reused - each call just overwrites the previous page.</p>
+ *
+ * <p>The cursor is only meaningful to the network that made it. It might be an index, an id or a position in a hash
+ * table, depending on how the network stores friends.</p>
+ */
+public class FriendPage {
+
+    public static final long END = -1;
+
+    private final String[] friends;
+
+    private int size;
+
+    private long nextCursor = END;
+
+    // for networks that can only get back to a cursor by going through everything before it - the iterator the last
+    // page stopped with, and what it's going through. clear() leaves these alone.
+    private Object resumeSource;
+
+    private Iterator<String> resumeIterator;
+
+
+    public FriendPage(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+
+        this.friends = new String[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return friends.length;
+    }
+
+    public String get(int index) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+
+        return friends[index];
+    }
+
+    /**
+     * @return true if there are more friends after this page
+     */
+    public boolean hasMore() {
+        return nextCursor != END;
+    }
+
+    /**
+     * @return the cursor to ask for the next page with, or {@link #END} if this was the last page
+     */
+    public long nextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Empties the page, ready to be filled in again. Leaves {@link #nextCursor()} as {@link #END}.
+     */
+    void clear() {
+        // the old names aren't nulled out, since they're all in the network anyway
+        size = 0;
+        nextCursor = END;
+    }
+
+    /**
+     * @return false if the page is already full
+     */
+    boolean add(String friend) {
+        if (size == friends.length)
+            return false;
+
+        friends[size++] = friend;
+        return true;
+    }
+
+    boolean isFull() {
+        return size == friends.length;
+    }
+
+    void setNextCursor(long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Keeps hold of the iterator this page stopped with, so the next page can carry on from it - see
+     * {@link #resume}. Call it after {@link #setNextCursor}.
+     */
+    void saveIterator(Object source, Iterator<String> iterator) {
+        this.resumeSource = source;
+        this.resumeIterator = iterator;
+    }
+
+    /**
+     * Has to be called before {@link #clear()}, since that forgets the cursor the iterator was saved with.
+     *
+     * @return the iterator from {@link #saveIterator} if it's going through the same source and stopped at the
+     * cursor, or null if it has to be started again
+     */
+    Iterator<String> resume(Object source, long cursor) {
+        Iterator<String> iterator = source != null && source == resumeSource && cursor == nextCursor
+                ? resumeIterator : null;
+        resumeSource = null;
+        resumeIterator = null;
+        return iterator;
+    }
+}
@@ -0,0 +1,389 @@
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <p>A read-only, compressed list of sorted names, that can be searched without turning the names back into Strings.
+ * {@link DNABook#packNames()} uses one to hold its users' names.</p>
+ *
+ *
+ * ======= IMPLEMENTATION =======
+ *
+ * <p>Every String costs about 40 bytes of headers (the String and its array) before any of the characters, which is
+ * several times more than a short name itself. Here all the names are packed into one {@code byte[]} instead, and
+ * since the names are sorted, each one mostly starts the same as the one before - so it's front coded. Names are split
+ * into blocks of {@link #DEFAULT_BLOCK_SIZE}:</p>
+ *
+ * <ul>
+ *     <li>The first name of each block (the head) is stored in full - its length, then its bytes.</li>
+ *     <li>Every other name is stored as how many bytes it shares with the name before it, then how many bytes are
+ *     left, then just those bytes.</li>
+ * </ul>
+ *
+ * <p>All the numbers are varints (7 bits per byte, with the top bit meaning there's another byte), so they're nearly
+ * always a single byte. {@link #blockOffsets} says where each block starts, and is the only index - so a lookup is a
+ * binary search of the block heads, then a scan through one block.</p>
+ *
+ * <p>The scan never rebuilds any of the names. It keeps track of how many bytes the previous name had in common with
+ * the name being looked for, and since the names are sorted, comparing that with how many bytes the next name shares
+ * with the previous one is usually enough to skip it (or to know the name isn't there) without looking at its bytes at
+ * all.</p>
+ *
+ *
+ * ======= NOTES =======
+ *
+ * <p>The bytes are UTF-8, except that each {@code char} is encoded on its own (so characters outside the BMP become
+ * two 3 byte surrogates, like CESU-8). That way comparing the bytes gives exactly the same order as
+ * {@link String#compareTo}, which is what {@link DNABook} sorts by - proper UTF-8 puts some characters in a different
+ * order. For names that are all ASCII it's just the same as UTF-8.</p>
+ */
+public class FrontCodedNames {
+
+    static final int DEFAULT_BLOCK_SIZE = 16;
+
+    private final byte[] bytes;
+
+    private final int[] blockOffsets;
+
+    private final int size;
+
+    private final int blockSize;
+
+    /**
+     * The longest name, in bytes.
+     */
+    private final int maxLength;
+
+
+    private FrontCodedNames(byte[] bytes, int[] blockOffsets, int size, int blockSize, int maxLength) {
+        this.bytes = bytes;
+        this.blockOffsets = blockOffsets;
+        this.size = size;
+        this.blockSize = blockSize;
+        this.maxLength = maxLength;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return roughly how much memory this takes up, in bytes
+     */
+    public long sizeInBytes() {
+        // the object and the two arrays each have a header of around 16 bytes
+        return 48 + bytes.length + 4L * blockOffsets.length;
+    }
+
+    /**
+     * Decodes the name at the index, which means going through its block from the start.
+     */
+    public String get(int index) {
+        if (index < 0 || index >= size)
+            throw new IllegalArgumentException("Illegal index: " + index);
+
+        byte[] name = new byte[maxLength];
+        int position = blockOffsets[index / blockSize];
+        int length = 0;
+
+        for (int i = index - index % blockSize; i <= index; i++) {
+            int shared = 0;
+
+            if (i % blockSize != 0) {
+                shared = readVarint(position);
+                position += varintLength(shared);
+            }
+
+            int suffix = readVarint(position);
+            position += varintLength(suffix);
+
+            System.arraycopy(bytes, position, name, shared, suffix);
+            position += suffix;
+            length = shared + suffix;
+        }
+        return decode(name, length);
+    }
+
+    /**
+     * @return the index of the name, or -1 if it isn't in here
+     */
+    public int indexOf(String name) {
+        if (name == null || size == 0)
+            return -1;
+
+        int index = search(name);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * @return the index of the first name that isn't before this one, or {@link #size()} if they all are
+     */
+    public int lowerBound(String name) {
+        Objects.requireNonNull(name);
+
+        if (size == 0)
+            return 0;
+
+        int index = search(name);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * @return the index of the name if it's in here, otherwise (-(where it would go) - 1), like
+     * {@link java.util.Arrays#binarySearch}
+     */
+    private int search(String name) {
+        byte[] wanted = encode(name);
+
+        // find the last block whose head isn't after the name
+        int lo = 0;
+        int hi = blockOffsets.length - 1;
+
+        while (lo < hi) {
+            int middle = (lo + hi + 1) >>> 1;
+
+            if (compareHead(middle, wanted) <= 0)
+                lo = middle;
+            else
+                hi = middle - 1;
+        }
+        return scanBlock(lo, wanted);
+    }
+
+    /**
+     * Goes through the block, keeping track of how many bytes the previous name had in common with the wanted one
+     * (which it was before).
+     *
+     * @return the same as {@link #search(String)}
+     */
+    private int scanBlock(int block, byte[] wanted) {
+        int position = blockOffsets[block];
+        int common = 0;
+        int end = Math.min(size, (block + 1) * blockSize);
+
+        for (int index = block * blockSize; index < end; index++) {
+            int shared = 0;
+
+            if (index != block * blockSize) {
+                shared = readVarint(position);
+                position += varintLength(shared);
+            }
+
+            int suffix = readVarint(position);
+            position += varintLength(suffix);
+
+            if (shared < common) {
+                // this name differs from the previous one before the previous one differed from the wanted one, and
+                // it's bigger than the previous one - so it's already past the wanted name
+                return -index - 1;
+            }
+
+            if (shared == common) {
+                int matched = 0;
+
+                while (matched < suffix && common + matched < wanted.length
+                        && bytes[position + matched] == wanted[common + matched])
+                    matched++;
+
+                if (matched == suffix && common + matched == wanted.length)
+                    return index;
+
+                if (matched < suffix && (common + matched == wanted.length
+                        || (bytes[position + matched] & 0xFF) > (wanted[common + matched] & 0xFF)))
+                    return -index - 1; // past it
+
+                common += matched;
+            }
+            // otherwise it only differs from the previous name after the point where that one was smaller, so this one
+            // is smaller than the wanted name too
+
+            position += suffix;
+        }
+        return -end - 1;
+    }
+
+    private int compareHead(int block, byte[] wanted) {
+        int position = blockOffsets[block];
+        int length = readVarint(position);
+        position += varintLength(length);
+
+        for (int i = 0; i < Math.min(length, wanted.length); i++) {
+            int comparison = Integer.compare(bytes[position + i] & 0xFF, wanted[i] & 0xFF);
+
+            if (comparison != 0)
+                return comparison;
+        }
+        return Integer.compare(length, wanted.length);
+    }
+
+    private int readVarint(int position) {
+        int value = 0;
+
+        for (int shift = 0; ; shift += 7) {
+            byte b = bytes[position++];
+            value |= (b & 0x7F) << shift;
+
+            if (b >= 0)
+                return value;
+        }
+    }
+
+    private static int varintLength(int value) {
+        int length = 1;
+
+        while ((value >>>= 7) != 0)
+            length++;
+
+        return length;
+    }
+
+    /**
+     * UTF-8, one {@code char} at a time.
+     */
+    static byte[] encode(String name) {
+        int length = 0;
+
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            length += c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+        }
+
+        byte[] encoded = new byte[length];
+        int position = 0;
+
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+
+            if (c < 0x80) {
+                encoded[position++] = (byte) c;
+            } else if (c < 0x800) {
+                encoded[position++] = (byte) (0xC0 | c >>> 6);
+                encoded[position++] = (byte) (0x80 | c & 0x3F);
+            } else {
+                encoded[position++] = (byte) (0xE0 | c >>> 12);
+                encoded[position++] = (byte) (0x80 | c >>> 6 & 0x3F);
+                encoded[position++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return encoded;
+    }
+
+    static String decode(byte[] encoded, int length) {
+        char[] chars = new char[length];
+        int count = 0;
+        int position = 0;
+
+        while (position < length) {
+            int b = encoded[position++] & 0xFF;
+
+            if (b < 0x80)
+                chars[count++] = (char) b;
+            else if (b < 0xE0)
+                chars[count++] = (char) ((b & 0x1F) << 6 | encoded[position++] & 0x3F);
+            else
+                chars[count++] = (char) ((b & 0x0F) << 12 | (encoded[position++] & 0x3F) << 6
+                        | encoded[position++] & 0x3F);
+        }
+        return new String(chars, 0, count);
+    }
+
+    /**
+     * Builds a {@link FrontCodedNames} from names added in {@link String#compareTo} order.
+     */
+    public static class Builder {
+
+        private final int blockSize;
+
+        private byte[] bytes = new byte[64];
+
+        private int length;
+
+        private int[] blockOffsets = new int[4];
+
+        private int size;
+
+        private int maxLength;
+
+        private byte[] previous = new byte[0];
+
+        public Builder() {
+            this(DEFAULT_BLOCK_SIZE);
+        }
+
+        /**
+         * @param blockSize how many names to a block - bigger blocks save more space but make lookups slower
+         */
+        public Builder(int blockSize) {
+            if (blockSize < 1)
+                throw new IllegalArgumentException("Illegal block size: " + blockSize);
+
+            this.blockSize = blockSize;
+        }
+
+        /**
+         * @throws IllegalArgumentException if the name isn't after the one added before it
+         */
+        public Builder add(String name) {
+            Objects.requireNonNull(name);
+            byte[] encoded = encode(name);
+
+            if (size > 0 && compare(previous, encoded) >= 0)
+                throw new IllegalArgumentException("Illegal name (not in order): " + name);
+
+            int shared = 0;
+
+            if (size % blockSize == 0) {
+                if (size / blockSize == blockOffsets.length)
+                    blockOffsets = Arrays.copyOf(blockOffsets, blockOffsets.length * 2);
+
+                blockOffsets[size / blockSize] = length;
+            } else {
+                int max = Math.min(previous.length, encoded.length);
+
+                while (shared < max && previous[shared] == encoded[shared])
+                    shared++;
+
+                writeVarint(shared);
+            }
+
+            writeVarint(encoded.length - shared);
+            ensureCapacity(encoded.length - shared);
+            System.arraycopy(encoded, shared, bytes, length, encoded.length - shared);
+            length += encoded.length - shared;
+
+            previous = encoded;
+            maxLength = Math.max(maxLength, encoded.length);
+            size++;
+            return this;
+        }
+
+        public FrontCodedNames build() {
+            return new FrontCodedNames(Arrays.copyOf(bytes, length),
+                    Arrays.copyOf(blockOffsets, (size + blockSize - 1) / blockSize), size, blockSize, maxLength);
+        }
+
+        private void writeVarint(int value) {
+            ensureCapacity(5);
+
+            while ((value & ~0x7F) != 0) {
+                bytes[length++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+        }
+
+        private static int compare(byte[] a, byte[] b) {
+            for (int i = 0; i < Math.min(a.length, b.length); i++) {
+                int comparison = Integer.compare(a[i] & 0xFF, b[i] & 0xFF);
+
+                if (comparison != 0)
+                    return comparison;
+            }
+            return Integer.compare(a.length, b.length);
+        }
+    }
+}
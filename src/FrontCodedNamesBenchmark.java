@@ -0,0 +1,74 @@
+import java.util.SplittableRandom;
+
+/**
+ * <p>Local benchmark comparing the memory used by a sorted {@code String[]} of names against a {@link FrontCodedNames}
+ * of the same names, and how long it takes to look a name up in each.</p>
+ *
+ * <p>Pass the number of names as the first argument (the default is a million).</p>
+ */
+public class FrontCodedNamesBenchmark {
+
+    static final int DEFAULT_USERS = 1_000_000;
+
+    static final int LOOKUPS = 1_000_000;
+
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_USERS;
+        int width = WorkloadGenerator.nameWidth(users);
+
+        long before = usedMemory();
+        String[] names = new String[users];
+        for (int i = 0; i < users; i++)
+            names[i] = WorkloadGenerator.name(i, width);
+
+        long stringBytes = usedMemory() - before;
+
+        FrontCodedNames.Builder builder = new FrontCodedNames.Builder();
+        for (String name : names)
+            builder.add(name);
+
+        FrontCodedNames packed = builder.build();
+
+        System.out.printf("%,d names of %d characters%n", users, width + 1);
+        System.out.printf("String[]        %6.1f bytes per name%n", stringBytes / (double) users);
+        System.out.printf("FrontCodedNames %6.1f bytes per name%n", packed.sizeInBytes() / (double) users);
+
+        SplittableRandom random = new SplittableRandom(42);
+        String[] queries = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++)
+            queries[i] = WorkloadGenerator.name(random.nextInt(users), width);
+
+        long binary = 0;
+        long frontCoded = 0;
+        long check = 0;
+
+        for (int round = 0; round < 3; round++) { // the first round is just to warm up
+            long start = System.nanoTime();
+            for (String query : queries)
+                check += java.util.Arrays.binarySearch(names, query);
+
+            long middle = System.nanoTime();
+            for (String query : queries)
+                check -= packed.indexOf(query);
+
+            long end = System.nanoTime();
+
+            if (round > 0) {
+                binary += middle - start;
+                frontCoded += end - middle;
+            }
+        }
+
+        System.out.printf("lookup: binary search %6.1f ns | front coded %6.1f ns | %s%n", binary / (2d * LOOKUPS),
+                frontCoded / (2d * LOOKUPS), check == 0 ? "same answers" : "DIFFERENT");
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 3; i++)
+            System.gc();
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
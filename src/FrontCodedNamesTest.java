@@ -0,0 +1,101 @@
+import java.util.Arrays;
+
+/**
+ * Executable class to test {@link FrontCodedNames}, on its own and inside {@link DNABook}.
+ */
+public class FrontCodedNamesTest {
+
+    public static void main(String[] args) {
+        String[] names = new String[1000];
+        for (int i = 0; i < names.length; i++)
+            names[i] = WorkloadGenerator.name(i * 2, 4); // only even numbers, so the odd ones can be looked for
+
+        FrontCodedNames.Builder builder = new FrontCodedNames.Builder();
+        for (String name : names)
+            builder.add(name);
+
+        FrontCodedNames packed = builder.build();
+        boolean allFound = true;
+        boolean allDecoded = true;
+
+        for (int i = 0; i < names.length; i++) {
+            allFound &= packed.indexOf(names[i]) == i;
+            allDecoded &= packed.get(i).equals(names[i]);
+        }
+
+        boolean noneFound = packed.indexOf("") != -1 || packed.indexOf("u") != -1 || packed.indexOf("u9999") != -1
+                || packed.indexOf("u00000") != -1 || packed.indexOf(null) != -1;
+
+        for (int i = 1; i < 2000; i += 2)
+            noneFound |= packed.indexOf(WorkloadGenerator.name(i, 4)) != -1;
+
+        System.out.println(packed.size() + " should be 1000");
+        System.out.println(allFound + " " + allDecoded + " should be true true");
+        System.out.println(noneFound + " should be false");
+        System.out.println((packed.sizeInBytes() < 5 * names.length) + " should be true");
+        System.out.println();
+
+        // prefixes of each other, non-ASCII, and characters outside the BMP, with a block size that leaves a short
+        // last block
+        String[] tricky = {"", "\u0000", "a", "ab", "abc", "abd", "b", "\u00e9", "\u00e9t\u00e9", "\u4e16", "\u4e16\u754c",
+                "\ud83d\ude00", "\ud83d\ude01", "\uffff"};
+        String[] sorted = tricky.clone();
+        Arrays.sort(sorted);
+        System.out.println(Arrays.equals(tricky, sorted) + " should be true");
+
+        for (int blockSize : new int[] {1, 3, 16}) {
+            FrontCodedNames.Builder trickyBuilder = new FrontCodedNames.Builder(blockSize);
+            for (String name : tricky)
+                trickyBuilder.add(name);
+
+            FrontCodedNames trickyPacked = trickyBuilder.build();
+            boolean trickyFound = true;
+
+            for (int i = 0; i < tricky.length; i++)
+                trickyFound &= trickyPacked.indexOf(tricky[i]) == i && trickyPacked.get(i).equals(tricky[i]);
+
+            System.out.println(trickyFound + " " + trickyPacked.indexOf("abcd") + " " + trickyPacked.indexOf("aa")
+                    + " " + trickyPacked.indexOf("\ud83d") + " should be true -1 -1 -1");
+        }
+
+        try {
+            new FrontCodedNames.Builder().add("b").add("a");
+            System.out.println("no exception - should have thrown");
+        } catch (IllegalArgumentException e) {
+            System.out.println("IllegalArgumentException should be IllegalArgumentException");
+        }
+        System.out.println();
+
+        // DNABook with some names packed and some not
+        DNABook book = new DNABook(6, true);
+        book.registerUser("Alex");
+        book.registerUser("Bea");
+        book.registerUser("Chris");
+        book.becomeFriends("Alex", "Chris");
+        book.packNames();
+
+        book.registerUser("Daniel");
+        book.registerUser("Ed");
+        book.becomeFriends("Bea", "Ed");
+
+        System.out.println(book.areTheyFriends("Chris", "Alex") + " " + book.areTheyFriends("Ed", "Bea")
+                + " should be true true");
+        System.out.println(book.containsUser("Daniel") + " " + book.containsUser("Aaron") + " "
+                + book.containsUser("Dan") + " should be true false false");
+
+        StringBuilder users = new StringBuilder();
+        book.forEachUser(name -> users.append(name).append(' '));
+        System.out.println(users + "should be Alex Bea Chris Daniel Ed ");
+
+        // removing and then filling up forces a compact, which has to repack
+        book.removeUser("Bea");
+        book.registerUser("Fay");
+        book.registerUser("Gus");
+        System.out.println(book.containsUser("Bea") + " " + book.containsUser("Gus") + " should be false true");
+        System.out.println(book.areTheyFriends("Alex", "Chris") + " " + book.areTheyFriends("Ed", "Bea")
+                + " should be true false");
+
+        book.packNames();
+        System.out.println(book.containsUser("Fay") + " " + book.size() + " should be true 6");
+    }
+}
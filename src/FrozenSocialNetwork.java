@@ -0,0 +1,472 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>An immutable, read-only {@link SocialNetwork}, made by calling {@code freeze()} on one of the other backends once
+ * it's been fully loaded.</p>
+ *
+ *
+ * ======= IMPLEMENTATION =======
+ *
+ * <p>Names are turned into ids using a minimal perfect hash function ({@link MinimalPerfectHash}) - a hash function
+ * built specifically for this set of names, so that every name gets a different id from 0 to n - 1 with no gaps and
+ * no collisions. There's no table of names to search or probe, and no String objects are kept at all.</p>
+ *
+ * <p>The catch with a perfect hash is that a name that was never registered still hashes to <i>some</i> id. To catch
+ * this, a 32 bit fingerprint of every name is stored against its id, and a lookup only counts if the fingerprints
+ * match.</p>
+ *
+ * <p>Friendships are stored in whichever is smaller for the network:</p>
+ *
+ * <ul>
+ *     <li>a bit matrix, where checking a pair is a single bit test, or</li>
+ *     <li>compressed sparse rows - every user's friend ids sorted and packed one after the other into one
+ *     {@code int[]}, with an array of where each user's friends start. Checking a pair is a binary search through
+ *     whichever of the two users has fewer friends.</li>
+ * </ul>
+ *
+ *
+ * ======= NOTES =======
+ *
+ * <p>Since only fingerprints are kept, there's a 1 in 2^32 chance of an unregistered name being mistaken for a
+ * registered one.</p>
+ *
+ * <p>Since names aren't kept, friends can't be listed by name - {@link #forEachFriend(String, java.util.function.Consumer)}
+ * throws {@link UnsupportedOperationException}, but {@link #forEachFriend(int, IntConsumer)} lists them by id.</p>
+ *
+ * <p>All of the write methods throw {@link UnsupportedOperationException}. Because nothing ever changes, this is
+ * completely thread-safe.</p>
+ */
+public class FrozenSocialNetwork implements SocialNetwork {
+
+    private final MinimalPerfectHash hash;
+
+    private final int[] fingerprints;
+
+    private final long[] matrix;
+
+    private final int[] offsets;
+
+    private final int[] friends;
+
+    private final int userCount;
+
+    private FrozenSocialNetwork(MinimalPerfectHash hash, int[] fingerprints, long[] matrix, int[] offsets,
+                                int[] friends) {
+        this.hash = hash;
+        this.fingerprints = fingerprints;
+        this.matrix = matrix;
+        this.offsets = offsets;
+        this.friends = friends;
+        this.userCount = fingerprints.length;
+    }
+
+    @Override
+    public void registerUser(String name) {
+        throw new UnsupportedOperationException("Network is frozen");
+    }
+
+    @Override
+    public void becomeFriends(String name1, String name2) {
+        throw new UnsupportedOperationException("Network is frozen");
+    }
+
+    @Override
+    public void unfriend(String name1, String name2) {
+        throw new UnsupportedOperationException("Network is frozen");
+    }
+
+    @Override
+    public void removeUser(String name) {
+        throw new UnsupportedOperationException("Network is frozen");
+    }
+
+    @Override
+    public boolean areTheyFriends(String name1, String name2) {
+        int id1 = getIdFrom(name1);
+        int id2 = getIdFrom(name2);
+
+        if (id1 == -1 || id2 == -1)
+            return false;
+
+        if (matrix != null) {
+            long bit = (long) id1 * userCount + id2;
+            return (matrix[(int) (bit >>> 6)] & (1L << bit)) != 0;
+        }
+
+        // search through whoever has fewer friends
+        if (offsets[id1 + 1] - offsets[id1] > offsets[id2 + 1] - offsets[id2]) {
+            int swap = id1;
+            id1 = id2;
+            id2 = swap;
+        }
+        return Arrays.binarySearch(friends, offsets[id1], offsets[id1 + 1], id2) >= 0;
+    }
+
+    @Override
+    public boolean containsUser(String name) {
+        return getIdFrom(name) != -1;
+    }
+
+    @Override
+    public int friendCount(String name) {
+        int id = getIdFrom(name);
+
+        if (id == -1)
+            return 0;
+
+        if (matrix == null)
+            return offsets[id + 1] - offsets[id];
+
+        // the row doesn't have to start or end on a word boundary, so mask off the bits of the rows either side
+        long from = (long) id * userCount;
+        long to = from + userCount;
+        int first = (int) (from >>> 6);
+        int last = (int) ((to - 1) >>> 6);
+        int count = 0;
+
+        for (int word = first; word <= last; word++) {
+            long bits = matrix[word];
+
+            if (word == first)
+                bits &= -1L << from;
+            if (word == last)
+                bits &= -1L >>> (63 - ((to - 1) & 63));
+
+            count += Long.bitCount(bits);
+        }
+        return count;
+    }
+
+    /**
+     * Calls the action with the id of each of the user's friends, in order.
+     */
+    public void forEachFriend(int id, IntConsumer action) {
+        if (matrix == null) {
+            for (int i = offsets[id]; i < offsets[id + 1]; i++)
+                action.accept(friends[i]);
+            return;
+        }
+
+        long from = (long) id * userCount;
+        long to = from + userCount;
+
+        for (int word = (int) (from >>> 6); (long) word << 6 < to; word++) {
+            long bits = matrix[word];
+
+            while (bits != 0) {
+                long bit = ((long) word << 6) + Long.numberOfTrailingZeros(bits);
+
+                if (bit >= from && bit < to)
+                    action.accept((int) (bit - from));
+
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    /**
+     * @return the user's id, from 0 to {@link #size()} - 1, or -1 if they aren't in the network
+     */
+    public int getIdFrom(String name) {
+        if (name == null)
+            return -1;
+
+        long h = MinimalPerfectHash.hash(name);
+        int id = hash.indexOf(h);
+        return id != -1 && fingerprints[id] == MinimalPerfectHash.fingerprint(h) ? id : -1;
+    }
+
+    public int size() {
+        return userCount;
+    }
+
+    /**
+     * @return true if friendships are stored as a bit matrix, false if they're stored as sparse rows
+     */
+    public boolean isMatrix() {
+        return matrix != null;
+    }
+
+    /**
+     * Collects the users and friendships of a network being frozen. Repeated users and friendships are ignored.
+     */
+    public static class Builder {
+
+        private final Map<String, Integer> ids = new HashMap<>();
+
+        private String[] names = new String[16];
+
+        private long[] edges = new long[16];
+
+        private int edgeCount;
+
+        /**
+         * @return the id of the user within this builder, for {@link #addFriendship(int, int)}
+         */
+        public int addUser(String name) {
+            Integer existing = ids.get(Objects.requireNonNull(name));
+
+            if (existing != null)
+                return existing;
+
+            int id = ids.size();
+
+            if (id == names.length)
+                names = Arrays.copyOf(names, id * 2);
+
+            names[id] = name;
+            ids.put(name, id);
+            return id;
+        }
+
+        public void addFriendship(String name1, String name2) {
+            addFriendship(addUser(name1), addUser(name2));
+        }
+
+        public void addFriendship(int id1, int id2) {
+            if (edgeCount == edges.length)
+                edges = Arrays.copyOf(edges, edgeCount * 2);
+
+            edges[edgeCount++] = ((long) id1 << 32) | id2;
+        }
+
+        public FrozenSocialNetwork build() {
+            int n = ids.size();
+            String[] userNames = Arrays.copyOf(names, n);
+            MinimalPerfectHash hash = new MinimalPerfectHash(userNames);
+
+            // builder id -> perfect hash id
+            int[] remap = new int[n];
+            int[] fingerprints = new int[n];
+
+            for (int i = 0; i < n; i++) {
+                long h = MinimalPerfectHash.hash(userNames[i]);
+                remap[i] = hash.indexOf(h);
+                fingerprints[remap[i]] = MinimalPerfectHash.fingerprint(h);
+            }
+
+            long matrixBits = (long) n * n;
+            long sparseBits = 32L * (n + 1 + 2L * edgeCount);
+
+            if (matrixBits <= sparseBits)
+                return new FrozenSocialNetwork(hash, fingerprints, buildMatrix(n, remap), null, null);
+
+            int[] offsets = new int[n + 1];
+            int[] friends = buildSparse(n, remap, offsets);
+            return new FrozenSocialNetwork(hash, fingerprints, null, offsets, friends);
+        }
+
+        private long[] buildMatrix(int n, int[] remap) {
+            long[] matrix = new long[(int) (((long) n * n + 63) >>> 6)];
+
+            for (int i = 0; i < edgeCount; i++) {
+                int id1 = remap[(int) (edges[i] >>> 32)];
+                int id2 = remap[(int) edges[i]];
+                long bit1 = (long) id1 * n + id2;
+                long bit2 = (long) id2 * n + id1;
+                matrix[(int) (bit1 >>> 6)] |= 1L << bit1;
+                matrix[(int) (bit2 >>> 6)] |= 1L << bit2;
+            }
+            return matrix;
+        }
+
+        private int[] buildSparse(int n, int[] remap, int[] offsets) {
+            // count everyone's friends, then turn the counts into start positions
+            for (int i = 0; i < edgeCount; i++) {
+                int id1 = remap[(int) (edges[i] >>> 32)];
+                int id2 = remap[(int) edges[i]];
+                offsets[id1 + 1]++;
+
+                if (id1 != id2)
+                    offsets[id2 + 1]++;
+            }
+
+            for (int i = 0; i < n; i++)
+                offsets[i + 1] += offsets[i];
+
+            int[] friends = new int[offsets[n]];
+            int[] fill = Arrays.copyOf(offsets, n);
+
+            for (int i = 0; i < edgeCount; i++) {
+                int id1 = remap[(int) (edges[i] >>> 32)];
+                int id2 = remap[(int) edges[i]];
+                friends[fill[id1]++] = id2;
+
+                if (id1 != id2)
+                    friends[fill[id2]++] = id1;
+            }
+
+            // sort each row and squeeze out any repeated friendships
+            int write = 0;
+
+            for (int id = 0; id < n; id++) {
+                int start = offsets[id];
+                int end = offsets[id + 1];
+                Arrays.sort(friends, start, end);
+                offsets[id] = write;
+
+                for (int i = start; i < end; i++)
+                    if (i == start || friends[i] != friends[i - 1])
+                        friends[write++] = friends[i];
+            }
+            offsets[n] = write;
+
+            return write == friends.length ? friends : Arrays.copyOf(friends, write);
+        }
+    }
+
+    /* ============================ PERFECT HASHING ============================ */
+
+    /**
+     * <p>A minimal perfect hash function, built the same way as BBHash.</p>
+     *
+     * <p>At each level, every remaining key is hashed into a bit array about {@link #GAMMA} times bigger than the
+     * number of keys. Any bit that exactly one key landed on is kept, and those keys are done. Keys that collided go on
+     * to the next level, with a different hash. A key's final id is the number of kept bits before its own bit across
+     * all the levels (its rank), which is worked out quickly using a running total of bits stored per 64 bit word.</p>
+     *
+     * <p>This takes about 3 bits per key with the rank totals included. The very few keys that still collide after
+     * {@link #MAX_LEVELS} levels are put in an ordinary map.</p>
+     */
+    public static class MinimalPerfectHash {
+
+        static final double GAMMA = 2.0;
+
+        static final int MAX_LEVELS = 32;
+
+        private final long[] bits;
+
+        private final int[] ranks;
+
+        private final int[] levelOffsets;
+
+        private final int[] levelSizes;
+
+        private final int levels;
+
+        private final Map<Long, Integer> fallback = new HashMap<>();
+
+        public MinimalPerfectHash(String[] keys) {
+            long[] remaining = new long[keys.length];
+
+            for (int i = 0; i < keys.length; i++)
+                remaining[i] = hash(keys[i]);
+
+            long[][] levelBits = new long[MAX_LEVELS][];
+            int remainingCount = keys.length;
+            int level = 0;
+
+            while (remainingCount > 0 && level < MAX_LEVELS) {
+                int words = Math.max(1, (int) Math.ceil(remainingCount * GAMMA / 64));
+                int size = words * 64;
+                long[] seen = new long[words];
+                long[] collided = new long[words];
+
+                for (int i = 0; i < remainingCount; i++) {
+                    int bit = position(remaining[i], level, size);
+
+                    if ((seen[bit >>> 6] & (1L << bit)) != 0)
+                        collided[bit >>> 6] |= 1L << bit;
+                    else
+                        seen[bit >>> 6] |= 1L << bit;
+                }
+
+                for (int w = 0; w < words; w++)
+                    seen[w] &= ~collided[w];
+
+                int next = 0;
+                for (int i = 0; i < remainingCount; i++) {
+                    int bit = position(remaining[i], level, size);
+
+                    if ((seen[bit >>> 6] & (1L << bit)) == 0)
+                        remaining[next++] = remaining[i];
+                }
+
+                levelBits[level++] = seen;
+                remainingCount = next;
+            }
+
+            this.levels = level;
+            this.levelOffsets = new int[levels];
+            this.levelSizes = new int[levels];
+
+            int totalWords = 0;
+            for (int l = 0; l < levels; l++) {
+                levelOffsets[l] = totalWords * 64;
+                levelSizes[l] = levelBits[l].length * 64;
+                totalWords += levelBits[l].length;
+            }
+
+            this.bits = new long[totalWords];
+            this.ranks = new int[totalWords];
+
+            int word = 0;
+            int rank = 0;
+            for (int l = 0; l < levels; l++) {
+                for (long w : levelBits[l]) {
+                    bits[word] = w;
+                    ranks[word++] = rank;
+                    rank += Long.bitCount(w);
+                }
+            }
+
+            for (int i = 0; i < remainingCount; i++)
+                fallback.put(remaining[i], rank++);
+        }
+
+        /**
+         * @param h the key's {@link #hash(String)}
+         * @return the key's id, or -1 if it definitely isn't one of the keys. Keys that weren't used to build this
+         * usually get some other key's id instead, so this needs checking separately.
+         */
+        public int indexOf(long h) {
+            for (int l = 0; l < levels; l++) {
+                int bit = levelOffsets[l] + position(h, l, levelSizes[l]);
+
+                if ((bits[bit >>> 6] & (1L << bit)) != 0)
+                    return ranks[bit >>> 6] + Long.bitCount(bits[bit >>> 6] & ((1L << bit) - 1));
+            }
+
+            Integer id = fallback.isEmpty() ? null : fallback.get(h);
+            return id == null ? -1 : id;
+        }
+
+        public long sizeInBytes() {
+            return (long) bits.length * (Long.BYTES + Integer.BYTES);
+        }
+
+        /**
+         * A 64 bit hash of a string - the one pass over its characters that a lookup needs.
+         */
+        static long hash(String key) {
+            long h = 0x9E3779B97F4A7C15L ^ key.length();
+
+            for (int i = 0; i < key.length(); i++)
+                h = (h ^ key.charAt(i)) * 0x100000001B3L;
+
+            return mix(h);
+        }
+
+        static int fingerprint(long h) {
+            return (int) (mix(h ^ 0xD6E8FEB86659FD93L) >>> 32);
+        }
+
+        private static int position(long h, int level, int size) {
+            long levelHash = mix(h + level * 0xBF58476D1CE4E5B9L);
+            return (int) (((levelHash >>> 32) * size) >>> 32); // maps to [0, size) without a modulo
+        }
+
+        private static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xFF51AFD7ED558CCDL;
+            h ^= h >>> 33;
+            h *= 0xC4CEB9FE1A85EC53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
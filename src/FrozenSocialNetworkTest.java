@@ -0,0 +1,58 @@
+/**
+ * Executable class to test FrozenSocialNetwork, frozen from each of the other backends.
+ */
+public class FrozenSocialNetworkTest {
+
+    public static void main(String[] args) {
+        DNABook book = new DNABook();
+        DNABookHashImpl hash = new DNABookHashImpl();
+        DNABookJavaImpl java = new DNABookJavaImpl();
+        AdaptiveSocialNetwork adaptive = new AdaptiveSocialNetwork();
+
+        for (SocialNetwork s : new SocialNetwork[]{book, hash, java, adaptive}) {
+            s.registerUser("Alex");
+            s.registerUser("Bea");
+            s.registerUser("Chris");
+            s.registerUser("Daniel");
+            s.registerUser("Ed");
+            s.becomeFriends("Alex", "Chris");
+            s.becomeFriends("Bea", "Daniel");
+            s.becomeFriends("Ed", "Ed");
+            s.removeUser("Daniel");
+        }
+
+        for (FrozenSocialNetwork s : new FrozenSocialNetwork[]{book.freeze(), hash.freeze(), java.freeze(), adaptive.freeze()}) {
+            System.out.println(s.size() + " should be 4");
+            System.out.println(s.areTheyFriends("Chris", "Alex") + " should be true");
+            System.out.println(s.areTheyFriends("Ed", "Ed") + " should be true");
+            System.out.println(s.areTheyFriends("Alex", "Bea") + " should be false");
+            System.out.println(s.areTheyFriends("Bea", "Daniel") + " should be false");
+            System.out.println(s.containsUser("Daniel") + " should be false");
+            System.out.println();
+        }
+
+        // big enough to end up with sparse rows rather than a matrix
+        WorkloadGenerator.Graph graph = new WorkloadGenerator(7).barabasiAlbert(200_000, 4);
+        DNABookJavaImpl big = new DNABookJavaImpl();
+        WorkloadGenerator.load(graph, big);
+        FrozenSocialNetwork frozen = big.freeze();
+
+        int width = WorkloadGenerator.nameWidth(graph.userCount());
+        boolean allFound = true;
+
+        for (long k = 0; k < graph.edgeCount(); k += 97) {
+            long edge = graph.edge(k);
+            allFound &= frozen.areTheyFriends(WorkloadGenerator.name((int) (edge >>> 32), width),
+                    WorkloadGenerator.name((int) edge, width));
+        }
+
+        int falseUsers = 0;
+        for (int i = 0; i < 100_000; i++)
+            if (frozen.containsUser("nobody" + i))
+                falseUsers++;
+
+        System.out.println(frozen.isMatrix() + " should be false");
+        System.out.println(allFound + " should be true");
+        System.out.println(falseUsers + " should be 0");
+    }
+}
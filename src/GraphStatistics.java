@@ -0,0 +1,405 @@
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * <p>Statistics about the shape of a friend graph - the degree distribution (how many users have each number of
+ * friends), how many triangles of friends there are, and the clustering coefficients (how likely it is that two of
+ * someone's friends are also friends with each other).</p>
+ *
+ *
+ * ======= IMPLEMENTATION =======
+ *
+ * <p>Everything works on a {@link CsrGraph}, and is split up between threads with fork-join. Ranges of users are split
+ * in half until they're small enough, but "half" means half of the friendships rather than half of the users - in a
+ * power-law graph a few users have most of the friends, so splitting by users would leave one thread doing nearly
+ * all of the work.</p>
+ *
+ * <p>Triangles are counted one of two ways, depending on how dense the graph is:</p>
+ *
+ * <ul>
+ *     <li>Sparse graphs use ordered neighbours. Users are ranked by how many friends they have, and each friendship
+ *     is only followed from the lower ranked user to the higher ranked one. Each triangle is then found exactly once,
+ *     from its lowest ranked corner, by merging the (sorted) forward friends of two users. Since nobody has more than
+ *     O(sqrt(friendships)) higher ranked friends, the huge lists of the most popular users are never merged against
+ *     each other - this takes O(friendships^1.5) at worst.</li>
+ *     <li>Dense graphs use bitsets, the same as the matrix backends. Every user gets a row of bits, and the triangles
+ *     a user is in are found by ANDing their row with each of their friends' rows and counting the bits with
+ *     {@link Long#bitCount}, 64 users at a time.</li>
+ * </ul>
+ *
+ *
+ * ======= NOTES =======
+ *
+ * <p>The global clustering coefficient is 3 * triangles / connected triples (pairs of friends with a friend in
+ * common). The average clustering coefficient is the mean of everyone's local coefficient, counting users with fewer
+ * than 2 friends as 0.</p>
+ */
+public class GraphStatistics {
+
+    static final int MAX_BITSET_USERS = 1 << 13;
+
+    static final double MIN_BITSET_DENSITY = 1d / 64;
+
+    /**
+     * Ranges with fewer friendships than this aren't split any further.
+     */
+    static final int SPLIT_THRESHOLD = 1 << 14;
+
+    private final int userCount;
+
+    private final long friendshipCount;
+
+    private final long[] degreeHistogram;
+
+    private final int[] triangles;
+
+    private final long triangleCount;
+
+    private final double globalClustering;
+
+    private final double averageClustering;
+
+
+    private GraphStatistics(CsrGraph graph, long[] degreeHistogram, int[] triangles) {
+        this.userCount = graph.userCount();
+        this.friendshipCount = graph.friendshipCount();
+        this.degreeHistogram = degreeHistogram;
+        this.triangles = triangles;
+
+        long corners = 0;
+        long triples = 0;
+        double clusteringSum = 0;
+
+        for (int id = 0; id < userCount; id++) {
+            long degree = graph.degree(id);
+            corners += triangles[id];
+            triples += degree * (degree - 1) / 2;
+
+            if (degree >= 2)
+                clusteringSum += triangles[id] / (degree * (degree - 1) / 2d);
+        }
+
+        this.triangleCount = corners / 3;
+        this.globalClustering = triples == 0 ? 0 : 3d * triangleCount / triples;
+        this.averageClustering = userCount == 0 ? 0 : clusteringSum / userCount;
+    }
+
+    public static GraphStatistics of(SocialNetwork network) {
+        return of(CsrGraph.of(network));
+    }
+
+    public static GraphStatistics of(CsrGraph graph) {
+        double density = graph.userCount() < 2 ? 0
+                : 2d * graph.friendshipCount() / ((double) graph.userCount() * (graph.userCount() - 1));
+
+        return of(graph, graph.userCount() <= MAX_BITSET_USERS && density >= MIN_BITSET_DENSITY);
+    }
+
+    /**
+     * @param bitsets whether to count triangles with bitsets rather than ordered neighbours
+     */
+    static GraphStatistics of(CsrGraph graph, boolean bitsets) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        long[] degreeHistogram = pool.invoke(new DegreeTask(graph, 0, graph.userCount()));
+
+        int[] triangles = bitsets ? countWithBitsets(graph, pool) : countWithOrderedNeighbours(graph, pool);
+        return new GraphStatistics(graph, degreeHistogram, triangles);
+    }
+
+    public int userCount() {
+        return userCount;
+    }
+
+    public long friendshipCount() {
+        return friendshipCount;
+    }
+
+    /**
+     * @return an array where element d is how many users have d friends
+     */
+    public long[] degreeHistogram() {
+        return degreeHistogram.clone();
+    }
+
+    public int maxDegree() {
+        return degreeHistogram.length - 1;
+    }
+
+    public double meanDegree() {
+        return userCount == 0 ? 0 : 2d * friendshipCount / userCount;
+    }
+
+    public long triangleCount() {
+        return triangleCount;
+    }
+
+    /**
+     * @return how many triangles the user with this {@link CsrGraph} id is part of
+     */
+    public int trianglesOf(int id) {
+        return triangles[id];
+    }
+
+    public double globalClustering() {
+        return globalClustering;
+    }
+
+    public double averageClustering() {
+        return averageClustering;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "users: %,d | friendships: %,d | degree mean %.2f max %,d | triangles: %,d"
+                        + " | clustering global %.4f average %.4f", userCount, friendshipCount, meanDegree(),
+                maxDegree(), triangleCount, globalClustering, averageClustering);
+    }
+
+    /* ============================ TRIANGLES ============================ */
+
+    private static int[] countWithOrderedNeighbours(CsrGraph graph, ForkJoinPool pool) {
+        int n = graph.userCount();
+        int[] offsets = graph.offsets();
+        int[] friends = graph.friends();
+
+        // only keep friends ranked above each user - (degree, id) is a total order, so each friendship goes one way
+        int[] forwardOffsets = new int[n + 1];
+        int[] forward = new int[friends.length / 2];
+
+        for (int id = 0; id < n; id++) {
+            int next = forwardOffsets[id];
+
+            for (int i = offsets[id]; i < offsets[id + 1]; i++)
+                if (rankedAbove(graph, friends[i], id))
+                    forward[next++] = friends[i];
+
+            forwardOffsets[id + 1] = next;
+        }
+
+        AtomicIntegerArray triangles = new AtomicIntegerArray(n);
+        pool.invoke(new OrderedNeighbourTask(forwardOffsets, forward, triangles, 0, n));
+
+        int[] counts = new int[n];
+        for (int id = 0; id < n; id++)
+            counts[id] = triangles.get(id);
+
+        return counts;
+    }
+
+    private static boolean rankedAbove(CsrGraph graph, int id1, int id2) {
+        int degree1 = graph.degree(id1);
+        int degree2 = graph.degree(id2);
+        return degree1 > degree2 || (degree1 == degree2 && id1 > id2);
+    }
+
+    private static int[] countWithBitsets(CsrGraph graph, ForkJoinPool pool) {
+        int n = graph.userCount();
+        int[] offsets = graph.offsets();
+        int[] friends = graph.friends();
+        long[][] rows = new long[n][(n + 63) >>> 6];
+
+        for (int id = 0; id < n; id++)
+            for (int i = offsets[id]; i < offsets[id + 1]; i++)
+                rows[id][friends[i] >>> 6] |= 1L << friends[i];
+
+        int[] triangles = new int[n];
+        pool.invoke(new BitsetTask(offsets, friends, rows, triangles, 0, n));
+        return triangles;
+    }
+
+    /* ============================ TASKS ============================ */
+
+    /**
+     * Splits a range of users in two, at the user where about half of the range's friendships are.
+     */
+    private static int split(int[] offsets, int from, int to) {
+        int middle = Arrays.binarySearch(offsets, from, to, offsets[from] + (offsets[to] - offsets[from]) / 2);
+        middle = middle >= 0 ? middle : -middle - 1;
+        return Math.max(from + 1, Math.min(middle, to - 1));
+    }
+
+    private static boolean small(int[] offsets, int from, int to) {
+        return to - from < 2 || offsets[to] - offsets[from] < SPLIT_THRESHOLD;
+    }
+
+    private static class DegreeTask extends RecursiveTask<long[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final CsrGraph graph;
+
+        private final int from;
+
+        private final int to;
+
+        DegreeTask(CsrGraph graph, int from, int to) {
+            this.graph = graph;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            // splitting by users rather than friendships here, since every user is the same amount of work
+            if (to - from <= SPLIT_THRESHOLD) {
+                int max = 0;
+                for (int id = from; id < to; id++)
+                    max = Math.max(max, graph.degree(id));
+
+                long[] histogram = new long[max + 1];
+                for (int id = from; id < to; id++)
+                    histogram[graph.degree(id)]++;
+
+                return histogram;
+            }
+
+            int middle = (from + to) >>> 1;
+            DegreeTask left = new DegreeTask(graph, from, middle);
+            left.fork();
+            long[] right = new DegreeTask(graph, middle, to).compute();
+            long[] joined = left.join();
+
+            long[] merged = Arrays.copyOf(joined.length >= right.length ? joined : right,
+                    Math.max(joined.length, right.length));
+            long[] other = joined.length >= right.length ? right : joined;
+
+            for (int degree = 0; degree < other.length; degree++)
+                merged[degree] += other[degree];
+
+            return merged;
+        }
+    }
+
+    private static class OrderedNeighbourTask extends RecursiveTask<Void> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] offsets;
+
+        private final int[] forward;
+
+        private final AtomicIntegerArray triangles;
+
+        private final int from;
+
+        private final int to;
+
+        OrderedNeighbourTask(int[] offsets, int[] forward, AtomicIntegerArray triangles, int from, int to) {
+            this.offsets = offsets;
+            this.forward = forward;
+            this.triangles = triangles;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Void compute() {
+            if (small(offsets, from, to)) {
+                for (int u = from; u < to; u++)
+                    countFrom(u);
+
+                return null;
+            }
+
+            int middle = split(offsets, from, to);
+            invokeAll(new OrderedNeighbourTask(offsets, forward, triangles, from, middle),
+                    new OrderedNeighbourTask(offsets, forward, triangles, middle, to));
+            return null;
+        }
+
+        /**
+         * Finds every triangle whose lowest ranked corner is u, by merging u's forward friends with each of theirs.
+         */
+        private void countFrom(int u) {
+            int found = 0;
+
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                int v = forward[i];
+                int a = offsets[u];
+                int b = offsets[v];
+                int foundWithV = 0;
+
+                while (a < offsets[u + 1] && b < offsets[v + 1]) {
+                    if (forward[a] < forward[b]) {
+                        a++;
+                    } else if (forward[a] > forward[b]) {
+                        b++;
+                    } else {
+                        triangles.incrementAndGet(forward[a]);
+                        foundWithV++;
+                        a++;
+                        b++;
+                    }
+                }
+
+                if (foundWithV > 0)
+                    triangles.addAndGet(v, foundWithV);
+
+                found += foundWithV;
+            }
+
+            if (found > 0)
+                triangles.addAndGet(u, found);
+        }
+    }
+
+    private static class BitsetTask extends RecursiveTask<Void> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] offsets;
+
+        private final int[] friends;
+
+        private final long[][] rows;
+
+        private final int[] triangles;
+
+        private final int from;
+
+        private final int to;
+
+        BitsetTask(int[] offsets, int[] friends, long[][] rows, int[] triangles, int from, int to) {
+            this.offsets = offsets;
+            this.friends = friends;
+            this.rows = rows;
+            this.triangles = triangles;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Void compute() {
+            if (small(offsets, from, to)) {
+                for (int u = from; u < to; u++)
+                    triangles[u] = countAround(u);
+
+                return null;
+            }
+
+            int middle = split(offsets, from, to);
+            invokeAll(new BitsetTask(offsets, friends, rows, triangles, from, middle),
+                    new BitsetTask(offsets, friends, rows, triangles, middle, to));
+            return null;
+        }
+
+        /**
+         * Every friend v that u shares with w is a triangle, but it's seen from both v and w, hence the halving.
+         */
+        private int countAround(int u) {
+            long[] row = rows[u];
+            long shared = 0;
+
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                long[] friendRow = rows[friends[i]];
+
+                for (int word = 0; word < row.length; word++)
+                    shared += Long.bitCount(row[word] & friendRow[word]);
+            }
+            return (int) (shared / 2);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * <p>Local benchmark of {@link GraphStatistics} on realistic graphs from {@link WorkloadGenerator}, loaded into a
+ * {@link DNABookJavaImpl}.</p>
+ *
+ * <p>Pass the number of users as the first argument. The default of 125,000 gives a graph of about a million
+ * friendships.</p>
+ */
+public class GraphStatisticsBenchmark {
+
+    static final int DEFAULT_USERS = 125_000;
+
+    static final int EDGES_PER_USER = 8;
+
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_USERS;
+        WorkloadGenerator generator = new WorkloadGenerator(42);
+
+        run("Barabasi-Albert", generator.barabasiAlbert(users, EDGES_PER_USER));
+        run("R-MAT", generator.rmat(32 - Integer.numberOfLeadingZeros(users - 1), (long) users * EDGES_PER_USER));
+    }
+
+    private static void run(String name, WorkloadGenerator.Graph graph) {
+        SocialNetwork network = new DNABookJavaImpl();
+        WorkloadGenerator.load(graph, network);
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            CsrGraph csr = CsrGraph.of(network);
+            long built = System.nanoTime();
+            GraphStatistics stats = GraphStatistics.of(csr);
+            long end = System.nanoTime();
+
+            System.out.printf("%-16s CSR %5d ms | statistics %5d ms | %s%n", name, (built - start) / 1_000_000,
+                    (end - built) / 1_000_000, stats);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Executable class to test GraphStatistics against graphs with known answers, and both ways of counting triangles
+ * against each other.
+ */
+public class GraphStatisticsTest {
+
+    public static void main(String[] args) {
+        // everyone friends with everyone: 5 choose 3 triangles, and fully clustered
+        SocialNetwork complete = new DNABook();
+        for (String name : new String[] {"a", "b", "c", "d", "e"})
+            complete.registerUser(name);
+        for (char c1 = 'a'; c1 <= 'e'; c1++)
+            for (char c2 = (char) (c1 + 1); c2 <= 'e'; c2++)
+                complete.becomeFriends(String.valueOf(c1), String.valueOf(c2));
+
+        GraphStatistics stats = GraphStatistics.of(complete);
+        System.out.println(stats.triangleCount() + " should be 10");
+        System.out.println(stats.globalClustering() + " should be 1.0");
+        System.out.println(stats.averageClustering() + " should be 1.0");
+        System.out.println(Arrays.toString(stats.degreeHistogram()) + " should be [0, 0, 0, 0, 5]");
+        System.out.println();
+
+        // a triangle with one extra friend hanging off it
+        SocialNetwork tailed = new DNABookHashImpl();
+        for (String name : new String[] {"a", "b", "c", "d"})
+            tailed.registerUser(name);
+        tailed.becomeFriends("a", "b");
+        tailed.becomeFriends("b", "c");
+        tailed.becomeFriends("c", "a");
+        tailed.becomeFriends("a", "d");
+        tailed.becomeFriends("d", "d"); // friends with themselves shouldn't count for anything
+
+        CsrGraph graph = CsrGraph.of(tailed);
+        stats = GraphStatistics.of(graph, false);
+        System.out.println(stats.triangleCount() + " should be 1");
+        System.out.println(stats.trianglesOf(graph.idOf("a")) + " " + stats.trianglesOf(graph.idOf("d"))
+                + " should be 1 0");
+        System.out.println(stats.globalClustering() + " should be 0.6");
+        System.out.printf("%.4f should be 0.5833%n", stats.averageClustering());
+        System.out.println(stats.maxDegree() + " should be 3");
+        System.out.println(stats.friendshipCount() + " should be 4");
+        System.out.println();
+
+        // both ways of counting should agree with each other and with just checking every triple
+        SocialNetwork random = new DNABookJavaImpl();
+        Random r = new Random(7);
+        int n = 200;
+        for (int i = 0; i < n; i++)
+            random.registerUser("user" + i);
+        for (int i = 0; i < 3000; i++)
+            random.becomeFriends("user" + r.nextInt(n), "user" + r.nextInt(n));
+
+        graph = CsrGraph.of(random);
+        long bruteForce = 0;
+        for (int u = 0; u < n; u++)
+            for (int v = u + 1; v < n; v++)
+                if (graph.areFriends(u, v))
+                    for (int w = v + 1; w < n; w++)
+                        if (graph.areFriends(u, w) && graph.areFriends(v, w))
+                            bruteForce++;
+
+        GraphStatistics ordered = GraphStatistics.of(graph, false);
+        GraphStatistics bitsets = GraphStatistics.of(graph, true);
+        System.out.println((ordered.triangleCount() == bruteForce) + " should be true");
+        System.out.println((bitsets.triangleCount() == bruteForce) + " should be true");
+
+        boolean sameEverywhere = true;
+        for (int id = 0; id < n; id++)
+            sameEverywhere &= ordered.trianglesOf(id) == bitsets.trianglesOf(id);
+        System.out.println(sameEverywhere + " should be true");
+        System.out.println((ordered.averageClustering() == bitsets.averageClustering()) + " should be true");
+
+        long users = 0;
+        for (long count : ordered.degreeHistogram())
+            users += count;
+        System.out.println(users + " should be " + n);
+    }
+}
@@ -0,0 +1,72 @@
+import java.util.Arrays;
+
+/**
+ * <p>Local benchmark of the {@link DNABookHashImpl.Hasher}s in {@link DNABookHashImpl.HashMapImpl} - how evenly they
+ * spread names over the buckets, and how long a lookup takes.</p>
+ *
+ * <p>Two sets of names are used - ordinary sequential ones from {@link WorkloadGenerator}, and names that all have
+ * the same {@link String#hashCode}, like someone trying to flood the map would choose.</p>
+ */
+public class HasherBenchmark {
+
+    static final int BUCKETS = 1 << 14;
+
+    static final int NAMES = 1 << 13;
+
+    static final int LOOKUPS = 1_000_000;
+
+    public static void main(String[] args) {
+        String[] sequential = new String[NAMES];
+        for (int i = 0; i < NAMES; i++)
+            sequential[i] = WorkloadGenerator.name(i, 6);
+
+        String[] colliding = HasherTest.CollidingNames.generate(Integer.numberOfTrailingZeros(NAMES));
+
+        run("hashCode only", key -> key.hashCode(), sequential, colliding);
+        run("mixing", new DNABookHashImpl.MixingHasher(), sequential, colliding);
+        run("seeded", new DNABookHashImpl.SeededHasher(), sequential, colliding);
+    }
+
+    private static void run(String name, DNABookHashImpl.Hasher hasher, String[] sequential, String[] colliding) {
+        System.out.println("============ " + name + " ============");
+        run("sequential", hasher, sequential);
+        run("colliding", hasher, colliding);
+        System.out.println();
+    }
+
+    private static void run(String names, DNABookHashImpl.Hasher hasher, String[] keys) {
+        DNABookHashImpl.HashMapImpl<String, String> map = new DNABookHashImpl.HashMapImpl<>(BUCKETS, hasher);
+        for (String key : keys)
+            map.put(key, key);
+
+        int[] sizes = map.bucketSizes();
+        int used = (int) Arrays.stream(sizes).filter(size -> size > 0).count();
+        int longest = Arrays.stream(sizes).max().orElse(0);
+
+        // chi-squared against every bucket getting the same number of keys - around BUCKETS for a good hash
+        double expected = keys.length / (double) BUCKETS;
+        double chiSquared = Arrays.stream(sizes).mapToDouble(size -> (size - expected) * (size - expected) / expected)
+                .sum();
+
+        // copies, so lookups have to actually compare the Strings
+        String[] queries = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++)
+            queries[i] = new String(keys[(int) ((i * 0x9E3779B97L) & (keys.length - 1))].toCharArray());
+
+        long time = 0;
+        int found = 0;
+
+        for (int round = 0; round < 3; round++) { // the first round is just to warm up
+            long start = System.nanoTime();
+            for (String query : queries)
+                found += map.get(query) != null ? 1 : 0;
+
+            if (round > 0)
+                time += System.nanoTime() - start;
+        }
+
+        System.out.printf("%-10s | buckets used %,6d of %,d | longest %,5d | chi-squared %,12.0f | lookup %,9.1f ns"
+                + " | %s%n", names, used, BUCKETS, longest, chiSquared, time / (2d * LOOKUPS),
+                found == 3 * LOOKUPS ? "all found" : "MISSING");
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Executable class to test the {@link DNABookHashImpl.Hasher}s and how {@link DNABookHashImpl.HashMapImpl} uses them.
+ */
+public class HasherTest {
+
+    public static void main(String[] args) {
+        // Math.abs(Integer.MIN_VALUE) is still negative, which used to give a negative bucket with 100 buckets
+        DNABookHashImpl.HashMapImpl<Integer, String> map = new DNABookHashImpl.HashMapImpl<>(100,
+                key -> (Integer) key);
+        map.put(Integer.MIN_VALUE, "min");
+        map.put(-1, "minus one");
+        map.put(7, "seven");
+
+        System.out.println(map.get(Integer.MIN_VALUE) + " " + map.get(-1) + " " + map.get(7)
+                + " should be min minus one seven");
+        System.out.println(map.bucketSizes().length + " should be 128");
+        System.out.println(new DNABookHashImpl.HashMapImpl<String, String>(128).bucketSizes().length + " "
+                + new DNABookHashImpl.HashMapImpl<String, String>(1).bucketSizes().length + " should be 128 1");
+        System.out.println();
+
+        // "Aa" and "BB" have the same hashCode, so every mix of them does too
+        String[] colliding = CollidingNames.generate(8);
+        DNABookHashImpl.Hasher mixing = new DNABookHashImpl.MixingHasher();
+        DNABookHashImpl.Hasher seeded1 = new DNABookHashImpl.SeededHasher(1);
+        DNABookHashImpl.Hasher seeded2 = new DNABookHashImpl.SeededHasher(2);
+
+        System.out.println(colliding.length + " " + distinct(colliding, mixing) + " should be 256 1");
+        System.out.println((distinct(colliding, seeded1) > 250) + " should be true");
+        System.out.println((seeded1.hash("Alex") == new DNABookHashImpl.SeededHasher(1).hash("Alex")) + " "
+                + (seeded1.hash("Alex") == seeded2.hash("Alex")) + " should be true false");
+        System.out.println();
+
+        SocialNetwork network = new DNABookHashImpl(-1, null, new DNABookHashImpl.SeededHasher());
+        for (String name : colliding)
+            network.registerUser(name);
+
+        network.becomeFriends(colliding[0], colliding[255]);
+        System.out.println(network.areTheyFriends(colliding[255], colliding[0]) + " "
+                + network.areTheyFriends(colliding[1], colliding[0]) + " should be true false");
+        System.out.println(network.containsUser(colliding[100]) + " " + network.friendCount(colliding[0])
+                + " should be true 1");
+    }
+
+    private static long distinct(String[] names, DNABookHashImpl.Hasher hasher) {
+        return java.util.Arrays.stream(names).mapToInt(hasher::hash).distinct().count();
+    }
+
+    /**
+     * Strings that all have the same {@link String#hashCode}.
+     */
+    static class CollidingNames {
+
+        static String[] generate(int pairs) {
+            String[] names = new String[1 << pairs];
+
+            for (int i = 0; i < names.length; i++) {
+                StringBuilder name = new StringBuilder(pairs * 2);
+
+                for (int bit = pairs - 1; bit >= 0; bit--)
+                    name.append((i >>> bit & 1) == 0 ? "Aa" : "BB");
+
+                names[i] = name.toString();
+            }
+            return names;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * <p>Adds up roughly how much heap a data structure takes, for {@link SocialNetwork#memoryFootprint()}.</p>
+ *
+ *
+ * ======= IMPLEMENTATION =======
+ *
+ * <p>There's no way to ask the JVM how big an object is (without an agent), so this works it out from the layout a
+ * 64 bit HotSpot JVM uses with compressed pointers (the default for heaps under 32 GB) - a 12 byte header on every
+ * object (16 for arrays, which also hold their length), 4 bytes per reference, and everything rounded up to a multiple
+ * of 8.</p>
+ *
+ * <p>Strings are remembered by identity, so a name that's stored in lots of places (eg. as a key and in every friend's
+ * set) is only counted once if it's really the same String object - but counted again if it's an equal copy, since
+ * that copy takes up memory too.</p>
+ */
+public class HeapSize {
+
+    static final int OBJECT_HEADER = 12;
+
+    static final int ARRAY_HEADER = 16;
+
+    static final int REFERENCE = 4;
+
+    private final Set<String> strings = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private long bytes;
+
+    /**
+     * @param fieldBytes the total size of the object's fields, eg. {@link #REFERENCE} for each reference
+     */
+    public HeapSize addObject(int fieldBytes) {
+        bytes += align(OBJECT_HEADER + fieldBytes);
+        return this;
+    }
+
+    public HeapSize addArray(long length, int elementBytes) {
+        bytes += align(ARRAY_HEADER + length * elementBytes);
+        return this;
+    }
+
+    /**
+     * Counts the String and its array (one byte per character, or two if it has any that aren't Latin-1), unless
+     * this exact String has already been counted.
+     */
+    public HeapSize addString(String string) {
+        if (string == null || !strings.add(string))
+            return this;
+
+        boolean latin1 = true;
+        for (int i = 0; i < string.length() && latin1; i++)
+            latin1 = string.charAt(i) < 256;
+
+        // value reference, hash, coder and hashIsZero
+        addObject(REFERENCE + 4 + 1 + 1);
+        return addArray(string.length(), latin1 ? 1 : 2);
+    }
+
+    public HeapSize addBytes(long bytes) {
+        this.bytes += bytes;
+        return this;
+    }
+
+    public long bytes() {
+        return bytes;
+    }
+
+    static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * Roughly what a {@link java.util.HashMap} (or the one inside a {@link java.util.HashSet}) with this many entries
+     * takes, not counting the keys and values. Its table size can't be seen from outside, so this guesses it's the
+     * smallest power of two that keeps it under its 0.75 load factor - the real one can be bigger if it used to have
+     * more entries.
+     */
+    static long javaHashMap(int size) {
+        long table = 0;
+
+        if (size > 0) {
+            int capacity = 16;
+            while (capacity * 0.75 < size)
+                capacity <<= 1;
+
+            table = align(ARRAY_HEADER + (long) capacity * REFERENCE);
+        }
+
+        // the map (4 references, 3 ints and a float) and a node per entry (hash, key, value and next)
+        return align(OBJECT_HEADER + 4 * REFERENCE + 4 * 4) + table + size * align(OBJECT_HEADER + 4 + 3 * REFERENCE);
+    }
+}
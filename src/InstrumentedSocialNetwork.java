@@ -0,0 +1,544 @@
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * <p>Wraps any {@link SocialNetwork} and records how long each operation takes, along with how many
+ * {@link #areTheyFriends(String, String)} calls were hits, misses because a user didn't exist, or misses because
+ * they just weren't friends.</p>
+ *
+ *
+ * ======= IMPLEMENTATION =======
+ *
+ * <p>Latencies go into a {@link LatencyHistogram} per operation. This is the same idea as an HDR histogram - the buckets
+ * get wider as the values get bigger, so it can hold anything from a few nanoseconds to minutes in a fixed number of
+ * buckets while only ever being a few percent out.</p>
+ *
+ * <p>Each histogram is split into stripes, and each thread records into the stripe picked by its thread id. This means
+ * that threads aren't all fighting over the same cache lines, and recording is just one atomic increment - nothing is
+ * allocated on the recording path at all. The stripes are only added together when a {@link Snapshot} is taken.</p>
+ *
+ * <p>Snapshots can be turned into JSON with {@link Snapshot#toJson()}, or the whole thing can be registered as a JMX
+ * MBean with {@link #registerMBean(String)} so it shows up in JConsole / VisualVM.</p>
+ *
+ *
+ * ======= NOTES =======
+ *
+ * <p>Telling apart the two kinds of miss needs an extra {@link SocialNetwork#containsUser(String)} call whenever
+ * {@link #areTheyFriends(String, String)} returns false. This can be switched off in the constructor if it costs too
+ * much, in which case all misses are counted as "not friends".</p>
+ *
+ * <p>This is thread-safe as long as the network being wrapped is.</p>
+ */
+public class InstrumentedSocialNetwork implements SocialNetwork {
+
+    public enum Operation {
+        REGISTER_USER, BECOME_FRIENDS, ARE_THEY_FRIENDS, UNFRIEND, REMOVE_USER, CONTAINS_USER, FOR_EACH_FRIEND,
+        FRIEND_COUNT, FRIENDS_PAGE, FIND_USERS_BY_PREFIX
+    }
+
+    private final SocialNetwork network;
+
+    private final boolean classifyMisses;
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Operation.values().length]; // by ordinal
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder unknownUserMisses = new LongAdder();
+
+    private final LongAdder notFriendsMisses = new LongAdder();
+
+    private volatile long startNanos;
+
+
+    public InstrumentedSocialNetwork(SocialNetwork network) {
+        this(network, true);
+    }
+
+    public InstrumentedSocialNetwork(SocialNetwork network, boolean classifyMisses) {
+        this.network = Objects.requireNonNull(network);
+        this.classifyMisses = classifyMisses;
+
+        for (Operation operation : Operation.values())
+            histograms[operation.ordinal()] = new LatencyHistogram();
+
+        this.startNanos = System.nanoTime();
+    }
+
+    @Override
+    public void registerUser(String name) {
+        long start = System.nanoTime();
+        network.registerUser(name);
+        record(Operation.REGISTER_USER, start);
+    }
+
+    @Override
+    public void becomeFriends(String name1, String name2) {
+        long start = System.nanoTime();
+        network.becomeFriends(name1, name2);
+        record(Operation.BECOME_FRIENDS, start);
+    }
+
+    @Override
+    public boolean areTheyFriends(String name1, String name2) {
+        long start = System.nanoTime();
+        boolean friends = network.areTheyFriends(name1, name2);
+        record(Operation.ARE_THEY_FRIENDS, start);
+
+        if (friends)
+            hits.increment();
+        else if (classifyMisses && (!network.containsUser(name1) || !network.containsUser(name2)))
+            unknownUserMisses.increment();
+        else
+            notFriendsMisses.increment();
+
+        return friends;
+    }
+
+    @Override
+    public void unfriend(String name1, String name2) {
+        long start = System.nanoTime();
+        network.unfriend(name1, name2);
+        record(Operation.UNFRIEND, start);
+    }
+
+    @Override
+    public void removeUser(String name) {
+        long start = System.nanoTime();
+        network.removeUser(name);
+        record(Operation.REMOVE_USER, start);
+    }
+
+    @Override
+    public boolean containsUser(String name) {
+        long start = System.nanoTime();
+        boolean contains = network.containsUser(name);
+        record(Operation.CONTAINS_USER, start);
+        return contains;
+    }
+
+    /**
+     * Not timed, since it's only ever used for exporting or analysing the whole network.
+     */
+    @Override
+    public void forEachUser(Consumer<String> consumer) {
+        network.forEachUser(consumer);
+    }
+
+    /**
+     * The time recorded includes however long the consumer takes.
+     */
+    @Override
+    public void forEachFriend(String name, Consumer<String> consumer) {
+        long start = System.nanoTime();
+        network.forEachFriend(name, consumer);
+        record(Operation.FOR_EACH_FRIEND, start);
+    }
+
+    @Override
+    public int friendCount(String name) {
+        long start = System.nanoTime();
+        int count = network.friendCount(name);
+        record(Operation.FRIEND_COUNT, start);
+        return count;
+    }
+
+    @Override
+    public void friendsPage(String name, long cursor, FriendPage page) {
+        long start = System.nanoTime();
+        network.friendsPage(name, cursor, page);
+        record(Operation.FRIENDS_PAGE, start);
+    }
+
+    /**
+     * Just the network being wrapped - not counting the histograms.
+     */
+    @Override
+    public long memoryFootprint() {
+        return network.memoryFootprint();
+    }
+
+    @Override
+    public List<String> findUsersByPrefix(String prefix, int limit) {
+        long start = System.nanoTime();
+        List<String> found = network.findUsersByPrefix(prefix, limit);
+        record(Operation.FIND_USERS_BY_PREFIX, start);
+        return found;
+    }
+
+    @Override
+    public List<String> findUsersByPrefix(String prefix, int limit, String caller) {
+        long start = System.nanoTime();
+        List<String> found = network.findUsersByPrefix(prefix, limit, caller);
+        record(Operation.FIND_USERS_BY_PREFIX, start);
+        return found;
+    }
+
+    public SocialNetwork getNetwork() {
+        return network;
+    }
+
+    /**
+     * Adds up all the stripes into a consistent-enough view of the metrics so far. Recording carries on while this
+     * happens, so counts from different operations might be a few calls apart.
+     *
+     * @return a snapshot of the metrics recorded since creation (or the last reset)
+     */
+    public Snapshot snapshot() {
+        Map<Operation, LatencyHistogram.Summary> summaries = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values())
+            summaries.put(operation, histogram(operation).summarise());
+
+        return new Snapshot(summaries, hits.sum(), unknownUserMisses.sum(), notFriendsMisses.sum(),
+                System.nanoTime() - startNanos);
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms)
+            histogram.reset();
+        hits.reset();
+        unknownUserMisses.reset();
+        notFriendsMisses.reset();
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server.
+     *
+     * @param name the name to register under, eg. {@code "dnabook:type=SocialNetwork,name=main"}
+     * @throws JMException if the name is invalid or already taken
+     */
+    public void registerMBean(String name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(new StandardMBean(new Metrics(), MetricsMBean.class), new ObjectName(name));
+    }
+
+    private void record(Operation operation, long start) {
+        histogram(operation).record(System.nanoTime() - start);
+    }
+
+    private LatencyHistogram histogram(Operation operation) {
+        return histograms[operation.ordinal()];
+    }
+
+    /* ============================ JMX ============================ */
+
+    public interface MetricsMBean {
+        long getRegisterUserCount();
+
+        long getBecomeFriendsCount();
+
+        long getAreTheyFriendsCount();
+
+        long getAreTheyFriendsHits();
+
+        long getUnknownUserMisses();
+
+        long getNotFriendsMisses();
+
+        long getAreTheyFriendsP50Nanos();
+
+        long getAreTheyFriendsP99Nanos();
+
+        long getBecomeFriendsP99Nanos();
+
+        String getSnapshotJson();
+
+        void reset();
+    }
+
+    private class Metrics implements MetricsMBean {
+
+        @Override
+        public long getRegisterUserCount() {
+            return histogram(Operation.REGISTER_USER).count();
+        }
+
+        @Override
+        public long getBecomeFriendsCount() {
+            return histogram(Operation.BECOME_FRIENDS).count();
+        }
+
+        @Override
+        public long getAreTheyFriendsCount() {
+            return histogram(Operation.ARE_THEY_FRIENDS).count();
+        }
+
+        @Override
+        public long getAreTheyFriendsHits() {
+            return hits.sum();
+        }
+
+        @Override
+        public long getUnknownUserMisses() {
+            return unknownUserMisses.sum();
+        }
+
+        @Override
+        public long getNotFriendsMisses() {
+            return notFriendsMisses.sum();
+        }
+
+        @Override
+        public long getAreTheyFriendsP50Nanos() {
+            return histogram(Operation.ARE_THEY_FRIENDS).summarise().p50;
+        }
+
+        @Override
+        public long getAreTheyFriendsP99Nanos() {
+            return histogram(Operation.ARE_THEY_FRIENDS).summarise().p99;
+        }
+
+        @Override
+        public long getBecomeFriendsP99Nanos() {
+            return histogram(Operation.BECOME_FRIENDS).summarise().p99;
+        }
+
+        @Override
+        public String getSnapshotJson() {
+            return snapshot().toJson();
+        }
+
+        @Override
+        public void reset() {
+            InstrumentedSocialNetwork.this.reset();
+        }
+    }
+
+    /* ============================ HISTOGRAM ============================ */
+
+    /**
+     * <p>Log-linear histogram of nanosecond latencies.</p>
+     *
+     * <p>Values below {@link #SUB_BUCKETS} each get their own bucket. After that, every power of two is split into
+     * {@link #SUB_BUCKETS} equally sized buckets, so a value is never more than 1 / SUB_BUCKETS (about 6%) away from
+     * the bottom of its bucket.</p>
+     */
+    public static class LatencyHistogram {
+
+        static final int SUB_BUCKET_BITS = 4;
+
+        static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+        static final int DEFAULT_STRIPES = 8;
+
+        private final AtomicLongArray[] stripes;
+
+        private final int stripeMask;
+
+
+        public LatencyHistogram() {
+            this(DEFAULT_STRIPES);
+        }
+
+        public LatencyHistogram(int stripeCount) {
+            if (stripeCount < 1 || Integer.bitCount(stripeCount) != 1)
+                throw new IllegalArgumentException("Illegal stripe count: " + stripeCount + " - must be a power of 2!");
+
+            this.stripes = new AtomicLongArray[stripeCount];
+            this.stripeMask = stripeCount - 1;
+
+            for (int i = 0; i < stripeCount; i++)
+                stripes[i] = new AtomicLongArray(BUCKETS);
+        }
+
+        public void record(long nanos) {
+            stripes[stripe()].getAndIncrement(bucketOf(Math.max(nanos, 0)));
+        }
+
+        public long count() {
+            long count = 0;
+
+            for (AtomicLongArray stripe : stripes)
+                for (int i = 0; i < BUCKETS; i++)
+                    count += stripe.get(i);
+
+            return count;
+        }
+
+        public void reset() {
+            for (AtomicLongArray stripe : stripes)
+                for (int i = 0; i < BUCKETS; i++)
+                    stripe.set(i, 0);
+        }
+
+        public Summary summarise() {
+            long[] merged = new long[BUCKETS];
+            long count = 0;
+            double total = 0;
+
+            for (AtomicLongArray stripe : stripes) {
+                for (int i = 0; i < BUCKETS; i++) {
+                    long bucketCount = stripe.get(i);
+                    merged[i] += bucketCount;
+                    count += bucketCount;
+                    total += (double) bucketCount * lowerBoundOf(i);
+                }
+            }
+
+            return new Summary(count, count == 0 ? 0 : total / count, percentile(merged, count, 0.5),
+                    percentile(merged, count, 0.9), percentile(merged, count, 0.99),
+                    percentile(merged, count, 0.999), max(merged));
+        }
+
+        static int bucketOf(long value) {
+            if (value < SUB_BUCKETS)
+                return (int) value;
+
+            int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+            return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+        }
+
+        static long lowerBoundOf(int bucket) {
+            if (bucket < SUB_BUCKETS)
+                return bucket;
+
+            int shift = bucket / SUB_BUCKETS - 1;
+            return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        }
+
+        private int stripe() {
+            long id = Thread.currentThread().getId();
+            return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & stripeMask; // spread out sequential thread ids
+        }
+
+        private static long percentile(long[] buckets, long count, double percentile) {
+            long target = (long) Math.ceil(count * percentile);
+            long seen = 0;
+
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+
+                if (seen >= target && seen > 0)
+                    return lowerBoundOf(i);
+            }
+            return 0;
+        }
+
+        private static long max(long[] buckets) {
+            for (int i = buckets.length - 1; i >= 0; i--)
+                if (buckets[i] > 0)
+                    return lowerBoundOf(i);
+
+            return 0;
+        }
+
+        public static class Summary {
+
+            public final long count;
+
+            public final double meanNanos;
+
+            public final long p50;
+
+            public final long p90;
+
+            public final long p99;
+
+            public final long p999;
+
+            public final long max;
+
+            public Summary(long count, double meanNanos, long p50, long p90, long p99, long p999, long max) {
+                this.count = count;
+                this.meanNanos = meanNanos;
+                this.p50 = p50;
+                this.p90 = p90;
+                this.p99 = p99;
+                this.p999 = p999;
+                this.max = max;
+            }
+        }
+    }
+
+    /* ============================ SNAPSHOT ============================ */
+
+    public static class Snapshot {
+
+        private final Map<Operation, LatencyHistogram.Summary> latencies;
+
+        private final long hits;
+
+        private final long unknownUserMisses;
+
+        private final long notFriendsMisses;
+
+        private final long elapsedNanos;
+
+        public Snapshot(Map<Operation, LatencyHistogram.Summary> latencies, long hits, long unknownUserMisses,
+                        long notFriendsMisses, long elapsedNanos) {
+            this.latencies = latencies;
+            this.hits = hits;
+            this.unknownUserMisses = unknownUserMisses;
+            this.notFriendsMisses = notFriendsMisses;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public LatencyHistogram.Summary getLatency(Operation operation) {
+            return latencies.get(operation);
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getUnknownUserMisses() {
+            return unknownUserMisses;
+        }
+
+        public long getNotFriendsMisses() {
+            return notFriendsMisses;
+        }
+
+        public double getRatePerSecond(Operation operation) {
+            return elapsedNanos == 0 ? 0 : latencies.get(operation).count / (elapsedNanos / 1_000_000_000d);
+        }
+
+        public String toJson() {
+            StringBuilder json = new StringBuilder("{");
+            json.append("\"elapsedNanos\":").append(elapsedNanos);
+            json.append(",\"areTheyFriends\":{\"hits\":").append(hits)
+                    .append(",\"unknownUserMisses\":").append(unknownUserMisses)
+                    .append(",\"notFriendsMisses\":").append(notFriendsMisses).append('}');
+            json.append(",\"operations\":{");
+
+            boolean first = true;
+            for (Map.Entry<Operation, LatencyHistogram.Summary> entry : latencies.entrySet()) {
+                LatencyHistogram.Summary summary = entry.getValue();
+
+                if (!first)
+                    json.append(',');
+                first = false;
+
+                json.append('"').append(entry.getKey().name()).append("\":{")
+                        .append("\"count\":").append(summary.count)
+                        .append(",\"ratePerSecond\":").append(String.format(Locale.ROOT, "%.1f", getRatePerSecond(entry.getKey())))
+                        .append(",\"meanNanos\":").append(String.format(Locale.ROOT, "%.1f", summary.meanNanos))
+                        .append(",\"p50Nanos\":").append(summary.p50)
+                        .append(",\"p90Nanos\":").append(summary.p90)
+                        .append(",\"p99Nanos\":").append(summary.p99)
+                        .append(",\"p999Nanos\":").append(summary.p999)
+                        .append(",\"maxNanos\":").append(summary.max)
+                        .append('}');
+            }
+            return json.append("}}").toString();
+        }
+
+        @Override
+        public String toString() {
+            return toJson();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+import javax.management.JMException;
+
+/**
+ * Executable class to test the InstrumentedSocialNetwork decorator, and to see how much overhead it adds.
+ */
+public class InstrumentedSocialNetworkTest {
+
+    static final int LOOKUPS = 2_000_000;
+
+    public static void main(String[] args) throws JMException {
+        InstrumentedSocialNetwork s = new InstrumentedSocialNetwork(new DNABookJavaImpl());
+
+        s.registerUser("Alex");
+        s.registerUser("Bea");
+        s.registerUser("Chris");
+        s.becomeFriends("Alex", "Bea");
+
+        System.out.println(s.areTheyFriends("Alex", "Bea") + " should be true");
+        System.out.println(s.areTheyFriends("Alex", "Chris") + " should be false");
+        System.out.println(s.areTheyFriends("Alex", "Daniel") + " should be false");
+        System.out.println();
+
+        InstrumentedSocialNetwork.Snapshot snapshot = s.snapshot();
+        System.out.println(snapshot.getHits() + " should be 1");
+        System.out.println(snapshot.getNotFriendsMisses() + " should be 1");
+        System.out.println(snapshot.getUnknownUserMisses() + " should be 1");
+        System.out.println(snapshot.getLatency(InstrumentedSocialNetwork.Operation.REGISTER_USER).count + " should be 3");
+        System.out.println();
+
+        s.registerMBean("dnabook:type=SocialNetwork,name=test");
+        System.out.println(snapshot.toJson());
+        System.out.println();
+
+        overhead(new DNABookJavaImpl(), "Java HashMap");
+        overhead(new DNABook(), "Binary Search");
+    }
+
+    private static void overhead(SocialNetwork network, String name) {
+        InstrumentedSocialNetwork instrumented = new InstrumentedSocialNetwork(network, false);
+        network.registerUser("Alex");
+        network.registerUser("Bea");
+        network.becomeFriends("Alex", "Bea");
+
+        for (int i = 0; i < 3; i++) { // first couple of rounds are just warm up
+            long plain = time(network);
+            long wrapped = time(instrumented);
+
+            if (i == 2)
+                System.out.println(name + ": plain " + plain + "ns, instrumented " + wrapped + "ns per lookup");
+        }
+    }
+
+    private static long time(SocialNetwork network) {
+        boolean sink = false;
+        long start = System.nanoTime();
+
+        for (int i = 0; i < LOOKUPS; i++)
+            sink ^= network.areTheyFriends("Alex", "Bea");
+
+        long end = System.nanoTime();
+
+        if (sink)
+            System.out.print("");
+
+        return (end - start) / LOOKUPS;
+    }
+}
@@ -0,0 +1,186 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>A set of non-negative ints, without boxing every int into an {@link Integer} like {@link java.util.HashSet}
+ * would.</p>
+ *
+ * <p>This uses open addressing with linear probing - everything is stored straight in one {@code int[]}, and a
+ * collision just moves on to the next slot. Removing uses backward shifting (entries after the removed one get moved
+ * back into the gap if they belong there), so there's never any need for tombstones.</p>
+ *
+ * <p>It is not thread-safe.</p>
+ */
+public class IntHashSet {
+
+    static final int DEFAULT_CAPACITY = 4;
+
+    private static final int EMPTY = -1;
+
+    private int[] table;
+
+    private int mask;
+
+    private int size;
+
+
+    public IntHashSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntHashSet(int expectedSize) {
+        if (expectedSize < 0)
+            throw new IllegalArgumentException("Illegal expected size: " + expectedSize);
+
+        int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, expectedSize * 2 - 1)) << 1;
+        this.table = new int[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(table, EMPTY);
+    }
+
+    /**
+     * @return true if the value wasn't already in the set
+     */
+    public boolean add(int value) {
+        checkValue(value);
+
+        if ((size + 1) * 4 > table.length * 3) // keep the load factor under 0.75
+            resize(table.length * 2);
+
+        int index = indexOf(value);
+
+        while (table[index] != EMPTY) {
+            if (table[index] == value)
+                return false;
+
+            index = (index + 1) & mask;
+        }
+
+        table[index] = value;
+        size++;
+        return true;
+    }
+
+    public boolean contains(int value) {
+        if (value < 0)
+            return false;
+
+        int index = indexOf(value);
+
+        while (table[index] != EMPTY) {
+            if (table[index] == value)
+                return true;
+
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the value was in the set
+     */
+    public boolean remove(int value) {
+        if (value < 0)
+            return false;
+
+        int index = indexOf(value);
+
+        while (table[index] != value) {
+            if (table[index] == EMPTY)
+                return false;
+
+            index = (index + 1) & mask;
+        }
+
+        // shift back any entries further along the probe sequence that would no longer be reachable
+        int gap = index;
+        int next = (gap + 1) & mask;
+
+        while (table[next] != EMPTY) {
+            int home = indexOf(table[next]);
+
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                table[gap] = table[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+
+        table[gap] = EMPTY;
+        size--;
+        return true;
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int value : table)
+            if (value != EMPTY)
+                action.accept(value);
+    }
+
+    /**
+     * For going through the set a bit at a time, eg. a page at a time.
+     *
+     * @return the first slot at or after the given one that holds a value (see {@link #valueAt(int)}), or -1 if there
+     * aren't any more
+     */
+    public int nextSlot(int slot) {
+        for (int i = Math.max(slot, 0); i < table.length; i++)
+            if (table[i] != EMPTY)
+                return i;
+
+        return -1;
+    }
+
+    public int valueAt(int slot) {
+        return table[slot];
+    }
+
+    public void clear() {
+        Arrays.fill(table, EMPTY);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the number of slots in the table, for working out memory use
+     */
+    public int capacity() {
+        return table.length;
+    }
+
+    /**
+     * @return roughly how much memory this takes up, in bytes
+     */
+    public long sizeInBytes() {
+        return HeapSize.align(HeapSize.OBJECT_HEADER + HeapSize.REFERENCE + 2 * 4)
+                + HeapSize.align(HeapSize.ARRAY_HEADER + (long) table.length * Integer.BYTES);
+    }
+
+    private int indexOf(int value) {
+        return (value * 0x9E3779B9 >>> 16 ^ value * 0x9E3779B9) & mask; // fibonacci hashing, folded
+    }
+
+    private void resize(int newCapacity) {
+        int[] old = table;
+        table = new int[newCapacity];
+        mask = newCapacity - 1;
+        Arrays.fill(table, EMPTY);
+        size = 0;
+
+        for (int value : old)
+            if (value != EMPTY)
+                add(value);
+    }
+
+    private static void checkValue(int value) {
+        if (value < 0)
+            throw new IllegalArgumentException("Illegal value: " + value + " - must be non-negative!");
+    }
+}
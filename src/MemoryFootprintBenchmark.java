@@ -0,0 +1,100 @@
+import java.util.function.IntFunction;
+
+/**
+ * <p>Local benchmark of how much memory each backend takes, as bytes per user and bytes per friendship, for growing
+ * Barabasi-Albert graphs from {@link WorkloadGenerator}.</p>
+ *
+ * <p>Each network is loaded twice - once with just the users, and once with the friendships too - so the cost of a
+ * user and the cost of a friendship can be told apart. Both {@link SocialNetwork#memoryFootprint()} and the heap the
+ * network actually keeps hold of (the used heap after a GC, before and after loading it) are shown, so the estimate
+ * can be checked against the real thing.</p>
+ *
+ * <p>Pass the biggest number of users as the first argument (the default is 100,000). {@link DNABook}'s matrix is
+ * maxCapacity^2 bytes, so it stops at {@link #MAX_MATRIX_USERS}, and {@link DNABookHashImpl} stops at
+ * {@link #MAX_HASH_USERS} since each of its users is a few KB.</p>
+ */
+public class MemoryFootprintBenchmark {
+
+    static final int DEFAULT_USERS = 100_000;
+
+    static final int EDGES_PER_USER = 8;
+
+    /**
+     * Below this, the retained numbers get lost in the noise of everything else on the heap.
+     */
+    static final int MIN_USERS = 10_000;
+
+    static final int MAX_MATRIX_USERS = 10_000;
+
+    static final int MAX_HASH_USERS = 50_000;
+
+    public static void main(String[] args) {
+        int maxUsers = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_USERS;
+
+        // a quiet first round, so that loading classes doesn't end up in the retained numbers
+        measureAll(1_000, false);
+
+        System.out.printf("%-22s %9s | %-25s | %-25s%n", "", "", "estimated", "retained");
+        System.out.printf("%-22s %9s | %12s %12s | %12s %12s%n", "backend", "users",
+                "per user", "per edge", "per user", "per edge");
+
+        for (int users = MIN_USERS; users <= maxUsers; users *= 10) {
+            measureAll(users, true);
+            System.out.println();
+        }
+    }
+
+    private static void measureAll(int users, boolean print) {
+        if (users <= MAX_MATRIX_USERS)
+            measure("DNABook", users, DNABook::new, print);
+
+        if (users <= MAX_HASH_USERS)
+            measure("DNABookHashImpl", users, capacity -> new DNABookHashImpl(), print);
+
+        measure("DNABookJavaImpl", users, capacity -> new DNABookJavaImpl(), print);
+        measure("AdaptiveSocialNetwork", users, capacity -> new AdaptiveSocialNetwork(), print);
+    }
+
+    private static void measure(String backend, int users, IntFunction<SocialNetwork> factory,
+                                boolean print) {
+        WorkloadGenerator.Graph graph = new WorkloadGenerator(42).barabasiAlbert(users, EDGES_PER_USER);
+        int width = WorkloadGenerator.nameWidth(users);
+
+        long before = usedMemory();
+        SocialNetwork usersOnly = factory.apply(users);
+        for (int id = 0; id < users; id++)
+            usersOnly.registerUser(WorkloadGenerator.name(id, width));
+
+        long usersRetained = usedMemory() - before;
+        long usersEstimate = usersOnly.memoryFootprint();
+        usersOnly = null;
+
+        before = usedMemory();
+        SocialNetwork loaded = factory.apply(users);
+        WorkloadGenerator.load(graph, loaded);
+
+        long loadedRetained = usedMemory() - before;
+        long loadedEstimate = loaded.memoryFootprint();
+
+        // the graph has a few repeated friendships, which the networks ignore
+        long edges = 0;
+        for (int id = 0; id < users; id++)
+            edges += loaded.friendCount(WorkloadGenerator.name(id, width));
+
+        edges /= 2;
+
+        if (print)
+            System.out.printf("%-22s %,9d | %12.1f %12.1f | %12.1f %12.1f%n", backend, users,
+                    usersEstimate / (double) users, (loadedEstimate - usersEstimate) / (double) edges,
+                    usersRetained / (double) users, (loadedRetained - usersRetained) / (double) edges);
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 3; i++)
+            System.gc();
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Executable class to test {@link SocialNetwork#memoryFootprint()} on each of the backends.
+ */
+public class MemoryFootprintTest {
+
+    public static void main(String[] args) {
+        System.out.println(HeapSize.align(13) + " should be 16");
+        System.out.println(new HeapSize().addObject(0).bytes() + " should be 16");
+        System.out.println(new HeapSize().addArray(10, 4).bytes() + " should be 56");
+
+        String name = "Alex";
+        HeapSize strings = new HeapSize().addString(name).addString(name);
+        System.out.println(strings.bytes() + " should be 48"); // the same String twice only counts once
+        strings.addString(new String(name));
+        System.out.println(strings.bytes() + " should be 96"); // but a copy counts again
+
+        // the matrix is there from the start, however many users there are
+        DNABook book = new DNABook(100);
+        long emptyBook = book.memoryFootprint();
+        System.out.println((emptyBook >= 100 * 100) + " should be true");
+        book.registerUser("Alex");
+        book.becomeFriends("Alex", "Alex");
+        System.out.println((book.memoryFootprint() - emptyBook) + " should be 48");
+
+        // every user has their own set with 128 empty buckets
+        DNABookHashImpl hash = new DNABookHashImpl();
+        long emptyHash = hash.memoryFootprint();
+        hash.registerUser("Alex");
+        long perUser = hash.memoryFootprint() - emptyHash;
+        System.out.println((perUser > 128 * (4 + 16)) + " should be true");
+
+        hash.registerUser("Bea");
+        long twoUsers = hash.memoryFootprint();
+        hash.becomeFriends("Alex", "Bea");
+        // a node in each of their sets, and no new Strings
+        System.out.println((hash.memoryFootprint() - twoUsers) + " should be 48");
+
+        DNABookJavaImpl java = new DNABookJavaImpl();
+        AdaptiveSocialNetwork adaptive = new AdaptiveSocialNetwork();
+
+        for (SocialNetwork s : new SocialNetwork[]{java, adaptive}) {
+            long empty = s.memoryFootprint();
+            s.registerUser("Alex");
+            s.registerUser("Bea");
+            long users = s.memoryFootprint();
+            s.becomeFriends("Alex", "Bea");
+            long friends = s.memoryFootprint();
+            System.out.println((empty > 0 && users > empty && friends > users) + " should be true");
+        }
+
+        // decorators are the same size as what they wrap (they don't count themselves)
+        System.out.println((new InstrumentedSocialNetwork(hash).memoryFootprint() == hash.memoryFootprint())
+                + " should be true");
+        System.out.println((new ChangeFeedSocialNetwork(java).memoryFootprint() == java.memoryFootprint())
+                + " should be true");
+
+        try {
+            java.freeze().memoryFootprint();
+            System.out.println("should have thrown");
+        } catch (UnsupportedOperationException e) {
+            System.out.println(e.getMessage() + " should be FrozenSocialNetwork can't measure its memory");
+        }
+    }
+}
@@ -0,0 +1,241 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * <p>Ranks users by influence using PageRank over a {@link CsrGraph} - a user is influential if they're friends with
+ * other influential users. Degree centrality (just the share of everyone that someone is friends with) is here too,
+ * as a much cheaper alternative.</p>
+ *
+ *
+ * ======= IMPLEMENTATION =======
+ *
+ * <p>Each iteration "pulls" rather than "pushes": every user adds up the rank their friends are giving away, rather
+ * than every user adding their rank onto each of their friends. Each user's new rank is only written by one thread,
+ * so the users can be shared out between threads (with a parallel stream) without any locking or atomics. Everything
+ * is in primitive {@code double[]}s, with a third array holding each user's rank already divided by their number of
+ * friends, so the inner loop is just one add per friendship.</p>
+ *
+ * <p>Users with no friends would let their rank leak away, so it's shared out evenly between everyone instead (same
+ * as the random surfer jumping anywhere). Iteration stops once the total change in rank (L1 norm) is under the
+ * tolerance, or after the maximum number of iterations.</p>
+ *
+ *
+ * ======= WARM STARTS =======
+ *
+ * <p>After a few new friendships have been added, the ranks hardly change - so starting from the old ranks rather than
+ * from scratch gets to the answer in far fewer iterations. {@link #rank(CsrGraph, Ranks)} does this, matching users
+ * up by name since ids aren't the same between two {@link CsrGraph}s. New users start with the average rank, and the
+ * whole thing is scaled back to add up to 1.</p>
+ */
+public class PageRank {
+
+    static final double DEFAULT_DAMPING = 0.85;
+
+    static final double DEFAULT_TOLERANCE = 1e-6;
+
+    static final int DEFAULT_MAX_ITERATIONS = 100;
+
+    private final double damping;
+
+    private final double tolerance;
+
+    private final int maxIterations;
+
+
+    public PageRank() {
+        this(DEFAULT_DAMPING, DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS);
+    }
+
+    /**
+     * @param damping       the chance of following a friendship rather than jumping to a random user
+     * @param tolerance     stop once the ranks change by less than this in total
+     * @param maxIterations stop after this many iterations, even if it hasn't converged
+     */
+    public PageRank(double damping, double tolerance, int maxIterations) {
+        if (damping < 0 || damping >= 1)
+            throw new IllegalArgumentException("Illegal damping: " + damping);
+
+        if (tolerance <= 0)
+            throw new IllegalArgumentException("Illegal tolerance: " + tolerance);
+
+        if (maxIterations < 1)
+            throw new IllegalArgumentException("Illegal max iterations: " + maxIterations);
+
+        this.damping = damping;
+        this.tolerance = tolerance;
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Ranks from scratch, starting with everyone equal.
+     */
+    public Ranks rank(CsrGraph graph) {
+        double[] ranks = new double[graph.userCount()];
+        Arrays.fill(ranks, 1d / Math.max(1, ranks.length));
+        return iterate(graph, ranks);
+    }
+
+    /**
+     * Ranks starting from a previous result, which can be from an older version of the same network.
+     */
+    public Ranks rank(CsrGraph graph, Ranks previous) {
+        int n = graph.userCount();
+        double[] ranks = new double[n];
+        double sum = 0;
+        int matched = 0;
+
+        for (int id = 0; id < n; id++) {
+            int previousId = previous.graph.idOf(graph.name(id));
+
+            if (previousId != -1) {
+                ranks[id] = previous.ranks[previousId];
+                sum += ranks[id];
+                matched++;
+            } else {
+                ranks[id] = -1; // filled in below, once the average is known
+            }
+        }
+
+        // anyone new starts off with the average
+        double newcomer = matched == 0 ? 1d / Math.max(1, n) : sum / matched;
+
+        for (int id = 0; id < n; id++) {
+            if (ranks[id] == -1) {
+                ranks[id] = newcomer;
+                sum += newcomer;
+            }
+        }
+
+        for (int id = 0; id < n; id++)
+            ranks[id] /= sum;
+
+        return iterate(graph, ranks);
+    }
+
+    /**
+     * @return for each user, the share of everyone else they're friends with
+     */
+    public static double[] degreeCentrality(CsrGraph graph) {
+        int n = graph.userCount();
+        double[] centrality = new double[n];
+
+        if (n > 1)
+            IntStream.range(0, n).parallel().forEach(id -> centrality[id] = graph.degree(id) / (n - 1d));
+
+        return centrality;
+    }
+
+    private Ranks iterate(CsrGraph graph, double[] ranks) {
+        int n = graph.userCount();
+        int[] offsets = graph.offsets();
+        int[] friends = graph.friends();
+        double[] next = new double[n];
+        double[] shares = new double[n];
+
+        int iteration = 0;
+        double change = Double.MAX_VALUE;
+
+        while (iteration < maxIterations && change >= tolerance) {
+            double[] current = ranks;
+            double[] updated = next;
+
+            // what each user gives to each of their friends, and what's lost to users with no friends
+            double dangling = IntStream.range(0, n).parallel().mapToDouble(id -> {
+                int degree = offsets[id + 1] - offsets[id];
+                shares[id] = degree == 0 ? 0 : current[id] / degree;
+                return degree == 0 ? current[id] : 0;
+            }).sum();
+
+            double base = (1 - damping) / n + damping * dangling / n;
+
+            change = IntStream.range(0, n).parallel().mapToDouble(id -> {
+                double pulled = 0;
+
+                for (int i = offsets[id]; i < offsets[id + 1]; i++)
+                    pulled += shares[friends[i]];
+
+                updated[id] = base + damping * pulled;
+                return Math.abs(updated[id] - current[id]);
+            }).sum();
+
+            // swap the arrays over rather than copying
+            double[] swap = ranks;
+            ranks = next;
+            next = swap;
+            iteration++;
+        }
+
+        return new Ranks(graph, ranks, iteration, change < tolerance);
+    }
+
+    /**
+     * The result of running {@link PageRank}. Ranks add up to 1.
+     */
+    public static class Ranks {
+
+        private final CsrGraph graph;
+
+        private final double[] ranks;
+
+        private final int iterations;
+
+        private final boolean converged;
+
+        private Ranks(CsrGraph graph, double[] ranks, int iterations, boolean converged) {
+            this.graph = graph;
+            this.ranks = ranks;
+            this.iterations = iterations;
+            this.converged = converged;
+        }
+
+        /**
+         * @return the user's rank, or 0 if they weren't in the network
+         */
+        public double rankOf(String name) {
+            int id = graph.idOf(name);
+            return id == -1 ? 0 : ranks[id];
+        }
+
+        /**
+         * @return the rank of the user with this {@link CsrGraph} id
+         */
+        public double rankOf(int id) {
+            return ranks[id];
+        }
+
+        /**
+         * @return the names of the k highest ranked users, highest first
+         */
+        public List<String> top(int k) {
+            Integer[] ids = new Integer[ranks.length];
+            for (int id = 0; id < ids.length; id++)
+                ids[id] = id;
+
+            Arrays.sort(ids, Comparator.comparingDouble((Integer id) -> ranks[id]).reversed());
+
+            List<String> top = new ArrayList<>();
+            for (int i = 0; i < Math.min(k, ids.length); i++)
+                top.add(graph.name(ids[i]));
+
+            return top;
+        }
+
+        public int iterations() {
+            return iterations;
+        }
+
+        /**
+         * @return false if it stopped because it hit the maximum number of iterations
+         */
+        public boolean converged() {
+            return converged;
+        }
+
+        public CsrGraph graph() {
+            return graph;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+import java.util.SplittableRandom;
+
+/**
+ * <p>Local benchmark of {@link PageRank} on a Barabasi-Albert graph from {@link WorkloadGenerator}, comparing ranking
+ * from scratch with warm starting after a batch of new friendships.</p>
+ *
+ * <p>Pass the number of users as the first argument. The default of 125,000 gives a graph of about a million
+ * friendships.</p>
+ */
+public class PageRankBenchmark {
+
+    static final int DEFAULT_USERS = 125_000;
+
+    static final int EDGES_PER_USER = 8;
+
+    static final int NEW_FRIENDSHIPS = 1_000;
+
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_USERS;
+        int width = WorkloadGenerator.nameWidth(users);
+
+        SocialNetwork network = new DNABookJavaImpl();
+        WorkloadGenerator.load(new WorkloadGenerator(42).barabasiAlbert(users, EDGES_PER_USER), network);
+
+        PageRank pageRank = new PageRank();
+        CsrGraph graph = CsrGraph.of(network);
+        PageRank.Ranks previous = pageRank.rank(graph);
+        SplittableRandom random = new SplittableRandom(42);
+
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < NEW_FRIENDSHIPS; i++)
+                network.becomeFriends(WorkloadGenerator.name(random.nextInt(users), width),
+                        WorkloadGenerator.name(random.nextInt(users), width));
+
+            graph = CsrGraph.of(network);
+
+            long start = System.nanoTime();
+            PageRank.Ranks cold = pageRank.rank(graph);
+            long middle = System.nanoTime();
+            PageRank.Ranks warm = pageRank.rank(graph, previous);
+            long end = System.nanoTime();
+
+            System.out.printf("cold %4d ms, %3d iterations | warm %4d ms, %3d iterations | top 3 %s%n",
+                    (middle - start) / 1_000_000, cold.iterations(), (end - middle) / 1_000_000, warm.iterations(),
+                    warm.top(3));
+            previous = warm;
+        }
+    }
+}
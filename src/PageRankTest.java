@@ -0,0 +1,74 @@
+/**
+ * Executable class to test PageRank, including warm starting from an earlier result.
+ */
+public class PageRankTest {
+
+    public static void main(String[] args) {
+        // a star - the middle should be the most influential by far, and everyone else the same
+        SocialNetwork star = new DNABookJavaImpl();
+        star.registerUser("middle");
+        for (int i = 0; i < 10; i++) {
+            star.registerUser("edge" + i);
+            star.becomeFriends("middle", "edge" + i);
+        }
+
+        PageRank pageRank = new PageRank();
+        PageRank.Ranks ranks = pageRank.rank(CsrGraph.of(star));
+        System.out.println(ranks.top(1) + " should be [middle]");
+        System.out.println(ranks.converged() + " should be true");
+        System.out.println((Math.abs(ranks.rankOf("edge3") - ranks.rankOf("edge7")) < 1e-9) + " should be true");
+        System.out.println(ranks.rankOf("nobody") + " should be 0.0");
+        System.out.printf("%.6f should be 1.000000%n", sum(ranks));
+        System.out.println();
+
+        // a ring - everyone's the same
+        SocialNetwork ring = new DNABook();
+        for (int i = 0; i < 10; i++)
+            ring.registerUser("user" + i);
+        for (int i = 0; i < 10; i++)
+            ring.becomeFriends("user" + i, "user" + (i + 1) % 10);
+        ring.registerUser("zoe"); // no friends at all
+
+        ranks = pageRank.rank(CsrGraph.of(ring));
+        System.out.printf("%.4f should be %.4f%n", ranks.rankOf("user4"), ranks.rankOf("user9"));
+        System.out.println((ranks.rankOf("zoe") < ranks.rankOf("user0")) + " should be true");
+        System.out.printf("%.6f should be 1.000000%n", sum(ranks));
+
+        double[] centrality = PageRank.degreeCentrality(CsrGraph.of(star));
+        System.out.println(centrality[CsrGraph.of(star).idOf("middle")] + " should be 1.0");
+        System.out.println();
+
+        // adding a few friendships and warm starting should give the same answer as starting again, but quicker
+        WorkloadGenerator generator = new WorkloadGenerator(1);
+        SocialNetwork network = new DNABookJavaImpl();
+        WorkloadGenerator.load(generator.barabasiAlbert(5_000, 4), network);
+
+        PageRank precise = new PageRank(0.85, 1e-9, 200);
+        PageRank.Ranks before = precise.rank(CsrGraph.of(network));
+
+        for (int i = 0; i < 20; i++)
+            network.becomeFriends(WorkloadGenerator.name(i * 7, 4), WorkloadGenerator.name(4_999 - i, 4));
+        network.registerUser("newcomer");
+        network.becomeFriends("newcomer", WorkloadGenerator.name(0, 4));
+
+        CsrGraph after = CsrGraph.of(network);
+        PageRank.Ranks cold = precise.rank(after);
+        PageRank.Ranks warm = precise.rank(after, before);
+
+        double difference = 0;
+        for (int id = 0; id < after.userCount(); id++)
+            difference += Math.abs(cold.rankOf(id) - warm.rankOf(id));
+
+        System.out.println((difference < 1e-7) + " should be true");
+        System.out.println((warm.iterations() < cold.iterations()) + " should be true");
+        System.out.println(cold.top(3).equals(warm.top(3)) + " should be true");
+        System.out.println((warm.rankOf("newcomer") > 0) + " should be true");
+    }
+
+    private static double sum(PageRank.Ranks ranks) {
+        double sum = 0;
+        for (int id = 0; id < ranks.graph().userCount(); id++)
+            sum += ranks.rankOf(id);
+        return sum;
+    }
+}
@@ -0,0 +1,631 @@
+import com.sun.management.ThreadMXBean;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * <p>Runs a fixed suite of benchmarks against every {@link SocialNetwork} backend, {@link DNABookPool},
+ * {@link StringStack} and {@link StringRepeater}, and either saves the results as a baseline or checks them against
+ * one - so that an "optimisation" that actually makes things slower gets caught before it goes in.</p>
+ *
+ * <p>Usage: {@code PerformanceGate record|check [baseline file] [max drop %]}. {@code record} saves a baseline (to
+ * {@link #DEFAULT_BASELINE} by default). {@code check} runs the suite again, prints a table comparing it with the
+ * baseline, and exits with 1 if anything got slower, started allocating more, or is in the baseline but wasn't run.</p>
+ *
+ *
+ * ======= IMPLEMENTATION =======
+ *
+ * <p>Every benchmark is a fixed amount of work with a fixed seed, so a run always does exactly the same thing. Each
+ * one is run {@link #WARMUP_SAMPLES} times to let the JIT settle, and then {@link #SAMPLES} more times, recording the
+ * throughput (operations per second) and the bytes allocated per operation of each sample. Allocation is read from
+ * {@link ThreadMXBean} across all threads (so the shard threads of
+ * {@link ShardedSocialNetwork} count too) - unlike timings it hardly changes between runs, so it makes a very
+ * sensitive check. Names and edges are all made up front, so only the code being benchmarked allocates.</p>
+ *
+ * <p>Every benchmark gets {@link #FORKS} fresh JVMs (this class started again with {@code fork <benchmark>}), and the
+ * samples from all of them are put together. Samples from the same JVM are much closer to each other than to samples
+ * from another one (the JIT can make different choices each time), so without this, the test below would think a
+ * difference between two runs was real when it was only a different JVM.</p>
+ *
+ * <p>A benchmark counts as slower only if both:</p>
+ *
+ * <ul>
+ *     <li>its mean throughput dropped by more than the threshold ({@link #DEFAULT_MAX_THROUGHPUT_DROP}), and</li>
+ *     <li>Welch's t-test says the drop is real (95% confidence), rather than just noise between samples.</li>
+ * </ul>
+ *
+ * <p>The raw samples are kept in the baseline rather than just the means, since the test needs the spread of both
+ * runs.</p>
+ *
+ *
+ * ======= NOTES =======
+ *
+ * <p>Timings depend on the machine, so a baseline should be recorded on the same machine it's checked on (and
+ * re-recorded after a change that's meant to make something faster or slower).</p>
+ *
+ * <p>Threads that start and finish within one sample (eg. when a {@link ShardedSocialNetwork} is created and closed)
+ * aren't counted towards allocation, since they've gone before they can be asked.</p>
+ *
+ * <p>The JSON is written and read by hand, since there's no JSON library here - it only understands the format it
+ * writes itself.</p>
+ */
+public class PerformanceGate {
+
+    static final String DEFAULT_BASELINE = "performance-baseline.json";
+
+    static final double DEFAULT_MAX_THROUGHPUT_DROP = 0.15;
+
+    static final double MAX_ALLOCATION_GROWTH = 0.10;
+
+    /**
+     * Allocation can go up by this many bytes per operation without failing, so that a tiny amount of noise on top of
+     * nearly zero doesn't count as a huge percentage increase.
+     */
+    static final double ALLOCATION_SLACK_BYTES = 8;
+
+    static final int FORKS = 3;
+
+    static final int WARMUP_SAMPLES = 5;
+
+    /**
+     * Samples per fork.
+     */
+    static final int SAMPLES = 5;
+
+    static final int USERS = 2_000;
+
+    static final int EDGES_PER_USER = 8;
+
+    static final int QUERIES = 200_000;
+
+    static final long SEED = 42;
+
+    private static final String RESULT = "RESULT ";
+
+    /**
+     * Two-sided 95% critical values of Student's t distribution for 1 to 30 degrees of freedom.
+     */
+    private static final double[] T_CRITICAL = {12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262,
+            2.228, 2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086, 2.080, 2.074, 2.069, 2.064,
+            2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+
+    /**
+     * One sample of a benchmark - does the work and returns how many operations it did.
+     */
+    public interface Benchmark {
+        long run();
+
+        /**
+         * Called once all the samples have been taken.
+         */
+        default void close() {
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 2 && args[0].equals("fork")) {
+            Supplier<Benchmark> benchmark = suite().get(args[1]);
+
+            if (benchmark == null)
+                throw new IllegalArgumentException("Illegal benchmark: " + args[1]);
+
+            Result result = runHere(benchmark.get());
+            StringBuilder json = new StringBuilder(RESULT).append("{\"throughput\": ");
+            appendArray(json, result.throughput);
+            json.append(", \"bytesPerOp\": ");
+            appendArray(json, result.bytesPerOp);
+            System.out.println(json.append('}'));
+            System.exit(0); // don't wait for anything a backend left running
+        }
+
+        if (args.length < 1 || !(args[0].equals("record") || args[0].equals("check"))) {
+            System.out.println("Usage: PerformanceGate record|check [baseline file] [max drop %]");
+            System.exit(2);
+        }
+
+        Path file = Paths.get(args.length > 1 ? args[1] : DEFAULT_BASELINE);
+        double maxDrop = args.length > 2 ? Double.parseDouble(args[2]) / 100 : DEFAULT_MAX_THROUGHPUT_DROP;
+
+        if (args[0].equals("check") && !Files.exists(file)) {
+            System.out.println("No baseline at " + file.toAbsolutePath() + " - run PerformanceGate record first");
+            System.exit(2);
+        }
+
+        Map<String, Result> results = run(suite().keySet());
+
+        if (args[0].equals("record")) {
+            Files.write(file, toJson(results).getBytes(StandardCharsets.UTF_8));
+            System.out.println("Baseline saved to " + file.toAbsolutePath());
+            return;
+        }
+
+        Map<String, Result> baseline = fromJson(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        boolean passed = compare(baseline, results, maxDrop);
+
+        System.out.println();
+        System.out.println(passed ? "PASSED" : "FAILED - see the rows marked above");
+        System.exit(passed ? 0 : 1);
+    }
+
+    /* ============================ SUITE ============================ */
+
+    static Map<String, Supplier<Benchmark>> suite() {
+        WorkloadGenerator generator = new WorkloadGenerator(SEED);
+        WorkloadGenerator.Graph graph = generator.barabasiAlbert(USERS, EDGES_PER_USER);
+        int width = WorkloadGenerator.nameWidth(USERS);
+
+        String[] names = new String[USERS];
+        for (int id = 0; id < USERS; id++)
+            names[id] = WorkloadGenerator.name(id, width);
+
+        // the queries are worked out once, so every sample does exactly the same ones
+        int[] ids1 = new int[QUERIES];
+        int[] ids2 = new int[QUERIES];
+        boolean[] writes = new boolean[QUERIES];
+        int[] next = new int[1];
+
+        generator.queries(graph, QUERIES, 0.95, 0.2, 1.0, (type, id1, id2, expectedHit) -> {
+            ids1[next[0]] = id1;
+            ids2[next[0]] = id2;
+            writes[next[0]++] = type == WorkloadGenerator.QueryType.BECOME_FRIENDS;
+        });
+
+        int[][] edges = new int[2][(int) graph.edgeCount()];
+        int[] edge = new int[1];
+
+        graph.forEachEdge((id1, id2) -> {
+            edges[0][edge[0]] = id1;
+            edges[1][edge[0]++] = id2;
+        });
+
+        Map<String, Supplier<SocialNetwork>> backends = new LinkedHashMap<>();
+        backends.put("DNABook", () -> new DNABook(USERS));
+        backends.put("Own HashMap", DNABookHashImpl::new);
+        backends.put("Java HashMap", DNABookJavaImpl::new);
+        backends.put("Adaptive", AdaptiveSocialNetwork::new);
+        backends.put("Versioned", VersionedSocialNetwork::new);
+        backends.put("Sharded", ShardedSocialNetwork::new);
+
+        Map<String, Supplier<Benchmark>> suite = new LinkedHashMap<>();
+
+        backends.forEach((name, backend) -> {
+            suite.put(name + " / load", () -> () -> {
+                SocialNetwork network = backend.get();
+                load(network, names, edges);
+                close(network);
+                return USERS + edges[0].length;
+            });
+
+            suite.put(name + " / queries", () -> {
+                SocialNetwork network = backend.get();
+                load(network, names, edges);
+
+                return new Benchmark() {
+                    @Override
+                    public long run() {
+                        return queries(network, names, ids1, ids2, writes);
+                    }
+
+                    @Override
+                    public void close() {
+                        PerformanceGate.close(network);
+                    }
+                };
+            });
+        });
+
+        // lots of short-lived 100-user networks, one per session - without a pool every one allocates a new matrix
+        String[] sessionNames = Arrays.copyOf(names, DNABook.DEFAULT_MAX_CAPACITY);
+        DNABookPool pool = new DNABookPool().preallocate();
+
+        suite.put("DNABook / new sessions", () -> () -> sessions(sessionNames, ids1, ids2, null));
+        suite.put("DNABookPool / pooled sessions", () -> () -> sessions(sessionNames, ids1, ids2, pool));
+
+        suite.put("Frozen / reads", () -> {
+            DNABookJavaImpl network = new DNABookJavaImpl();
+            load(network, names, edges);
+            FrozenSocialNetwork frozen = network.freeze();
+            boolean[] noWrites = new boolean[QUERIES];
+            return () -> queries(frozen, names, ids1, ids2, noWrites);
+        });
+
+        suite.put("StringStack / push and pop", () -> () -> {
+            StringStack stack = new StringStack(names.length);
+
+            for (int round = 0; round < 50; round++) {
+                for (String name : names)
+                    stack.push(name);
+
+                while (!stack.isEmpty())
+                    stack.pop();
+            }
+            return 100L * names.length;
+        });
+
+        StringRepeater repeater = new StringRepeater();
+
+        suite.put("StringRepeater / repeatString", () -> () -> {
+            long length = 0;
+            for (int i = 0; i < 1_000; i++)
+                length += repeater.repeatString("abc", 100).length();
+
+            return length > 0 ? 1_000 : 0;
+        });
+
+        suite.put("StringRepeater / badRepeatString", () -> () -> {
+            long length = 0;
+            for (int i = 0; i < 1_000; i++)
+                length += repeater.badRepeatString("abc", 100).length();
+
+            return length > 0 ? 1_000 : 0;
+        });
+
+        return suite;
+    }
+
+    private static void load(SocialNetwork network, String[] names, int[][] edges) {
+        for (String name : names)
+            network.registerUser(name);
+
+        for (int i = 0; i < edges[0].length; i++)
+            network.becomeFriends(names[edges[0][i]], names[edges[1][i]]);
+    }
+
+    private static long queries(SocialNetwork network, String[] names, int[] ids1, int[] ids2, boolean[] writes) {
+        for (int i = 0; i < ids1.length; i++) {
+            if (writes[i])
+                network.becomeFriends(names[ids1[i]], names[ids2[i]]);
+            else
+                network.areTheyFriends(names[ids1[i]], names[ids2[i]]);
+        }
+        return ids1.length;
+    }
+
+    /**
+     * 1,000 sessions, each registering everyone and then making a few friendships picked from the queries.
+     *
+     * @param pool where to get the books from, or null to make a new one each time
+     */
+    private static long sessions(String[] names, int[] ids1, int[] ids2, DNABookPool pool) {
+        int n = names.length;
+
+        for (int session = 0; session < 1_000; session++) {
+            DNABook book = pool != null ? pool.acquire() : new DNABook(n);
+
+            for (String name : names)
+                book.registerUser(name);
+
+            for (int i = session * 50 % ids1.length, end = i + 50; i < end; i++)
+                book.becomeFriends(names[ids1[i] % n], names[ids2[i] % n]);
+
+            if (pool != null)
+                pool.release(book);
+        }
+        return 1_000;
+    }
+
+    private static void close(SocialNetwork network) {
+        if (network instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) network).close();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /* ============================ RUNNING ============================ */
+
+    /**
+     * Runs every benchmark {@link #FORKS} times, each in a new JVM, and puts all the samples together.
+     */
+    static Map<String, Result> run(Iterable<String> names) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+
+        for (String name : names) {
+            double[] throughput = new double[0];
+            double[] bytesPerOp = new double[0];
+
+            for (int fork = 0; fork < FORKS; fork++) {
+                Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        PerformanceGate.class.getName(), "fork", name).redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start();
+
+                String output = new String(readAll(process), StandardCharsets.UTF_8);
+                int exitCode = waitFor(process);
+                int resultAt = output.indexOf(RESULT);
+
+                if (exitCode != 0)
+                    throw new IllegalStateException("Benchmark " + name + " exited with " + exitCode + ": " + output);
+
+                if (resultAt == -1)
+                    throw new IllegalStateException("Benchmark " + name + " didn't produce a result: " + output);
+
+                String body = output.substring(resultAt + RESULT.length());
+                throughput = concat(throughput, readArray(body, "throughput"));
+                bytesPerOp = concat(bytesPerOp, readArray(body, "bytesPerOp"));
+            }
+
+            Result result = new Result(throughput, bytesPerOp);
+            results.put(name, result);
+            System.out.printf(Locale.ROOT, "%-35s %,14.0f ops/s +- %4.1f%% | %,10.1f bytes/op%n", name,
+                    result.meanThroughput(), 100 * result.throughputError(), result.meanBytesPerOp());
+        }
+        return results;
+    }
+
+    /**
+     * Takes the samples for one benchmark, in this JVM.
+     */
+    static Result runHere(Benchmark benchmark) {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        double[] throughput = new double[SAMPLES];
+        double[] bytesPerOp = new double[SAMPLES];
+
+        for (int sample = -WARMUP_SAMPLES; sample < SAMPLES; sample++) {
+            long allocatedBefore = allocated(threads);
+            long start = System.nanoTime();
+            long operations = benchmark.run();
+            long end = System.nanoTime();
+            long allocatedAfter = allocated(threads);
+
+            if (sample >= 0) {
+                throughput[sample] = operations / ((end - start) / 1_000_000_000d);
+                bytesPerOp[sample] = (allocatedAfter - allocatedBefore) / (double) operations;
+            }
+        }
+
+        benchmark.close();
+        return new Result(throughput, bytesPerOp);
+    }
+
+    private static byte[] readAll(Process process) throws IOException {
+        try (InputStream in = process.getInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+
+            for (int read; (read = in.read(buffer)) != -1; )
+                out.write(buffer, 0, read);
+
+            return out.toByteArray();
+        }
+    }
+
+    private static int waitFor(Process process) {
+        try {
+            return process.waitFor();
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a benchmark", e);
+        }
+    }
+
+    private static double[] concat(double[] a, double[] b) {
+        double[] joined = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, joined, a.length, b.length);
+        return joined;
+    }
+
+    private static long allocated(ThreadMXBean threads) {
+        long total = 0;
+
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds()))
+            total += Math.max(0, bytes); // -1 for threads that have finished since getting the ids
+
+        return total;
+    }
+
+    /* ============================ COMPARING ============================ */
+
+    /**
+     * Prints a row per benchmark, with anything that fails marked, and returns whether everything passed. A benchmark
+     * that's in the baseline but wasn't run fails, so one can't be dropped from the suite without re-recording.
+     */
+    static boolean compare(Map<String, Result> baseline, Map<String, Result> current, double maxDrop) {
+        System.out.println();
+        System.out.printf(Locale.ROOT, "%-35s %14s %14s %8s %11s %11s  %s%n", "benchmark", "baseline ops/s",
+                "current ops/s", "change", "base B/op", "cur B/op", "verdict");
+
+        boolean passed = true;
+
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result before = baseline.get(entry.getKey());
+            Result after = entry.getValue();
+
+            if (before == null) {
+                System.out.printf(Locale.ROOT, "%-35s %14s %,14.0f %8s %11s %,11.1f  new - not in the baseline%n",
+                        entry.getKey(), "-", after.meanThroughput(), "-", "-", after.meanBytesPerOp());
+                continue;
+            }
+
+            List<String> problems = new ArrayList<>();
+            double change = after.meanThroughput() / before.meanThroughput() - 1;
+            boolean significant = significantlyDifferent(before.throughput, after.throughput);
+
+            if (change < -maxDrop && significant)
+                problems.add(String.format(Locale.ROOT, "SLOWER (more than %.0f%%)", 100 * maxDrop));
+
+            if (after.meanBytesPerOp() > before.meanBytesPerOp() * (1 + MAX_ALLOCATION_GROWTH) + ALLOCATION_SLACK_BYTES)
+                problems.add(String.format(Locale.ROOT, "ALLOCATES MORE (more than %.0f%%)",
+                        100 * MAX_ALLOCATION_GROWTH));
+
+            String verdict = !problems.isEmpty() ? "<<< " + String.join(", ", problems)
+                    : change > maxDrop && significant ? "ok - faster, consider re-recording"
+                    : "ok";
+
+            System.out.printf(Locale.ROOT, "%-35s %,14.0f %,14.0f %+7.1f%% %,11.1f %,11.1f  %s%n", entry.getKey(),
+                    before.meanThroughput(), after.meanThroughput(), 100 * change, before.meanBytesPerOp(),
+                    after.meanBytesPerOp(), verdict);
+
+            passed &= problems.isEmpty();
+        }
+
+        for (String name : baseline.keySet()) {
+            if (!current.containsKey(name)) {
+                System.out.printf(Locale.ROOT, "%-35s <<< MISSING - in the baseline but not run%n", name);
+                passed = false;
+            }
+        }
+
+        return passed;
+    }
+
+    /**
+     * Welch's t-test (which doesn't assume both sets of samples have the same variance), at 95% confidence.
+     */
+    static boolean significantlyDifferent(double[] a, double[] b) {
+        double meanA = mean(a);
+        double meanB = mean(b);
+        double errorA = variance(a, meanA) / a.length;
+        double errorB = variance(b, meanB) / b.length;
+
+        if (errorA + errorB == 0)
+            return meanA != meanB;
+
+        double t = Math.abs(meanA - meanB) / Math.sqrt(errorA + errorB);
+        double degreesOfFreedom = (errorA + errorB) * (errorA + errorB)
+                / (errorA * errorA / (a.length - 1) + errorB * errorB / (b.length - 1));
+
+        int index = (int) Math.floor(degreesOfFreedom) - 1;
+        double critical = index >= T_CRITICAL.length ? 1.96 : T_CRITICAL[Math.max(0, index)];
+        return t > critical;
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values)
+            sum += value;
+
+        return sum / values.length;
+    }
+
+    private static double variance(double[] values, double mean) {
+        double sum = 0;
+        for (double value : values)
+            sum += (value - mean) * (value - mean);
+
+        return values.length < 2 ? 0 : sum / (values.length - 1);
+    }
+
+    /**
+     * The samples from running one benchmark.
+     */
+    public static class Result {
+
+        private final double[] throughput;
+
+        private final double[] bytesPerOp;
+
+        Result(double[] throughput, double[] bytesPerOp) {
+            if (throughput.length < 2 || throughput.length != bytesPerOp.length)
+                throw new IllegalArgumentException("Illegal number of samples: " + throughput.length);
+
+            this.throughput = throughput;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        public double meanThroughput() {
+            return mean(throughput);
+        }
+
+        /**
+         * @return the standard error of the mean throughput, as a fraction of it
+         */
+        public double throughputError() {
+            double mean = mean(throughput);
+            return Math.sqrt(variance(throughput, mean) / throughput.length) / mean;
+        }
+
+        public double meanBytesPerOp() {
+            return mean(bytesPerOp);
+        }
+    }
+
+    /* ============================ JSON ============================ */
+
+    static String toJson(Map<String, Result> results) {
+        StringBuilder json = new StringBuilder("{\n  \"java\": \"").append(System.getProperty("java.version"))
+                .append("\",\n  \"benchmarks\": {");
+
+        boolean first = true;
+        for (Map.Entry<String, Result> entry : results.entrySet()) {
+            json.append(first ? "\n" : ",\n");
+            first = false;
+
+            json.append("    \"").append(entry.getKey()).append("\": {\"throughput\": ");
+            appendArray(json, entry.getValue().throughput);
+            json.append(", \"bytesPerOp\": ");
+            appendArray(json, entry.getValue().bytesPerOp);
+            json.append('}');
+        }
+        return json.append("\n  }\n}\n").toString();
+    }
+
+    private static void appendArray(StringBuilder json, double[] values) {
+        json.append('[');
+
+        for (int i = 0; i < values.length; i++)
+            json.append(i == 0 ? "" : ", ").append(String.format(Locale.ROOT, "%.3f", values[i]));
+
+        json.append(']');
+    }
+
+    /**
+     * Reads back what {@link #toJson(Map)} wrote - benchmark names can't have quotes or backslashes in them.
+     */
+    static Map<String, Result> fromJson(String json) {
+        Map<String, Result> results = new LinkedHashMap<>();
+        int position = json.indexOf("\"benchmarks\"");
+
+        if (position == -1)
+            throw new IllegalArgumentException("Illegal baseline: no benchmarks");
+
+        position = json.indexOf('{', position) + 1;
+
+        while (true) {
+            int nameStart = json.indexOf('"', position);
+            int objectEnd = json.indexOf('}', position);
+
+            if (nameStart == -1 || (objectEnd != -1 && objectEnd < nameStart))
+                return results;
+
+            int nameEnd = json.indexOf('"', nameStart + 1);
+            String name = json.substring(nameStart + 1, nameEnd);
+            int end = json.indexOf('}', nameEnd);
+            String body = json.substring(nameEnd, end);
+
+            results.put(name, new Result(readArray(body, "throughput"), readArray(body, "bytesPerOp")));
+            position = end + 1;
+        }
+    }
+
+    private static double[] readArray(String body, String key) {
+        int keyAt = body.indexOf("\"" + key + "\"");
+
+        if (keyAt == -1)
+            throw new IllegalArgumentException("Illegal baseline: no " + key);
+
+        String[] values = body.substring(body.indexOf('[', keyAt) + 1, body.indexOf(']', keyAt)).split(",");
+        double[] parsed = new double[values.length];
+
+        for (int i = 0; i < values.length; i++)
+            parsed[i] = Double.parseDouble(values[i].trim());
+
+        return parsed;
+    }
+}
@@ -0,0 +1,75 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Executable class to test the comparing and baseline file parts of {@link PerformanceGate} (without running the
+ * actual suite, which takes a while).
+ */
+public class PerformanceGateTest {
+
+    public static void main(String[] args) {
+        double[] steady = {100, 101, 99, 100, 102, 98, 100, 101, 99, 100};
+        double[] slower = {80, 81, 79, 80, 82, 78, 80, 81, 79, 80};
+        double[] noisy = {60, 140, 70, 130, 80, 120, 65, 135, 75, 125};
+        double[] noAllocation = new double[10];
+
+        System.out.println(PerformanceGate.significantlyDifferent(steady, slower) + " should be true");
+        System.out.println(PerformanceGate.significantlyDifferent(steady, steady.clone()) + " should be false");
+        System.out.println(PerformanceGate.significantlyDifferent(steady, noisy) + " should be false");
+        System.out.println();
+
+        Map<String, PerformanceGate.Result> baseline = new LinkedHashMap<>();
+        baseline.put("a / steady", new PerformanceGate.Result(steady, noAllocation));
+        baseline.put("b / allocating", new PerformanceGate.Result(steady, filled(100)));
+        baseline.put("c / removed", new PerformanceGate.Result(steady, noAllocation));
+
+        Map<String, PerformanceGate.Result> read = PerformanceGate.fromJson(PerformanceGate.toJson(baseline));
+        System.out.println(read.keySet() + " should be [a / steady, b / allocating, c / removed]");
+        System.out.println(read.get("b / allocating").meanThroughput() + " "
+                + read.get("b / allocating").meanBytesPerOp() + " should be 100.0 100.0");
+        System.out.println();
+
+        // the same again passes, as does something new
+        Map<String, PerformanceGate.Result> same = new LinkedHashMap<>(read);
+        same.put("d / new", new PerformanceGate.Result(slower, noAllocation));
+        System.out.println(PerformanceGate.compare(baseline, same, 0.1) + " should be true");
+
+        // but something in the baseline that wasn't run fails
+        Map<String, PerformanceGate.Result> missing = new LinkedHashMap<>(read);
+        missing.remove("c / removed");
+        System.out.println(PerformanceGate.compare(baseline, missing, 0.1) + " should be false");
+
+        // 20% slower for real fails, but the same drop in mean buried in noise doesn't
+        Map<String, PerformanceGate.Result> dropped = new LinkedHashMap<>(baseline);
+        dropped.put("a / steady", new PerformanceGate.Result(slower, noAllocation));
+        System.out.println(PerformanceGate.compare(baseline, dropped, 0.1) + " should be false");
+        System.out.println(PerformanceGate.compare(baseline, dropped, 0.25) + " should be true");
+
+        Map<String, PerformanceGate.Result> noisyBaseline = new LinkedHashMap<>();
+        noisyBaseline.put("e / noisy", new PerformanceGate.Result(noisy, noAllocation));
+
+        double[] noisySlower = noisy.clone();
+        for (int i = 0; i < noisySlower.length; i++)
+            noisySlower[i] *= 0.85;
+
+        Map<String, PerformanceGate.Result> noisyDrop = new LinkedHashMap<>();
+        noisyDrop.put("e / noisy", new PerformanceGate.Result(noisySlower, noAllocation));
+        System.out.println(PerformanceGate.compare(noisyBaseline, noisyDrop, 0.1) + " should be true");
+
+        // allocation only needs to go past the threshold (plus a few bytes of slack)
+        Map<String, PerformanceGate.Result> allocating = new LinkedHashMap<>(baseline);
+        allocating.put("a / steady", new PerformanceGate.Result(steady, filled(4)));
+        allocating.put("b / allocating", new PerformanceGate.Result(steady, filled(105)));
+        System.out.println(PerformanceGate.compare(baseline, allocating, 0.1) + " should be true");
+
+        allocating.put("b / allocating", new PerformanceGate.Result(steady, filled(150)));
+        System.out.println(PerformanceGate.compare(baseline, allocating, 0.1) + " should be false");
+    }
+
+    private static double[] filled(double value) {
+        double[] values = new double[10];
+        Arrays.fill(values, value);
+        return values;
+    }
+}
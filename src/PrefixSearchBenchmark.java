@@ -0,0 +1,62 @@
+import java.util.SplittableRandom;
+
+/**
+ * <p>Local benchmark of findUsersByPrefix (top 10, as if someone were typing into a search box), comparing
+ * {@link DNABook}'s range scan over its sorted names - plain and packed - with the default full scan in
+ * {@link DNABookJavaImpl}.</p>
+ *
+ * <p>Pass the number of users as the first argument. {@link DNABook} needs a boolean matrix of users^2, so the default
+ * is only 10,000.</p>
+ */
+public class PrefixSearchBenchmark {
+
+    static final int DEFAULT_USERS = 10_000;
+
+    static final int SEARCHES = 20_000;
+
+    static final int LIMIT = 10;
+
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_USERS;
+        int width = WorkloadGenerator.nameWidth(users);
+
+        DNABook book = new DNABook(users);
+        DNABook packed = new DNABook(users);
+        DNABookJavaImpl javaImpl = new DNABookJavaImpl();
+
+        for (int i = 0; i < users; i++) {
+            String name = WorkloadGenerator.name(i, width);
+            book.registerUser(name);
+            packed.registerUser(name);
+            javaImpl.registerUser(name);
+        }
+        packed.packNames();
+
+        // the first few characters of a random user, like someone part way through typing
+        SplittableRandom random = new SplittableRandom(42);
+        String[] prefixes = new String[SEARCHES];
+        for (int i = 0; i < SEARCHES; i++)
+            prefixes[i] = WorkloadGenerator.name(random.nextInt(users), width).substring(0, 2 + random.nextInt(width));
+
+        run("DNABook", book, prefixes);
+        run("DNABook (packed)", packed, prefixes);
+        run("Java HashMap (full scan)", javaImpl, prefixes);
+    }
+
+    private static void run(String name, SocialNetwork network, String[] prefixes) {
+        long time = 0;
+        long found = 0;
+
+        for (int round = 0; round < 3; round++) { // the first round is just to warm up
+            long start = System.nanoTime();
+            for (String prefix : prefixes)
+                found += network.findUsersByPrefix(prefix, LIMIT).size();
+
+            if (round > 0)
+                time += System.nanoTime() - start;
+        }
+
+        System.out.printf("%-25s %,10.0f ns per search | %.1f results per search%n", name,
+                time / (2d * prefixes.length), found / (3d * prefixes.length));
+    }
+}
@@ -0,0 +1,73 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Executable class to test findUsersByPrefix on every backend that can list its users.
+ */
+public class PrefixSearchTest {
+
+    static final String[] NAMES = {"Al", "Alex", "Alexa", "Alexander", "Alice", "Amy", "Ann", "Bea", "Ben", "Bob"};
+
+    public static void main(String[] args) {
+        Map<String, Supplier<SocialNetwork>> backends = new LinkedHashMap<>();
+        backends.put("DNABook", DNABook::new);
+        backends.put("DNABook (packed)", () -> {
+            DNABook book = new DNABook();
+            for (int i = 0; i < 6; i++) // half packed, half not - so "A" runs from one into the other
+                book.registerUser(NAMES[i]);
+
+            book.packNames();
+            return book;
+        });
+        backends.put("Own HashMap", DNABookHashImpl::new);
+        backends.put("Java HashMap", DNABookJavaImpl::new);
+        backends.put("Versioned", VersionedSocialNetwork::new);
+        backends.put("Instrumented", () -> new InstrumentedSocialNetwork(new DNABook()));
+        backends.put("Change feed", () -> new ChangeFeedSocialNetwork(new DNABook(), new ChangeFeed(1 << 4,
+                ChangeFeed.Backpressure.DROP)));
+
+        backends.forEach((name, backend) -> {
+            System.out.println("============ " + name + " ============");
+            test(backend.get());
+            System.out.println();
+        });
+    }
+
+    private static void test(SocialNetwork network) {
+        for (String name : NAMES)
+            network.registerUser(name);
+
+        network.becomeFriends("Bob", "Alice");
+        network.becomeFriends("Bob", "Ann");
+        network.becomeFriends("Bob", "Ben");
+
+        System.out.println(network.findUsersByPrefix("Al", 3) + " should be [Al, Alex, Alexa]");
+        System.out.println(network.findUsersByPrefix("A", 100) + " should be " + Arrays.asList(NAMES).subList(0, 7));
+        System.out.println(network.findUsersByPrefix("Alexa", 10) + " should be [Alexa, Alexander]");
+        System.out.println(network.findUsersByPrefix("", 2) + " should be [Al, Alex]");
+        System.out.println(network.findUsersByPrefix("B", 0) + " " + network.findUsersByPrefix("C", 5)
+                + " " + network.findUsersByPrefix("Bz", 5) + " should be [] [] []");
+
+        network.removeUser("Alex");
+        System.out.println(network.findUsersByPrefix("Al", 3) + " should be [Al, Alexa, Alexander]");
+
+        // friends first, then everyone else
+        System.out.println(network.findUsersByPrefix("A", 3, "Bob") + " should be [Alice, Ann, Al]");
+        System.out.println(network.findUsersByPrefix("A", 1, "Bob") + " should be [Alice]");
+        System.out.println(network.findUsersByPrefix("B", 5, "Bob") + " should be [Ben, Bea, Bob]");
+        System.out.println(network.findUsersByPrefix("Al", 2, "nobody") + " should be [Al, Alexa]");
+
+        try {
+            network.findUsersByPrefix("A", -1);
+            System.out.println("no exception - should have thrown");
+        } catch (IllegalArgumentException e) {
+            System.out.println("IllegalArgumentException should be IllegalArgumentException");
+        }
+
+        List<String> all = network.findUsersByPrefix("", Integer.MAX_VALUE);
+        System.out.println(all.size() + " should be 9");
+    }
+}
@@ -0,0 +1,447 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * <p>A {@link SocialNetwork} split up into a number of shards, each of which owns a share of the users and all of
+ * their friendships.</p>
+ *
+ *
+ * ======= IMPLEMENTATION =======
+ *
+ * <p>Users are given to shards using consistent hashing - each shard is put onto a ring at {@link #VIRTUAL_NODES}
+ * different points, and a user belongs to the first shard point after their own hash. The nice thing about this over
+ * just doing {@code hash % shards} is that adding a shard only moves the users that now belong to the new shard
+ * (about 1 / shards of them), instead of shuffling almost everyone around.</p>
+ *
+ * <p>Each shard only knows about its own users, and stores each of their friends by name. A friendship between users
+ * on two different shards is stored on both of them, which means {@link #areTheyFriends(String, String)} only ever has
+ * to ask one shard.</p>
+ *
+ * <p>Every {@link LocalShard} has its own single thread, and all of its data is only ever touched by that thread -
+ * so there's no locking inside a shard at all, and writes to different shards happen in parallel. Everything is
+ * passed to a shard through the {@link Shard} interface as a {@link CompletableFuture}, so a shard could just as easily
+ * be in another process.</p>
+ *
+ *
+ * ======= NOTES =======
+ *
+ * <p>A cross-shard friendship is added (or removed) on both shards at once, and each shard runs its own side whenever
+ * it gets to it - so without anything else, a {@link #removeUser(String)} or {@link #unfriend(String, String)} could
+ * get in between the two sides and leave half of a friendship behind. To stop that, every write holds the lock of each
+ * user it changes the friendships of, out of {@link #USER_LOCKS} locks picked by the hash of the name (taken in order,
+ * so two writes can't wait for each other). Writes for different users still hardly ever wait.</p>
+ *
+ * <p>{@link #addShard()} stops all other operations while users are being moved, using {@link #ringLock}. Every other
+ * operation only takes the read side of it, so they don't get in each other's way.</p>
+ */
+public class ShardedSocialNetwork implements SocialNetwork, AutoCloseable {
+
+    static final int DEFAULT_SHARDS = 4;
+
+    static final int VIRTUAL_NODES = 256;
+
+    /**
+     * Must be a power of 2.
+     */
+    static final int USER_LOCKS = 64;
+
+    private final List<Shard> shards = new ArrayList<>();
+
+    /**
+     * Position on the ring -> index of the shard in {@link #shards}.
+     */
+    private final TreeMap<Integer, Integer> ring = new TreeMap<>();
+
+    private final ReadWriteLock ringLock = new ReentrantReadWriteLock();
+
+    private final ReentrantLock[] userLocks = new ReentrantLock[USER_LOCKS];
+
+
+    public ShardedSocialNetwork() {
+        this(DEFAULT_SHARDS);
+    }
+
+    public ShardedSocialNetwork(int shardCount) {
+        if (shardCount < 1)
+            throw new IllegalArgumentException("Illegal shard count: " + shardCount);
+
+        for (int i = 0; i < USER_LOCKS; i++)
+            userLocks[i] = new ReentrantLock();
+
+        for (int i = 0; i < shardCount; i++)
+            addToRing(new LocalShard(i));
+    }
+
+    @Override
+    public void registerUser(String name) {
+        ringLock.readLock().lock();
+        try {
+            shardOf(name).registerUser(name).join();
+        } finally {
+            ringLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void becomeFriends(String name1, String name2) {
+        ringLock.readLock().lock();
+        try {
+            Shard shard1 = shardOf(name1);
+            Shard shard2 = shardOf(name2);
+            lockUsers(name1, name2);
+            try {
+                // only add the friendship if both users exist - checked on each side by the shard that owns them. Both
+                // are locked, so neither can be removed before both sides are added
+                CompletableFuture<Boolean> exists1 = shard1.containsUser(name1);
+                CompletableFuture<Boolean> exists2 = shard2.containsUser(name2);
+
+                if (!exists1.join() || !exists2.join())
+                    return;
+
+                CompletableFuture<Boolean> added1 = shard1.addFriend(name1, name2);
+                CompletableFuture<Boolean> added2 = shard2.addFriend(name2, name1);
+                CompletableFuture.allOf(added1, added2).join();
+            } finally {
+                unlockUsers(name1, name2);
+            }
+        } finally {
+            ringLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean areTheyFriends(String name1, String name2) {
+        ringLock.readLock().lock();
+        try {
+            return shardOf(name1).isFriend(name1, name2).join();
+        } finally {
+            ringLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void unfriend(String name1, String name2) {
+        ringLock.readLock().lock();
+        try {
+            Shard shard1 = shardOf(name1);
+            Shard shard2 = shardOf(name2);
+            lockUsers(name1, name2);
+            try {
+                CompletableFuture<Boolean> removed1 = shard1.removeFriend(name1, name2);
+                CompletableFuture<Boolean> removed2 = shard2.removeFriend(name2, name1);
+                CompletableFuture.allOf(removed1, removed2).join();
+            } finally {
+                unlockUsers(name1, name2);
+            }
+        } finally {
+            ringLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeUser(String name) {
+        ringLock.readLock().lock();
+        try {
+            Shard shard = shardOf(name);
+            // only this user's lock is needed - their friends' other friendships aren't touched
+            ReentrantLock lock = userLockOf(name);
+            lock.lock();
+            try {
+                Set<String> friends = shard.removeUser(name).join();
+                List<CompletableFuture<Boolean>> removals = new ArrayList<>();
+
+                for (String friend : friends)
+                    removals.add(shardOf(friend).removeFriend(friend, name));
+
+                CompletableFuture.allOf(removals.toArray(new CompletableFuture<?>[0])).join();
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            ringLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean containsUser(String name) {
+        ringLock.readLock().lock();
+        try {
+            return shardOf(name).containsUser(name).join();
+        } finally {
+            ringLock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        ringLock.readLock().lock();
+        try {
+            int size = 0;
+
+            for (Shard shard : shards)
+                size += shard.size().join();
+
+            return size;
+        } finally {
+            ringLock.readLock().unlock();
+        }
+    }
+
+    public int getShardCount() {
+        ringLock.readLock().lock();
+        try {
+            return shards.size();
+        } finally {
+            ringLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of users on each shard, in the order the shards were added
+     */
+    public int[] shardSizes() {
+        ringLock.readLock().lock();
+        try {
+            int[] sizes = new int[shards.size()];
+
+            for (int i = 0; i < sizes.length; i++)
+                sizes[i] = shards.get(i).size().join();
+
+            return sizes;
+        } finally {
+            ringLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a new shard, and moves across the users that now belong to it. Nothing else can happen while this is
+     * going on.
+     */
+    public void addShard() {
+        ringLock.writeLock().lock();
+        try {
+            LocalShard added = new LocalShard(shards.size());
+            int index = addToRing(added);
+
+            List<CompletableFuture<Map<String, Set<String>>>> moving = new ArrayList<>();
+
+            for (Shard shard : shards)
+                if (shard != added)
+                    moving.add(shard.extractUsers(name -> shardIndexOf(name) == index));
+
+            for (CompletableFuture<Map<String, Set<String>>> users : moving)
+                added.importUsers(users.join()).join();
+        } finally {
+            ringLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        ringLock.writeLock().lock();
+        try {
+            shards.forEach(Shard::close);
+        } finally {
+            ringLock.writeLock().unlock();
+        }
+    }
+
+    private int addToRing(Shard shard) {
+        int index = shards.size();
+        shards.add(shard);
+
+        for (int i = 0; i < VIRTUAL_NODES; i++)
+            ring.put(mix(index * 31L * VIRTUAL_NODES + i), index);
+
+        return index;
+    }
+
+    private Shard shardOf(String name) {
+        return shards.get(shardIndexOf(name));
+    }
+
+    private int shardIndexOf(String name) {
+        Map.Entry<Integer, Integer> entry = ring.ceilingEntry(mix(name.hashCode()));
+        return entry == null ? ring.firstEntry().getValue() : entry.getValue(); // wrap around the ring
+    }
+
+    private ReentrantLock userLockOf(String name) {
+        return userLocks[userLockIndexOf(name)];
+    }
+
+    private static int userLockIndexOf(String name) {
+        return mix(name.hashCode()) >>> 16 & (USER_LOCKS - 1);
+    }
+
+    /**
+     * Locks both users, lowest lock first. The locks are reentrant, so two users sharing a lock is fine.
+     */
+    private void lockUsers(String name1, String name2) {
+        int index1 = userLockIndexOf(name1);
+        int index2 = userLockIndexOf(name2);
+        userLocks[Math.min(index1, index2)].lock();
+        userLocks[Math.max(index1, index2)].lock();
+    }
+
+    private void unlockUsers(String name1, String name2) {
+        userLockOf(name1).unlock();
+        userLockOf(name2).unlock();
+    }
+
+    private static int mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    /* ============================ SHARDS ============================ */
+
+    /**
+     * Everything the facade needs from a shard. All of the methods are asynchronous, so that a shard doesn't have to
+     * live in the same process.
+     */
+    public interface Shard {
+        CompletableFuture<Boolean> registerUser(String name);
+
+        CompletableFuture<Boolean> containsUser(String name);
+
+        /**
+         * @return false if the owner doesn't exist on this shard
+         */
+        CompletableFuture<Boolean> addFriend(String owner, String friend);
+
+        CompletableFuture<Boolean> removeFriend(String owner, String friend);
+
+        CompletableFuture<Boolean> isFriend(String owner, String friend);
+
+        /**
+         * @return the friends the user had, so the facade can remove them from the other side
+         */
+        CompletableFuture<Set<String>> removeUser(String name);
+
+        /**
+         * Removes and returns all users matching the filter, along with their friends.
+         */
+        CompletableFuture<Map<String, Set<String>>> extractUsers(Predicate<String> filter);
+
+        CompletableFuture<Void> importUsers(Map<String, Set<String>> users);
+
+        CompletableFuture<Integer> size();
+
+        void close();
+    }
+
+    /**
+     * A shard in this process, with its own thread. {@link #users} is only ever touched by that thread.
+     */
+    public static class LocalShard implements Shard {
+
+        private final ExecutorService executor;
+
+        private final Map<String, Set<String>> users = new HashMap<>();
+
+        public LocalShard(int index) {
+            this.executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "social-network-shard-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        @Override
+        public CompletableFuture<Boolean> registerUser(String name) {
+            return CompletableFuture.supplyAsync(() -> users.putIfAbsent(name, new HashSet<>()) == null, executor);
+        }
+
+        @Override
+        public CompletableFuture<Boolean> containsUser(String name) {
+            return CompletableFuture.supplyAsync(() -> users.containsKey(name), executor);
+        }
+
+        @Override
+        public CompletableFuture<Boolean> addFriend(String owner, String friend) {
+            return CompletableFuture.supplyAsync(() -> {
+                Set<String> friends = users.get(owner);
+
+                if (friends == null)
+                    return false;
+
+                friends.add(friend);
+                return true;
+            }, executor);
+        }
+
+        @Override
+        public CompletableFuture<Boolean> removeFriend(String owner, String friend) {
+            return CompletableFuture.supplyAsync(() -> {
+                Set<String> friends = users.get(owner);
+                return friends != null && friends.remove(friend);
+            }, executor);
+        }
+
+        @Override
+        public CompletableFuture<Boolean> isFriend(String owner, String friend) {
+            return CompletableFuture.supplyAsync(() -> {
+                Set<String> friends = users.get(owner);
+                return friends != null && friends.contains(friend);
+            }, executor);
+        }
+
+        @Override
+        public CompletableFuture<Set<String>> removeUser(String name) {
+            return CompletableFuture.supplyAsync(() -> {
+                Set<String> friends = users.remove(name);
+
+                if (friends == null)
+                    return Set.of();
+
+                friends.remove(name); // friends with themselves - already gone
+                return friends;
+            }, executor);
+        }
+
+        @Override
+        public CompletableFuture<Map<String, Set<String>>> extractUsers(Predicate<String> filter) {
+            return CompletableFuture.supplyAsync(() -> {
+                Map<String, Set<String>> extracted = new HashMap<>();
+                users.entrySet().removeIf(entry -> {
+                    if (!filter.test(entry.getKey()))
+                        return false;
+
+                    extracted.put(entry.getKey(), entry.getValue());
+                    return true;
+                });
+                return extracted;
+            }, executor);
+        }
+
+        @Override
+        public CompletableFuture<Void> importUsers(Map<String, Set<String>> imported) {
+            return CompletableFuture.runAsync(() -> users.putAll(imported), executor);
+        }
+
+        @Override
+        public CompletableFuture<Integer> size() {
+            return CompletableFuture.supplyAsync(users::size, executor);
+        }
+
+        @Override
+        public void close() {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * <p>Local benchmark of {@link ShardedSocialNetwork} write throughput as the number of shards goes up.</p>
+ *
+ * <p>Each run uses twice as many writer threads as shards, all calling {@link SocialNetwork#becomeFriends} on random
+ * pairs of users.</p>
+ */
+public class ShardedSocialNetworkBenchmark {
+
+    static final int DEFAULT_USERS = 100_000;
+
+    static final int DEFAULT_OPS_PER_THREAD = 50_000;
+
+    private final int users;
+
+    private final int opsPerThread;
+
+    public static void main(String[] args) throws InterruptedException {
+        ShardedSocialNetworkBenchmark benchmark = new ShardedSocialNetworkBenchmark();
+
+        benchmark.measure(2); // warm up
+
+        for (int shards = 1; shards <= 8; shards *= 2)
+            System.out.printf("%d shards: %,12.0f becomeFriends / s%n", shards, benchmark.measure(shards));
+    }
+
+    public ShardedSocialNetworkBenchmark() {
+        this(DEFAULT_USERS, DEFAULT_OPS_PER_THREAD);
+    }
+
+    public ShardedSocialNetworkBenchmark(int users, int opsPerThread) {
+        this.users = users;
+        this.opsPerThread = opsPerThread;
+    }
+
+    private double measure(int shardCount) throws InterruptedException {
+        try (ShardedSocialNetwork network = new ShardedSocialNetwork(shardCount)) {
+            for (int i = 0; i < users; i++)
+                network.registerUser("user" + i);
+
+            int threadCount = shardCount * 2;
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(threadCount);
+
+            for (int i = 0; i < threadCount; i++) {
+                new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int j = 0; j < opsPerThread; j++)
+                        network.becomeFriends("user" + random.nextInt(users), "user" + random.nextInt(users));
+
+                    done.countDown();
+                }).start();
+            }
+
+            long begin = System.nanoTime();
+            start.countDown();
+            done.await();
+            long end = System.nanoTime();
+
+            return (double) threadCount * opsPerThread / ((end - begin) / 1_000_000_000d);
+        }
+    }
+}
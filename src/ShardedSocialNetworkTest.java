@@ -0,0 +1,94 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Executable class to test the ShardedSocialNetwork, including moving users when a shard is added.
+ */
+public class ShardedSocialNetworkTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        try (ShardedSocialNetwork s = new ShardedSocialNetwork(3)) {
+            s.registerUser("Alex");
+            s.registerUser("Bea");
+            s.registerUser("Chris");
+            s.registerUser("Daniel");
+
+            s.becomeFriends("Alex", "Chris");
+            s.becomeFriends("Bea", "Daniel");
+            s.becomeFriends("Alex", "Ed"); // Ed doesn't exist
+
+            System.out.println(s.areTheyFriends("Alex", "Chris") + " should be true");
+            System.out.println(s.areTheyFriends("Chris", "Alex") + " should be true");
+            System.out.println(s.areTheyFriends("Alex", "Bea") + " should be false");
+            System.out.println(s.areTheyFriends("Alex", "Ed") + " should be false");
+            System.out.println();
+
+            for (int i = 0; i < 10_000; i++)
+                s.registerUser("user" + i);
+
+            for (int i = 0; i < 9_999; i++)
+                s.becomeFriends("user" + i, "user" + (i + 1));
+
+            System.out.println(Arrays.toString(s.shardSizes()) + " should be roughly even");
+            s.addShard();
+            System.out.println(Arrays.toString(s.shardSizes()) + " should be roughly even, with 4 shards");
+            System.out.println(s.size() + " should be 10004");
+
+            boolean allThere = true;
+            for (int i = 0; i < 9_999; i++)
+                allThere &= s.areTheyFriends("user" + (i + 1), "user" + i);
+
+            System.out.println(allThere + " should be true");
+            System.out.println();
+
+            s.removeUser("Chris");
+            s.unfriend("Daniel", "Bea");
+
+            System.out.println(s.areTheyFriends("Alex", "Chris") + " should be false");
+            System.out.println(s.areTheyFriends("Bea", "Daniel") + " should be false");
+            System.out.println(s.containsUser("Chris") + " should be false");
+        }
+        System.out.println();
+
+        // making friends at the same time as removing, unfriending and registering again never leaves half of a
+        // friendship behind
+        try (ShardedSocialNetwork s = new ShardedSocialNetwork(4)) {
+            int users = 4;
+            for (int i = 0; i < users; i++)
+                s.registerUser("u" + i);
+
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                SplittableRandom random = new SplittableRandom(t);
+                threads[t] = new Thread(() -> {
+                    for (int step = 0; step < 20_000; step++) {
+                        String name1 = "u" + random.nextInt(users);
+                        String name2 = "u" + random.nextInt(users);
+                        int operation = random.nextInt(10);
+
+                        if (operation < 5)
+                            s.becomeFriends(name1, name2);
+                        else if (operation < 7)
+                            s.unfriend(name1, name2);
+                        else if (operation < 8)
+                            s.removeUser(name1);
+                        else
+                            s.registerUser(name1);
+                    }
+                });
+                threads[t].start();
+            }
+
+            for (Thread thread : threads)
+                thread.join();
+
+            int halfFriendships = 0;
+            for (int i = 0; i < users; i++)
+                for (int j = 0; j < users; j++)
+                    if (s.areTheyFriends("u" + i, "u" + j) != s.areTheyFriends("u" + j, "u" + i))
+                        halfFriendships++;
+
+            System.out.println(halfFriendships + " should be 0");
+        }
+    }
+}
@@ -1,5 +1,134 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
 public interface SocialNetwork {
     void registerUser(String name);
     void becomeFriends(String name1, String name2);
     boolean areTheyFriends(String name1, String name2);
+    void unfriend(String name1, String name2);
+    void removeUser(String name);
+    boolean containsUser(String name);
+
+    /**
+     * Calls the consumer with the name of every user in the network, in no particular order.
+     *
+     * @throws UnsupportedOperationException if this network can't list its users
+     */
+    default void forEachUser(Consumer<String> consumer) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " can't list users");
+    }
+
+    /**
+     * Calls the consumer with the name of each of the user's friends, in no particular order. Does nothing if the user
+     * isn't in the network.
+     *
+     * @throws UnsupportedOperationException if this network can't list friends
+     */
+    default void forEachFriend(String name, Consumer<String> consumer) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " can't list friends");
+    }
+
+    /**
+     * @return how many friends the user has, or 0 if they aren't in the network
+     */
+    default int friendCount(String name) {
+        int[] count = new int[1];
+        forEachFriend(name, friend -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * <p>Fills the page with the next batch of the user's friends. Start with a cursor of 0, then keep passing in
+     * {@link FriendPage#nextCursor()} until {@link FriendPage#hasMore()} is false. The same page can be reused each
+     * time, so paging through someone's friends doesn't allocate anything.</p>
+     *
+     * <p>If the network is changed between pages, friends might be missed out or repeated.</p>
+     */
+    default void friendsPage(String name, long cursor, FriendPage page) {
+        // works for anything, but has to go through every friend to get to the cursor - and there's no way to break
+        // out of forEachFriend, so once the page is full the rest are just ignored
+        page.clear();
+        long[] index = new long[1];
+
+        forEachFriend(name, friend -> {
+            if (!page.hasMore() && index[0]++ >= cursor && !page.add(friend))
+                page.setNextCursor(cursor + page.size());
+        });
+    }
+
+    /**
+     * @return roughly how many bytes of heap the network takes up, including the names it holds (see
+     * {@link HeapSize} for how it's worked out)
+     * @throws UnsupportedOperationException if this network can't work out its size
+     */
+    default long memoryFootprint() {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " can't measure its memory");
+    }
+
+    /**
+     * <p>Finds the first few users (in {@link String#compareTo} order) whose names start with the prefix, eg. for
+     * autocomplete.</p>
+     *
+     * <p>Networks that keep their users sorted find the first match with a binary search and then just read off the
+     * next few, in O(log(users) + |prefix| + limit). This default has to go through every user instead (keeping the
+     * best {@code limit} in a heap), and throws the same as {@link #forEachUser(Consumer)} if it can't.</p>
+     *
+     * @throws IllegalArgumentException if the limit is negative
+     */
+    default List<String> findUsersByPrefix(String prefix, int limit) {
+        Objects.requireNonNull(prefix);
+
+        if (limit < 0)
+            throw new IllegalArgumentException("Illegal limit: " + limit);
+
+        // largest at the top, so it's the one thrown out when something smaller turns up
+        PriorityQueue<String> best = new PriorityQueue<>(Collections.reverseOrder());
+
+        forEachUser(name -> {
+            if (limit > 0 && name.startsWith(prefix) && (best.size() < limit || name.compareTo(best.peek()) < 0)) {
+                best.add(name);
+
+                if (best.size() > limit)
+                    best.poll();
+            }
+        });
+
+        List<String> found = new ArrayList<>(best);
+        Collections.sort(found);
+        return found;
+    }
+
+    /**
+     * Same as {@link #findUsersByPrefix(String, int)}, except that the caller's friends come first (still in order),
+     * followed by everyone else. This has to go through all of the caller's friends, so it's O(friends) on top.
+     */
+    default List<String> findUsersByPrefix(String prefix, int limit, String caller) {
+        Objects.requireNonNull(prefix);
+
+        if (limit < 0)
+            throw new IllegalArgumentException("Illegal limit: " + limit);
+
+        List<String> found = new ArrayList<>();
+        forEachFriend(caller, friend -> {
+            if (friend.startsWith(prefix))
+                found.add(friend);
+        });
+        Collections.sort(found);
+
+        if (found.size() >= limit)
+            return new ArrayList<>(found.subList(0, limit));
+
+        int friends = found.size();
+
+        // enough extra to make up for the friends coming up again
+        for (String name : findUsersByPrefix(prefix, (int) Math.min(Integer.MAX_VALUE, (long) limit + friends))) {
+            if (found.size() < limit && Collections.binarySearch(found.subList(0, friends), name) < 0)
+                found.add(name);
+        }
+        return found;
+    }
 }
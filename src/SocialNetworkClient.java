@@ -0,0 +1,223 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Client for {@link SocialNetworkServer}. It can be used as a normal {@link SocialNetwork}, in which case every call
+ * waits for its answer, or through the {@code ...Async} methods, which send the request straight away and return a
+ * future - so lots of requests can be in flight on the one connection at once.</p>
+ *
+ * <p>Since the server answers requests in the order they were sent, the futures are just kept in a queue, and a
+ * background thread reads the responses and completes them from the front. This class is thread-safe.</p>
+ */
+public class SocialNetworkClient implements SocialNetwork, AutoCloseable {
+
+    private final SocketChannel channel;
+
+    private final Thread reader;
+
+    private final ConcurrentLinkedQueue<Pending> pending = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger nextRequestId = new AtomicInteger();
+
+    private final Object writeLock = new Object();
+
+    private volatile boolean closed;
+
+
+    public SocialNetworkClient(String host, int port) throws IOException {
+        this.channel = SocketChannel.open(new InetSocketAddress(host, port));
+        this.channel.socket().setTcpNoDelay(true);
+        this.reader = new Thread(this::readResponses, "social-network-client-reader");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    /* ============================ BLOCKING ============================ */
+
+    @Override
+    public void registerUser(String name) {
+        registerUserAsync(name).join();
+    }
+
+    @Override
+    public void becomeFriends(String name1, String name2) {
+        becomeFriendsAsync(name1, name2).join();
+    }
+
+    @Override
+    public boolean areTheyFriends(String name1, String name2) {
+        return areTheyFriendsAsync(name1, name2).join();
+    }
+
+    @Override
+    public void unfriend(String name1, String name2) {
+        send(SocialNetworkProtocol.request(SocialNetworkProtocol.UNFRIEND, nextRequestId(), name1, name2)).join();
+    }
+
+    @Override
+    public void removeUser(String name) {
+        send(SocialNetworkProtocol.request(SocialNetworkProtocol.REMOVE_USER, nextRequestId(), name)).join();
+    }
+
+    @Override
+    public boolean containsUser(String name) {
+        return send(SocialNetworkProtocol.request(SocialNetworkProtocol.CONTAINS_USER, nextRequestId(), name))
+                .thenApply(response -> response.get() == 1)
+                .join();
+    }
+
+    /* ============================ ASYNC ============================ */
+
+    public CompletableFuture<Void> registerUserAsync(String name) {
+        return send(SocialNetworkProtocol.request(SocialNetworkProtocol.REGISTER_USER, nextRequestId(), name))
+                .thenApply(response -> null);
+    }
+
+    public CompletableFuture<Void> becomeFriendsAsync(String name1, String name2) {
+        return send(SocialNetworkProtocol.request(SocialNetworkProtocol.BECOME_FRIENDS, nextRequestId(), name1, name2))
+                .thenApply(response -> null);
+    }
+
+    public CompletableFuture<Boolean> areTheyFriendsAsync(String name1, String name2) {
+        return send(SocialNetworkProtocol.request(SocialNetworkProtocol.ARE_THEY_FRIENDS, nextRequestId(), name1, name2))
+                .thenApply(response -> response.get() == 1);
+    }
+
+    /**
+     * Makes each pair {@code (names1[i], names2[i])} friends, in one request.
+     */
+    public CompletableFuture<Void> becomeFriendsBatch(String[] names1, String[] names2) {
+        return send(SocialNetworkProtocol.batchRequest(SocialNetworkProtocol.BATCH_BECOME_FRIENDS, nextRequestId(),
+                names1, names2)).thenApply(response -> null);
+    }
+
+    /**
+     * Checks whether each pair {@code (names1[i], names2[i])} are friends, in one request.
+     *
+     * @return a future of an array, where element i is the answer for pair i
+     */
+    public CompletableFuture<boolean[]> areTheyFriendsBatch(String[] names1, String[] names2) {
+        return send(SocialNetworkProtocol.batchRequest(SocialNetworkProtocol.BATCH_ARE_THEY_FRIENDS, nextRequestId(),
+                names1, names2)).thenApply(response -> {
+            boolean[] results = new boolean[response.getInt()];
+
+            for (int i = 0; i < results.length; i++)
+                results[i] = response.get() == 1;
+
+            return results;
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        channel.close();
+        failAll(new IOException("Client closed"));
+    }
+
+    private int nextRequestId() {
+        return nextRequestId.getAndIncrement();
+    }
+
+    /**
+     * @return a future of the response payload
+     */
+    private CompletableFuture<ByteBuffer> send(ByteBuffer frame) {
+        Pending request = new Pending(frame.getInt(4 + 1));
+
+        synchronized (writeLock) {
+            if (closed) {
+                request.future.completeExceptionally(new IOException("Client closed"));
+                return request.future;
+            }
+
+            pending.add(request); // has to be queued in the same order it's written
+
+            try {
+                while (frame.hasRemaining())
+                    channel.write(frame);
+            } catch (IOException e) {
+                // half a frame might have gone out, so the connection can't be trusted any more
+                closed = true;
+                closeQuietly();
+                failAll(e);
+            }
+        }
+        return request.future;
+    }
+
+    private void readResponses() {
+        ByteBuffer header = ByteBuffer.allocate(4);
+
+        try {
+            while (!closed) {
+                header.clear();
+                readFully(header);
+                int length = header.flip().getInt();
+
+                if (length < SocialNetworkProtocol.RESPONSE_HEADER_SIZE || length > SocialNetworkProtocol.MAX_FRAME_SIZE)
+                    throw new IOException("Illegal frame length: " + length);
+
+                ByteBuffer frame = ByteBuffer.allocate(length);
+                readFully(frame);
+                frame.flip();
+
+                int requestId = frame.getInt();
+                byte status = frame.get();
+                Pending request = pending.poll();
+
+                if (request == null || request.requestId != requestId)
+                    throw new IOException("Response " + requestId + " doesn't match any request");
+
+                if (status == SocialNetworkProtocol.STATUS_OK)
+                    request.future.complete(frame);
+                else
+                    request.future.completeExceptionally(
+                            new IllegalStateException("Server error: " + SocialNetworkProtocol.getString(frame)));
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                closed = true;
+                closeQuietly();
+                failAll(e);
+            }
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // closing anyway
+        }
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            if (channel.read(buffer) < 0)
+                throw new IOException("Connection closed by server");
+    }
+
+    private void failAll(Exception e) {
+        Pending request;
+
+        while ((request = pending.poll()) != null)
+            request.future.completeExceptionally(e);
+    }
+
+    private static class Pending {
+
+        private final int requestId;
+
+        private final CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+
+        public Pending(int requestId) {
+            this.requestId = requestId;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Load generator for {@link SocialNetworkServer}. It opens a number of connections, and keeps up to
+ * {@link #pipelineDepth} requests in flight on each of them, then reports the throughput and latency percentiles.</p>
+ *
+ * <p>Usage: {@code SocialNetworkLoadGenerator [connections] [pipelineDepth] [seconds] [host port]}. Without a host and
+ * port, a server backed by {@link DNABookJavaImpl} is started in this process.</p>
+ */
+public class SocialNetworkLoadGenerator {
+
+    static final int DEFAULT_CONNECTIONS = 4;
+
+    static final int DEFAULT_PIPELINE_DEPTH = 64;
+
+    static final int DEFAULT_SECONDS = 5;
+
+    static final int USERS = 10_000;
+
+    static final double READ_RATIO = 0.9;
+
+    private final int connections;
+
+    private final int pipelineDepth;
+
+    private final int seconds;
+
+    private final InstrumentedSocialNetwork.LatencyHistogram latencies = new InstrumentedSocialNetwork.LatencyHistogram();
+
+    private final LongAdder errors = new LongAdder();
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CONNECTIONS;
+        int pipelineDepth = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PIPELINE_DEPTH;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SECONDS;
+
+        SocialNetworkLoadGenerator generator = new SocialNetworkLoadGenerator(connections, pipelineDepth, seconds);
+
+        if (args.length > 4) {
+            generator.run(args[3], Integer.parseInt(args[4]));
+        } else {
+            try (SocialNetworkServer server = new SocialNetworkServer(new DNABookJavaImpl(), 0)) {
+                server.start();
+                generator.run("localhost", server.getPort());
+            }
+        }
+    }
+
+    public SocialNetworkLoadGenerator(int connections, int pipelineDepth, int seconds) {
+        this.connections = connections;
+        this.pipelineDepth = pipelineDepth;
+        this.seconds = seconds;
+    }
+
+    public void run(String host, int port) throws IOException, InterruptedException {
+        try (SocialNetworkClient setup = new SocialNetworkClient(host, port)) {
+            for (int i = 0; i < USERS; i++)
+                setup.registerUserAsync(name(i));
+
+            setup.registerUser(name(0)); // waits for everything before it
+        }
+
+        List<Thread> threads = new ArrayList<>();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+
+        for (int i = 0; i < connections; i++) {
+            SocialNetworkClient client = new SocialNetworkClient(host, port);
+            Thread thread = new Thread(() -> drive(client, deadline), "load-generator-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads)
+            thread.join();
+
+        InstrumentedSocialNetwork.LatencyHistogram.Summary summary = latencies.summarise();
+        System.out.printf(Locale.ROOT, "%d connections x %d in flight for %ds: %,.0f requests/s, p50 %dus, p99 %dus, "
+                        + "p99.9 %dus, max %dus, %d errors%n", connections, pipelineDepth, seconds,
+                summary.count / (double) seconds, summary.p50 / 1000, summary.p99 / 1000, summary.p999 / 1000,
+                summary.max / 1000, errors.sum());
+    }
+
+    private void drive(SocialNetworkClient client, long deadline) {
+        Semaphore inFlight = new Semaphore(pipelineDepth);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        try (client) {
+            while (System.nanoTime() < deadline) {
+                inFlight.acquireUninterruptibly();
+
+                String name1 = name(random.nextInt(USERS));
+                String name2 = name(random.nextInt(USERS));
+                long start = System.nanoTime();
+
+                (random.nextDouble() < READ_RATIO
+                        ? client.areTheyFriendsAsync(name1, name2)
+                        : client.becomeFriendsAsync(name1, name2))
+                        .whenComplete((result, error) -> {
+                            latencies.record(System.nanoTime() - start);
+
+                            if (error != null)
+                                errors.increment();
+
+                            inFlight.release();
+                        });
+            }
+
+            inFlight.acquireUninterruptibly(pipelineDepth); // wait for the stragglers
+        } catch (IOException e) {
+            errors.increment();
+        }
+    }
+
+    private static String name(int i) {
+        return "user" + i;
+    }
+}
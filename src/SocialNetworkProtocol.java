@@ -0,0 +1,145 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>The binary protocol spoken between {@link SocialNetworkServer} and {@link SocialNetworkClient}.</p>
+ *
+ *
+ * ======= FRAMES =======
+ *
+ * <p>Every message is a frame, which is an int length followed by that many bytes. All numbers are big endian.</p>
+ *
+ * <pre>
+ * request:  [int length] [byte opcode] [int requestId] [payload...]
+ * response: [int length] [int requestId] [byte status] [payload...]
+ * </pre>
+ *
+ * <p>Strings are a short length followed by that many bytes of UTF-8. The payload of each request is:</p>
+ *
+ * <ul>
+ *     <li>{@link #REGISTER_USER}, {@link #REMOVE_USER}, {@link #CONTAINS_USER} - one string</li>
+ *     <li>{@link #BECOME_FRIENDS}, {@link #ARE_THEY_FRIENDS}, {@link #UNFRIEND} - two strings</li>
+ *     <li>{@link #BATCH_BECOME_FRIENDS}, {@link #BATCH_ARE_THEY_FRIENDS} - an int count, then that many pairs of
+ *     strings</li>
+ * </ul>
+ *
+ * <p>Responses to {@link #ARE_THEY_FRIENDS} and {@link #CONTAINS_USER} have a single byte (0 or 1) as their payload,
+ * and {@link #BATCH_ARE_THEY_FRIENDS} has an int count followed by one byte per pair. Everything else has no payload.
+ * If the status is {@link #STATUS_ERROR}, the payload is a string describing what went wrong.</p>
+ *
+ *
+ * ======= PIPELINING =======
+ *
+ * <p>A client can send as many requests as it likes without waiting for the responses. The server always answers the
+ * requests from one connection in the order they were sent, and the request id is echoed back so the client can check
+ * it's matching things up properly.</p>
+ */
+public final class SocialNetworkProtocol {
+
+    public static final byte REGISTER_USER = 1;
+
+    public static final byte BECOME_FRIENDS = 2;
+
+    public static final byte ARE_THEY_FRIENDS = 3;
+
+    public static final byte UNFRIEND = 4;
+
+    public static final byte REMOVE_USER = 5;
+
+    public static final byte CONTAINS_USER = 6;
+
+    public static final byte BATCH_BECOME_FRIENDS = 7;
+
+    public static final byte BATCH_ARE_THEY_FRIENDS = 8;
+
+    public static final byte STATUS_OK = 0;
+
+    public static final byte STATUS_ERROR = 1;
+
+    /**
+     * The biggest frame either side will accept - anything bigger is treated as a broken connection.
+     */
+    public static final int MAX_FRAME_SIZE = 1 << 20;
+
+    public static final int REQUEST_HEADER_SIZE = 1 + 4;
+
+    public static final int RESPONSE_HEADER_SIZE = 4 + 1;
+
+    private SocialNetworkProtocol() {
+    }
+
+    public static byte[] encode(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+
+        if (bytes.length > Short.MAX_VALUE)
+            throw new IllegalArgumentException("String too long: " + bytes.length + " bytes");
+
+        return bytes;
+    }
+
+    public static void putString(ByteBuffer buffer, byte[] encoded) {
+        buffer.putShort((short) encoded.length);
+        buffer.put(encoded);
+    }
+
+    public static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort();
+
+        if (length < 0 || length > buffer.remaining())
+            throw new IllegalArgumentException("Illegal string length: " + length);
+
+        String s = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return s;
+    }
+
+    /**
+     * Builds a complete request frame, length prefix included, ready to be written.
+     */
+    public static ByteBuffer request(byte opcode, int requestId, String... strings) {
+        byte[][] encoded = new byte[strings.length][];
+        int size = REQUEST_HEADER_SIZE;
+
+        for (int i = 0; i < strings.length; i++) {
+            encoded[i] = encode(strings[i]);
+            size += 2 + encoded[i].length;
+        }
+
+        ByteBuffer frame = ByteBuffer.allocate(4 + size);
+        frame.putInt(size).put(opcode).putInt(requestId);
+
+        for (byte[] bytes : encoded)
+            putString(frame, bytes);
+
+        return frame.flip();
+    }
+
+    /**
+     * Builds a complete batch request frame from two arrays of names, where pair i is {@code (names1[i], names2[i])}.
+     */
+    public static ByteBuffer batchRequest(byte opcode, int requestId, String[] names1, String[] names2) {
+        if (names1.length != names2.length)
+            throw new IllegalArgumentException("Batch arrays are different lengths: " + names1.length + " and "
+                    + names2.length);
+
+        byte[][] encoded = new byte[names1.length * 2][];
+        int size = REQUEST_HEADER_SIZE + 4;
+
+        for (int i = 0; i < names1.length; i++) {
+            encoded[i * 2] = encode(names1[i]);
+            encoded[i * 2 + 1] = encode(names2[i]);
+            size += 4 + encoded[i * 2].length + encoded[i * 2 + 1].length;
+        }
+
+        if (size > MAX_FRAME_SIZE)
+            throw new IllegalArgumentException("Batch too big: " + size + " bytes - split it up!");
+
+        ByteBuffer frame = ByteBuffer.allocate(4 + size);
+        frame.putInt(size).put(opcode).putInt(requestId).putInt(names1.length);
+
+        for (byte[] bytes : encoded)
+            putString(frame, bytes);
+
+        return frame.flip();
+    }
+}
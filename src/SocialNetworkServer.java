@@ -0,0 +1,329 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * <p>Serves a {@link SocialNetwork} over TCP, using the protocol in {@link SocialNetworkProtocol}.</p>
+ *
+ *
+ * ======= IMPLEMENTATION =======
+ *
+ * <p>Everything happens on one thread with an NIO {@link Selector}. When a connection has data, as many complete
+ * frames as have arrived are handled one after the other, and all of their responses are put in the connection's
+ * output buffer and written in one go. A client that pipelines lots of requests therefore gets lots of responses per
+ * system call.</p>
+ *
+ * <p>Because only the selector thread ever touches the network, it doesn't need to be thread-safe - any of the
+ * backends can be served as they are.</p>
+ *
+ *
+ * ======= NOTES =======
+ *
+ * <p>If a client sends a frame bigger than {@link SocialNetworkProtocol#MAX_FRAME_SIZE}, or a frame that can't be
+ * read, the connection is closed - there's no way of knowing where the next frame would start.</p>
+ *
+ * <p>Errors from the network itself (eg. the {@link NullPointerException} {@link DNABookHashImpl} throws for null
+ * names) are sent back as an error response rather than closing the connection.</p>
+ */
+public class SocialNetworkServer implements AutoCloseable {
+
+    static final int DEFAULT_PORT = 7420;
+
+    static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final SocialNetwork network;
+
+    private final Selector selector;
+
+    private final ServerSocketChannel serverChannel;
+
+    private final Thread thread;
+
+    private volatile boolean running;
+
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+
+        SocialNetworkServer server = new SocialNetworkServer(new DNABookJavaImpl(), port);
+        server.start();
+        System.out.println("Serving on port " + server.getPort());
+    }
+
+    /**
+     * @param port the port to listen on, or 0 to pick any free one
+     */
+    public SocialNetworkServer(SocialNetwork network, int port) throws IOException {
+        this.network = Objects.requireNonNull(network);
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(new InetSocketAddress(port));
+        this.serverChannel.configureBlocking(false);
+        this.serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        this.thread = new Thread(this::run, "social-network-server");
+    }
+
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (SelectionKey key : selector.keys())
+            key.channel().close();
+
+        selector.close();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+
+                try {
+                    if (!key.isValid())
+                        continue;
+
+                    if (key.isAcceptable())
+                        accept();
+
+                    if (key.isValid() && key.isReadable())
+                        read(key);
+
+                    if (key.isValid() && key.isWritable())
+                        write(key);
+                } catch (IOException | RuntimeException e) {
+                    closeQuietly(key);
+                }
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+
+        if (channel == null)
+            return;
+
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        channel.register(selector, SelectionKey.OP_READ, new Connection());
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+
+        if (channel.read(connection.in) < 0) {
+            closeQuietly(key);
+            return;
+        }
+
+        connection.in.flip();
+
+        while (connection.in.remaining() >= 4) {
+            int length = connection.in.getInt(connection.in.position());
+
+            if (length < SocialNetworkProtocol.REQUEST_HEADER_SIZE || length > SocialNetworkProtocol.MAX_FRAME_SIZE)
+                throw new IOException("Illegal frame length: " + length);
+
+            if (connection.in.remaining() < 4 + length) {
+                connection.ensureInCapacity(4 + length);
+                break;
+            }
+
+            connection.in.position(connection.in.position() + 4);
+            ByteBuffer frame = connection.in.slice().limit(length);
+            connection.in.position(connection.in.position() + length);
+
+            handle(frame, connection);
+        }
+
+        connection.in.compact();
+        write(key);
+    }
+
+    private void write(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+
+        connection.out.flip();
+        ((SocketChannel) key.channel()).write(connection.out);
+        connection.out.compact();
+
+        // only ask to be told about writability while there's something left to write
+        key.interestOps(connection.out.position() > 0
+                ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+                : SelectionKey.OP_READ);
+    }
+
+    private void handle(ByteBuffer frame, Connection connection) {
+        byte opcode = frame.get();
+        int requestId = frame.getInt();
+        int responseStart = connection.out.position();
+
+        try {
+            switch (opcode) {
+                case SocialNetworkProtocol.REGISTER_USER:
+                    network.registerUser(SocialNetworkProtocol.getString(frame));
+                    connection.respond(requestId, SocialNetworkProtocol.STATUS_OK, 0);
+                    break;
+
+                case SocialNetworkProtocol.BECOME_FRIENDS:
+                    network.becomeFriends(SocialNetworkProtocol.getString(frame), SocialNetworkProtocol.getString(frame));
+                    connection.respond(requestId, SocialNetworkProtocol.STATUS_OK, 0);
+                    break;
+
+                case SocialNetworkProtocol.ARE_THEY_FRIENDS: {
+                    boolean friends = network.areTheyFriends(SocialNetworkProtocol.getString(frame),
+                            SocialNetworkProtocol.getString(frame));
+                    connection.respond(requestId, SocialNetworkProtocol.STATUS_OK, 1).put((byte) (friends ? 1 : 0));
+                    break;
+                }
+
+                case SocialNetworkProtocol.UNFRIEND:
+                    network.unfriend(SocialNetworkProtocol.getString(frame), SocialNetworkProtocol.getString(frame));
+                    connection.respond(requestId, SocialNetworkProtocol.STATUS_OK, 0);
+                    break;
+
+                case SocialNetworkProtocol.REMOVE_USER:
+                    network.removeUser(SocialNetworkProtocol.getString(frame));
+                    connection.respond(requestId, SocialNetworkProtocol.STATUS_OK, 0);
+                    break;
+
+                case SocialNetworkProtocol.CONTAINS_USER: {
+                    boolean contains = network.containsUser(SocialNetworkProtocol.getString(frame));
+                    connection.respond(requestId, SocialNetworkProtocol.STATUS_OK, 1).put((byte) (contains ? 1 : 0));
+                    break;
+                }
+
+                case SocialNetworkProtocol.BATCH_BECOME_FRIENDS: {
+                    int count = frame.getInt();
+
+                    if (count < 0 || count > frame.remaining() / 4) // every pair is at least 4 bytes
+                        throw new IllegalArgumentException("Illegal batch count: " + count);
+
+                    // read the whole batch first, so a broken one doesn't get half applied
+                    String[] names = new String[count * 2];
+                    for (int i = 0; i < names.length; i++)
+                        names[i] = SocialNetworkProtocol.getString(frame);
+
+                    for (int i = 0; i < names.length; i += 2)
+                        network.becomeFriends(names[i], names[i + 1]);
+
+                    connection.respond(requestId, SocialNetworkProtocol.STATUS_OK, 0);
+                    break;
+                }
+
+                case SocialNetworkProtocol.BATCH_ARE_THEY_FRIENDS: {
+                    int count = frame.getInt();
+
+                    if (count < 0 || count > frame.remaining() / 4) // every pair is at least 4 bytes
+                        throw new IllegalArgumentException("Illegal batch count: " + count);
+
+                    ByteBuffer response = connection.respond(requestId, SocialNetworkProtocol.STATUS_OK, 4 + count);
+                    response.putInt(count);
+
+                    for (int i = 0; i < count; i++) {
+                        boolean friends = network.areTheyFriends(SocialNetworkProtocol.getString(frame),
+                                SocialNetworkProtocol.getString(frame));
+                        response.put((byte) (friends ? 1 : 0));
+                    }
+                    break;
+                }
+
+                default:
+                    throw new IllegalArgumentException("Unknown opcode: " + opcode);
+            }
+        } catch (RuntimeException e) {
+            if (e instanceof BufferUnderflowException)
+                throw e; // the frame itself is broken, so give up on the connection
+
+            connection.out.position(responseStart); // throw away any half written response
+            byte[] message = SocialNetworkProtocol.encode(String.valueOf(e));
+            SocialNetworkProtocol.putString(
+                    connection.respond(requestId, SocialNetworkProtocol.STATUS_ERROR, 2 + message.length), message);
+        }
+    }
+
+    private void closeQuietly(SelectionKey key) {
+        key.cancel();
+
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+            // closing anyway
+        }
+    }
+
+    /**
+     * Buffers for one client connection.
+     */
+    private static class Connection {
+
+        private ByteBuffer in = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+        private ByteBuffer out = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+        /**
+         * Makes sure a whole frame of the given size will fit in the input buffer. Must be in read (flipped) mode.
+         */
+        void ensureInCapacity(int frameSize) {
+            if (frameSize <= in.capacity())
+                return;
+
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(frameSize, in.capacity() * 2));
+            grown.put(in);
+            grown.flip();
+            in = grown;
+        }
+
+        /**
+         * Writes the response header, and leaves room for a payload of the given size.
+         *
+         * @return the output buffer, positioned where the payload should go
+         */
+        ByteBuffer respond(int requestId, byte status, int payloadSize) {
+            int length = SocialNetworkProtocol.RESPONSE_HEADER_SIZE + payloadSize;
+
+            if (out.remaining() < 4 + length) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + 4 + length));
+                out.flip();
+                grown.put(out);
+                out = grown;
+            }
+
+            return out.putInt(length).putInt(requestId).put(status);
+        }
+    }
+}
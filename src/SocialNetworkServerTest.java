@@ -0,0 +1,91 @@
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Executable class to test SocialNetworkServer and SocialNetworkClient talking to each other.
+ */
+public class SocialNetworkServerTest {
+
+    public static void main(String[] args) throws IOException {
+        try (SocialNetworkServer server = new SocialNetworkServer(new DNABookHashImpl(), 0)) {
+            server.start();
+
+            try (SocialNetworkClient s = new SocialNetworkClient("localhost", server.getPort())) {
+                s.registerUser("Alex");
+                s.registerUser("Bea");
+                s.registerUser("Chris");
+                s.registerUser("Daniel");
+
+                s.becomeFriends("Alex", "Chris");
+
+                System.out.println(s.areTheyFriends("Alex", "Chris") + " should be true");
+                System.out.println(s.areTheyFriends("Alex", "Bea") + " should be false");
+                System.out.println(s.containsUser("Ed") + " should be false");
+                System.out.println();
+
+                s.becomeFriendsBatch(new String[]{"Bea", "Chris"}, new String[]{"Daniel", "Daniel"}).join();
+                boolean[] batch = s.areTheyFriendsBatch(new String[]{"Daniel", "Daniel", "Alex"},
+                        new String[]{"Bea", "Chris", "Daniel"}).join();
+                System.out.println(Arrays.toString(batch) + " should be [true, true, false]");
+
+                // pipelined - none of these wait for the one before
+                s.unfriend("Alex", "Chris");
+                boolean[] pipelined = new boolean[3];
+                s.areTheyFriendsAsync("Alex", "Chris").thenAccept(r -> pipelined[0] = r);
+                s.areTheyFriendsAsync("Bea", "Daniel").thenAccept(r -> pipelined[1] = r);
+                s.areTheyFriendsAsync("Chris", "Daniel").thenAccept(r -> pipelined[2] = r).join();
+                System.out.println(Arrays.toString(pipelined) + " should be [false, true, true]");
+                System.out.println();
+
+                try {
+                    s.areTheyFriends("Alex", "\u0000null"); // fine - just a strange name
+                    s.registerUser("");
+                    System.out.println(s.containsUser("") + " should be true");
+                } catch (RuntimeException e) {
+                    System.out.println(e + " should not happen");
+                }
+                System.out.println();
+
+                // a batch claiming more pairs than it has - nothing in it should be applied
+                ByteBuffer frame = SocialNetworkProtocol.batchRequest(SocialNetworkProtocol.BATCH_BECOME_FRIENDS, 1,
+                        new String[]{"Alex"}, new String[]{"Bea"});
+                frame.putInt(4 + SocialNetworkProtocol.REQUEST_HEADER_SIZE, 1000);
+                System.out.println(sendRaw(server.getPort(), frame) + " should be " + SocialNetworkProtocol.STATUS_ERROR);
+
+                frame.putInt(4 + SocialNetworkProtocol.REQUEST_HEADER_SIZE, -1);
+                System.out.println(sendRaw(server.getPort(), frame) + " should be " + SocialNetworkProtocol.STATUS_ERROR);
+
+                // two pairs claimed and there's room for them, but the second one is cut off
+                frame.putInt(4 + SocialNetworkProtocol.REQUEST_HEADER_SIZE, 2);
+                System.out.println(sendRaw(server.getPort(), frame) + " should be -1");
+                System.out.println(s.areTheyFriends("Alex", "Bea") + " should be false");
+            }
+        }
+    }
+
+    /**
+     * Sends a hand made frame on its own connection.
+     *
+     * @return the status of the response, or -1 if the server hung up instead
+     */
+    private static int sendRaw(int port, ByteBuffer frame) throws IOException {
+        try (Socket socket = new Socket("localhost", port)) {
+            OutputStream out = socket.getOutputStream();
+            out.write(frame.array(), 0, frame.limit());
+            out.flush();
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            try {
+                in.readInt(); // length
+                in.readInt(); // request id
+                return in.readByte();
+            } catch (IOException e) {
+                return -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,613 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * <p>A thread-safe {@link SocialNetwork} that can hand out {@link Snapshot}s - consistent, read-only views of the
+ * network as it was at one moment, which can be read for as long as needed without ever blocking (or being blocked
+ * by) writers.</p>
+ *
+ *
+ * ======= IMPLEMENTATION =======
+ *
+ * <p>Every user has an int id and a row, which is a sorted {@code int[]} of their friends' ids. Rows are never changed
+ * once they've been made. A write makes new copies of the (at most two) rows it touches, and links each new row to
+ * the one it replaces, so every user has a chain of rows going back in time, newest first.</p>
+ *
+ * <p>Every write also bumps the version number. Each row remembers the version it was made in, so the network as it
+ * was at version v is found by following each user's chain back to the first row made at or before v. All a snapshot
+ * has to do is remember which version it is - taking one is O(1), and nothing is copied.</p>
+ *
+ * <p>After each write, everything readers need (the version, the rows array and the counts) is published in one go
+ * by swapping a single volatile {@link State} reference, so readers never need a lock. The rows array is shared
+ * between states (it's only copied when it grows) and changed in place, so it's an {@link AtomicReferenceArray} - a
+ * reader that sees a row also sees everything written before it, like the names of the friends in it.</p>
+ *
+ * <p>Reads straight on the network (rather than on a snapshot) just use each user's newest row. They don't need to
+ * see one moment, so there's no version to walk back to - which matters, because they aren't counted in
+ * {@link #readers}, so the rows they'd walk back to could have been cut off already. Each read only looks at a user's
+ * row once, so it can't see the user there and then gone.</p>
+ *
+ *
+ * ======= RECLAIMING OLD ROWS =======
+ *
+ * <p>Old rows are only kept while a snapshot might still need them. Open snapshots are counted by version in
+ * {@link #readers}. When a writer replaces a row, it works out the oldest version anyone could still be reading and
+ * cuts the chain off after the first row that's at least that old - anything further back can't be reached by any
+ * snapshot.</p>
+ *
+ * <p>There's a race here: a snapshot could read the version, then a writer could decide no one is reading it and cut
+ * its rows off, and only then would the snapshot register itself. To catch this, writers publish how far back they
+ * might have cut in {@link #reclaimedUpTo} BEFORE looking at the readers, and snapshots check it AFTER registering. If
+ * a snapshot finds its version has already been reclaimed it just tries again with the latest version.</p>
+ *
+ *
+ * ======= NOTES =======
+ *
+ * <p>Snapshots need to be closed (they're {@link AutoCloseable}), otherwise every row written since they were taken
+ * is kept forever.</p>
+ *
+ * <p>Old rows are only dropped when their user's row is next written, so a user whose friends never change again
+ * keeps any old rows they had. There are never more of these than there were writes, though.</p>
+ *
+ * <p>Copying a row is O(friends), so adding friends to someone who already has thousands is slower than with a hash
+ * set. Writers are queued up one at a time on {@link #writerLock}.</p>
+ *
+ * <p>Ids aren't reused - a removed user keeps their id (with an empty row), and gets it back if they're registered
+ * again. Null names aren't supported.</p>
+ */
+public class VersionedSocialNetwork implements SocialNetwork {
+
+    private static final int[] NO_FRIENDS = new int[0];
+
+    /**
+     * The version live reads use - newer than any row, so {@link #rowAt(State, int, long)} always gives the newest.
+     */
+    private static final long LATEST = Long.MAX_VALUE;
+
+    private final ReentrantLock writerLock = new ReentrantLock();
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+    /**
+     * Open snapshots, as version -> how many are open at that version.
+     */
+    private final ConcurrentSkipListMap<Long, Integer> readers = new ConcurrentSkipListMap<>();
+
+    private volatile long reclaimedUpTo;
+
+    private volatile State state = new State(0, new AtomicReferenceArray<>(16), new String[16], 0, 0);
+
+    // only touched by whoever holds writerLock
+
+    private AtomicReferenceArray<Row> rows = state.rows;
+
+    private String[] names = state.names;
+
+    private int nextId;
+
+    private int userCount;
+
+    private long friendshipCount;
+
+
+    @Override
+    public void registerUser(String name) {
+        Objects.requireNonNull(name);
+
+        writerLock.lock();
+        try {
+            Integer existing = ids.get(name);
+            int id;
+
+            if (existing != null) {
+                id = existing;
+                if (rows.get(id).friends != null)
+                    return;
+            } else {
+                id = nextId++;
+
+                if (id == rows.length()) {
+                    AtomicReferenceArray<Row> grown = new AtomicReferenceArray<>(id * 2);
+                    for (int i = 0; i < id; i++)
+                        grown.set(i, rows.get(i));
+
+                    rows = grown;
+                    names = Arrays.copyOf(names, id * 2);
+                }
+                names[id] = name;
+            }
+
+            long version = state.version + 1;
+            writeRow(id, NO_FRIENDS, version, oldestReader());
+            ids.put(name, id);
+            userCount++;
+            publish(version);
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    @Override
+    public void becomeFriends(String name1, String name2) {
+        writerLock.lock();
+        try {
+            int id1 = getLiveId(name1);
+            int id2 = getLiveId(name2);
+
+            if (id1 == -1 || id2 == -1)
+                return;
+
+            int[] friends1 = rows.get(id1).friends;
+            int index1 = Arrays.binarySearch(friends1, id2);
+
+            if (index1 >= 0)
+                return;
+
+            long version = state.version + 1;
+            long oldest = oldestReader();
+
+            writeRow(id1, insert(friends1, -index1 - 1, id2), version, oldest);
+
+            if (id1 != id2) {
+                int[] friends2 = rows.get(id2).friends;
+                writeRow(id2, insert(friends2, -Arrays.binarySearch(friends2, id1) - 1, id1), version, oldest);
+            }
+
+            friendshipCount++;
+            publish(version);
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    @Override
+    public void unfriend(String name1, String name2) {
+        writerLock.lock();
+        try {
+            int id1 = getLiveId(name1);
+            int id2 = getLiveId(name2);
+
+            if (id1 == -1 || id2 == -1)
+                return;
+
+            int[] friends1 = rows.get(id1).friends;
+            int index1 = Arrays.binarySearch(friends1, id2);
+
+            if (index1 < 0)
+                return;
+
+            long version = state.version + 1;
+            long oldest = oldestReader();
+
+            writeRow(id1, delete(friends1, index1), version, oldest);
+
+            if (id1 != id2) {
+                int[] friends2 = rows.get(id2).friends;
+                writeRow(id2, delete(friends2, Arrays.binarySearch(friends2, id1)), version, oldest);
+            }
+
+            friendshipCount--;
+            publish(version);
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    @Override
+    public void removeUser(String name) {
+        writerLock.lock();
+        try {
+            int id = getLiveId(name);
+
+            if (id == -1)
+                return;
+
+            long version = state.version + 1;
+            long oldest = oldestReader();
+            int[] friends = rows.get(id).friends;
+
+            for (int friend : friends) {
+                if (friend != id) {
+                    int[] theirFriends = rows.get(friend).friends;
+                    writeRow(friend, delete(theirFriends, Arrays.binarySearch(theirFriends, id)), version, oldest);
+                }
+            }
+
+            writeRow(id, null, version, oldest);
+            friendshipCount -= friends.length;
+            userCount--;
+            publish(version);
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean areTheyFriends(String name1, String name2) {
+        return areTheyFriends(state, LATEST, name1, name2);
+    }
+
+    @Override
+    public boolean containsUser(String name) {
+        return userRow(state, LATEST, name) != null;
+    }
+
+    @Override
+    public void forEachUser(Consumer<String> consumer) {
+        forEachUser(state, LATEST, consumer);
+    }
+
+    @Override
+    public void forEachFriend(String name, Consumer<String> consumer) {
+        forEachFriend(state, LATEST, name, consumer);
+    }
+
+    @Override
+    public int friendCount(String name) {
+        return friendCount(state, LATEST, name);
+    }
+
+    @Override
+    public void friendsPage(String name, long cursor, FriendPage page) {
+        friendsPage(state, LATEST, name, cursor, page);
+    }
+
+    public int size() {
+        return state.userCount;
+    }
+
+    /**
+     * Takes a consistent, read-only view of the network as it is right now. It has to be closed once it's finished
+     * with.
+     */
+    public Snapshot snapshot() {
+        while (true) {
+            State current = state;
+            readers.merge(current.version, 1, Integer::sum);
+
+            if (current.version >= reclaimedUpTo)
+                return new Snapshot(current);
+
+            // a writer might have already thrown away rows from this version, so try again with a newer one
+            release(current.version);
+        }
+    }
+
+    /**
+     * @return how many snapshots are currently open
+     */
+    public int openSnapshots() {
+        int open = 0;
+
+        for (int count : readers.values())
+            open += count;
+
+        return open;
+    }
+
+    private void release(long version) {
+        readers.computeIfPresent(version, (v, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+     * Works out the oldest version a snapshot could still be reading. Must hold {@link #writerLock}.
+     */
+    private long oldestReader() {
+        long current = state.version;
+        reclaimedUpTo = current; // has to be written before readers is looked at - see the class comment
+
+        Map.Entry<Long, Integer> oldest = readers.firstEntry();
+        return oldest == null ? current : Math.min(oldest.getKey(), current);
+    }
+
+    /**
+     * Puts a new row for the user at the front of their chain, and cuts off any rows no one can reach any more.
+     */
+    private void writeRow(int id, int[] friends, long version, long oldestReader) {
+        Row previous = rows.get(id);
+        rows.set(id, new Row(version, friends, previous));
+
+        // keep everything newer than the oldest reader, plus the row they'd actually see
+        for (Row row = previous; row != null; row = row.older) {
+            if (row.version <= oldestReader) {
+                row.older = null;
+                break;
+            }
+        }
+    }
+
+    private void publish(long version) {
+        state = new State(version, rows, names, userCount, friendshipCount);
+    }
+
+    /**
+     * @return the id of a user currently in the network, or -1. Must hold {@link #writerLock}.
+     */
+    private int getLiveId(String name) {
+        Integer id = name == null ? null : ids.get(name);
+        return id != null && rows.get(id).friends != null ? id : -1;
+    }
+
+    /**
+     * Anyone in the first user's row was in the network at the same version, so the second user's row isn't needed.
+     */
+    private boolean areTheyFriends(State state, long version, String name1, String name2) {
+        Row row = userRow(state, version, name1);
+        Integer id2 = name2 == null ? null : ids.get(name2);
+        return row != null && id2 != null && Arrays.binarySearch(row.friends, id2) >= 0;
+    }
+
+    private static void forEachUser(State state, long version, Consumer<String> consumer) {
+        for (int id = 0; id < state.rows.length(); id++) {
+            Row row = rowAt(state, id, version);
+
+            if (row != null && row.friends != null)
+                consumer.accept(state.names[id]);
+        }
+    }
+
+    /**
+     * Friends come out in id order, which is the order they were first registered.
+     */
+    private void forEachFriend(State state, long version, String name, Consumer<String> consumer) {
+        Row row = userRow(state, version, name);
+
+        if (row != null)
+            for (int friend : row.friends)
+                consumer.accept(state.names[friend]);
+    }
+
+    private int friendCount(State state, long version, String name) {
+        Row row = userRow(state, version, name);
+        return row == null ? 0 : row.friends.length;
+    }
+
+    /**
+     * The cursor is the id of the friend to start from, which is found by binary searching the row.
+     */
+    private void friendsPage(State state, long version, String name, long cursor, FriendPage page) {
+        page.clear();
+        Row row = userRow(state, version, name);
+
+        if (row == null)
+            return;
+
+        int[] friends = row.friends;
+        int from = Arrays.binarySearch(friends, (int) Math.min(cursor, Integer.MAX_VALUE));
+
+        for (int i = from >= 0 ? from : -from - 1; i < friends.length; i++) {
+            if (!page.add(state.names[friends[i]])) {
+                page.setNextCursor(friends[i]);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the user's row if they were in the network at the given version, otherwise null
+     */
+    private Row userRow(State state, long version, String name) {
+        Integer id = name == null ? null : ids.get(name);
+
+        if (id == null)
+            return null;
+
+        Row row = rowAt(state, id, version);
+        return row != null && row.friends != null ? row : null;
+    }
+
+    /**
+     * @return the user's row as it was at the given version, or null if they didn't exist yet
+     */
+    private static Row rowAt(State state, int id, long version) {
+        if (id >= state.rows.length())
+            return null;
+
+        Row row = state.rows.get(id);
+
+        while (row != null && row.version > version)
+            row = row.older;
+
+        return row;
+    }
+
+    private static int[] insert(int[] friends, int index, int friend) {
+        int[] inserted = new int[friends.length + 1];
+        System.arraycopy(friends, 0, inserted, 0, index);
+        inserted[index] = friend;
+        System.arraycopy(friends, index, inserted, index + 1, friends.length - index);
+        return inserted;
+    }
+
+    private static int[] delete(int[] friends, int index) {
+        int[] deleted = new int[friends.length - 1];
+        System.arraycopy(friends, 0, deleted, 0, index);
+        System.arraycopy(friends, index + 1, deleted, index, deleted.length - index);
+        return deleted;
+    }
+
+    /**
+     * One version of a user's friends.
+     */
+    private static class Row {
+
+        private final long version;
+
+        /**
+         * Sorted friend ids, or null if the user was removed in this version.
+         */
+        private final int[] friends;
+
+        /**
+         * The version before this one. Not final, since it's cut off once no one can reach it - and volatile, since
+         * that happens while snapshots might be walking the chain.
+         */
+        private volatile Row older;
+
+        Row(long version, int[] friends, Row older) {
+            this.version = version;
+            this.friends = friends;
+            this.older = older;
+        }
+    }
+
+    /**
+     * Everything readers need, published together after each write.
+     */
+    private static class State {
+
+        private final long version;
+
+        private final AtomicReferenceArray<Row> rows;
+
+        private final String[] names;
+
+        private final int userCount;
+
+        private final long friendshipCount;
+
+        State(long version, AtomicReferenceArray<Row> rows, String[] names, int userCount, long friendshipCount) {
+            this.version = version;
+            this.rows = rows;
+            this.names = names;
+            this.userCount = userCount;
+            this.friendshipCount = friendshipCount;
+        }
+    }
+
+    /**
+     * <p>A read-only view of a {@link VersionedSocialNetwork} as it was when {@link #snapshot()} was called. Later
+     * writes to the network don't show up in it. The write methods throw {@link UnsupportedOperationException}, and
+     * using it after it's been closed throws {@link IllegalStateException}.</p>
+     *
+     * <p>Snapshots are thread-safe, so one snapshot can be scanned by several threads at once.</p>
+     */
+    public class Snapshot implements SocialNetwork, AutoCloseable {
+
+        private final State state;
+
+        private volatile boolean closed;
+
+        private Snapshot(State state) {
+            this.state = state;
+        }
+
+        @Override
+        public void registerUser(String name) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        @Override
+        public void becomeFriends(String name1, String name2) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        @Override
+        public void unfriend(String name1, String name2) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        @Override
+        public void removeUser(String name) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        @Override
+        public boolean areTheyFriends(String name1, String name2) {
+            checkOpen();
+            return VersionedSocialNetwork.this.areTheyFriends(state, state.version, name1, name2);
+        }
+
+        @Override
+        public boolean containsUser(String name) {
+            checkOpen();
+            return userRow(state, state.version, name) != null;
+        }
+
+        @Override
+        public void forEachFriend(String name, Consumer<String> consumer) {
+            checkOpen();
+            VersionedSocialNetwork.this.forEachFriend(state, state.version, name, consumer);
+        }
+
+        @Override
+        public int friendCount(String name) {
+            checkOpen();
+            return VersionedSocialNetwork.this.friendCount(state, state.version, name);
+        }
+
+        @Override
+        public void friendsPage(String name, long cursor, FriendPage page) {
+            checkOpen();
+            VersionedSocialNetwork.this.friendsPage(state, state.version, name, cursor, page);
+        }
+
+        public long getVersion() {
+            return state.version;
+        }
+
+        public int size() {
+            return state.userCount;
+        }
+
+        public long friendshipCount() {
+            return state.friendshipCount;
+        }
+
+        @Override
+        public void forEachUser(Consumer<String> consumer) {
+            checkOpen();
+            VersionedSocialNetwork.forEachUser(state, state.version, consumer);
+        }
+
+        /**
+         * Calls the consumer once for every friendship in the snapshot (not once in each direction).
+         */
+        public void forEachFriendship(BiConsumer<String, String> consumer) {
+            checkOpen();
+
+            for (int id = 0; id < state.rows.length(); id++) {
+                Row row = rowAt(state, id, state.version);
+
+                if (row == null || row.friends == null)
+                    continue;
+
+                // friends are sorted, so start at the first one that isn't before this user
+                int from = Arrays.binarySearch(row.friends, id);
+
+                for (int i = from >= 0 ? from : -from - 1; i < row.friends.length; i++)
+                    consumer.accept(state.names[id], state.names[row.friends[i]]);
+            }
+        }
+
+        /**
+         * Copies the snapshot into a {@link FrozenSocialNetwork}.
+         */
+        public FrozenSocialNetwork freeze() {
+            FrozenSocialNetwork.Builder builder = new FrozenSocialNetwork.Builder();
+            forEachUser(builder::addUser);
+            forEachFriendship(builder::addFriendship);
+            return builder.build();
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                release(state.version);
+            }
+        }
+
+        private void checkOpen() {
+            if (closed)
+                throw new IllegalStateException("Snapshot is closed");
+        }
+    }
+}
@@ -0,0 +1,166 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executable class to test the VersionedSocialNetwork, including snapshots staying consistent while it's written to.
+ */
+public class VersionedSocialNetworkTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        VersionedSocialNetwork s = new VersionedSocialNetwork();
+
+        s.registerUser("Alex");
+        s.registerUser("Bea");
+        s.registerUser("Chris");
+        s.becomeFriends("Alex", "Chris");
+
+        VersionedSocialNetwork.Snapshot before = s.snapshot();
+
+        s.becomeFriends("Alex", "Bea");
+        s.unfriend("Alex", "Chris");
+        s.registerUser("Daniel");
+        s.removeUser("Chris");
+
+        System.out.println(s.areTheyFriends("Bea", "Alex") + " should be true");
+        System.out.println(s.areTheyFriends("Alex", "Chris") + " should be false");
+        System.out.println(s.containsUser("Chris") + " should be false");
+        System.out.println(s.containsUser("Daniel") + " should be true");
+        System.out.println(s.size() + " should be 3");
+        System.out.println();
+
+        // the snapshot should still see things as they were
+        System.out.println(before.areTheyFriends("Chris", "Alex") + " should be true");
+        System.out.println(before.areTheyFriends("Alex", "Bea") + " should be false");
+        System.out.println(before.containsUser("Chris") + " should be true");
+        System.out.println(before.containsUser("Daniel") + " should be false");
+        System.out.println(before.size() + " should be 3");
+        System.out.println(before.friendshipCount() + " should be 1");
+        System.out.println();
+
+        // Chris coming back should get a fresh start, without changing the old snapshot
+        s.registerUser("Chris");
+        System.out.println(s.areTheyFriends("Alex", "Chris") + " should be false");
+        System.out.println(before.areTheyFriends("Alex", "Chris") + " should be true");
+
+        StringBuilder users = new StringBuilder();
+        before.forEachUser(name -> users.append(name).append(' '));
+        System.out.println(users + "should be Alex Bea Chris");
+
+        FrozenSocialNetwork frozen = before.freeze();
+        System.out.println(frozen.areTheyFriends("Alex", "Chris") + " should be true");
+        System.out.println(frozen.size() + " should be 3");
+
+        try {
+            before.becomeFriends("Alex", "Bea");
+            System.out.println("no exception - should have thrown UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            System.out.println("UnsupportedOperationException should be UnsupportedOperationException");
+        }
+
+        System.out.println(s.openSnapshots() + " should be 1");
+        before.close();
+        before.close(); // closing twice shouldn't matter
+        System.out.println(s.openSnapshots() + " should be 0");
+
+        try {
+            before.areTheyFriends("Alex", "Chris");
+            System.out.println("no exception - should have thrown IllegalStateException");
+        } catch (IllegalStateException e) {
+            System.out.println("IllegalStateException should be IllegalStateException");
+        }
+        System.out.println();
+
+        // scanning a snapshot should always see exactly the friendships it says it has, however much is being written
+        VersionedSocialNetwork shared = new VersionedSocialNetwork();
+        for (int i = 0; i < 500; i++)
+            shared.registerUser("u" + i);
+
+        Thread writer = new Thread(() -> {
+            for (int round = 0; round < 20; round++) {
+                for (int i = 0; i < 499; i++)
+                    shared.becomeFriends("u" + i, "u" + (i + 1));
+                for (int i = 0; i < 499; i++)
+                    shared.unfriend("u" + i, "u" + (i + 1));
+            }
+        });
+        writer.start();
+
+        boolean torn = false;
+        int scans = 0;
+
+        while (writer.isAlive()) {
+            try (VersionedSocialNetwork.Snapshot snapshot = shared.snapshot()) {
+                long[] seen = new long[1];
+                snapshot.forEachFriendship((name1, name2) -> seen[0]++);
+
+                // friendships are added in order and then removed in order, so whatever's there is one unbroken run
+                int first = -1;
+                int last = -1;
+                for (int i = 0; i < 499; i++) {
+                    if (snapshot.areTheyFriends("u" + i, "u" + (i + 1))) {
+                        if (first == -1)
+                            first = i;
+                        last = i;
+                    }
+                }
+
+                long run = first == -1 ? 0 : last - first + 1;
+                torn |= seen[0] != snapshot.friendshipCount() || run != snapshot.friendshipCount();
+                scans++;
+            }
+        }
+        writer.join();
+
+        System.out.println(torn + " should be false");
+        System.out.println((scans > 0) + " should be true");
+        System.out.println(shared.openSnapshots() + " should be 0");
+        System.out.println();
+
+        // reads straight on the network while one friendship is made and unmade over and over should never lose
+        // either user, or see more than one friend
+        VersionedSocialNetwork toggled = new VersionedSocialNetwork();
+        toggled.registerUser("Alex");
+        toggled.registerUser("Bea");
+
+        Thread toggler = new Thread(() -> {
+            for (int i = 0; i < 200_000; i++) {
+                toggled.becomeFriends("Alex", "Bea");
+                toggled.unfriend("Alex", "Bea");
+            }
+        });
+
+        AtomicInteger wrong = new AtomicInteger();
+        Thread[] readers = new Thread[3];
+
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                int[] friends = new int[1];
+
+                while (toggler.isAlive()) {
+                    try {
+                        friends[0] = 0;
+                        toggled.forEachFriend("Bea", name -> friends[0]++);
+
+                        if (!toggled.containsUser("Alex") || !toggled.containsUser("Bea")
+                                || toggled.friendCount("Alex") > 1 || friends[0] > 1)
+                            wrong.incrementAndGet();
+
+                        toggled.areTheyFriends("Alex", "Bea");
+                    } catch (RuntimeException e) {
+                        wrong.incrementAndGet();
+                    }
+                }
+            });
+        }
+
+        toggler.start();
+        for (Thread reader : readers)
+            reader.start();
+
+        toggler.join();
+        for (Thread reader : readers)
+            reader.join();
+
+        System.out.println(wrong.get() + " should be 0");
+        System.out.println(toggled.areTheyFriends("Alex", "Bea") + " should be false");
+    }
+}
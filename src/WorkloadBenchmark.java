@@ -0,0 +1,125 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * <p>Benchmarks the {@link SocialNetwork} backends against realistic workloads from {@link WorkloadGenerator}, rather
+ * than the handful of random names in {@link DNABookTestDetailed}.</p>
+ *
+ * <p>Usage: {@code WorkloadBenchmark [users] [seed]}. {@link DNABook} is only included for small networks, since its
+ * matrix needs users^2 bytes.</p>
+ */
+public class WorkloadBenchmark {
+
+    static final int DEFAULT_USERS = 20_000;
+
+    static final int EDGES_PER_USER = 8;
+
+    static final int MAX_MATRIX_USERS = 5_000;
+
+    static final long QUERIES = 1_000_000;
+
+    static final double READ_RATIO = 0.95;
+
+    static final double HIT_RATIO = 0.2;
+
+    static final double ZIPF_EXPONENT = 1.0;
+
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_USERS;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+
+        WorkloadGenerator generator = new WorkloadGenerator(seed);
+        int scale = 32 - Integer.numberOfLeadingZeros(users - 1);
+
+        Map<String, WorkloadGenerator.Graph> graphs = new LinkedHashMap<>();
+        graphs.put("Barabasi-Albert", generator.barabasiAlbert(users, EDGES_PER_USER));
+        graphs.put("R-MAT", generator.rmat(scale, (long) users * EDGES_PER_USER));
+
+        Map<String, Supplier<SocialNetwork>> backends = new LinkedHashMap<>();
+        backends.put("Own HashMap", DNABookHashImpl::new);
+        backends.put("Java HashMap", DNABookJavaImpl::new);
+        backends.put("Adaptive", AdaptiveSocialNetwork::new);
+        backends.put("Versioned", VersionedSocialNetwork::new);
+
+        for (Map.Entry<String, WorkloadGenerator.Graph> graph : graphs.entrySet()) {
+            int graphUsers = graph.getValue().userCount();
+            System.out.println();
+            System.out.println("============================ " + graph.getKey() + " (" + graphUsers + " users, "
+                    + graph.getValue().edgeCount() + " edges) ============================");
+
+            if (graphUsers <= MAX_MATRIX_USERS)
+                run("Binary Search", () -> new DNABook(graphUsers), graph.getValue(), generator);
+
+            backends.forEach((name, backend) -> run(name, backend, graph.getValue(), generator));
+            runReadOnly(graph.getValue(), generator);
+        }
+    }
+
+    /**
+     * Compares a loaded {@link DNABookJavaImpl} with a frozen copy of itself, on reads only.
+     */
+    private static void runReadOnly(WorkloadGenerator.Graph graph, WorkloadGenerator generator) {
+        DNABookJavaImpl network = new DNABookJavaImpl();
+        WorkloadGenerator.load(graph, network);
+
+        long start = System.nanoTime();
+        FrozenSocialNetwork frozen = network.freeze();
+        long frozenAt = System.nanoTime();
+
+        System.out.printf("%-14s freeze %4d ms%n", "Frozen", (frozenAt - start) / 1_000_000);
+        readOnly("Java (reads)", network, graph, generator);
+        readOnly("Frozen (reads)", frozen, graph, generator);
+    }
+
+    private static void readOnly(String name, SocialNetwork network, WorkloadGenerator.Graph graph,
+                                 WorkloadGenerator generator) {
+        int width = WorkloadGenerator.nameWidth(graph.userCount());
+        String[] names = new String[graph.userCount()];
+        for (int id = 0; id < names.length; id++)
+            names[id] = WorkloadGenerator.name(id, width);
+
+        long[] missedHits = new long[1];
+        long start = System.nanoTime();
+
+        generator.queries(graph, QUERIES, 1.0, HIT_RATIO, ZIPF_EXPONENT, (type, id1, id2, expectedHit) -> {
+            if (!network.areTheyFriends(names[id1], names[id2]) && expectedHit)
+                missedHits[0]++;
+        });
+
+        long end = System.nanoTime();
+        System.out.printf("%-14s                | queries %,12.0f / s | wrong answers: %d%n", name,
+                QUERIES / ((end - start) / 1_000_000_000d), missedHits[0]);
+    }
+
+    private static void run(String name, Supplier<SocialNetwork> backend, WorkloadGenerator.Graph graph,
+                            WorkloadGenerator generator) {
+        SocialNetwork network = backend.get();
+        int width = WorkloadGenerator.nameWidth(graph.userCount());
+
+        long start = System.nanoTime();
+        WorkloadGenerator.load(graph, network);
+        long loaded = System.nanoTime();
+
+        // names are made up front so that string building doesn't get timed along with the network
+        String[] names = new String[graph.userCount()];
+        for (int id = 0; id < names.length; id++)
+            names[id] = WorkloadGenerator.name(id, width);
+
+        long[] missedHits = new long[1];
+        long queryStart = System.nanoTime();
+
+        generator.queries(graph, QUERIES, READ_RATIO, HIT_RATIO, ZIPF_EXPONENT, (type, id1, id2, expectedHit) -> {
+            if (type == WorkloadGenerator.QueryType.BECOME_FRIENDS) {
+                network.becomeFriends(names[id1], names[id2]);
+            } else if (!network.areTheyFriends(names[id1], names[id2]) && expectedHit) {
+                missedHits[0]++;
+            }
+        });
+
+        long end = System.nanoTime();
+
+        System.out.printf("%-14s load %6d ms | queries %,12.0f / s | wrong answers: %d%n", name,
+                (loaded - start) / 1_000_000, QUERIES / ((end - queryStart) / 1_000_000_000d), missedHits[0]);
+    }
+}
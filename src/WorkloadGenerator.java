@@ -0,0 +1,403 @@
+import java.util.SplittableRandom;
+
+/**
+ * <p>Generates realistic, reproducible workloads for benchmarking {@link SocialNetwork} backends - a friend graph, and
+ * a stream of queries against it.</p>
+ *
+ *
+ * ======= GRAPHS =======
+ *
+ * <p>Real social networks have a power-law degree distribution - most people have a handful of friends and a few
+ * people have a huge number - which is nothing like picking pairs uniformly at random. Two models are provided:</p>
+ *
+ * <ul>
+ *     <li>{@link BarabasiAlbert} - users join one at a time, and each one makes friends with {@code m} existing users,
+ *     picked in proportion to how many friends they already have ("the rich get richer").</li>
+ *     <li>{@link RMat} - each friendship picks its two users by recursively choosing one of the four quadrants of the
+ *     adjacency matrix with skewed probabilities. Every edge is worked out from just its index and the seed, so
+ *     nothing at all is stored.</li>
+ * </ul>
+ *
+ * <p>Edges are handed to an {@link EdgeConsumer} as they're generated, rather than being collected into a list, so
+ * the generator itself takes up very little heap even at 10^7 users. (The exception is Barabasi-Albert, which has to
+ * remember who everyone's friends with in order to pick proportionally - but it only keeps one int per edge.)</p>
+ *
+ *
+ * ======= QUERIES =======
+ *
+ * <p>Queries are a mix of {@link QueryType#ARE_THEY_FRIENDS} and {@link QueryType#BECOME_FRIENDS}, in a configurable
+ * ratio. Users are chosen with a Zipfian distribution, so a few users get most of the traffic. The user with rank 1 is
+ * user 0, which in both graph models is also one of the best connected users - popular users having lots of friends is
+ * pretty realistic.</p>
+ *
+ * <p>A configurable fraction of the reads are hits, which are made by picking a real edge from the graph. The rest are
+ * two Zipfian users, which will almost always not be friends.</p>
+ *
+ *
+ * ======= NOTES =======
+ *
+ * <p>Everything is driven by {@link SplittableRandom}s created from the seed, so the same seed always gives exactly the
+ * same graph and queries.</p>
+ *
+ * <p>Names are zero-padded to the same width (eg. {@code u0000042}) so that registering users in id order is also
+ * registering them in alphabetical order, which is what {@link DNABook} needs.</p>
+ */
+public class WorkloadGenerator {
+
+    public interface EdgeConsumer {
+        void accept(int id1, int id2);
+    }
+
+    public enum QueryType {
+        ARE_THEY_FRIENDS, BECOME_FRIENDS
+    }
+
+    public interface QueryConsumer {
+        /**
+         * @param expectedHit for reads, whether the pair was picked from a real edge
+         */
+        void accept(QueryType type, int id1, int id2, boolean expectedHit);
+    }
+
+    /**
+     * A friend graph that can be streamed, and that can hand out any one of its edges by index.
+     */
+    public interface Graph {
+        int userCount();
+
+        long edgeCount();
+
+        void forEachEdge(EdgeConsumer consumer);
+
+        /**
+         * @return edge number {@code index}, packed as {@code (id1 << 32) | id2}
+         */
+        long edge(long index);
+    }
+
+    private final long seed;
+
+    public WorkloadGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public Graph barabasiAlbert(int users, int edgesPerUser) {
+        return new BarabasiAlbert(users, edgesPerUser, seed);
+    }
+
+    public Graph rmat(int scale, long edges) {
+        return new RMat(scale, edges, 0.57, 0.19, 0.19, seed);
+    }
+
+    /**
+     * Registers every user in the graph, in alphabetical order, then adds every friendship.
+     */
+    public static void load(Graph graph, SocialNetwork network) {
+        int width = nameWidth(graph.userCount());
+
+        for (int id = 0; id < graph.userCount(); id++)
+            network.registerUser(name(id, width));
+
+        graph.forEachEdge((id1, id2) -> network.becomeFriends(name(id1, width), name(id2, width)));
+    }
+
+    /**
+     * Streams a number of Zipfian queries against the graph.
+     *
+     * @param readRatio the fraction of queries that are {@link QueryType#ARE_THEY_FRIENDS}
+     * @param hitRatio the fraction of reads that are for a pair that really are friends
+     * @param zipfExponent how skewed popularity is - 0 is uniform, around 1 is typical
+     */
+    public void queries(Graph graph, long count, double readRatio, double hitRatio, double zipfExponent,
+                        QueryConsumer consumer) {
+        SplittableRandom random = new SplittableRandom(seed ^ 0x5DEECE66DL);
+        ZipfSampler zipf = new ZipfSampler(graph.userCount(), zipfExponent);
+
+        for (long i = 0; i < count; i++) {
+            if (random.nextDouble() < readRatio) {
+                if (graph.edgeCount() > 0 && random.nextDouble() < hitRatio) {
+                    long edge = graph.edge(random.nextLong(graph.edgeCount()));
+                    consumer.accept(QueryType.ARE_THEY_FRIENDS, (int) (edge >>> 32), (int) edge, true);
+                } else {
+                    consumer.accept(QueryType.ARE_THEY_FRIENDS, zipf.sample(random) - 1, zipf.sample(random) - 1, false);
+                }
+            } else {
+                consumer.accept(QueryType.BECOME_FRIENDS, zipf.sample(random) - 1, zipf.sample(random) - 1, false);
+            }
+        }
+    }
+
+    public static String name(int id, int width) {
+        String digits = Integer.toString(id);
+        StringBuilder builder = new StringBuilder(width + 1).append('u');
+
+        for (int i = digits.length(); i < width; i++)
+            builder.append('0');
+
+        return builder.append(digits).toString();
+    }
+
+    public static int nameWidth(int users) {
+        return Integer.toString(Math.max(0, users - 1)).length();
+    }
+
+    /* ============================ MODELS ============================ */
+
+    /**
+     * <p>Preferential attachment. Starts with {@code m + 1} users all friends with each other, then every other user
+     * makes {@code m} friendships.</p>
+     *
+     * <p>Picking a user in proportion to their degree is the same as picking a random end of a random existing edge.
+     * The edges are stored as {@link #targets} only - the other end of edge k is always the user that was joining when
+     * it was made, which can be worked out from k.</p>
+     *
+     * <p>A user can pick the same friend more than once, so a few friendships come up twice (networks just ignore the
+     * repeats).</p>
+     */
+    public static class BarabasiAlbert implements Graph {
+
+        private final int users;
+
+        private final int m;
+
+        private final int seedEdges;
+
+        private final int[] targets;
+
+        public BarabasiAlbert(int users, int m, long seed) {
+            if (m < 1 || users <= m)
+                throw new IllegalArgumentException("Need more than " + m + " users, got " + users);
+
+            this.users = users;
+            this.m = m;
+            this.seedEdges = m * (m + 1) / 2;
+
+            long edges = seedEdges + (long) (users - m - 1) * m;
+            if (edges > Integer.MAX_VALUE - 8)
+                throw new IllegalArgumentException("Too many edges: " + edges);
+
+            this.targets = new int[(int) edges];
+            build(new SplittableRandom(seed));
+        }
+
+        private void build(SplittableRandom random) {
+            for (int k = 0; k < seedEdges; k++)
+                targets[k] = seedTarget(k);
+
+            for (int k = seedEdges; k < targets.length; k++) {
+                // pick a random end of a random earlier edge - but never one made by this same user
+                int firstOfUser = k - (k - seedEdges) % m;
+                int edge = random.nextInt(firstOfUser);
+                targets[k] = random.nextBoolean() ? targets[edge] : source(edge);
+            }
+        }
+
+        @Override
+        public int userCount() {
+            return users;
+        }
+
+        @Override
+        public long edgeCount() {
+            return targets.length;
+        }
+
+        @Override
+        public void forEachEdge(EdgeConsumer consumer) {
+            for (int k = 0; k < targets.length; k++)
+                consumer.accept(source(k), targets[k]);
+        }
+
+        @Override
+        public long edge(long index) {
+            return ((long) source((int) index) << 32) | targets[(int) index];
+        }
+
+        private int source(int k) {
+            if (k >= seedEdges)
+                return m + 1 + (k - seedEdges) / m;
+
+            // the seed clique is listed as (1,0), (2,0), (2,1), (3,0), ...
+            int source = 1;
+            while (source * (source + 1) / 2 <= k)
+                source++;
+
+            return source;
+        }
+
+        private int seedTarget(int k) {
+            int source = source(k);
+            return k - source * (source - 1) / 2;
+        }
+    }
+
+    /**
+     * <p>Recursive matrix model. Each edge goes down {@code scale} levels, picking the top-left, top-right, bottom-left
+     * or bottom-right quadrant with probability a, b, c, or 1 - a - b - c.</p>
+     *
+     * <p>If an edge comes out as a user being friends with themselves, it just keeps going with the same random
+     * numbers until it doesn't, so that every index is a real friendship. Some pairs do come up more than once though
+     * (networks just ignore the repeats).</p>
+     */
+    public static class RMat implements Graph {
+
+        private final int scale;
+
+        private final long edges;
+
+        private final double a;
+
+        private final double ab;
+
+        private final double abc;
+
+        private final long seed;
+
+        public RMat(int scale, long edges, double a, double b, double c, long seed) {
+            if (scale < 1 || scale > 30)
+                throw new IllegalArgumentException("Illegal scale: " + scale);
+
+            if (a < 0 || b < 0 || c < 0 || a + b + c > 1 || b + c == 0)
+                throw new IllegalArgumentException("Illegal quadrant probabilities: " + a + ", " + b + ", " + c);
+
+            this.scale = scale;
+            this.edges = edges;
+            this.a = a;
+            this.ab = a + b;
+            this.abc = a + b + c;
+            this.seed = seed;
+        }
+
+        @Override
+        public int userCount() {
+            return 1 << scale;
+        }
+
+        @Override
+        public long edgeCount() {
+            return edges;
+        }
+
+        @Override
+        public void forEachEdge(EdgeConsumer consumer) {
+            for (long k = 0; k < edges; k++) {
+                long edge = edge(k);
+                consumer.accept((int) (edge >>> 32), (int) edge);
+            }
+        }
+
+        @Override
+        public long edge(long index) {
+            SplittableRandom random = new SplittableRandom(seed + index * 0x9E3779B97F4A7C15L);
+            long edge;
+
+            do {
+                edge = pickEdge(random);
+            } while ((int) (edge >>> 32) == (int) edge);
+
+            return edge;
+        }
+
+        private long pickEdge(SplittableRandom random) {
+            int id1 = 0;
+            int id2 = 0;
+
+            for (int level = 0; level < scale; level++) {
+                double p = random.nextDouble();
+                id1 <<= 1;
+                id2 <<= 1;
+
+                if (p >= abc) {
+                    id1 |= 1;
+                    id2 |= 1;
+                } else if (p >= ab) {
+                    id1 |= 1;
+                } else if (p >= a) {
+                    id2 |= 1;
+                }
+            }
+            return ((long) id1 << 32) | id2;
+        }
+    }
+
+    /* ============================ ZIPF ============================ */
+
+    /**
+     * <p>Samples ranks from 1 to n with probability proportional to {@code 1 / rank^exponent}, in O(1) time and with
+     * no tables, using rejection-inversion sampling (Hormann and Derflinger, 1996).</p>
+     */
+    public static class ZipfSampler {
+
+        private final int n;
+
+        private final double exponent;
+
+        private final double hIntegralX1;
+
+        private final double hIntegralN;
+
+        private final double s;
+
+        public ZipfSampler(int n, double exponent) {
+            if (n < 1)
+                throw new IllegalArgumentException("Illegal n: " + n);
+
+            if (exponent < 0)
+                throw new IllegalArgumentException("Illegal exponent: " + exponent);
+
+            this.n = n;
+            this.exponent = exponent;
+            this.hIntegralX1 = hIntegral(1.5) - 1;
+            this.hIntegralN = hIntegral(n + 0.5);
+            this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+        }
+
+        public int sample(SplittableRandom random) {
+            while (true) {
+                double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+                double x = hIntegralInverse(u);
+                int k = (int) (x + 0.5);
+
+                if (k < 1)
+                    k = 1;
+                else if (k > n)
+                    k = n;
+
+                if (k - x <= s || u >= hIntegral(k + 0.5) - h(k))
+                    return k;
+            }
+        }
+
+        private double h(double x) {
+            return Math.exp(-exponent * Math.log(x));
+        }
+
+        private double hIntegral(double x) {
+            double logX = Math.log(x);
+            return helper2((1 - exponent) * logX) * logX;
+        }
+
+        private double hIntegralInverse(double x) {
+            double t = x * (1 - exponent);
+
+            if (t < -1)
+                t = -1; // only happens because of rounding
+
+            return Math.exp(helper1(t) * x);
+        }
+
+        /**
+         * log(1 + x) / x, done carefully for x close to 0.
+         */
+        private static double helper1(double x) {
+            return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1d / 3 - 0.25 * x));
+        }
+
+        /**
+         * (e^x - 1) / x, done carefully for x close to 0.
+         */
+        private static double helper2(double x) {
+            return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+        }
+    }
+}